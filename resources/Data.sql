@@ -6,27 +6,99 @@ DROP DATABASE IF EXISTS prod;
 CREATE DATABASE prod;
 USE prod;
 
+DROP TABLE IF EXISTS permit;
+DROP TABLE IF EXISTS outbox_skipped;
+DROP TABLE IF EXISTS outbox_checkpoint;
+DROP TABLE IF EXISTS outbox;
+DROP TABLE IF EXISTS reservation;
 DROP TABLE IF EXISTS ticket;
 DROP TABLE IF EXISTS parking;
 
 CREATE TABLE parking (
     PARKING_NUMBER INT PRIMARY KEY,
     AVAILABLE BOOLEAN NOT NULL,
-    TYPE VARCHAR(10) NOT NULL
+    TYPE VARCHAR(10) NOT NULL,
+    LOT_ID INT NOT NULL DEFAULT 1
 ) ENGINE=InnoDB;
 
 CREATE TABLE ticket (
-    ID INT PRIMARY KEY AUTO_INCREMENT,
+    /* set by the application from TicketIdGenerator, no AUTO_INCREMENT that could take an ID it gives */
+    ID BIGINT PRIMARY KEY,
     PARKING_NUMBER INT NOT NULL,
     VEHICLE_REG_NUMBER VARCHAR(10) NOT NULL,
     PRICE DOUBLE,
     IN_TIME DATETIME NOT NULL,
     OUT_TIME DATETIME,
+    LOT_ID INT NOT NULL DEFAULT 1,
     CONSTRAINT fk_ticket_parking
         FOREIGN KEY (PARKING_NUMBER)
         REFERENCES parking(PARKING_NUMBER)
 ) ENGINE=InnoDB;
 
+/* open tickets of a range of spots, read by the reconciliation job */
+CREATE INDEX idx_ticket_open_spot ON ticket (LOT_ID, OUT_TIME, PARKING_NUMBER);
+
+/* season passes and monthly permits, their holders leave without paying */
+CREATE TABLE permit (
+    ID INT PRIMARY KEY AUTO_INCREMENT,
+    VEHICLE_REG_NUMBER VARCHAR(10) NOT NULL,
+    VALID_FROM DATETIME NOT NULL,
+    VALID_UNTIL DATETIME NOT NULL,
+    INDEX idx_permit_valid_until (VALID_UNTIL)
+) ENGINE=InnoDB;
+
+/* ticket changes, written in the ticket's transaction and read by the outbox relays */
+CREATE TABLE outbox (
+    ID BIGINT PRIMARY KEY AUTO_INCREMENT,
+    LOT_ID INT NOT NULL,
+    EVENT_TYPE VARCHAR(20) NOT NULL,
+    TICKET_ID BIGINT,
+    VEHICLE_REG_NUMBER VARCHAR(10) NOT NULL,
+    PARKING_NUMBER INT NOT NULL,
+    PRICE DOUBLE,
+    IN_TIME DATETIME,
+    OUT_TIME DATETIME,
+    CREATED_AT DATETIME NOT NULL
+) ENGINE=InnoDB;
+
+CREATE TABLE outbox_checkpoint (
+    CONSUMER VARCHAR(64) PRIMARY KEY,
+    LAST_ID BIGINT NOT NULL
+) ENGINE=InnoDB;
+
+/* IDs a consumer's checkpoint moved past before they were visible, looked up again until they show up */
+CREATE TABLE outbox_skipped (
+    CONSUMER VARCHAR(64) NOT NULL,
+    ID BIGINT NOT NULL,
+    SKIPPED_AT DATETIME NOT NULL,
+    PRIMARY KEY (CONSUMER, ID)
+) ENGINE=InnoDB;
+
+CREATE TABLE reservation (
+    ID INT PRIMARY KEY AUTO_INCREMENT,
+    PARKING_NUMBER INT NOT NULL,
+    VEHICLE_REG_NUMBER VARCHAR(10) NOT NULL,
+    START_TIME DATETIME NOT NULL,
+    END_TIME DATETIME NOT NULL,
+    LOT_ID INT NOT NULL DEFAULT 1,
+    /* set when the booked car parks, the spot stays booked until END_TIME */
+    CLAIMED BOOLEAN NOT NULL DEFAULT false,
+    CONSTRAINT fk_reservation_parking
+        FOREIGN KEY (PARKING_NUMBER)
+        REFERENCES parking(PARKING_NUMBER)
+) ENGINE=InnoDB;
+
+/* per lot, day and parking type: HyperLogLog of plates, KLL sketches of dwell minutes and fares */
+CREATE TABLE analytics_sketch (
+    LOT_ID INT NOT NULL,
+    DAY DATE NOT NULL,
+    PARKING_TYPE VARCHAR(10) NOT NULL,
+    PLATES BLOB NOT NULL,
+    DWELL_MINUTES BLOB NOT NULL,
+    FARES BLOB NOT NULL,
+    PRIMARY KEY (LOT_ID, DAY, PARKING_TYPE)
+) ENGINE=InnoDB;
+
 /* Parking spots */
 INSERT INTO parking (PARKING_NUMBER, AVAILABLE, TYPE) VALUES (1, true, 'CAR');
 INSERT INTO parking (PARKING_NUMBER, AVAILABLE, TYPE) VALUES (2, true, 'CAR');
@@ -45,27 +117,99 @@ DROP DATABASE IF EXISTS test;
 CREATE DATABASE test;
 USE test;
 
+DROP TABLE IF EXISTS permit;
+DROP TABLE IF EXISTS outbox_skipped;
+DROP TABLE IF EXISTS outbox_checkpoint;
+DROP TABLE IF EXISTS outbox;
+DROP TABLE IF EXISTS reservation;
 DROP TABLE IF EXISTS ticket;
 DROP TABLE IF EXISTS parking;
 
 CREATE TABLE parking (
     PARKING_NUMBER INT PRIMARY KEY,
     AVAILABLE BOOLEAN NOT NULL,
-    TYPE VARCHAR(10) NOT NULL
+    TYPE VARCHAR(10) NOT NULL,
+    LOT_ID INT NOT NULL DEFAULT 1
 ) ENGINE=InnoDB;
 
 CREATE TABLE ticket (
-    ID INT PRIMARY KEY AUTO_INCREMENT,
+    /* set by the application from TicketIdGenerator, no AUTO_INCREMENT that could take an ID it gives */
+    ID BIGINT PRIMARY KEY,
     PARKING_NUMBER INT NOT NULL,
     VEHICLE_REG_NUMBER VARCHAR(10) NOT NULL,
     PRICE DOUBLE,
     IN_TIME DATETIME NOT NULL,
     OUT_TIME DATETIME,
+    LOT_ID INT NOT NULL DEFAULT 1,
     CONSTRAINT fk_ticket_parking_test
         FOREIGN KEY (PARKING_NUMBER)
         REFERENCES parking(PARKING_NUMBER)
 ) ENGINE=InnoDB;
 
+/* open tickets of a range of spots, read by the reconciliation job */
+CREATE INDEX idx_ticket_open_spot ON ticket (LOT_ID, OUT_TIME, PARKING_NUMBER);
+
+/* season passes and monthly permits, their holders leave without paying */
+CREATE TABLE permit (
+    ID INT PRIMARY KEY AUTO_INCREMENT,
+    VEHICLE_REG_NUMBER VARCHAR(10) NOT NULL,
+    VALID_FROM DATETIME NOT NULL,
+    VALID_UNTIL DATETIME NOT NULL,
+    INDEX idx_permit_valid_until (VALID_UNTIL)
+) ENGINE=InnoDB;
+
+/* ticket changes, written in the ticket's transaction and read by the outbox relays */
+CREATE TABLE outbox (
+    ID BIGINT PRIMARY KEY AUTO_INCREMENT,
+    LOT_ID INT NOT NULL,
+    EVENT_TYPE VARCHAR(20) NOT NULL,
+    TICKET_ID BIGINT,
+    VEHICLE_REG_NUMBER VARCHAR(10) NOT NULL,
+    PARKING_NUMBER INT NOT NULL,
+    PRICE DOUBLE,
+    IN_TIME DATETIME,
+    OUT_TIME DATETIME,
+    CREATED_AT DATETIME NOT NULL
+) ENGINE=InnoDB;
+
+CREATE TABLE outbox_checkpoint (
+    CONSUMER VARCHAR(64) PRIMARY KEY,
+    LAST_ID BIGINT NOT NULL
+) ENGINE=InnoDB;
+
+/* IDs a consumer's checkpoint moved past before they were visible, looked up again until they show up */
+CREATE TABLE outbox_skipped (
+    CONSUMER VARCHAR(64) NOT NULL,
+    ID BIGINT NOT NULL,
+    SKIPPED_AT DATETIME NOT NULL,
+    PRIMARY KEY (CONSUMER, ID)
+) ENGINE=InnoDB;
+
+CREATE TABLE reservation (
+    ID INT PRIMARY KEY AUTO_INCREMENT,
+    PARKING_NUMBER INT NOT NULL,
+    VEHICLE_REG_NUMBER VARCHAR(10) NOT NULL,
+    START_TIME DATETIME NOT NULL,
+    END_TIME DATETIME NOT NULL,
+    LOT_ID INT NOT NULL DEFAULT 1,
+    /* set when the booked car parks, the spot stays booked until END_TIME */
+    CLAIMED BOOLEAN NOT NULL DEFAULT false,
+    CONSTRAINT fk_reservation_parking_test
+        FOREIGN KEY (PARKING_NUMBER)
+        REFERENCES parking(PARKING_NUMBER)
+) ENGINE=InnoDB;
+
+/* per lot, day and parking type: HyperLogLog of plates, KLL sketches of dwell minutes and fares */
+CREATE TABLE analytics_sketch (
+    LOT_ID INT NOT NULL,
+    DAY DATE NOT NULL,
+    PARKING_TYPE VARCHAR(10) NOT NULL,
+    PLATES BLOB NOT NULL,
+    DWELL_MINUTES BLOB NOT NULL,
+    FARES BLOB NOT NULL,
+    PRIMARY KEY (LOT_ID, DAY, PARKING_TYPE)
+) ENGINE=InnoDB;
+
 /* Parking spots */
 INSERT INTO parking (PARKING_NUMBER, AVAILABLE, TYPE) VALUES (1, true, 'CAR');
 INSERT INTO parking (PARKING_NUMBER, AVAILABLE, TYPE) VALUES (2, true, 'CAR');
@@ -0,0 +1,45 @@
+/* =========================
+   ONE-OFF PLATE NORMALIZATION
+   =========================
+   Plates typed at the console are now stored upper case without separators ("ab-123 cd" is saved
+   as "AB123CD"), and exits and recurrence counts look them up in that form. Run this once on a
+   database filled before that change, on prod and on test, so the rows saved before it are found
+   again. Plates holding characters the application rejects are left as they are. */
+
+USE prod;
+
+UPDATE ticket SET VEHICLE_REG_NUMBER = UPPER(REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', ''))
+WHERE VEHICLE_REG_NUMBER NOT REGEXP BINARY '[^ -~]'
+  AND REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', '') <> ''
+  AND BINARY VEHICLE_REG_NUMBER <> UPPER(REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', ''));
+
+UPDATE reservation SET VEHICLE_REG_NUMBER = UPPER(REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', ''))
+WHERE VEHICLE_REG_NUMBER NOT REGEXP BINARY '[^ -~]'
+  AND REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', '') <> ''
+  AND BINARY VEHICLE_REG_NUMBER <> UPPER(REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', ''));
+
+UPDATE permit SET VEHICLE_REG_NUMBER = UPPER(REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', ''))
+WHERE VEHICLE_REG_NUMBER NOT REGEXP BINARY '[^ -~]'
+  AND REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', '') <> ''
+  AND BINARY VEHICLE_REG_NUMBER <> UPPER(REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', ''));
+
+COMMIT;
+
+USE test;
+
+UPDATE ticket SET VEHICLE_REG_NUMBER = UPPER(REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', ''))
+WHERE VEHICLE_REG_NUMBER NOT REGEXP BINARY '[^ -~]'
+  AND REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', '') <> ''
+  AND BINARY VEHICLE_REG_NUMBER <> UPPER(REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', ''));
+
+UPDATE reservation SET VEHICLE_REG_NUMBER = UPPER(REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', ''))
+WHERE VEHICLE_REG_NUMBER NOT REGEXP BINARY '[^ -~]'
+  AND REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', '') <> ''
+  AND BINARY VEHICLE_REG_NUMBER <> UPPER(REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', ''));
+
+UPDATE permit SET VEHICLE_REG_NUMBER = UPPER(REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', ''))
+WHERE VEHICLE_REG_NUMBER NOT REGEXP BINARY '[^ -~]'
+  AND REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', '') <> ''
+  AND BINARY VEHICLE_REG_NUMBER <> UPPER(REGEXP_REPLACE(VEHICLE_REG_NUMBER, '[^0-9A-Za-z]', ''));
+
+COMMIT;
@@ -0,0 +1,42 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.util.RoundTripCounter;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Counts connections handed out by another DataBaseConfig. Every DAO method takes one connection for
+ * one statement, so this is also the number of DB round trips.
+ */
+public class CountingDataBaseConfig extends DataBaseConfig {
+
+    private final DataBaseConfig source;
+    private final RoundTripCounter counter;
+
+    public CountingDataBaseConfig(DataBaseConfig source, RoundTripCounter counter) {
+        this.source = source;
+        this.counter = counter;
+    }
+
+    @Override
+    public Connection getConnection() throws ClassNotFoundException, SQLException {
+        counter.record();
+        return source.getConnection();
+    }
+
+    @Override
+    public void closeConnection(Connection con) {
+        source.closeConnection(con);
+    }
+
+    @Override
+    public int getFetchSize() {
+        return source.getFetchSize();
+    }
+
+    @Override
+    public void setFetchSize(int fetchSize) {
+        source.setFetchSize(fetchSize);
+    }
+}
@@ -9,11 +9,48 @@ public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    // Connector/J streams a forward-only, read-only result row by row only for this fetch size; a
+    // positive size fetches through a server-side cursor if the URL sets useCursorFetch=true
+    public static final int STREAM_ROW_BY_ROW = Integer.MIN_VALUE;
+
+    // without them a stalled server blocks connect and reads forever
+    public static final int CONNECT_TIMEOUT_MILLIS = 2_000;
+    public static final int SOCKET_TIMEOUT_MILLIS = 30_000;
+
+    private int fetchSize = STREAM_ROW_BY_ROW;
+
     public Connection getConnection() throws ClassNotFoundException, SQLException {
         logger.info("Create DB connection");
         Class.forName("com.mysql.cj.jdbc.Driver");
         return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod","root","Ilyes@270706");
+                "jdbc:mysql://localhost:3306/prod?connectTimeout=" + CONNECT_TIMEOUT_MILLIS
+                        + "&socketTimeout=" + SOCKET_TIMEOUT_MILLIS,"root","Ilyes@270706");
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Prepares a statement for a bulk read that is consumed row by row instead of being buffered.
+     * The connection must not run anything else until the result set is closed.
+     */
+    public PreparedStatement prepareStreamingStatement(Connection con, String sql) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(getFetchSize());
+        return ps;
+    }
+
+    /**
+     * Prepares a statement for a read over many rows that is not streamed (range scans, startup
+     * loads), so wrappers can give it a longer timeout than the gate path.
+     */
+    public PreparedStatement prepareBulkStatement(Connection con, String sql) throws SQLException {
+        return con.prepareStatement(sql);
     }
 
     public void closeConnection(Connection con){
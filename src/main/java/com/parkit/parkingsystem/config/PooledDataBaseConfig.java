@@ -0,0 +1,147 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded connection pool on top of another DataBaseConfig; DAOs keep calling getConnection/closeConnection.
+ * A borrowed connection is only validated when it sat idle longer than validationIdleMillis, a
+ * connection returned moments ago costs no round trip.
+ */
+public class PooledDataBaseConfig extends DataBaseConfig {
+
+    private static final Logger logger = LogManager.getLogger("PooledDataBaseConfig");
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+    public static final long DEFAULT_VALIDATION_IDLE_MILLIS = 30_000;
+
+    private final DataBaseConfig source;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long validationIdleNanos;
+    private final BlockingQueue<IdleConnection> idle;
+    private final Semaphore permits;
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public PooledDataBaseConfig(DataBaseConfig source, int maxSize, long acquireTimeoutMillis) {
+        this(source, maxSize, acquireTimeoutMillis, DEFAULT_VALIDATION_IDLE_MILLIS);
+    }
+
+    public PooledDataBaseConfig(DataBaseConfig source, int maxSize, long acquireTimeoutMillis, long validationIdleMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        this.source = source;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validationIdleNanos = TimeUnit.MILLISECONDS.toNanos(validationIdleMillis);
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    @Override
+    public Connection getConnection() throws ClassNotFoundException, SQLException {
+        waiting.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for a DB connection after " + acquireTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a DB connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        try {
+            IdleConnection pooled;
+            while ((pooled = idle.poll()) != null) {
+                if (System.nanoTime() - pooled.idleSince < validationIdleNanos
+                        || pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    inUse.incrementAndGet();
+                    return pooled.connection;
+                }
+                source.closeConnection(pooled.connection);
+            }
+            Connection con = source.getConnection();
+            inUse.incrementAndGet();
+            return con;
+        } catch (ClassNotFoundException | SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void closeConnection(Connection con) {
+        if (con == null) {
+            return;
+        }
+        inUse.decrementAndGet();
+        try {
+            if (con.isClosed() || !con.getAutoCommit()) {
+                // never hand out a connection left in the middle of a transaction
+                source.closeConnection(con);
+            } else if (!idle.offer(new IdleConnection(con, System.nanoTime()))) {
+                source.closeConnection(con);
+            }
+        } catch (SQLException e) {
+            logger.error("Error while returning connection to the pool", e);
+            source.closeConnection(con);
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void shutdown() {
+        IdleConnection pooled;
+        while ((pooled = idle.poll()) != null) {
+            source.closeConnection(pooled.connection);
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getInUseCount() {
+        return inUse.get();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getWaitingCount() {
+        return waiting.get();
+    }
+
+    @Override
+    public int getFetchSize() {
+        return source.getFetchSize();
+    }
+
+    @Override
+    public void setFetchSize(int fetchSize) {
+        source.setFetchSize(fetchSize);
+    }
+
+    private static final class IdleConnection {
+
+        private final Connection connection;
+        private final long idleSince;
+
+        IdleConnection(Connection connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+}
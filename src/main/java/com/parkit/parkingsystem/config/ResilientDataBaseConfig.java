@@ -0,0 +1,301 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.util.CircuitBreaker;
+import com.parkit.parkingsystem.util.JitteredBackoff;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounds the time a DAO call can spend on a degraded DB, on top of another DataBaseConfig. Getting a
+ * connection has a deadline and is retried with jittered backoff while the deadline allows, every
+ * statement gets a short query timeout (a long one for streaming and bulk reads), and a circuit breaker fed by connection and statement failures makes
+ * getConnection fail immediately while the DB is down. DAOs already turn those failures into their
+ * empty results, so callers see a fast failure instead of a stalled gate.
+ */
+public class ResilientDataBaseConfig extends DataBaseConfig {
+
+    private static final Logger logger = LogManager.getLogger("ResilientDataBaseConfig");
+
+    public static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 2_000;
+    public static final int DEFAULT_CONNECT_ATTEMPTS = 3;
+    public static final int DEFAULT_QUERY_TIMEOUT_SECONDS = 5;
+    // full-table scans at startup and in reconciliation, which a gate never waits on
+    public static final int DEFAULT_BULK_QUERY_TIMEOUT_SECONDS = 600;
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 10_000;
+    private static final int MAX_CONNECTING_THREADS = 16;
+
+    private final DataBaseConfig source;
+    private final CircuitBreaker circuitBreaker;
+    private final long connectTimeoutMillis;
+    private final int connectAttempts;
+    private final int queryTimeoutSeconds;
+    private final int bulkQueryTimeoutSeconds;
+    private final JitteredBackoff backoff = new JitteredBackoff(50, 500);
+    private final ThreadPoolExecutor connector;
+
+    public ResilientDataBaseConfig(DataBaseConfig source) {
+        this(source, new CircuitBreaker("db", DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS),
+                DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_CONNECT_ATTEMPTS, DEFAULT_QUERY_TIMEOUT_SECONDS);
+    }
+
+    public ResilientDataBaseConfig(DataBaseConfig source, CircuitBreaker circuitBreaker,
+                                   long connectTimeoutMillis, int connectAttempts, int queryTimeoutSeconds) {
+        this(source, circuitBreaker, connectTimeoutMillis, connectAttempts, queryTimeoutSeconds,
+                DEFAULT_BULK_QUERY_TIMEOUT_SECONDS);
+    }
+
+    public ResilientDataBaseConfig(DataBaseConfig source, CircuitBreaker circuitBreaker, long connectTimeoutMillis,
+                                   int connectAttempts, int queryTimeoutSeconds, int bulkQueryTimeoutSeconds) {
+        this.source = source;
+        this.circuitBreaker = circuitBreaker;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.connectAttempts = Math.max(1, connectAttempts);
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+        this.bulkQueryTimeoutSeconds = bulkQueryTimeoutSeconds;
+        // a thread stuck in a connect keeps its slot, so a stalled DB cannot pile up threads
+        this.connector = new ThreadPoolExecutor(0, MAX_CONNECTING_THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "db-connect");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public Connection getConnection() throws ClassNotFoundException, SQLException {
+        if (!circuitBreaker.allowRequest()) {
+            throw new SQLTransientConnectionException("DB circuit is open, not trying to connect");
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(connectTimeoutMillis);
+        SQLException failure = null;
+        for (int attempt = 0; attempt < connectAttempts; attempt++) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                Connection con = connect(remaining);
+                circuitBreaker.recordSuccess();
+                return wrap(con);
+            } catch (SQLTimeoutException e) {
+                failure = e;
+                break;
+            } catch (SQLException e) {
+                failure = e;
+            }
+            long delayNanos = TimeUnit.MILLISECONDS.toNanos(backoff.delayMillis(attempt));
+            if (System.nanoTime() + delayNanos >= deadline) {
+                break;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        circuitBreaker.recordFailure();
+        throw (failure != null) ? failure
+                : new SQLTimeoutException("No DB connection within " + connectTimeoutMillis + " ms");
+    }
+
+    private Connection connect(long timeoutNanos) throws ClassNotFoundException, SQLException {
+        // whoever sets the flag first owns the connection: the caller, or the task once the caller gave up
+        AtomicBoolean settled = new AtomicBoolean();
+        Future<Connection> future;
+        try {
+            future = connector.submit(() -> {
+                Connection con = source.getConnection();
+                if (!settled.compareAndSet(false, true)) {
+                    source.closeConnection(con);
+                    return null;
+                }
+                return con;
+            });
+        } catch (RejectedExecutionException e) {
+            throw new SQLTransientConnectionException("Too many DB connections being opened", e);
+        }
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (settled.compareAndSet(false, true)) {
+                throw new SQLTimeoutException("No DB connection within " + connectTimeoutMillis + " ms");
+            }
+            return getDelivered(future);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (settled.compareAndSet(false, true)) {
+                throw new SQLTransientConnectionException("Interrupted while connecting to DB", e);
+            }
+            return getDelivered(future);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof ClassNotFoundException) {
+                throw (ClassNotFoundException) cause;
+            }
+            throw new SQLException("Unable to connect to DB", cause);
+        }
+    }
+
+    // the task won the race, its connection is about to be handed over
+    private static Connection getDelivered(Future<Connection> future) throws SQLException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new SQLException("Unable to connect to DB", e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Connection wrap(Connection con) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(con));
+    }
+
+    private static Connection unwrap(Connection con) {
+        if (con != null && Proxy.isProxyClass(con.getClass())
+                && Proxy.getInvocationHandler(con) instanceof ConnectionHandler) {
+            return ((ConnectionHandler) Proxy.getInvocationHandler(con)).target;
+        }
+        return con;
+    }
+
+    private static boolean isDatabaseUnavailable(SQLException e) {
+        String sqlState = e.getSQLState();
+        if (e instanceof SQLTransactionRollbackException) {
+            return false;
+        }
+        return e instanceof SQLTransientException || e instanceof SQLRecoverableException
+                || e instanceof SQLNonTransientConnectionException
+                || (sqlState != null && sqlState.startsWith("08"));
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeTarget(target, method, args);
+            if (method.getName().equals("prepareStatement")) {
+                PreparedStatement ps = (PreparedStatement) result;
+                ps.setQueryTimeout(queryTimeoutSeconds);
+                return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class}, new StatementHandler(ps));
+            }
+            return result;
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+
+        private final PreparedStatement target;
+
+        StatementHandler(PreparedStatement target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                return invokeTarget(target, method, args);
+            }
+            try {
+                Object result = invokeTarget(target, method, args);
+                circuitBreaker.recordSuccess();
+                return result;
+            } catch (SQLException e) {
+                if (isDatabaseUnavailable(e)) {
+                    circuitBreaker.recordFailure();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public PreparedStatement prepareStreamingStatement(Connection con, String sql) throws SQLException {
+        PreparedStatement ps = super.prepareStreamingStatement(con, sql);
+        ps.setQueryTimeout(bulkQueryTimeoutSeconds);
+        return ps;
+    }
+
+    @Override
+    public PreparedStatement prepareBulkStatement(Connection con, String sql) throws SQLException {
+        PreparedStatement ps = super.prepareBulkStatement(con, sql);
+        ps.setQueryTimeout(bulkQueryTimeoutSeconds);
+        return ps;
+    }
+
+    @Override
+    public void closeConnection(Connection con) {
+        source.closeConnection(unwrap(con));
+    }
+
+    @Override
+    public int getFetchSize() {
+        return source.getFetchSize();
+    }
+
+    @Override
+    public void setFetchSize(int fetchSize) {
+        source.setFetchSize(fetchSize);
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void shutdown() {
+        connector.shutdownNow();
+        logger.info("Stopped DB connect threads");
+    }
+}
@@ -2,10 +2,57 @@ package com.parkit.parkingsystem.constants;
 
 public class DBConstants {
 
-    public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
+    public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ? and LOT_ID = ?";
+    public static final String GET_AVAILABLE_PARKING_SPOTS = "select PARKING_NUMBER from parking where AVAILABLE = true and TYPE = ? and LOT_ID = ? order by PARKING_NUMBER";
+    public static final String GET_PARKING_SPOTS = "select PARKING_NUMBER, TYPE, AVAILABLE from parking where LOT_ID = ? order by PARKING_NUMBER";
+    public static final String GET_LOT_IDS = "select distinct LOT_ID from parking order by LOT_ID";
     public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
 
-    public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
+    public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, LOT_ID, ID) values(?,?,?,?,?,?,?)";
     public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
-    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME  limit 1";
+    public static final String UPDATE_OPEN_TICKET_BY_PLATE = "update ticket set PRICE=?, OUT_TIME=? where VEHICLE_REG_NUMBER=? and LOT_ID=? and OUT_TIME is null";
+    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? and t.LOT_ID=? order by t.IN_TIME  limit 1";
+    public static final String GET_TICKET_WITHOUT_SPOT = "select PARKING_NUMBER, ID, PRICE, IN_TIME, OUT_TIME from ticket where VEHICLE_REG_NUMBER=? and LOT_ID=? and OUT_TIME is null order by IN_TIME desc limit 1";
+    public static final String COUNT_OPEN_TICKETS = "select count(*) from ticket where VEHICLE_REG_NUMBER=? and LOT_ID=? and OUT_TIME is null";
+    public static final String GET_ALL_TICKETS = "select t.ID, t.PARKING_NUMBER, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, t.LOT_ID from ticket t,parking p where p.parking_number = t.parking_number order by t.ID";
+    public static final String GET_LOT_TICKETS = "select t.ID, t.PARKING_NUMBER, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, t.LOT_ID from ticket t,parking p where p.parking_number = t.parking_number and t.LOT_ID = ? order by t.ID";
+    public static final String GET_OPEN_LOT_TICKETS = "select t.ID, t.PARKING_NUMBER, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, t.LOT_ID from ticket t,parking p where p.parking_number = t.parking_number and t.LOT_ID = ? and t.OUT_TIME is null order by t.ID";
+    public static final String GET_RECENT_LOT_TICKETS = "select t.ID, t.PARKING_NUMBER, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, t.LOT_ID from ticket t,parking p where p.parking_number = t.parking_number and t.LOT_ID = ? and (t.OUT_TIME is null or t.OUT_TIME >= ?) order by t.ID";
+    public static final String COUNT_TICKETS = "select count(*) from ticket where VEHICLE_REG_NUMBER = ? and LOT_ID = ?";
+    public static final String GET_TICKET_COUNTS_BY_PLATE = "select VEHICLE_REG_NUMBER, count(*) from ticket where LOT_ID = ? group by VEHICLE_REG_NUMBER";
+    // %s is replaced by one placeholder per plate
+    public static final String GET_OPEN_TICKETS_OF_PLATES = "select t.VEHICLE_REG_NUMBER, t.PARKING_NUMBER, t.ID, t.IN_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.LOT_ID = ? and t.OUT_TIME is null and t.VEHICLE_REG_NUMBER in (%s)";
+    public static final String GET_TICKET_COUNTS_OF_PLATES = "select VEHICLE_REG_NUMBER, count(*) from ticket where LOT_ID = ? and VEHICLE_REG_NUMBER in (%s) group by VEHICLE_REG_NUMBER";
+    public static final String GET_PLATES_SINCE = "select VEHICLE_REG_NUMBER from ticket where IN_TIME >= ? and LOT_ID = ?";
+
+    public static final String GET_PARKING_NUMBER_RANGE = "select min(PARKING_NUMBER), max(PARKING_NUMBER) from parking where LOT_ID = ?";
+    public static final String GET_PARKING_SPOTS_IN_RANGE = "select PARKING_NUMBER, TYPE, AVAILABLE from parking where LOT_ID = ? and PARKING_NUMBER between ? and ?";
+    public static final String GET_OPEN_TICKETS_IN_RANGE = "select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, IN_TIME from ticket where LOT_ID = ? and OUT_TIME is null and PARKING_NUMBER between ? and ?";
+    public static final String FREE_SPOT_WITHOUT_OPEN_TICKET = "update parking set AVAILABLE = true where PARKING_NUMBER = ? and AVAILABLE = false and not exists (select 1 from ticket where PARKING_NUMBER = ? and LOT_ID = ? and OUT_TIME is null)";
+    public static final String OCCUPY_SPOT_WITH_OPEN_TICKET = "update parking set AVAILABLE = false where PARKING_NUMBER = ? and AVAILABLE = true and exists (select 1 from ticket where PARKING_NUMBER = ? and LOT_ID = ? and OUT_TIME is null)";
+    public static final String CLOSE_DUPLICATE_TICKET = "update ticket set PRICE = 0, OUT_TIME = ? where ID = ? and OUT_TIME is null";
+
+    public static final String SAVE_OUTBOX_ENTRY = "insert into outbox(LOT_ID, EVENT_TYPE, TICKET_ID, VEHICLE_REG_NUMBER, PARKING_NUMBER, PRICE, IN_TIME, OUT_TIME, CREATED_AT) values(?,?,?,?,?,?,?,?,?)";
+    public static final String GET_OUTBOX_ENTRIES_AFTER = "select ID, LOT_ID, EVENT_TYPE, TICKET_ID, VEHICLE_REG_NUMBER, PARKING_NUMBER, PRICE, IN_TIME, OUT_TIME, CREATED_AT from outbox where ID > ? order by ID limit ?";
+    public static final String GET_OUTBOX_CHECKPOINT = "select LAST_ID from outbox_checkpoint where CONSUMER = ?";
+    public static final String SAVE_OUTBOX_CHECKPOINT = "insert into outbox_checkpoint(CONSUMER, LAST_ID) values(?, ?) on duplicate key update LAST_ID = greatest(LAST_ID, values(LAST_ID))";
+    // %s is replaced by one placeholder per ID
+    public static final String GET_OUTBOX_ENTRIES_BY_IDS = "select ID, LOT_ID, EVENT_TYPE, TICKET_ID, VEHICLE_REG_NUMBER, PARKING_NUMBER, PRICE, IN_TIME, OUT_TIME, CREATED_AT from outbox where ID in (%s) order by ID";
+    public static final String GET_OUTBOX_SKIPPED_IDS = "select ID, SKIPPED_AT from outbox_skipped where CONSUMER = ? order by ID";
+    public static final String SAVE_OUTBOX_SKIPPED_ID = "insert ignore into outbox_skipped(CONSUMER, ID, SKIPPED_AT) values(?, ?, ?)";
+    public static final String DELETE_OUTBOX_SKIPPED_ID = "delete from outbox_skipped where CONSUMER = ? and ID = ?";
+    public static final String PURGE_DELIVERED_OUTBOX_ENTRIES = "delete from outbox where ID <= (select min(LAST_ID) from outbox_checkpoint) and CREATED_AT < ? limit ?";
+
+    public static final String SAVE_RESERVATION = "insert into reservation(PARKING_NUMBER, VEHICLE_REG_NUMBER, START_TIME, END_TIME, LOT_ID) values(?,?,?,?,?)";
+    public static final String GET_RESERVATIONS_ENDING_AFTER = "select r.ID, r.PARKING_NUMBER, r.VEHICLE_REG_NUMBER, r.START_TIME, r.END_TIME, p.TYPE, r.CLAIMED from reservation r,parking p where p.parking_number = r.parking_number and r.END_TIME > ? and r.LOT_ID = ? order by r.START_TIME";
+    public static final String CLAIM_RESERVATION = "update reservation set CLAIMED = true where ID = ? and CLAIMED = false";
+    public static final String DELETE_RESERVATION = "delete from reservation where ID = ?";
+
+    public static final String GET_ACTIVE_PERMITS = "select VEHICLE_REG_NUMBER, VALID_UNTIL from permit where VALID_FROM <= ? and VALID_UNTIL > ?";
+
+    public static final String INSERT_ANALYTICS_SKETCHES = "insert ignore into analytics_sketch(LOT_ID, DAY, PARKING_TYPE, PLATES, DWELL_MINUTES, FARES) values(?,?,?,?,?,?)";
+    public static final String LOCK_ANALYTICS_SKETCHES = "select PLATES, DWELL_MINUTES, FARES from analytics_sketch where LOT_ID = ? and DAY = ? and PARKING_TYPE = ? for update";
+    public static final String UPDATE_ANALYTICS_SKETCHES = "update analytics_sketch set PLATES = ?, DWELL_MINUTES = ?, FARES = ? where LOT_ID = ? and DAY = ? and PARKING_TYPE = ?";
+    public static final String GET_ANALYTICS_SKETCHES = "select DAY, PARKING_TYPE, PLATES, DWELL_MINUTES, FARES from analytics_sketch where DAY between ? and ? and LOT_ID = ?";
+    public static final String GET_ANALYTICS_SKETCHES_OF_ALL_LOTS = "select DAY, PARKING_TYPE, PLATES, DWELL_MINUTES, FARES from analytics_sketch where DAY between ? and ?";
 }
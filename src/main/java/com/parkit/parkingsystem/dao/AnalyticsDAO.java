@@ -0,0 +1,167 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.DailyParkingSketches;
+import com.parkit.parkingsystem.monitoring.DaoCallEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores the analytics sketches of a lot, one row per day and parking type. Saves merge into the row,
+ * the sketches saved must only hold what was recorded since the last save.
+ */
+public class AnalyticsDAO {
+
+    private static final Logger logger = LogManager.getLogger("AnalyticsDAO");
+
+    public DataBaseConfig dataBaseConfig;
+
+    private final int lotId;
+
+    public AnalyticsDAO(int lotId, DataBaseConfig dataBaseConfig) {
+        this.lotId = lotId;
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    public int getLotId() {
+        return lotId;
+    }
+
+    /**
+     * Merges the sketches into the saved rows, in one transaction. Rows are locked while merged, so
+     * nodes of the same lot flushing at once add up instead of overwriting each other.
+     */
+    public boolean saveSketches(List<DailyParkingSketches> sketches) {
+        if (sketches.isEmpty()) {
+            return true;
+        }
+        DaoCallEvent event = DaoCallEvent.begin("AnalyticsDAO", "saveSketches", lotId, null);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            PreparedStatement insert = con.prepareStatement(DBConstants.INSERT_ANALYTICS_SKETCHES);
+            PreparedStatement lock = con.prepareStatement(DBConstants.LOCK_ANALYTICS_SKETCHES);
+            PreparedStatement update = con.prepareStatement(DBConstants.UPDATE_ANALYTICS_SKETCHES);
+            for (DailyParkingSketches daily : sketches) {
+                Date day = Date.valueOf(daily.getDay());
+                String parkingType = daily.getParkingType().toString();
+                insert.setInt(1, lotId);
+                insert.setDate(2, day);
+                insert.setString(3, parkingType);
+                insert.setBytes(4, daily.getPlatesBytes());
+                insert.setBytes(5, daily.getDwellMinutesBytes());
+                insert.setBytes(6, daily.getFaresBytes());
+                if (insert.executeUpdate() > 0) {
+                    continue;
+                }
+                lock.setInt(1, lotId);
+                lock.setDate(2, day);
+                lock.setString(3, parkingType);
+                ResultSet rs = lock.executeQuery();
+                DailyParkingSketches merged = daily;
+                if (rs.next()) {
+                    try {
+                        merged = DailyParkingSketches.fromBytes(daily.getDay(), daily.getParkingType(),
+                                rs.getBytes(1), rs.getBytes(2), rs.getBytes(3));
+                        merged.merge(daily);
+                    } catch (IOException | IllegalArgumentException e) {
+                        logger.error("Replacing unreadable analytics sketches of " + daily, e);
+                    }
+                }
+                dataBaseConfig.closeResultSet(rs);
+                update.setBytes(1, merged.getPlatesBytes());
+                update.setBytes(2, merged.getDwellMinutesBytes());
+                update.setBytes(3, merged.getFaresBytes());
+                update.setInt(4, lotId);
+                update.setDate(5, day);
+                update.setString(6, parkingType);
+                update.executeUpdate();
+            }
+            con.commit();
+            dataBaseConfig.closePreparedStatement(insert);
+            dataBaseConfig.closePreparedStatement(lock);
+            dataBaseConfig.closePreparedStatement(update);
+            return true;
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error saving " + sketches.size() + " analytics sketches",ex);
+            if (con != null) {
+                try {
+                    con.rollback();
+                } catch (SQLException e) {
+                    logger.error("Error rolling back analytics sketches",e);
+                }
+            }
+        }finally {
+            event.finish();
+            if (con != null) {
+                try {
+                    con.setAutoCommit(true);
+                } catch (SQLException ex) {
+                    logger.error("Error restoring auto-commit",ex);
+                }
+            }
+            dataBaseConfig.closeConnection(con);
+        }
+        return false;
+    }
+
+    // this lot's rows from the first to the last day included; null if the DB could not be read
+    public List<DailyParkingSketches> getSketches(LocalDate from, LocalDate to) {
+        return getSketches(from, to, false);
+    }
+
+    // one row per lot, day and type, for callers merging lots
+    public List<DailyParkingSketches> getSketchesOfAllLots(LocalDate from, LocalDate to) {
+        return getSketches(from, to, true);
+    }
+
+    private List<DailyParkingSketches> getSketches(LocalDate from, LocalDate to, boolean allLots) {
+        DaoCallEvent event = DaoCallEvent.begin("AnalyticsDAO", "getSketches", allLots ? 0 : lotId, null);
+        Connection con = null;
+        List<DailyParkingSketches> sketches = new ArrayList<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(allLots
+                    ? DBConstants.GET_ANALYTICS_SKETCHES_OF_ALL_LOTS : DBConstants.GET_ANALYTICS_SKETCHES);
+            ps.setDate(1, Date.valueOf(from));
+            ps.setDate(2, Date.valueOf(to));
+            if (!allLots) {
+                ps.setInt(3, lotId);
+            }
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                LocalDate day = rs.getDate(1).toLocalDate();
+                try {
+                    sketches.add(DailyParkingSketches.fromBytes(day, ParkingType.valueOf(rs.getString(2)),
+                            rs.getBytes(3), rs.getBytes(4), rs.getBytes(5)));
+                } catch (IOException | IllegalArgumentException e) {
+                    logger.error("Skipping unreadable analytics sketches of " + day + " " + rs.getString(2), e);
+                }
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error reading analytics sketches",ex);
+            sketches = null;
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return sketches;
+    }
+}
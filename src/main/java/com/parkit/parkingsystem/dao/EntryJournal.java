@@ -0,0 +1,234 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.TicketIdGenerator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local file of entries whose DB writes failed, so a gate can let a car in while the DB is down.
+ * Each line keeps what is still missing in DB (the spot update, the ticket insert or both) and replay
+ * writes it in order, stopping at the first failure so entries are never reordered.
+ * Line format: inTime;lotId;parkingNumber;type;spotPending;ticketPending;plate;ticketId. Tickets
+ * journaled without an ID are numbered by the default TicketIdGenerator, the ticket table gives none.
+ */
+public class EntryJournal {
+
+    private static final Logger logger = LogManager.getLogger("EntryJournal");
+
+    private static final class Entry {
+        final Ticket ticket;
+        boolean spotPending;
+        final boolean ticketPending;
+
+        Entry(Ticket ticket, boolean spotPending, boolean ticketPending) {
+            this.ticket = ticket;
+            this.spotPending = spotPending;
+            this.ticketPending = ticketPending;
+        }
+    }
+
+    private final Path file;
+    private final List<Entry> pending = new ArrayList<>();
+    private FileChannel channel;
+    private ScheduledExecutorService replayScheduler;
+
+    public EntryJournal(Path file) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                Entry entry = parse(line);
+                if (entry != null) {
+                    pending.add(entry);
+                }
+            }
+            if (!pending.isEmpty()) {
+                logger.info(pending.size() + " journaled entries waiting to be written to DB");
+            }
+        }
+        this.channel = open();
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Records an entry and forces it to disk before returning.
+     */
+    public synchronized void append(Ticket ticket, boolean spotPending, boolean ticketPending) throws IOException {
+        // copied because the caller's ticket and spot change when the car leaves
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        Ticket copy = new Ticket();
+        copy.setId((ticket.getId() > 0) ? ticket.getId() : TicketIdGenerator.getDefault().nextId());
+        copy.setInTime(ticket.getInTime());
+        copy.setLotId(ticket.getLotId());
+        copy.setParkingSpot(new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), false, ticket.getLotId()));
+        copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        Entry entry = new Entry(copy, spotPending, ticketPending);
+        channel.write(ByteBuffer.wrap((format(entry) + "\n").getBytes(StandardCharsets.UTF_8)));
+        channel.force(false);
+        pending.add(entry);
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    public synchronized boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    // whether a journaled entry on that spot still waits for its ticket to be written to DB
+    public synchronized boolean hasPendingTicket(int parkingNumber) {
+        for (Entry entry : pending) {
+            if (entry.ticketPending && entry.ticket.getParkingSpot().getId() == parkingNumber) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes journaled entries to DB, oldest first, and returns how many were written. A ticket that
+     * already has an open row (its insert went through although saveTicket reported a failure) is not
+     * inserted again. Tickets are inserted in batches, in journal order.
+     */
+    public synchronized int replay(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+        // entries at the head of the journal that are in DB, and those that are or wait in the batch
+        int written = 0;
+        int batched = 0;
+        List<Ticket> batch = new ArrayList<>();
+        Set<String> batchedPlates = new HashSet<>();
+        for (int i = 0; i < pending.size(); i++) {
+            Entry entry = pending.get(i);
+            if (entry.spotPending) {
+                if (!parkingSpotDAO.updateParking(entry.ticket.getParkingSpot(), false)) {
+                    break;
+                }
+                entry.spotPending = false;
+            }
+            String plate = entry.ticket.getVehicleRegNumber();
+            if (entry.ticketPending && !batchedPlates.contains(plate)) {
+                int openTickets = ticketDAO.countOpenTickets(plate);
+                if (openTickets < 0) {
+                    break;
+                }
+                if (openTickets == 0) {
+                    batch.add(entry.ticket);
+                    batchedPlates.add(plate);
+                }
+            }
+            batched = i + 1;
+            if (batch.isEmpty()) {
+                written = batched;
+            }
+        }
+        if (!batch.isEmpty() && ticketDAO.saveTickets(batch)) {
+            written = batched;
+        }
+        int replayed = written;
+        pending.subList(0, replayed).clear();
+        if (replayed > 0) {
+            try {
+                rewrite();
+            } catch (IOException e) {
+                // the file still lists replayed entries, the open-ticket check keeps them from being inserted twice
+                logger.error("Unable to rewrite entry journal " + file, e);
+            }
+            logger.info("Replayed " + replayed + " journaled entries, " + pending.size() + " left");
+        }
+        return replayed;
+    }
+
+    private void rewrite() throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Entry entry : pending) {
+                writer.write(format(entry));
+                writer.newLine();
+            }
+        }
+        channel.close();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open();
+    }
+
+    public synchronized void startReplay(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, long periodMillis) {
+        if (replayScheduler != null) {
+            return;
+        }
+        replayScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "entry-journal-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        replayScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                if (hasPending()) {
+                    replay(parkingSpotDAO, ticketDAO);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Error replaying entry journal", e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void close() throws IOException {
+        if (replayScheduler != null) {
+            replayScheduler.shutdown();
+            replayScheduler = null;
+        }
+        channel.close();
+    }
+
+    private static String format(Entry entry) {
+        Ticket ticket = entry.ticket;
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        return ticket.getInTime().getTime() + ";" + ticket.getLotId() + ";" + parkingSpot.getId() + ";"
+                + parkingSpot.getParkingType() + ";" + entry.spotPending + ";" + entry.ticketPending + ";"
+                + ticket.getVehicleRegNumber() + ";" + ticket.getId();
+    }
+
+    private static Entry parse(String line) {
+        // lines written before tickets had client-side IDs have no eighth field
+        String[] fields = line.split(";", 8);
+        if (fields.length < 7) {
+            return null;
+        }
+        try {
+            int lotId = Integer.parseInt(fields[1]);
+            Ticket ticket = new Ticket();
+            ticket.setInTime(new Date(Long.parseLong(fields[0])));
+            ticket.setLotId(lotId);
+            ticket.setParkingSpot(new ParkingSpot(Integer.parseInt(fields[2]), ParkingType.valueOf(fields[3]), false, lotId));
+            ticket.setVehicleRegNumber(fields[6]);
+            long id = (fields.length == 8) ? Long.parseLong(fields[7]) : 0;
+            ticket.setId((id > 0) ? id : TicketIdGenerator.getDefault().nextId());
+            return new Entry(ticket, Boolean.parseBoolean(fields[4]), Boolean.parseBoolean(fields[5]));
+        } catch (IllegalArgumentException e) {
+            logger.error("Skipping unreadable journal line: " + line, e);
+            return null;
+        }
+    }
+}
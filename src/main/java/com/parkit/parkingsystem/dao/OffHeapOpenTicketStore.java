@@ -0,0 +1,277 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Open tickets keyed by plate, kept in fixed-width slots of a direct buffer with linear probing.
+ * Nothing but the buffer itself lives on the heap, so the GC never has to trace the open tickets.
+ * Probing allocates nothing and find with the slot getters reads single fields without garbage, but
+ * getTicket builds a Ticket and its in-time Date: an exit prices and closes that Ticket, so the exit
+ * path still allocates them.
+ *
+ * Slot layout (40 bytes): state, plate length, plate (10 ASCII bytes), parking number,
+ * parking type ordinal, padding, lot id, ticket id, in-time millis.
+ */
+public class OffHeapOpenTicketStore {
+
+    private static final Logger logger = LogManager.getLogger("OffHeapOpenTicketStore");
+
+    public static final int MAX_PLATE_LENGTH = 10;
+
+    private static final int SLOT_SIZE = 40;
+    private static final int STATE = 0;
+    private static final int PLATE_LENGTH = 1;
+    private static final int PLATE = 2;
+    private static final int PARKING_NUMBER = 12;
+    private static final int PARKING_TYPE = 16;
+    private static final int LOT_ID = 20;
+    private static final int TICKET_ID = 24;
+    private static final int IN_TIME = 32;
+
+    private static final byte EMPTY = 0;
+    private static final byte USED = 1;
+    private static final byte DELETED = 2;
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private ByteBuffer slots;
+    private int capacity;
+    private int size = 0;
+    private int deleted = 0;
+    private volatile ParkingSpotRegistry parkingSpotRegistry;
+
+    public OffHeapOpenTicketStore(int expectedOpenTickets) {
+        allocate(tableSizeFor(expectedOpenTickets));
+    }
+
+    private static int tableSizeFor(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+        this.size = 0;
+        this.deleted = 0;
+    }
+
+    public static boolean isStorable(String plate) {
+        if (plate == null || plate.isEmpty() || plate.length() > MAX_PLATE_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < plate.length(); i++) {
+            if (plate.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized boolean put(Ticket ticket) {
+        String plate = ticket.getVehicleRegNumber();
+        if (!isStorable(plate)) {
+            logger.error("Plate cannot be stored off-heap: " + plate);
+            return false;
+        }
+        if ((size + deleted + 1) * 4 > capacity * 3) {
+            rehash(size * 4 > capacity ? capacity * 2 : capacity);
+        }
+        int slot = probe(plate);
+        int base = slot * SLOT_SIZE;
+        if (slots.get(base + STATE) != USED) {
+            if (slots.get(base + STATE) == DELETED) {
+                deleted--;
+            }
+            size++;
+        }
+        write(base, plate, ticket.getParkingSpot().getId(), ticket.getId(),
+                ticket.getParkingSpot().getParkingType(), ticket.getLotId(), ticket.getInTime().getTime());
+        return true;
+    }
+
+    /**
+     * Returns the slot holding the plate or -1; hashing and comparison read the String in place.
+     */
+    public synchronized int find(String plate) {
+        if (!isStorable(plate)) {
+            return -1;
+        }
+        int slot = probe(plate);
+        return (slots.get(slot * SLOT_SIZE + STATE) == USED) ? slot : -1;
+    }
+
+    public synchronized boolean contains(String plate) {
+        return find(plate) >= 0;
+    }
+
+    /**
+     * Puts the open tickets of the DAO's lot, so exits after a restart are served from here rather
+     * than from the DB. Call it before the gates open; returns how many tickets were put, or -1 if the
+     * DB could not be read, exits missing here then fall back to the DB.
+     */
+    public long load(TicketDAO ticketDAO) {
+        long[] loaded = new long[1];
+        long read = ticketDAO.forEachOpenTicket(ticket -> {
+            if (put(ticket)) {
+                loaded[0]++;
+            }
+        });
+        if (read < 0) {
+            logger.error("Unable to read the open tickets of lot " + ticketDAO.getLotId() + ", " + loaded[0] + " loaded");
+            return -1;
+        }
+        logger.info("Loaded " + loaded[0] + " open tickets of lot " + ticketDAO.getLotId());
+        return loaded[0];
+    }
+
+    public void setParkingSpotRegistry(ParkingSpotRegistry parkingSpotRegistry) {
+        this.parkingSpotRegistry = parkingSpotRegistry;
+    }
+
+    public synchronized Ticket getTicket(String plate) {
+        int slot = find(plate);
+        if (slot < 0) {
+            return null;
+        }
+        int base = slot * SLOT_SIZE;
+        Ticket ticket = new Ticket();
+        ticket.setId(slots.getLong(base + TICKET_ID));
+        int lotId = slots.getInt(base + LOT_ID);
+        ticket.setLotId(lotId);
+        int parkingNumber = slots.getInt(base + PARKING_NUMBER);
+        ParkingSpot parkingSpot = (parkingSpotRegistry != null) ? parkingSpotRegistry.get(parkingNumber) : null;
+        ticket.setParkingSpot((parkingSpot != null) ? parkingSpot
+                : new ParkingSpot(parkingNumber, PARKING_TYPES[slots.get(base + PARKING_TYPE)], false, lotId));
+        ticket.setVehicleRegNumber(plate);
+        ticket.setPrice(0);
+        ticket.setInTime(new Date(slots.getLong(base + IN_TIME)));
+        ticket.setOutTime(null);
+        return ticket;
+    }
+
+    public synchronized int getParkingNumber(int slot) {
+        return slots.getInt(slot * SLOT_SIZE + PARKING_NUMBER);
+    }
+
+    public synchronized long getTicketId(int slot) {
+        return slots.getLong(slot * SLOT_SIZE + TICKET_ID);
+    }
+
+    public synchronized ParkingType getParkingType(int slot) {
+        return PARKING_TYPES[slots.get(slot * SLOT_SIZE + PARKING_TYPE)];
+    }
+
+    public synchronized int getLotId(int slot) {
+        return slots.getInt(slot * SLOT_SIZE + LOT_ID);
+    }
+
+    public synchronized long getInTime(int slot) {
+        return slots.getLong(slot * SLOT_SIZE + IN_TIME);
+    }
+
+    public synchronized boolean remove(String plate) {
+        int slot = find(plate);
+        if (slot < 0) {
+            return false;
+        }
+        slots.put(slot * SLOT_SIZE + STATE, DELETED);
+        size--;
+        deleted++;
+        return true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int capacity() {
+        return capacity;
+    }
+
+    // returns the slot holding the plate, or else the first free slot of its probe sequence
+    private int probe(String plate) {
+        int mask = capacity - 1;
+        int slot = hash(plate) & mask;
+        int firstDeleted = -1;
+        while (true) {
+            int base = slot * SLOT_SIZE;
+            byte state = slots.get(base + STATE);
+            if (state == EMPTY) {
+                return (firstDeleted >= 0) ? firstDeleted : slot;
+            }
+            if (state == DELETED) {
+                if (firstDeleted < 0) {
+                    firstDeleted = slot;
+                }
+            } else if (plateEquals(base, plate)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean plateEquals(int base, String plate) {
+        int length = plate.length();
+        if (slots.get(base + PLATE_LENGTH) != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (slots.get(base + PLATE + i) != (byte) plate.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(String plate) {
+        int h = plate.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private void write(int base, String plate, int parkingNumber, long ticketId, ParkingType parkingType, int lotId,
+                       long inTime) {
+        slots.put(base + STATE, USED);
+        slots.put(base + PLATE_LENGTH, (byte) plate.length());
+        for (int i = 0; i < MAX_PLATE_LENGTH; i++) {
+            slots.put(base + PLATE + i, (i < plate.length()) ? (byte) plate.charAt(i) : 0);
+        }
+        slots.putInt(base + PARKING_NUMBER, parkingNumber);
+        slots.putLong(base + TICKET_ID, ticketId);
+        slots.put(base + PARKING_TYPE, (byte) parkingType.ordinal());
+        slots.putInt(base + LOT_ID, lotId);
+        slots.putLong(base + IN_TIME, inTime);
+    }
+
+    private void rehash(int newCapacity) {
+        ByteBuffer old = slots;
+        int oldCapacity = capacity;
+        allocate(newCapacity);
+        byte[] plateBytes = new byte[MAX_PLATE_LENGTH];
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int base = slot * SLOT_SIZE;
+            if (old.get(base + STATE) != USED) {
+                continue;
+            }
+            int length = old.get(base + PLATE_LENGTH);
+            old.get(base + PLATE, plateBytes, 0, length);
+            String plate = new String(plateBytes, 0, length, StandardCharsets.US_ASCII);
+            int target = probe(plate) * SLOT_SIZE;
+            write(target, plate, old.getInt(base + PARKING_NUMBER), old.getLong(base + TICKET_ID),
+                    PARKING_TYPES[old.get(base + PARKING_TYPE)], old.getInt(base + LOT_ID), old.getLong(base + IN_TIME));
+            size++;
+        }
+        logger.info("Open ticket store resized to " + newCapacity + " slots");
+    }
+}
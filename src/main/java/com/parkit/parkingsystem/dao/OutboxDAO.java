@@ -0,0 +1,297 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.model.OutboxEntry;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.monitoring.DaoCallEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes ticket changes to the outbox table inside the caller's transaction, and reads them back in
+ * ID order for the relay, with one checkpoint per consumer.
+ */
+public class OutboxDAO {
+
+    private static final Logger logger = LogManager.getLogger("OutboxDAO");
+
+    public DataBaseConfig dataBaseConfig;
+
+    public OutboxDAO(DataBaseConfig dataBaseConfig) {
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    /**
+     * Adds the row on the given connection and lets SQLException through, so the caller rolls back
+     * the ticket change with it.
+     */
+    public void append(Connection con, String eventType, Ticket ticket, int lotId) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_OUTBOX_ENTRY);
+        try {
+            ParkingSpot parkingSpot = ticket.getParkingSpot();
+            ps.setInt(1, lotId);
+            ps.setString(2, eventType);
+            if (ticket.getId() > 0) {
+                ps.setLong(3, ticket.getId());
+            } else {
+                ps.setNull(3, Types.BIGINT);
+            }
+            ps.setString(4, ticket.getVehicleRegNumber());
+            ps.setInt(5, (parkingSpot == null) ? 0 : parkingSpot.getId());
+            ps.setDouble(6, ticket.getPrice());
+            ps.setTimestamp(7, timestamp(ticket.getInTime()));
+            ps.setTimestamp(8, timestamp(ticket.getOutTime()));
+            ps.setTimestamp(9, new Timestamp(System.currentTimeMillis()));
+            ps.execute();
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+    }
+
+    private static Timestamp timestamp(Date date) {
+        return (date == null) ? null : new Timestamp(date.getTime());
+    }
+
+    // rows after the given ID, oldest first; null if the DB could not be read
+    public List<OutboxEntry> getEntriesAfter(long lastId, int limit) {
+        DaoCallEvent event = DaoCallEvent.begin("OutboxDAO", "getEntriesAfter", 0, null);
+        Connection con = null;
+        List<OutboxEntry> entries = new ArrayList<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_OUTBOX_ENTRIES_AFTER);
+            ps.setLong(1, lastId);
+            ps.setInt(2, limit);
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                entries.add(readEntry(rs));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error reading outbox",ex);
+            entries = null;
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return entries;
+    }
+
+    // the rows of these IDs that are visible now, by ID; null if the DB could not be read
+    public List<OutboxEntry> getEntries(List<Long> ids) {
+        List<OutboxEntry> entries = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return entries;
+        }
+        DaoCallEvent event = DaoCallEvent.begin("OutboxDAO", "getEntries", 0, null);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(
+                    String.format(DBConstants.GET_OUTBOX_ENTRIES_BY_IDS, TicketDAO.placeholders(ids.size())));
+            for (int i = 0; i < ids.size(); i++) {
+                ps.setLong(i + 1, ids.get(i));
+            }
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                entries.add(readEntry(rs));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error reading outbox",ex);
+            entries = null;
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return entries;
+    }
+
+    private static OutboxEntry readEntry(ResultSet rs) throws SQLException {
+        return new OutboxEntry(rs.getLong(1), rs.getInt(2), rs.getString(3), rs.getLong(4), rs.getString(5),
+                rs.getInt(6), rs.getDouble(7), rs.getTimestamp(8), rs.getTimestamp(9), rs.getTimestamp(10));
+    }
+
+    // last ID delivered to the consumer, 0 if it never got any, -1 if the DB could not be read
+    public long getCheckpoint(String consumer) {
+        DaoCallEvent event = DaoCallEvent.begin("OutboxDAO", "getCheckpoint", 0, null);
+        Connection con = null;
+        long lastId = -1;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_OUTBOX_CHECKPOINT);
+            ps.setString(1, consumer);
+            ResultSet rs = ps.executeQuery();
+            lastId = rs.next() ? rs.getLong(1) : 0;
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error reading outbox checkpoint of " + consumer,ex);
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return lastId;
+    }
+
+    // never moves a checkpoint back
+    public boolean saveCheckpoint(String consumer, long lastId) {
+        return saveCheckpoint(consumer, lastId, Map.of());
+    }
+
+    /**
+     * Saves the checkpoint with the IDs skipped to reach it (ID -> when it was skipped, in millis) in
+     * one transaction, so a restart keeps looking them up. Never moves a checkpoint back.
+     */
+    public boolean saveCheckpoint(String consumer, long lastId, Map<Long, Long> skippedIds) {
+        DaoCallEvent event = DaoCallEvent.begin("OutboxDAO", "saveCheckpoint", 0, null);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            if (!skippedIds.isEmpty()) {
+                PreparedStatement skipped = con.prepareStatement(DBConstants.SAVE_OUTBOX_SKIPPED_ID);
+                for (Map.Entry<Long, Long> skippedId : skippedIds.entrySet()) {
+                    skipped.setString(1, consumer);
+                    skipped.setLong(2, skippedId.getKey());
+                    skipped.setTimestamp(3, new Timestamp(skippedId.getValue()));
+                    skipped.addBatch();
+                }
+                skipped.executeBatch();
+                dataBaseConfig.closePreparedStatement(skipped);
+            }
+            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_OUTBOX_CHECKPOINT);
+            ps.setString(1, consumer);
+            ps.setLong(2, lastId);
+            ps.execute();
+            dataBaseConfig.closePreparedStatement(ps);
+            con.commit();
+            return true;
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error saving outbox checkpoint of " + consumer,ex);
+            rollback(con);
+        }finally {
+            event.finish();
+            restoreAutoCommit(con);
+            dataBaseConfig.closeConnection(con);
+        }
+        return false;
+    }
+
+    // IDs saved with the consumer's checkpoint and not seen yet, with when they were skipped; null if the DB could not be read
+    public Map<Long, Long> getSkippedIds(String consumer) {
+        DaoCallEvent event = DaoCallEvent.begin("OutboxDAO", "getSkippedIds", 0, null);
+        Connection con = null;
+        Map<Long, Long> skippedIds = new TreeMap<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_OUTBOX_SKIPPED_IDS);
+            ps.setString(1, consumer);
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                skippedIds.put(rs.getLong(1), rs.getTimestamp(2).getTime());
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error reading skipped outbox IDs of " + consumer,ex);
+            skippedIds = null;
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return skippedIds;
+    }
+
+    // skipped IDs delivered late or given up on
+    public boolean deleteSkippedIds(String consumer, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return true;
+        }
+        DaoCallEvent event = DaoCallEvent.begin("OutboxDAO", "deleteSkippedIds", 0, null);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.DELETE_OUTBOX_SKIPPED_ID);
+            for (long id : ids) {
+                ps.setString(1, consumer);
+                ps.setLong(2, id);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            dataBaseConfig.closePreparedStatement(ps);
+            return true;
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error deleting skipped outbox IDs of " + consumer,ex);
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return false;
+    }
+
+    private static void rollback(Connection con) {
+        if (con != null) {
+            try {
+                con.rollback();
+            } catch (SQLException ex) {
+                logger.error("Error rolling back outbox checkpoint",ex);
+            }
+        }
+    }
+
+    private static void restoreAutoCommit(Connection con) {
+        if (con != null) {
+            try {
+                con.setAutoCommit(true);
+            } catch (SQLException ex) {
+                logger.error("Error restoring auto-commit",ex);
+            }
+        }
+    }
+
+    // deletes up to limit rows every consumer has got and created before the given date, returns how many, -1 on error
+    public int purgeDelivered(Date createdBefore, int limit) {
+        DaoCallEvent event = DaoCallEvent.begin("OutboxDAO", "purgeDelivered", 0, null);
+        Connection con = null;
+        int purged = -1;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.PURGE_DELIVERED_OUTBOX_ENTRIES);
+            ps.setTimestamp(1, new Timestamp(createdBefore.getTime()));
+            ps.setInt(2, limit);
+            purged = ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error purging outbox",ex);
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return purged;
+    }
+}
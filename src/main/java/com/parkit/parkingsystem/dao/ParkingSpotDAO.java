@@ -4,25 +4,45 @@ import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.monitoring.DaoCallEvent;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ParkingSpotDAO {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
 
-    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+    public DataBaseConfig dataBaseConfig;
+
+    private final int lotId;
+
+    public ParkingSpotDAO() {
+        this(ParkingSpot.DEFAULT_LOT_ID, new DataBaseConfig());
+    }
+
+    public ParkingSpotDAO(int lotId, DataBaseConfig dataBaseConfig) {
+        this.lotId = lotId;
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    public int getLotId() {
+        return lotId;
+    }
 
     public int getNextAvailableSlot(ParkingType parkingType){
+        DaoCallEvent event = DaoCallEvent.begin("ParkingSpotDAO", "getNextAvailableSlot", lotId, null);
         Connection con = null;
         int result=-1;
         try {
             con = dataBaseConfig.getConnection();
             PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
             ps.setString(1, parkingType.toString());
+            ps.setInt(2, lotId);
             ResultSet rs = ps.executeQuery();
             if(rs.next()){
                 result = rs.getInt(1);;
@@ -30,30 +50,107 @@ public class ParkingSpotDAO {
             dataBaseConfig.closeResultSet(rs);
             dataBaseConfig.closePreparedStatement(ps);
         }catch (Exception ex){
+            event.failed();
             logger.error("Error fetching next available slot",ex);
         }finally {
+            event.finish();
             dataBaseConfig.closeConnection(con);
         }
         return result;
     }
 
-    public boolean updateParking(ParkingSpot parkingSpot){
+    public boolean updateParking(ParkingSpot parkingSpot, boolean available){
         //update the availability fo that parking slot
+        DaoCallEvent event = DaoCallEvent.begin("ParkingSpotDAO", "updateParking", lotId, null);
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
             PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
-            ps.setBoolean(1, parkingSpot.isAvailable());
+            ps.setBoolean(1, available);
             ps.setInt(2, parkingSpot.getId());
             int updateRowCount = ps.executeUpdate();
             dataBaseConfig.closePreparedStatement(ps);
             return (updateRowCount == 1);
         }catch (Exception ex){
+            event.failed();
             logger.error("Error updating parking info",ex);
             return false;
         }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    public List<Integer> getLotIds(){
+        DaoCallEvent event = DaoCallEvent.begin("ParkingSpotDAO", "getLotIds", lotId, null);
+        Connection con = null;
+        List<Integer> lotIds = new ArrayList<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_LOT_IDS);
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                lotIds.add(rs.getInt(1));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error fetching parking lots",ex);
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return lotIds;
+    }
+
+    public List<Integer> getAvailableSlots(ParkingType parkingType){
+        DaoCallEvent event = DaoCallEvent.begin("ParkingSpotDAO", "getAvailableSlots", lotId, null);
+        Connection con = null;
+        List<Integer> slots = new ArrayList<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_AVAILABLE_PARKING_SPOTS);
+            ps.setString(1, parkingType.toString());
+            ps.setInt(2, lotId);
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                slots.add(rs.getInt(1));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error fetching available slots",ex);
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return slots;
+    }
+
+    public List<ParkingSpot> getParkingSpots(){
+        DaoCallEvent event = DaoCallEvent.begin("ParkingSpotDAO", "getParkingSpots", lotId, null);
+        Connection con = null;
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = dataBaseConfig.prepareBulkStatement(con, DBConstants.GET_PARKING_SPOTS);
+            ps.setInt(1, lotId);
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                parkingSpots.add(new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(2)), rs.getBoolean(3), lotId));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error fetching parking spots",ex);
+        }finally {
+            event.finish();
             dataBaseConfig.closeConnection(con);
         }
+        return parkingSpots;
     }
 
 }
@@ -0,0 +1,63 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One ParkingSpot instance per spot of a lot, shared by the DAOs and ParkingService, so a ticket read
+ * back only needs its parking number. ParkingSpot is immutable, so the shared instances never carry
+ * the state of another thread's entry or exit. Spots rarely change, so the map is copied on write and
+ * reads take no lock.
+ */
+public class ParkingSpotRegistry {
+
+    private static final Logger logger = LogManager.getLogger("ParkingSpotRegistry");
+
+    private final int lotId;
+    private volatile Map<Integer, ParkingSpot> spots = Map.of();
+
+    public ParkingSpotRegistry(int lotId) {
+        this.lotId = lotId;
+    }
+
+    public static ParkingSpotRegistry load(ParkingSpotDAO parkingSpotDAO) {
+        ParkingSpotRegistry registry = new ParkingSpotRegistry(parkingSpotDAO.getLotId());
+        Map<Integer, ParkingSpot> loaded = new HashMap<>();
+        for (ParkingSpot parkingSpot : parkingSpotDAO.getParkingSpots()) {
+            loaded.put(parkingSpot.getId(), parkingSpot);
+        }
+        registry.spots = Map.copyOf(loaded);
+        logger.info("Registered " + loaded.size() + " parking spots of lot " + registry.lotId);
+        return registry;
+    }
+
+    public int getLotId() {
+        return lotId;
+    }
+
+    /**
+     * Returns the shared spot with that number, or null if the lot has no such spot.
+     */
+    public ParkingSpot get(int parkingNumber) {
+        return spots.get(parkingNumber);
+    }
+
+    public synchronized ParkingSpot register(ParkingSpot parkingSpot) {
+        ParkingSpot existing = spots.get(parkingSpot.getId());
+        if (existing != null) {
+            return existing;
+        }
+        Map<Integer, ParkingSpot> updated = new HashMap<>(spots);
+        updated.put(parkingSpot.getId(), parkingSpot);
+        spots = Map.copyOf(updated);
+        return parkingSpot;
+    }
+
+    public int size() {
+        return spots.size();
+    }
+}
@@ -0,0 +1,57 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.monitoring.DaoCallEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.function.ObjLongConsumer;
+
+public class PermitDAO {
+
+    private static final Logger logger = LogManager.getLogger("PermitDAO");
+
+    public DataBaseConfig dataBaseConfig;
+
+    public PermitDAO(DataBaseConfig dataBaseConfig) {
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    /**
+     * Streams the plate and end in epoch millis of every permit valid at the given time. Returns how
+     * many were read, or -1 if the DB could not be read; the consumer may then have seen some of them.
+     */
+    public long forEachActivePermit(Date at, ObjLongConsumer<String> consumer) {
+        DaoCallEvent event = DaoCallEvent.begin("PermitDAO", "forEachActivePermit", 0, null);
+        Connection con = null;
+        long count = 0;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = dataBaseConfig.prepareStreamingStatement(con, DBConstants.GET_ACTIVE_PERMITS);
+            Timestamp time = new Timestamp(at.getTime());
+            ps.setTimestamp(1, time);
+            ps.setTimestamp(2, time);
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                consumer.accept(rs.getString(1), rs.getTimestamp(2).getTime());
+                count++;
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error reading permits",ex);
+            count = -1;
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,224 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.monitoring.DaoCallEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the parking and ticket tables of one lot by ranges of parking numbers and writes the fixes
+ * chosen by ReconciliationService. Fixes are conditional updates, so a row that changed since it was
+ * scanned (a car came in or left meanwhile) is left alone.
+ */
+public class ReconciliationDAO {
+
+    private static final Logger logger = LogManager.getLogger("ReconciliationDAO");
+
+    public DataBaseConfig dataBaseConfig;
+
+    private final int lotId;
+
+    /**
+     * The spots of a range of parking numbers and the open tickets that point at them.
+     */
+    public static final class RangeScan {
+        public final List<ParkingSpot> parkingSpots;
+        public final List<Ticket> openTickets;
+
+        public RangeScan(List<ParkingSpot> parkingSpots, List<Ticket> openTickets) {
+            this.parkingSpots = parkingSpots;
+            this.openTickets = openTickets;
+        }
+
+        public RangeScan merge(RangeScan other) {
+            List<ParkingSpot> mergedSpots = new ArrayList<>(parkingSpots.size() + other.parkingSpots.size());
+            mergedSpots.addAll(parkingSpots);
+            mergedSpots.addAll(other.parkingSpots);
+            List<Ticket> mergedTickets = new ArrayList<>(openTickets.size() + other.openTickets.size());
+            mergedTickets.addAll(openTickets);
+            mergedTickets.addAll(other.openTickets);
+            return new RangeScan(mergedSpots, mergedTickets);
+        }
+    }
+
+    private interface RowBinder<T> {
+        void bind(PreparedStatement ps, T row) throws SQLException;
+    }
+
+    public ReconciliationDAO(int lotId, DataBaseConfig dataBaseConfig) {
+        this.lotId = lotId;
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    public int getLotId() {
+        return lotId;
+    }
+
+    // lowest and highest parking numbers of the lot, or null if it has no spot or the DB could not be read
+    public int[] getParkingNumberRange() {
+        DaoCallEvent event = DaoCallEvent.begin("ReconciliationDAO", "getParkingNumberRange", lotId, null);
+        Connection con = null;
+        int[] range = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = dataBaseConfig.prepareBulkStatement(con, DBConstants.GET_PARKING_NUMBER_RANGE);
+            ps.setInt(1, lotId);
+            ResultSet rs = ps.executeQuery();
+            if(rs.next() && rs.getObject(1) != null){
+                range = new int[]{rs.getInt(1), rs.getInt(2)};
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error reading parking number range",ex);
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return range;
+    }
+
+    /**
+     * Reads the spots numbered from..to and their open tickets on one connection. Throws instead of
+     * returning a partial range: deciding fixes on missing tickets would free occupied spots.
+     */
+    public RangeScan scanRange(int from, int to) {
+        DaoCallEvent event = DaoCallEvent.begin("ReconciliationDAO", "scanRange", lotId, null);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            List<ParkingSpot> parkingSpots = new ArrayList<>(to - from + 1);
+            PreparedStatement ps = dataBaseConfig.prepareBulkStatement(con, DBConstants.GET_PARKING_SPOTS_IN_RANGE);
+            ps.setInt(1, lotId);
+            ps.setInt(2, from);
+            ps.setInt(3, to);
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                parkingSpots.add(new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(2)), rs.getBoolean(3), lotId));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+
+            List<Ticket> openTickets = new ArrayList<>();
+            ps = dataBaseConfig.prepareBulkStatement(con, DBConstants.GET_OPEN_TICKETS_IN_RANGE);
+            ps.setInt(1, lotId);
+            ps.setInt(2, from);
+            ps.setInt(3, to);
+            rs = ps.executeQuery();
+            while(rs.next()){
+                Ticket ticket = new Ticket();
+                ticket.setId(rs.getLong(1));
+                ticket.setParkingSpot(new ParkingSpot(rs.getInt(2), null, false, lotId));
+                ticket.setVehicleRegNumber(rs.getString(3));
+                ticket.setInTime(rs.getTimestamp(4));
+                ticket.setLotId(lotId);
+                openTickets.add(ticket);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return new RangeScan(parkingSpots, openTickets);
+        }catch (Exception ex){
+            event.failed();
+            throw new IllegalStateException("Error scanning spots " + from + " to " + to + " of lot " + lotId, ex);
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    // each method returns the rows it changed
+    public List<Integer> freeSpots(List<Integer> parkingNumbers, int batchSize) {
+        return executeInBatches("freeSpots", DBConstants.FREE_SPOT_WITHOUT_OPEN_TICKET, parkingNumbers, batchSize,
+                (ps, parkingNumber) -> {
+                    ps.setInt(1, parkingNumber);
+                    ps.setInt(2, parkingNumber);
+                    ps.setInt(3, lotId);
+                });
+    }
+
+    public List<Integer> occupySpots(List<Integer> parkingNumbers, int batchSize) {
+        return executeInBatches("occupySpots", DBConstants.OCCUPY_SPOT_WITH_OPEN_TICKET, parkingNumbers, batchSize,
+                (ps, parkingNumber) -> {
+                    ps.setInt(1, parkingNumber);
+                    ps.setInt(2, parkingNumber);
+                    ps.setInt(3, lotId);
+                });
+    }
+
+    // tickets carry the out time to close them with
+    public List<Ticket> closeTickets(List<Ticket> tickets, int batchSize) {
+        return executeInBatches("closeTickets", DBConstants.CLOSE_DUPLICATE_TICKET, tickets, batchSize,
+                (ps, ticket) -> {
+                    ps.setTimestamp(1, new Timestamp(ticket.getOutTime().getTime()));
+                    ps.setLong(2, ticket.getId());
+                });
+    }
+
+    /**
+     * Runs one statement per row, batchSize rows per transaction, and returns the rows whose statement
+     * changed something. A failed batch is rolled back and the next ones still run, the next
+     * reconciliation picks it up again.
+     */
+    private <T> List<T> executeInBatches(String method, String sql, List<T> rows, int batchSize, RowBinder<T> binder) {
+        List<T> changed = new ArrayList<>();
+        if (rows.isEmpty()) {
+            return changed;
+        }
+        DaoCallEvent event = DaoCallEvent.begin("ReconciliationDAO", method, lotId, null);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            PreparedStatement ps = con.prepareStatement(sql);
+            for (int start = 0; start < rows.size(); start += batchSize) {
+                List<T> batch = rows.subList(start, Math.min(rows.size(), start + batchSize));
+                try {
+                    for (T row : batch) {
+                        binder.bind(ps, row);
+                        ps.addBatch();
+                    }
+                    int[] counts = ps.executeBatch();
+                    con.commit();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] > 0) {
+                            changed.add(batch.get(i));
+                        }
+                    }
+                } catch (SQLException ex) {
+                    event.failed();
+                    logger.error("Error in reconciliation batch of " + batch.size() + " rows, rolled back", ex);
+                    ps.clearBatch();
+                    con.rollback();
+                }
+            }
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error applying reconciliation fixes",ex);
+        }finally {
+            event.finish();
+            if (con != null) {
+                try {
+                    con.setAutoCommit(true);
+                } catch (SQLException ex) {
+                    logger.error("Error restoring auto-commit",ex);
+                }
+            }
+            dataBaseConfig.closeConnection(con);
+        }
+        return changed;
+    }
+}
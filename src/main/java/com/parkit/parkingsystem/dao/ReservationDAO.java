@@ -0,0 +1,140 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.monitoring.DaoCallEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class ReservationDAO {
+
+    private static final Logger logger = LogManager.getLogger("ReservationDAO");
+
+    public DataBaseConfig dataBaseConfig;
+
+    private final int lotId;
+
+    public ReservationDAO() {
+        this(ParkingSpot.DEFAULT_LOT_ID, new DataBaseConfig());
+    }
+
+    public ReservationDAO(int lotId, DataBaseConfig dataBaseConfig) {
+        this.lotId = lotId;
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    public int saveReservation(Reservation reservation){
+        DaoCallEvent event = DaoCallEvent.begin("ReservationDAO", "saveReservation", lotId, reservation.getVehicleRegNumber());
+        Connection con = null;
+        int id = -1;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_RESERVATION, Statement.RETURN_GENERATED_KEYS);
+            ps.setInt(1, reservation.getParkingNumber());
+            ps.setString(2, reservation.getVehicleRegNumber());
+            ps.setTimestamp(3, new Timestamp(reservation.getStartTime().getTime()));
+            ps.setTimestamp(4, new Timestamp(reservation.getEndTime().getTime()));
+            ps.setInt(5, lotId);
+            ps.executeUpdate();
+            ResultSet rs = ps.getGeneratedKeys();
+            if(rs.next()){
+                id = rs.getInt(1);
+                reservation.setId(id);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error saving reservation",ex);
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return id;
+    }
+
+    public List<Reservation> getReservationsEndingAfter(Date time){
+        DaoCallEvent event = DaoCallEvent.begin("ReservationDAO", "getReservationsEndingAfter", lotId, null);
+        Connection con = null;
+        List<Reservation> reservations = new ArrayList<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = dataBaseConfig.prepareBulkStatement(con, DBConstants.GET_RESERVATIONS_ENDING_AFTER);
+            ps.setTimestamp(1, new Timestamp(time.getTime()));
+            ps.setInt(2, lotId);
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                Reservation reservation = new Reservation();
+                reservation.setId(rs.getInt(1));
+                reservation.setParkingNumber(rs.getInt(2));
+                reservation.setVehicleRegNumber(rs.getString(3));
+                reservation.setStartTime(rs.getTimestamp(4));
+                reservation.setEndTime(rs.getTimestamp(5));
+                reservation.setParkingType(ParkingType.valueOf(rs.getString(6)));
+                reservation.setClaimed(rs.getBoolean(7));
+                reservations.add(reservation);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error fetching reservations",ex);
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return reservations;
+    }
+
+    public boolean claimReservation(int id){
+        DaoCallEvent event = DaoCallEvent.begin("ReservationDAO", "claimReservation", lotId, null);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.CLAIM_RESERVATION);
+            ps.setInt(1, id);
+            int updateRowCount = ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+            return (updateRowCount == 1);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error claiming reservation",ex);
+            return false;
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    public boolean deleteReservation(int id){
+        DaoCallEvent event = DaoCallEvent.begin("ReservationDAO", "deleteReservation", lotId, null);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.DELETE_RESERVATION);
+            ps.setInt(1, id);
+            int updateRowCount = ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+            return (updateRowCount == 1);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error deleting reservation",ex);
+            return false;
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
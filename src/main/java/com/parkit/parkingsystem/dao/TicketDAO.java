@@ -3,44 +3,161 @@ package com.parkit.parkingsystem.dao;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.OutboxEntry;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.monitoring.DaoCallEvent;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class    TicketDAO {
 
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
-    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+    public static final int PLATES_PER_QUERY = 500;
+
+    public DataBaseConfig dataBaseConfig;
+
+    private final int lotId;
+    private ParkingSpotRegistry parkingSpotRegistry;
+    private OutboxDAO outboxDAO;
+
+    public TicketDAO() {
+        this(ParkingSpot.DEFAULT_LOT_ID, new DataBaseConfig());
+    }
+
+    public TicketDAO(int lotId, DataBaseConfig dataBaseConfig) {
+        this.lotId = lotId;
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    public int getLotId() {
+        return lotId;
+    }
+
+    // with a registry, tickets are read without joining parking and share its ParkingSpot instances
+    public void setParkingSpotRegistry(ParkingSpotRegistry parkingSpotRegistry) {
+        this.parkingSpotRegistry = parkingSpotRegistry;
+    }
+
+    // with an outbox, every saved or closed ticket also writes an outbox row in the same transaction
+    public void setOutboxDAO(OutboxDAO outboxDAO) {
+        this.outboxDAO = outboxDAO;
+    }
 
     public boolean saveTicket(Ticket ticket){
+        if(ticket.getId() <= 0){
+            logger.error("Ticket of " + ticket.getVehicleRegNumber() + " has no ID, tickets are numbered by a TicketIdGenerator");
+            return false;
+        }
+        DaoCallEvent event = DaoCallEvent.begin("TicketDAO", "saveTicket", lotId, ticket.getVehicleRegNumber());
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
+            beginOutboxTransaction(con);
             PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET);
-            //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-            //ps.setInt(1,ticket.getId());
-            ps.setInt(1,ticket.getParkingSpot().getId());
-            ps.setString(2, ticket.getVehicleRegNumber());
-            ps.setDouble(3, ticket.getPrice());
-            ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
-            ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
-            return ps.execute();
+            setTicketParameters(ps, ticket);
+            //execute() is false for an insert, it returns whether there is a result set
+            ps.execute();
+            dataBaseConfig.closePreparedStatement(ps);
+            commitOutboxTransaction(con, OutboxEntry.TICKET_SAVED, ticket);
+            return true;
         }catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
+            event.failed();
+            logger.error("Error saving ticket",ex);
+            rollbackOutboxTransaction(con);
         }finally {
+            event.finish();
+            endOutboxTransaction(con);
+            dataBaseConfig.closeConnection(con);
+        }
+        return false;
+    }
+
+    private void setTicketParameters(PreparedStatement ps, Ticket ticket) throws SQLException {
+        //PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, LOT_ID, ID
+        ps.setInt(1,ticket.getParkingSpot().getId());
+        ps.setString(2, ticket.getVehicleRegNumber());
+        ps.setDouble(3, ticket.getPrice());
+        ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
+        ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
+        ps.setInt(6, lotId);
+        ps.setLong(7, ticket.getId());
+    }
+
+    /**
+     * Inserts tickets numbered by a TicketIdGenerator in one batch and one transaction, with their
+     * outbox rows if an outbox is set. Returns false, having inserted none, if one of them has no ID
+     * or the insert failed.
+     */
+    public boolean saveTickets(List<Ticket> tickets){
+        if(tickets.isEmpty()){
+            return true;
+        }
+        for(Ticket ticket : tickets){
+            if(ticket.getId() <= 0){
+                logger.error("Ticket of " + ticket.getVehicleRegNumber() + " has no ID, it cannot be batch inserted");
+                return false;
+            }
+        }
+        DaoCallEvent event = DaoCallEvent.begin("TicketDAO", "saveTickets", lotId, null);
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET);
+            for(Ticket ticket : tickets){
+                setTicketParameters(ps, ticket);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            dataBaseConfig.closePreparedStatement(ps);
+            if(outboxDAO != null){
+                for(Ticket ticket : tickets){
+                    outboxDAO.append(con, OutboxEntry.TICKET_SAVED, ticket, lotId);
+                }
+            }
+            con.commit();
+            return true;
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error saving " + tickets.size() + " tickets",ex);
+        }finally {
+            event.finish();
+            restoreAutoCommit(con);
             dataBaseConfig.closeConnection(con);
-            return false;
         }
+        return false;
     }
 
     public Ticket getTicket(String vehicleRegNumber) {
+        if(parkingSpotRegistry != null){
+            Ticket ticket = getTicketWithoutSpot(vehicleRegNumber);
+            if(ticket == null || ticket.getParkingSpot() != null){
+                return ticket;
+            }
+            logger.error("Parking spot of ticket " + ticket.getId() + " is not registered, reading it from DB");
+        }
+        DaoCallEvent event = DaoCallEvent.begin("TicketDAO", "getTicket", lotId, vehicleRegNumber);
         Connection con = null;
         Ticket ticket = null;
         try {
@@ -48,55 +165,158 @@ public class    TicketDAO {
             PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET);
             //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
             ps.setString(1,vehicleRegNumber);
+            ps.setInt(2, lotId);
             ResultSet rs = ps.executeQuery();
             if(rs.next()){
                 ticket = new Ticket();
-                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false);
+                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false, lotId);
                 ticket.setParkingSpot(parkingSpot);
-                ticket.setId(rs.getInt(2));
+                ticket.setId(rs.getLong(2));
                 ticket.setVehicleRegNumber(vehicleRegNumber);
                 ticket.setPrice(rs.getDouble(3));
                 ticket.setInTime(rs.getTimestamp(4));
                 ticket.setOutTime(rs.getTimestamp(5));
+                ticket.setLotId(lotId);
             }
             dataBaseConfig.closeResultSet(rs);
             dataBaseConfig.closePreparedStatement(ps);
         }catch (Exception ex){
+            event.failed();
             logger.error("Error fetching next available slot",ex);
         }finally {
+            event.finish();
             dataBaseConfig.closeConnection(con);
-            return ticket;
         }
+        return ticket;
+    }
+
+    private Ticket getTicketWithoutSpot(String vehicleRegNumber) {
+        DaoCallEvent event = DaoCallEvent.begin("TicketDAO", "getTicketWithoutSpot", lotId, vehicleRegNumber);
+        Connection con = null;
+        Ticket ticket = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET_WITHOUT_SPOT);
+            ps.setString(1,vehicleRegNumber);
+            ps.setInt(2, lotId);
+            ResultSet rs = ps.executeQuery();
+            if(rs.next()){
+                ticket = new Ticket();
+                ticket.setParkingSpot(parkingSpotRegistry.get(rs.getInt(1)));
+                ticket.setId(rs.getLong(2));
+                ticket.setVehicleRegNumber(vehicleRegNumber);
+                ticket.setPrice(rs.getDouble(3));
+                ticket.setInTime(rs.getTimestamp(4));
+                ticket.setOutTime(rs.getTimestamp(5));
+                ticket.setLotId(lotId);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error fetching ticket",ex);
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return ticket;
     }
 
     public boolean updateTicket(Ticket ticket) {
+        DaoCallEvent event = DaoCallEvent.begin("TicketDAO", "updateTicket", lotId, ticket.getVehicleRegNumber());
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
+            beginOutboxTransaction(con);
+            if(ticket.getId() == 0){
+                //ticket built at entry, its generated ID was never read back
+                PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_OPEN_TICKET_BY_PLATE);
+                ps.setDouble(1, ticket.getPrice());
+                ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
+                ps.setString(3, ticket.getVehicleRegNumber());
+                ps.setInt(4, lotId);
+                int updateRowCount = ps.executeUpdate();
+                dataBaseConfig.closePreparedStatement(ps);
+                if (updateRowCount > 0) {
+                    commitOutboxTransaction(con, OutboxEntry.TICKET_CLOSED, ticket);
+                }
+                return (updateRowCount > 0);
+            }
             PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
             ps.setDouble(1, ticket.getPrice());
             ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
-            ps.setInt(3,ticket.getId());
-            ps.execute();
-            return true;
+            ps.setLong(3,ticket.getId());
+            int updateRowCount = ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+            if (updateRowCount > 0) {
+                commitOutboxTransaction(con, OutboxEntry.TICKET_CLOSED, ticket);
+            }
+            return (updateRowCount > 0);
         }catch (Exception ex){
+            event.failed();
             logger.error("Error saving ticket info",ex);
+            rollbackOutboxTransaction(con);
         }finally {
+            event.finish();
+            endOutboxTransaction(con);
             dataBaseConfig.closeConnection(con);
         }
         return false;
     }
 
+    private void beginOutboxTransaction(Connection con) throws SQLException {
+        if (outboxDAO != null) {
+            con.setAutoCommit(false);
+        }
+    }
+
+    private void commitOutboxTransaction(Connection con, String eventType, Ticket ticket) throws SQLException {
+        if (outboxDAO != null) {
+            outboxDAO.append(con, eventType, ticket, lotId);
+            con.commit();
+        }
+    }
+
+    private void rollbackOutboxTransaction(Connection con) {
+        if (outboxDAO != null && con != null) {
+            try {
+                con.rollback();
+            } catch (SQLException ex) {
+                logger.error("Error rolling back ticket change",ex);
+            }
+        }
+    }
+
+    private void endOutboxTransaction(Connection con) {
+        if (outboxDAO != null) {
+            restoreAutoCommit(con);
+        }
+    }
+
+    // pooled connections go back with auto-commit on, an uncommitted no-op update is rolled back here
+    private void restoreAutoCommit(Connection con) {
+        if (con != null) {
+            try {
+                if (!con.getAutoCommit()) {
+                    con.rollback();
+                    con.setAutoCommit(true);
+                }
+            } catch (SQLException ex) {
+                logger.error("Error restoring auto-commit",ex);
+            }
+        }
+    }
+
     public int getNbTicket(String vehicleRegNumber) {
         int nbTicket = 0;
+        DaoCallEvent event = DaoCallEvent.begin("TicketDAO", "getNbTicket", lotId, vehicleRegNumber);
         Connection con = null;
 
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(
-                    "SELECT COUNT(*) FROM ticket WHERE VEHICLE_REG_NUMBER = ?"
-            );
+            PreparedStatement ps = con.prepareStatement(DBConstants.COUNT_TICKETS);
             ps.setString(1, vehicleRegNumber);
+            ps.setInt(2, lotId);
             ResultSet rs = ps.executeQuery();
 
             if (rs.next()) {
@@ -107,12 +327,320 @@ public class    TicketDAO {
             dataBaseConfig.closePreparedStatement(ps);
 
         } catch (Exception ex) {
+            event.failed();
             logger.error("Error counting tickets", ex);
         } finally {
+            event.finish();
             dataBaseConfig.closeConnection(con);
         }
 
         return nbTicket;
     }
 
+    // number of tickets of the plate still in the lot, or -1 if the DB could not be read
+    public int countOpenTickets(String vehicleRegNumber) {
+        DaoCallEvent event = DaoCallEvent.begin("TicketDAO", "countOpenTickets", lotId, vehicleRegNumber);
+        Connection con = null;
+        int openTickets = -1;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.COUNT_OPEN_TICKETS);
+            ps.setString(1, vehicleRegNumber);
+            ps.setInt(2, lotId);
+            ResultSet rs = ps.executeQuery();
+            if(rs.next()){
+                openTickets = rs.getInt(1);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error counting open tickets",ex);
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return openTickets;
+    }
+
+    /**
+     * Open tickets of the given plates in this lot, by plate, read PLATES_PER_QUERY plates per query.
+     * Plates without an open ticket are absent; returns null if the DB could not be read.
+     */
+    public Map<String, Ticket> getOpenTickets(List<String> vehicleRegNumbers) {
+        if (vehicleRegNumbers.isEmpty()) {
+            return new HashMap<>();
+        }
+        DaoCallEvent event = DaoCallEvent.begin("TicketDAO", "getOpenTickets", lotId, null);
+        Connection con = null;
+        Map<String, Ticket> tickets = new HashMap<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            for (List<String> plates : chunks(vehicleRegNumbers)) {
+                PreparedStatement ps = con.prepareStatement(
+                        String.format(DBConstants.GET_OPEN_TICKETS_OF_PLATES, placeholders(plates.size())));
+                ps.setInt(1, lotId);
+                for (int i = 0; i < plates.size(); i++) {
+                    ps.setString(i + 2, plates.get(i));
+                }
+                ResultSet rs = ps.executeQuery();
+                while(rs.next()){
+                    Ticket ticket = new Ticket();
+                    int parkingNumber = rs.getInt(2);
+                    ParkingSpot parkingSpot = (parkingSpotRegistry != null) ? parkingSpotRegistry.get(parkingNumber) : null;
+                    ticket.setParkingSpot((parkingSpot != null) ? parkingSpot
+                            : new ParkingSpot(parkingNumber, ParkingType.valueOf(rs.getString(5)), false, lotId));
+                    ticket.setVehicleRegNumber(rs.getString(1));
+                    ticket.setId(rs.getLong(3));
+                    ticket.setInTime(rs.getTimestamp(4));
+                    ticket.setLotId(lotId);
+                    tickets.put(ticket.getVehicleRegNumber(), ticket);
+                }
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+            }
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error fetching open tickets",ex);
+            tickets = null;
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return tickets;
+    }
+
+    // getNbTicket for several plates at once, plates without tickets are absent; null if the DB could not be read
+    public Map<String, Integer> getNbTickets(List<String> vehicleRegNumbers) {
+        if (vehicleRegNumbers.isEmpty()) {
+            return new HashMap<>();
+        }
+        DaoCallEvent event = DaoCallEvent.begin("TicketDAO", "getNbTickets", lotId, null);
+        Connection con = null;
+        Map<String, Integer> counts = new HashMap<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            for (List<String> plates : chunks(vehicleRegNumbers)) {
+                PreparedStatement ps = con.prepareStatement(
+                        String.format(DBConstants.GET_TICKET_COUNTS_OF_PLATES, placeholders(plates.size())));
+                ps.setInt(1, lotId);
+                for (int i = 0; i < plates.size(); i++) {
+                    ps.setString(i + 2, plates.get(i));
+                }
+                ResultSet rs = ps.executeQuery();
+                while(rs.next()){
+                    counts.put(rs.getString(1), rs.getInt(2));
+                }
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+            }
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error counting tickets",ex);
+            counts = null;
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return counts;
+    }
+
+    private static List<List<String>> chunks(List<String> plates) {
+        if (plates.size() <= PLATES_PER_QUERY) {
+            return Collections.singletonList(plates);
+        }
+        List<List<String>> chunks = new ArrayList<>();
+        for (int start = 0; start < plates.size(); start += PLATES_PER_QUERY) {
+            chunks.add(plates.subList(start, Math.min(plates.size(), start + PLATES_PER_QUERY)));
+        }
+        return chunks;
+    }
+
+    static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            placeholders.append((i == 0) ? "?" : ",?");
+        }
+        return placeholders.toString();
+    }
+
+    /**
+     * Calls the consumer for every ticket of this lot, in ID order, holding a single row in memory at
+     * a time. Returns how many tickets were read, or -1 if the DB could not be read; the consumer may
+     * then have seen some of them.
+     */
+    public long forEachTicket(Consumer<Ticket> consumer) {
+        return forEach(this::streamLotTickets, consumer);
+    }
+
+    /**
+     * Same as forEachTicket, for the open tickets of this lot and those closed since the given date.
+     */
+    public long forEachRecentTicket(Date since, Consumer<Ticket> consumer) {
+        return forEach(() -> streamRecentTickets(since), consumer);
+    }
+
+    // same as forEachTicket, for the open tickets of this lot
+    public long forEachOpenTicket(Consumer<Ticket> consumer) {
+        return forEach(this::streamOpenTickets, consumer);
+    }
+
+    // the stream is opened here, so failing to open it is caught like failing to read it
+    private long forEach(Supplier<Stream<Ticket>> stream, Consumer<Ticket> consumer) {
+        long[] count = new long[1];
+        try (Stream<Ticket> tickets = stream.get()) {
+            tickets.forEach(ticket -> {
+                consumer.accept(ticket);
+                count[0]++;
+            });
+        }catch (Exception ex){
+            logger.error("Error reading all tickets",ex);
+            return -1;
+        }
+        return count[0];
+    }
+
+    /**
+     * Lazy stream over every ticket of every lot, in ID order. Rows are only read from the server as
+     * the stream is consumed, so a slow consumer holds the query back instead of filling memory. The
+     * stream keeps a connection until it is closed and must be used in a try-with-resources block.
+     */
+    public Stream<Ticket> streamTickets() {
+        return streamTickets("streamTickets", DBConstants.GET_ALL_TICKETS, ps -> { });
+    }
+
+    // same as streamTickets, for this lot only
+    public Stream<Ticket> streamLotTickets() {
+        return streamTickets("streamLotTickets", DBConstants.GET_LOT_TICKETS, ps -> ps.setInt(1, lotId));
+    }
+
+    // open tickets of this lot
+    public Stream<Ticket> streamOpenTickets() {
+        return streamTickets("streamOpenTickets", DBConstants.GET_OPEN_LOT_TICKETS, ps -> ps.setInt(1, lotId));
+    }
+
+    // open tickets of this lot and those closed since the given date
+    public Stream<Ticket> streamRecentTickets(Date since) {
+        return streamTickets("streamRecentTickets", DBConstants.GET_RECENT_LOT_TICKETS, ps -> {
+            ps.setInt(1, lotId);
+            ps.setTimestamp(2, new Timestamp(since.getTime()));
+        });
+    }
+
+    private interface StatementParameters {
+        void set(PreparedStatement ps) throws SQLException;
+    }
+
+    private Stream<Ticket> streamTickets(String method, String sql, StatementParameters parameters) {
+        // covers opening the cursor, reading rows is paced by the consumer
+        DaoCallEvent event = DaoCallEvent.begin("TicketDAO", method, lotId, null);
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = dataBaseConfig.prepareStreamingStatement(con, sql);
+            parameters.set(ps);
+            ResultSet rs = ps.executeQuery();
+            Connection streamCon = con;
+            PreparedStatement streamPs = ps;
+            Spliterator<Ticket> rows = new Spliterators.AbstractSpliterator<Ticket>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super Ticket> action) {
+                    try {
+                        if (!rs.next()) {
+                            return false;
+                        }
+                        action.accept(readTicketRow(rs));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Error streaming tickets", e);
+                    }
+                }
+            };
+            event.finish();
+            return StreamSupport.stream(rows, false).onClose(() -> {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(streamPs);
+                dataBaseConfig.closeConnection(streamCon);
+            });
+        }catch (Exception ex){
+            event.failed();
+            event.finish();
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+            throw new IllegalStateException("Error opening ticket stream", ex);
+        }
+    }
+
+    private static Ticket readTicketRow(ResultSet rs) throws SQLException {
+        Ticket ticket = new Ticket();
+        ticket.setId(rs.getLong(1));
+        ticket.setLotId(rs.getInt(8));
+        ticket.setParkingSpot(new ParkingSpot(rs.getInt(2), ParkingType.valueOf(rs.getString(7)),false, ticket.getLotId()));
+        ticket.setVehicleRegNumber(rs.getString(3));
+        ticket.setPrice(rs.getDouble(4));
+        ticket.setInTime(rs.getTimestamp(5));
+        ticket.setOutTime(rs.getTimestamp(6));
+        return ticket;
+    }
+
+    /**
+     * Streams every plate with its number of tickets. Returns how many plates were read, or -1 if the
+     * DB could not be read; the consumer may then have seen some of them.
+     */
+    public long forEachPlateCount(ObjIntConsumer<String> consumer) {
+        DaoCallEvent event = DaoCallEvent.begin("TicketDAO", "forEachPlateCount", lotId, null);
+        Connection con = null;
+        long count = 0;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = dataBaseConfig.prepareStreamingStatement(con, DBConstants.GET_TICKET_COUNTS_BY_PLATE);
+            ps.setInt(1, lotId);
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                consumer.accept(rs.getString(1), rs.getInt(2));
+                count++;
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error counting tickets by plate",ex);
+            count = -1;
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return count;
+    }
+
+    // plate of every ticket that came in since the given time; -1 if the DB could not be read
+    public long forEachPlateSince(Date since, Consumer<String> consumer) {
+        DaoCallEvent event = DaoCallEvent.begin("TicketDAO", "forEachPlateSince", lotId, null);
+        Connection con = null;
+        long count = 0;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = dataBaseConfig.prepareStreamingStatement(con, DBConstants.GET_PLATES_SINCE);
+            ps.setTimestamp(1, new Timestamp(since.getTime()));
+            ps.setInt(2, lotId);
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                consumer.accept(rs.getString(1));
+                count++;
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            event.failed();
+            logger.error("Error reading plates of recent tickets",ex);
+            count = -1;
+        }finally {
+            event.finish();
+            dataBaseConfig.closeConnection(con);
+        }
+        return count;
+    }
+
 }
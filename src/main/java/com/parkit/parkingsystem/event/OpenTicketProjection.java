@@ -0,0 +1,40 @@
+package com.parkit.parkingsystem.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The vehicles currently parked, as the entry event of each plate.
+ */
+public class OpenTicketProjection implements Projection {
+
+    private final Map<String, ParkingEvent> entries = new ConcurrentHashMap<>();
+
+    @Override
+    public void apply(ParkingEvent event) {
+        switch (event.getType()) {
+            case VEHICLE_ENTERED:
+                entries.put(event.getVehicleRegNumber(), event);
+                break;
+            case VEHICLE_EXITED:
+                entries.remove(event.getVehicleRegNumber());
+                break;
+            default:
+                break;
+        }
+    }
+
+    public ParkingEvent getEntry(String vehicleRegNumber) {
+        return entries.get(vehicleRegNumber);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public List<ParkingEvent> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+}
@@ -0,0 +1,128 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.Date;
+
+/**
+ * Something that happened in a lot. Events are immutable; the stream gives each one its sequence
+ * number when it is appended.
+ */
+public final class ParkingEvent {
+
+    public enum Type {
+        VEHICLE_ENTERED,
+        VEHICLE_EXITED,
+        // a spot changed outside entries and exits, e.g. by reconciliation or when the stream is seeded
+        SPOT_STATE_CHANGED
+    }
+
+    public static final long UNSEQUENCED = -1;
+
+    private final long sequence;
+    private final Type type;
+    private final long timestamp;
+    private final int lotId;
+    private final String vehicleRegNumber;
+    private final int parkingNumber;
+    private final ParkingType parkingType;
+    private final boolean spotAvailable;
+    private final long inTime;
+    private final double price;
+    private final boolean recurrentUser;
+
+    private ParkingEvent(long sequence, Type type, long timestamp, int lotId, String vehicleRegNumber, int parkingNumber,
+                         ParkingType parkingType, boolean spotAvailable, long inTime, double price, boolean recurrentUser) {
+        this.sequence = sequence;
+        this.type = type;
+        this.timestamp = timestamp;
+        this.lotId = lotId;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingNumber = parkingNumber;
+        this.parkingType = parkingType;
+        this.spotAvailable = spotAvailable;
+        this.inTime = inTime;
+        this.price = price;
+        this.recurrentUser = recurrentUser;
+    }
+
+    public static ParkingEvent vehicleEntered(Ticket ticket) {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        long inTime = ticket.getInTime().getTime();
+        return new ParkingEvent(UNSEQUENCED, Type.VEHICLE_ENTERED, inTime, ticket.getLotId(), ticket.getVehicleRegNumber(),
+                parkingSpot.getId(), parkingSpot.getParkingType(), false, inTime, 0, false);
+    }
+
+    public static ParkingEvent vehicleExited(Ticket ticket) {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        return new ParkingEvent(UNSEQUENCED, Type.VEHICLE_EXITED, ticket.getOutTime().getTime(), ticket.getLotId(),
+                ticket.getVehicleRegNumber(), parkingSpot.getId(), parkingSpot.getParkingType(), true,
+                ticket.getInTime().getTime(), ticket.getPrice(), ticket.isRecurrentUser());
+    }
+
+    public static ParkingEvent spotStateChanged(ParkingSpot parkingSpot, long timestamp) {
+        return new ParkingEvent(UNSEQUENCED, Type.SPOT_STATE_CHANGED, timestamp, parkingSpot.getLotId(), null,
+                parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable(), 0, 0, false);
+    }
+
+    ParkingEvent withSequence(long sequence) {
+        return new ParkingEvent(sequence, type, timestamp, lotId, vehicleRegNumber, parkingNumber, parkingType,
+                spotAvailable, inTime, price, recurrentUser);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getLotId() {
+        return lotId;
+    }
+
+    // null for spot state changes
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    // whether the spot is free once the event is applied
+    public boolean isSpotAvailable() {
+        return spotAvailable;
+    }
+
+    public Date getInTime() {
+        return (type == Type.SPOT_STATE_CHANGED) ? null : new Date(inTime);
+    }
+
+    // price paid, for exits
+    public double getPrice() {
+        return price;
+    }
+
+    public boolean isRecurrentUser() {
+        return recurrentUser;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + " lot " + lotId + " spot " + parkingNumber
+                + ((vehicleRegNumber != null) ? " " + vehicleRegNumber : "")
+                + ((type == Type.VEHICLE_EXITED) ? " paid " + price : "");
+    }
+}
@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem.event;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Append-only, in-memory log of the events of a lot. Appends are serialized and only publish a
+ * counter, so gate writes never wait on a projection; each projection reads the log on its own thread
+ * through a ProjectionRunner. Segments every subscribed projection has applied are dropped, a
+ * projection subscribed later starts at the oldest event still held.
+ */
+public class ParkingEventStream {
+
+    static final int SEGMENT_BITS = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final Map<Long, ParkingEvent[]> segments = new ConcurrentHashMap<>();
+    private final List<ProjectionRunner> runners = new CopyOnWriteArrayList<>();
+    // number of events appended, written after the event itself so readers below it see whole events
+    private volatile long published;
+    private volatile long firstRetained;
+
+    public ParkingEvent append(ParkingEvent event) {
+        ParkingEvent sequenced;
+        synchronized (this) {
+            long sequence = published;
+            ParkingEvent[] segment = segments.computeIfAbsent(sequence >>> SEGMENT_BITS, index -> new ParkingEvent[SEGMENT_SIZE]);
+            sequenced = event.withSequence(sequence);
+            segment[(int) (sequence & SEGMENT_MASK)] = sequenced;
+            published = sequence + 1;
+        }
+        for (ProjectionRunner runner : runners) {
+            runner.wake();
+        }
+        return sequenced;
+    }
+
+    public ParkingEvent get(long sequence) {
+        if (sequence < firstRetained || sequence >= published) {
+            throw new IllegalArgumentException("Event " + sequence + " is not held, the stream holds "
+                    + firstRetained + " to " + (published - 1));
+        }
+        return segments.get(sequence >>> SEGMENT_BITS)[(int) (sequence & SEGMENT_MASK)];
+    }
+
+    // sequence the next event will get
+    public long getPublishedCount() {
+        return published;
+    }
+
+    public long getFirstRetainedSequence() {
+        return firstRetained;
+    }
+
+    public synchronized ProjectionRunner subscribe(String name, Projection projection) {
+        ProjectionRunner runner = new ProjectionRunner(name, this, projection, firstRetained);
+        runners.add(runner);
+        runner.start();
+        return runner;
+    }
+
+    public void unsubscribe(ProjectionRunner runner) {
+        runners.remove(runner);
+        runner.stop();
+    }
+
+    // called by the runners once they applied a batch
+    synchronized void releaseConsumed() {
+        if (runners.isEmpty()) {
+            return;
+        }
+        long applied = Long.MAX_VALUE;
+        for (ProjectionRunner runner : runners) {
+            applied = Math.min(applied, runner.getAppliedCount());
+        }
+        long firstSegment = firstRetained >>> SEGMENT_BITS;
+        long releasable = applied >>> SEGMENT_BITS;
+        if (releasable <= firstSegment) {
+            return;
+        }
+        firstRetained = releasable << SEGMENT_BITS;
+        for (long index = firstSegment; index < releasable; index++) {
+            segments.remove(index);
+        }
+    }
+
+    public void close() {
+        for (ProjectionRunner runner : runners) {
+            unsubscribe(runner);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The read side of a lot: its event stream and the projections kept up to date from it, each on its
+ * own thread. Reads here never touch the parking or ticket tables.
+ */
+public class ParkingReadModels {
+
+    private static final Logger logger = LogManager.getLogger("ParkingReadModels");
+
+    private final ParkingEventStream stream;
+    private final SpotAvailabilityProjection spotAvailability = new SpotAvailabilityProjection();
+    private final OpenTicketProjection openTickets = new OpenTicketProjection();
+    private final PlateHistoryProjection plateHistory = new PlateHistoryProjection();
+    private final RevenueProjection revenue = new RevenueProjection();
+    private final List<ProjectionRunner> runners;
+
+    public ParkingReadModels(ParkingEventStream stream) {
+        this.stream = stream;
+        this.runners = Arrays.asList(
+                stream.subscribe("spot-availability", spotAvailability),
+                stream.subscribe("open-tickets", openTickets),
+                stream.subscribe("plate-history", plateHistory),
+                stream.subscribe("revenue", revenue));
+    }
+
+    /**
+     * Replays the lot's tickets as entries and exits, then the current state of every spot, so the
+     * projections start from what the DB holds. Must run before the gates open. Returns the events
+     * published, or -1 if the tickets could not all be read; the projections then miss some and
+     * should not be served.
+     */
+    public long seed(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+        long before = stream.getPublishedCount();
+        long tickets = ticketDAO.forEachTicket(ticket -> {
+            stream.append(ParkingEvent.vehicleEntered(ticket));
+            if (ticket.getOutTime() != null) {
+                stream.append(ParkingEvent.vehicleExited(ticket));
+            }
+        });
+        if (tickets < 0) {
+            logger.error("Unable to read the tickets of lot " + parkingSpotDAO.getLotId() + ", read models not seeded");
+            return -1;
+        }
+        long now = System.currentTimeMillis();
+        for (ParkingSpot parkingSpot : parkingSpotDAO.getParkingSpots()) {
+            stream.append(ParkingEvent.spotStateChanged(parkingSpot, now));
+        }
+        long seeded = stream.getPublishedCount() - before;
+        logger.info("Seeded " + seeded + " events in lot " + parkingSpotDAO.getLotId());
+        return seeded;
+    }
+
+    public ParkingEventStream getStream() {
+        return stream;
+    }
+
+    public SpotAvailabilityProjection getSpotAvailability() {
+        return spotAvailability;
+    }
+
+    public OpenTicketProjection getOpenTickets() {
+        return openTickets;
+    }
+
+    public PlateHistoryProjection getPlateHistory() {
+        return plateHistory;
+    }
+
+    public RevenueProjection getRevenue() {
+        return revenue;
+    }
+
+    public List<ProjectionRunner> getRunners() {
+        return runners;
+    }
+
+    // waits until every projection applied the event, for callers that must read their own writes
+    public boolean awaitApplied(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (ProjectionRunner runner : runners) {
+            if (!runner.awaitApplied(sequence, Math.max(0, deadline - System.currentTimeMillis()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void close() {
+        for (ProjectionRunner runner : runners) {
+            stream.unsubscribe(runner);
+        }
+    }
+}
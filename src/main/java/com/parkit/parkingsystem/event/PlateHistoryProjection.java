@@ -0,0 +1,57 @@
+package com.parkit.parkingsystem.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The last entries and exits of every plate, oldest first.
+ */
+public class PlateHistoryProjection implements Projection {
+
+    public static final int DEFAULT_EVENTS_PER_PLATE = 100;
+
+    private final int eventsPerPlate;
+    // lists are replaced, never changed once published, so readers need no lock
+    private final Map<String, List<ParkingEvent>> historyByPlate = new ConcurrentHashMap<>();
+
+    public PlateHistoryProjection() {
+        this(DEFAULT_EVENTS_PER_PLATE);
+    }
+
+    public PlateHistoryProjection(int eventsPerPlate) {
+        this.eventsPerPlate = eventsPerPlate;
+    }
+
+    @Override
+    public void apply(ParkingEvent event) {
+        if (event.getVehicleRegNumber() == null) {
+            return;
+        }
+        List<ParkingEvent> history = historyByPlate.get(event.getVehicleRegNumber());
+        int size = (history == null) ? 0 : history.size();
+        int kept = Math.min(size, eventsPerPlate - 1);
+        List<ParkingEvent> updated = new ArrayList<>(kept + 1);
+        if (kept > 0) {
+            updated.addAll(history.subList(size - kept, size));
+        }
+        updated.add(event);
+        historyByPlate.put(event.getVehicleRegNumber(), Collections.unmodifiableList(updated));
+    }
+
+    public List<ParkingEvent> getHistory(String vehicleRegNumber) {
+        return historyByPlate.getOrDefault(vehicleRegNumber, Collections.emptyList());
+    }
+
+    public int getVisitCount(String vehicleRegNumber) {
+        int visits = 0;
+        for (ParkingEvent event : getHistory(vehicleRegNumber)) {
+            if (event.getType() == ParkingEvent.Type.VEHICLE_ENTERED) {
+                visits++;
+            }
+        }
+        return visits;
+    }
+}
@@ -0,0 +1,10 @@
+package com.parkit.parkingsystem.event;
+
+/**
+ * A read model built from the event stream. apply is only ever called from the projection's own
+ * thread, in sequence order; reads may come from any thread while it runs.
+ */
+public interface Projection {
+
+    void apply(ParkingEvent event);
+}
@@ -0,0 +1,115 @@
+package com.parkit.parkingsystem.event;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds one projection from the stream on its own daemon thread. A projection that throws on an
+ * event logs it and moves on, a bad event must not stop the read model.
+ */
+public class ProjectionRunner {
+
+    private static final Logger logger = LogManager.getLogger("ProjectionRunner");
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String name;
+    private final ParkingEventStream stream;
+    private final Projection projection;
+    private final Thread thread;
+    private volatile long applied;
+    private volatile boolean running = true;
+    private volatile long failed;
+
+    ProjectionRunner(String name, ParkingEventStream stream, Projection projection, long from) {
+        this.name = name;
+        this.stream = stream;
+        this.projection = projection;
+        this.applied = from;
+        this.thread = new Thread(this::run, "projection-" + name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void wake() {
+        LockSupport.unpark(thread);
+    }
+
+    void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (running) {
+            long published = stream.getPublishedCount();
+            long next = applied;
+            if (next >= published) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            for (; next < published && running; next++) {
+                ParkingEvent event = stream.get(next);
+                try {
+                    projection.apply(event);
+                } catch (RuntimeException e) {
+                    failed++;
+                    logger.error("Projection " + name + " failed on " + event, e);
+                }
+            }
+            long before = applied;
+            applied = next;
+            if ((before >>> ParkingEventStream.SEGMENT_BITS) != (next >>> ParkingEventStream.SEGMENT_BITS)) {
+                stream.releaseConsumed();
+            }
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Projection getProjection() {
+        return projection;
+    }
+
+    // events applied so far, i.e. the sequence of the next event to apply
+    public long getAppliedCount() {
+        return applied;
+    }
+
+    public long getLag() {
+        return stream.getPublishedCount() - applied;
+    }
+
+    public long getFailedCount() {
+        return failed;
+    }
+
+    /**
+     * Waits until the event of the given sequence is applied, for callers that must read their own
+     * writes. Returns false on timeout.
+     */
+    public boolean awaitApplied(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (this) {
+            while (applied <= sequence) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    return false;
+                }
+                wait(remainingMillis);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Fares collected and exits counted per day of exit and parking type.
+ */
+public class RevenueProjection implements Projection {
+
+    private final ZoneId zone;
+    private final Map<LocalDate, DoubleAdder[]> revenueByDay = new ConcurrentHashMap<>();
+    private final Map<LocalDate, LongAdder[]> exitsByDay = new ConcurrentHashMap<>();
+    private final DoubleAdder totalRevenue = new DoubleAdder();
+
+    public RevenueProjection() {
+        this(ZoneId.systemDefault());
+    }
+
+    public RevenueProjection(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    @Override
+    public void apply(ParkingEvent event) {
+        if (event.getType() != ParkingEvent.Type.VEHICLE_EXITED) {
+            return;
+        }
+        LocalDate day = Instant.ofEpochMilli(event.getTimestamp()).atZone(zone).toLocalDate();
+        int type = event.getParkingType().ordinal();
+        revenueByDay.computeIfAbsent(day, key -> newAdders(DoubleAdder::new, new DoubleAdder[ParkingType.values().length]))[type]
+                .add(event.getPrice());
+        exitsByDay.computeIfAbsent(day, key -> newAdders(LongAdder::new, new LongAdder[ParkingType.values().length]))[type]
+                .increment();
+        totalRevenue.add(event.getPrice());
+    }
+
+    private static <T> T[] newAdders(Supplier<T> factory, T[] adders) {
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = factory.get();
+        }
+        return adders;
+    }
+
+    public double getRevenue(LocalDate day, ParkingType parkingType) {
+        DoubleAdder[] revenue = revenueByDay.get(day);
+        return (revenue == null) ? 0 : revenue[parkingType.ordinal()].sum();
+    }
+
+    public long getExits(LocalDate day, ParkingType parkingType) {
+        LongAdder[] exits = exitsByDay.get(day);
+        return (exits == null) ? 0 : exits[parkingType.ordinal()].sum();
+    }
+
+    public double getTotalRevenue() {
+        return totalRevenue.sum();
+    }
+}
@@ -0,0 +1,39 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Which spots are free, and how many of each type.
+ */
+public class SpotAvailabilityProjection implements Projection {
+
+    private final Map<Integer, Boolean> availableByParkingNumber = new ConcurrentHashMap<>();
+    private final AtomicIntegerArray freeSpots = new AtomicIntegerArray(ParkingType.values().length);
+
+    @Override
+    public void apply(ParkingEvent event) {
+        boolean available = event.isSpotAvailable();
+        Boolean previous = availableByParkingNumber.put(event.getParkingNumber(), available);
+        boolean wasAvailable = (previous != null) && previous;
+        if (available != wasAvailable) {
+            freeSpots.addAndGet(event.getParkingType().ordinal(), available ? 1 : -1);
+        }
+    }
+
+    // null for a spot the stream never mentioned
+    public Boolean isAvailable(int parkingNumber) {
+        return availableByParkingNumber.get(parkingNumber);
+    }
+
+    public int getFreeSpots(ParkingType parkingType) {
+        return freeSpots.get(parkingType.ordinal());
+    }
+
+    public int getKnownSpots() {
+        return availableByParkingNumber.size();
+    }
+}
@@ -0,0 +1,107 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.util.PlateDictionary;
+
+import java.util.Date;
+
+/**
+ * Primitive-only ticket for large in-memory stores; the plate is an id in a shared PlateDictionary.
+ */
+public final class CompactTicket {
+
+    public static final long NO_OUT_TIME = Long.MIN_VALUE;
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private final long id;
+    private final int parkingNumber;
+    private final int plateId;
+    private final byte parkingType;
+    private final boolean recurrentUser;
+    private final long priceCents;
+    private final long inTime;
+    private final long outTime;
+
+    public CompactTicket(long id, int parkingNumber, ParkingType parkingType, int plateId,
+                         long priceCents, long inTime, long outTime, boolean recurrentUser) {
+        this.id = id;
+        this.parkingNumber = parkingNumber;
+        this.parkingType = (byte) parkingType.ordinal();
+        this.plateId = plateId;
+        this.priceCents = priceCents;
+        this.inTime = inTime;
+        this.outTime = outTime;
+        this.recurrentUser = recurrentUser;
+    }
+
+    public static CompactTicket from(Ticket ticket, PlateDictionary plates) {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        return new CompactTicket(
+                ticket.getId(),
+                parkingSpot.getId(),
+                parkingSpot.getParkingType(),
+                plates.intern(ticket.getVehicleRegNumber()),
+                Math.round(ticket.getPrice() * 100),
+                ticket.getInTime().getTime(),
+                (ticket.getOutTime() == null) ? NO_OUT_TIME : ticket.getOutTime().getTime(),
+                ticket.isRecurrentUser());
+    }
+
+    public Ticket toTicket(PlateDictionary plates) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setParkingSpot(toParkingSpot());
+        ticket.setVehicleRegNumber(plates.lookup(plateId));
+        ticket.setPrice(priceCents / 100.0);
+        ticket.setInTime(new Date(inTime));
+        ticket.setOutTime(isOpen() ? null : new Date(outTime));
+        ticket.setRecurrentUser(recurrentUser);
+        return ticket;
+    }
+
+    public ParkingSpot toParkingSpot() {
+        // a spot referenced by a ticket is taken until the ticket is closed
+        return new ParkingSpot(parkingNumber, getParkingType(), !isOpen());
+    }
+
+    public CompactTicket close(long outTime, long priceCents) {
+        return new CompactTicket(id, parkingNumber, getParkingType(), plateId, priceCents, inTime, outTime, recurrentUser);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return PARKING_TYPES[parkingType];
+    }
+
+    public int getPlateId() {
+        return plateId;
+    }
+
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    public long getInTime() {
+        return inTime;
+    }
+
+    public long getOutTime() {
+        return outTime;
+    }
+
+    public boolean isOpen() {
+        return outTime == NO_OUT_TIME;
+    }
+
+    public boolean isRecurrentUser() {
+        return recurrentUser;
+    }
+}
@@ -0,0 +1,116 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.util.HyperLogLog;
+import com.parkit.parkingsystem.util.KllSketch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * The sketches of one day and parking type: the plates that entered, and the dwell minutes and fares
+ * of the tickets that closed. Methods are synchronized, gates update them concurrently.
+ */
+public class DailyParkingSketches {
+
+    private final LocalDate day;
+    private final ParkingType parkingType;
+    private final HyperLogLog plates;
+    private final KllSketch dwellMinutes;
+    private final KllSketch fares;
+
+    public DailyParkingSketches(LocalDate day, ParkingType parkingType) {
+        this(day, parkingType, new HyperLogLog(), new KllSketch(), new KllSketch());
+    }
+
+    public DailyParkingSketches(LocalDate day, ParkingType parkingType, HyperLogLog plates, KllSketch dwellMinutes,
+                                KllSketch fares) {
+        this.day = day;
+        this.parkingType = parkingType;
+        this.plates = plates;
+        this.dwellMinutes = dwellMinutes;
+        this.fares = fares;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public synchronized void recordEntry(CharSequence vehicleRegNumber) {
+        plates.add(vehicleRegNumber);
+    }
+
+    public synchronized void recordExit(float dwellMinutes, float fare) {
+        this.dwellMinutes.update(dwellMinutes);
+        fares.update(fare);
+    }
+
+    // adds the other sketches into these, whatever their day, type or lot
+    public synchronized void merge(DailyParkingSketches other) {
+        DailyParkingSketches snapshot = other.copy();
+        plates.merge(snapshot.plates);
+        dwellMinutes.merge(snapshot.dwellMinutes);
+        fares.merge(snapshot.fares);
+    }
+
+    public synchronized DailyParkingSketches copy() {
+        return new DailyParkingSketches(day, parkingType, plates.copy(), dwellMinutes.copy(), fares.copy());
+    }
+
+    public synchronized long getUniquePlates() {
+        return plates.estimate();
+    }
+
+    public synchronized long getExits() {
+        return dwellMinutes.getCount();
+    }
+
+    public synchronized float getDwellMinutesQuantile(double q) {
+        return dwellMinutes.quantile(q);
+    }
+
+    public synchronized float getFareQuantile(double q) {
+        return fares.quantile(q);
+    }
+
+    public synchronized byte[] getPlatesBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        plates.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    public synchronized byte[] getDwellMinutesBytes() throws IOException {
+        return toBytes(dwellMinutes);
+    }
+
+    public synchronized byte[] getFaresBytes() throws IOException {
+        return toBytes(fares);
+    }
+
+    private static byte[] toBytes(KllSketch sketch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    public static DailyParkingSketches fromBytes(LocalDate day, ParkingType parkingType, byte[] plates,
+                                                 byte[] dwellMinutes, byte[] fares) throws IOException {
+        return new DailyParkingSketches(day, parkingType,
+                HyperLogLog.readFrom(new DataInputStream(new ByteArrayInputStream(plates))),
+                KllSketch.readFrom(new DataInputStream(new ByteArrayInputStream(dwellMinutes))),
+                KllSketch.readFrom(new DataInputStream(new ByteArrayInputStream(fares))));
+    }
+
+    @Override
+    public String toString() {
+        return "Sketches " + day + " " + parkingType;
+    }
+}
@@ -0,0 +1,121 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Date;
+
+/**
+ * What a plate would pay if it left now. A quote stays right until the stay reaches its next full
+ * minute, see getValidUntil.
+ */
+public final class FareQuote {
+
+    public enum Status {
+        QUOTED,
+        NO_OPEN_TICKET,
+        UNAVAILABLE
+    }
+
+    private final String vehicleRegNumber;
+    private final Status status;
+    private final ParkingType parkingType;
+    private final int parkingNumber;
+    private final long inTime;
+    private final long quotedAt;
+    private final long durationInMinutes;
+    private final boolean recurrentUser;
+    private final double price;
+    private final long validUntil;
+
+    public FareQuote(String vehicleRegNumber, ParkingType parkingType, int parkingNumber, long inTime, long quotedAt,
+                     long durationInMinutes, boolean recurrentUser, double price) {
+        this(vehicleRegNumber, Status.QUOTED, parkingType, parkingNumber, inTime, quotedAt, durationInMinutes,
+                recurrentUser, price, inTime + (durationInMinutes + 1) * 60_000);
+    }
+
+    private FareQuote(String vehicleRegNumber, Status status, ParkingType parkingType, int parkingNumber, long inTime,
+                      long quotedAt, long durationInMinutes, boolean recurrentUser, double price, long validUntil) {
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.status = status;
+        this.parkingType = parkingType;
+        this.parkingNumber = parkingNumber;
+        this.inTime = inTime;
+        this.quotedAt = quotedAt;
+        this.durationInMinutes = durationInMinutes;
+        this.recurrentUser = recurrentUser;
+        this.price = price;
+        this.validUntil = validUntil;
+    }
+
+    // the plate is not parked, asking again within the minute gives the same answer
+    public static FareQuote noOpenTicket(String vehicleRegNumber, long quotedAt) {
+        return new FareQuote(vehicleRegNumber, Status.NO_OPEN_TICKET, null, 0, 0, quotedAt, 0, false, 0, quotedAt + 60_000);
+    }
+
+    // the ticket could not be read, nothing is known and nothing should be cached
+    public static FareQuote unavailable(String vehicleRegNumber, long quotedAt) {
+        return new FareQuote(vehicleRegNumber, Status.UNAVAILABLE, null, 0, 0, quotedAt, 0, false, 0, quotedAt);
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isQuoted() {
+        return status == Status.QUOTED;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public Date getInTime() {
+        return isQuoted() ? new Date(inTime) : null;
+    }
+
+    public Date getQuotedAt() {
+        return new Date(quotedAt);
+    }
+
+    public long getDurationInMinutes() {
+        return durationInMinutes;
+    }
+
+    public boolean isRecurrentUser() {
+        return recurrentUser;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public long getValidUntil() {
+        return validUntil;
+    }
+
+    public boolean isValidAt(long timeMillis) {
+        return timeMillis >= quotedAt && timeMillis < validUntil;
+    }
+
+    // same stay: a quote of a later minute can reuse the recurrence of this one
+    public boolean isSameStay(Ticket ticket) {
+        return isQuoted() && ticket.getInTime().getTime() == inTime && ticket.getParkingSpot().getId() == parkingNumber;
+    }
+
+    @Override
+    public String toString() {
+        if (!isQuoted()) {
+            return vehicleRegNumber + ": " + status;
+        }
+        return vehicleRegNumber + ": " + price + " for " + durationInMinutes + " min on spot " + parkingNumber
+                + (recurrentUser ? ", recurrent user" : "");
+    }
+}
@@ -0,0 +1,100 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.Date;
+
+/**
+ * A row of the outbox table: a ticket change written in the same transaction as the change itself,
+ * for the outbox relay to hand to downstream consumers.
+ */
+public final class OutboxEntry {
+
+    public static final String TICKET_SAVED = "TICKET_SAVED";
+    public static final String TICKET_CLOSED = "TICKET_CLOSED";
+
+    private final long id;
+    private final int lotId;
+    private final String eventType;
+    private final long ticketId;
+    private final String vehicleRegNumber;
+    private final int parkingNumber;
+    private final double price;
+    private final Date inTime;
+    private final Date outTime;
+    private final Date createdAt;
+
+    public OutboxEntry(long id, int lotId, String eventType, long ticketId, String vehicleRegNumber, int parkingNumber,
+                       double price, Date inTime, Date outTime, Date createdAt) {
+        this.id = id;
+        this.lotId = lotId;
+        this.eventType = eventType;
+        this.ticketId = ticketId;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingNumber = parkingNumber;
+        this.price = price;
+        this.inTime = inTime;
+        this.outTime = outTime;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getLotId() {
+        return lotId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    // 0 when the ticket's generated ID was not known to the writer
+    public long getTicketId() {
+        return ticketId;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public Date getInTime() {
+        return inTime;
+    }
+
+    public Date getOutTime() {
+        return outTime;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    // one line of JSON, what the file and socket sinks write
+    public String toJson() {
+        return "{\"id\":" + id + ",\"lotId\":" + lotId + ",\"eventType\":\"" + eventType + "\",\"ticketId\":" + ticketId
+                + ",\"vehicleRegNumber\":\"" + escape(vehicleRegNumber) + "\",\"parkingNumber\":" + parkingNumber
+                + ",\"price\":" + price + ",\"inTime\":" + millis(inTime) + ",\"outTime\":" + millis(outTime)
+                + ",\"createdAt\":" + millis(createdAt) + "}";
+    }
+
+    private static String millis(Date date) {
+        return (date == null) ? "null" : Long.toString(date.getTime());
+    }
+
+    private static String escape(String value) {
+        return (value == null) ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    @Override
+    public String toString() {
+        return "Outbox #" + id + " " + eventType + " " + vehicleRegNumber + " lot " + lotId;
+    }
+}
@@ -2,39 +2,44 @@ package com.parkit.parkingsystem.model;
 
 import com.parkit.parkingsystem.constants.ParkingType;
 
-public class ParkingSpot {
-    private int number;
-    private ParkingType parkingType;
-    private boolean isAvailable;
+/**
+ * A spot as read from the DB. Instances are immutable so a ParkingSpotRegistry can share one per spot
+ * between threads: the availability is the one read, entries and exits write theirs to the DB through
+ * ParkingSpotDAO.updateParking.
+ */
+public final class ParkingSpot {
+    public static final int DEFAULT_LOT_ID = 1;
+
+    private final int number;
+    private final ParkingType parkingType;
+    private final boolean isAvailable;
+    private final int lotId;
 
     public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable) {
+        this(number, parkingType, isAvailable, DEFAULT_LOT_ID);
+    }
+
+    public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable, int lotId) {
         this.number = number;
         this.parkingType = parkingType;
         this.isAvailable = isAvailable;
+        this.lotId = lotId;
     }
 
     public int getId() {
         return number;
     }
 
-    public void setId(int number) {
-        this.number = number;
-    }
-
     public ParkingType getParkingType() {
         return parkingType;
     }
 
-    public void setParkingType(ParkingType parkingType) {
-        this.parkingType = parkingType;
-    }
-
     public boolean isAvailable() {
         return isAvailable;
     }
 
-    public void setAvailable(boolean available) {
-        isAvailable = available;
+    public int getLotId() {
+        return lotId;
     }
 
     @Override
@@ -0,0 +1,44 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+public final class PlateEvent {
+
+    public enum Direction {
+        ENTRY,
+        EXIT
+    }
+
+    private final String vehicleRegNumber;
+    private final ParkingType parkingType;
+    private final Direction direction;
+    private final long timestamp;
+
+    public PlateEvent(String vehicleRegNumber, ParkingType parkingType, Direction direction, long timestamp) {
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingType = parkingType;
+        this.direction = direction;
+        this.timestamp = timestamp;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return direction + " " + vehicleRegNumber + " (" + parkingType + ") at " + timestamp;
+    }
+}
@@ -0,0 +1,43 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * A plate found by a fuzzy search, with its weighted edit distance to what was typed or read: look-alike
+ * characters (0/O, 8/B...) cost less than other substitutions.
+ */
+public final class PlateMatch {
+
+    private final String vehicleRegNumber;
+    private final double distance;
+    private final boolean open;
+    private final long lastSeen;
+
+    public PlateMatch(String vehicleRegNumber, double distance, boolean open, long lastSeen) {
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.distance = distance;
+        this.open = open;
+        this.lastSeen = lastSeen;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    // the plate has an open ticket, otherwise it left recently
+    public boolean isOpen() {
+        return open;
+    }
+
+    // entry time of an open ticket, exit time of a closed one, in epoch millis
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    @Override
+    public String toString() {
+        return vehicleRegNumber + (open ? " (parked)" : " (left)") + " distance " + distance;
+    }
+}
@@ -0,0 +1,107 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.List;
+
+/**
+ * What a reconciliation run found in one lot and, when fixes were applied, how many rows changed.
+ */
+public class ReconciliationReport {
+
+    private final int lotId;
+    private final int spotsScanned;
+    private final int openTicketsScanned;
+    private final List<ParkingSpot> occupiedWithoutTicket;
+    private final List<ParkingSpot> freeWithOpenTicket;
+    private final List<Ticket> duplicateOpenTickets;
+    private final int spotsWithSeveralPlates;
+    private final int ticketsWithoutSpot;
+    private final int ticketsClosed;
+    private final List<ParkingSpot> spotsFreed;
+    private final List<ParkingSpot> spotsOccupied;
+    private final long elapsedMillis;
+
+    public ReconciliationReport(int lotId, int spotsScanned, int openTicketsScanned,
+                                List<ParkingSpot> occupiedWithoutTicket, List<ParkingSpot> freeWithOpenTicket,
+                                List<Ticket> duplicateOpenTickets, int spotsWithSeveralPlates, int ticketsWithoutSpot,
+                                int ticketsClosed, List<ParkingSpot> spotsFreed, List<ParkingSpot> spotsOccupied,
+                                long elapsedMillis) {
+        this.lotId = lotId;
+        this.spotsScanned = spotsScanned;
+        this.openTicketsScanned = openTicketsScanned;
+        this.occupiedWithoutTicket = occupiedWithoutTicket;
+        this.freeWithOpenTicket = freeWithOpenTicket;
+        this.duplicateOpenTickets = duplicateOpenTickets;
+        this.spotsWithSeveralPlates = spotsWithSeveralPlates;
+        this.ticketsWithoutSpot = ticketsWithoutSpot;
+        this.ticketsClosed = ticketsClosed;
+        this.spotsFreed = spotsFreed;
+        this.spotsOccupied = spotsOccupied;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getLotId() {
+        return lotId;
+    }
+
+    public int getSpotsScanned() {
+        return spotsScanned;
+    }
+
+    public int getOpenTicketsScanned() {
+        return openTicketsScanned;
+    }
+
+    public List<ParkingSpot> getOccupiedWithoutTicket() {
+        return occupiedWithoutTicket;
+    }
+
+    public List<ParkingSpot> getFreeWithOpenTicket() {
+        return freeWithOpenTicket;
+    }
+
+    // older open tickets of plates that have several, each carrying the out time it is closed with
+    public List<Ticket> getDuplicateOpenTickets() {
+        return duplicateOpenTickets;
+    }
+
+    // spots with open tickets of different plates, reported but left for a human to sort out
+    public int getSpotsWithSeveralPlates() {
+        return spotsWithSeveralPlates;
+    }
+
+    public int getTicketsWithoutSpot() {
+        return ticketsWithoutSpot;
+    }
+
+    public int getTicketsClosed() {
+        return ticketsClosed;
+    }
+
+    // spots actually changed by the fixes, rows that moved since the scan are left out
+    public List<ParkingSpot> getSpotsFreed() {
+        return spotsFreed;
+    }
+
+    public List<ParkingSpot> getSpotsOccupied() {
+        return spotsOccupied;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public boolean isConsistent() {
+        return occupiedWithoutTicket.isEmpty() && freeWithOpenTicket.isEmpty() && duplicateOpenTickets.isEmpty()
+                && spotsWithSeveralPlates == 0 && ticketsWithoutSpot == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Lot " + lotId + ": " + spotsScanned + " spots and " + openTicketsScanned + " open tickets checked in "
+                + elapsedMillis + " ms, " + occupiedWithoutTicket.size() + " occupied without ticket, "
+                + freeWithOpenTicket.size() + " free with an open ticket, " + duplicateOpenTickets.size()
+                + " duplicate open tickets, " + spotsWithSeveralPlates + " spots with several plates, "
+                + ticketsWithoutSpot + " tickets without spot; fixed: " + ticketsClosed + " tickets closed, "
+                + spotsFreed.size() + " spots freed, " + spotsOccupied.size() + " spots occupied";
+    }
+}
@@ -4,19 +4,20 @@ import java.util.Calendar;
 import java.util.Date;
 
 public class Ticket {
-    private int id;
+    private long id;
     private ParkingSpot parkingSpot;
     private String vehicleRegNumber;
     private double price;
     private Date inTime;
     private Date outTime;
     private boolean recurrentUser;
+    private int lotId = ParkingSpot.DEFAULT_LOT_ID;
 
-    public int getId() {
+    public long getId() {
         return id;
     }
 
-    public void setId(int id) {
+    public void setId(long id) {
         this.id = id;
     }
 
@@ -67,4 +68,12 @@ public class Ticket {
     public void setRecurrentUser(boolean recurrentUser){
         this.recurrentUser = recurrentUser;
     }
+
+    public int getLotId() {
+        return lotId;
+    }
+
+    public void setLotId(int lotId) {
+        this.lotId = lotId;
+    }
 }
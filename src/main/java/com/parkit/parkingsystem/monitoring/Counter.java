@@ -0,0 +1,40 @@
+package com.parkit.parkingsystem.monitoring;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter extends Metric {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name, String help, String labels) {
+        super(name, help, labels);
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+    @Override
+    public String getType() {
+        return "counter";
+    }
+
+    @Override
+    void writeSamples(StringBuilder out) {
+        out.append(getName()).append(getLabels()).append(' ').append(get()).append('\n');
+    }
+
+    @Override
+    void collectValues(Map<String, Double> values) {
+        values.put(getName() + getLabels(), (double) get());
+    }
+}
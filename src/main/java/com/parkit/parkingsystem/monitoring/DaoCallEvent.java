@@ -0,0 +1,62 @@
+package com.parkit.parkingsystem.monitoring;
+
+import com.parkit.parkingsystem.util.PlateHashing;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One DAO method call, from taking a connection to giving it back.
+ */
+@Name("com.parkit.DaoCall")
+@Label("DAO Call")
+@Category({"Parking System", "DAO"})
+@StackTrace(false)
+public class DaoCallEvent extends Event {
+
+    @Label("DAO")
+    String dao;
+
+    @Label("Method")
+    String method;
+
+    @Label("Lot")
+    int lotId;
+
+    @Label("Plate Hash")
+    @Description("FNV-1a hash of the plate, 0 when the call is not about one vehicle")
+    long plateHash;
+
+    @Label("Succeeded")
+    boolean succeeded = true;
+
+    // JFR ignores transient fields: the plate itself never reaches a recording
+    private transient String plate;
+
+    public static DaoCallEvent begin(String dao, String method, int lotId, String plate) {
+        DaoCallEvent event = new DaoCallEvent();
+        if (event.isEnabled()) {
+            event.dao = dao;
+            event.method = method;
+            event.lotId = lotId;
+            event.plate = plate;
+            event.begin();
+        }
+        return event;
+    }
+
+    public void failed() {
+        succeeded = false;
+    }
+
+    public void finish() {
+        end();
+        if (shouldCommit()) {
+            plateHash = (plate == null) ? 0 : PlateHashing.fingerprint(plate);
+            commit();
+        }
+    }
+}
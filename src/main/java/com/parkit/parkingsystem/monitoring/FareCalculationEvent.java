@@ -0,0 +1,48 @@
+package com.parkit.parkingsystem.monitoring;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.util.PlateHashing;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.parkit.FareCalculation")
+@Label("Fare Calculation")
+@Category({"Parking System", "Service"})
+@StackTrace(false)
+public class FareCalculationEvent extends Event {
+
+    @Label("Plate Hash")
+    long plateHash;
+
+    @Label("Parking Type")
+    String parkingType;
+
+    @Label("Spot")
+    int parkingNumber;
+
+    @Label("Duration Minutes")
+    long durationMinutes;
+
+    @Label("Discount")
+    boolean discount;
+
+    @Label("Price")
+    double price;
+
+    public void finish(String vehicleRegNumber, ParkingType type, int parkingNumber, long durationMinutes,
+                       boolean discount, double price) {
+        end();
+        if (shouldCommit()) {
+            this.plateHash = (vehicleRegNumber == null) ? 0 : PlateHashing.fingerprint(vehicleRegNumber);
+            this.parkingType = (type == null) ? null : type.name();
+            this.parkingNumber = parkingNumber;
+            this.durationMinutes = durationMinutes;
+            this.discount = discount;
+            this.price = price;
+            commit();
+        }
+    }
+}
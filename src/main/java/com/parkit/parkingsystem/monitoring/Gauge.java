@@ -0,0 +1,39 @@
+package com.parkit.parkingsystem.monitoring;
+
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Sampled when the registry is read, so the instrumented code does not pay for it. Also used for
+ * counters kept by other classes, which are then exported with the counter type.
+ */
+public class Gauge extends Metric {
+
+    private final DoubleSupplier value;
+    private final String type;
+
+    Gauge(String name, String help, String labels, DoubleSupplier value, String type) {
+        super(name, help, labels);
+        this.value = value;
+        this.type = type;
+    }
+
+    public double get() {
+        return value.getAsDouble();
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    void writeSamples(StringBuilder out) {
+        out.append(getName()).append(getLabels()).append(' ').append(format(get())).append('\n');
+    }
+
+    @Override
+    void collectValues(Map<String, Double> values) {
+        values.put(getName() + getLabels(), get());
+    }
+}
@@ -0,0 +1,76 @@
+package com.parkit.parkingsystem.monitoring;
+
+import java.util.Map;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket histogram in seconds, exported as cumulative Prometheus buckets.
+ */
+public class Histogram extends Metric {
+
+    public static final double[] LATENCY_BUCKETS_SECONDS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final double[] upperBounds;
+    private final LongAdder[] counts;
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+
+    Histogram(String name, String help, String labels, double[] upperBounds) {
+        super(name, help, labels);
+        this.upperBounds = upperBounds.clone();
+        this.counts = new LongAdder[upperBounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void observe(double seconds) {
+        int bucket = 0;
+        while (bucket < upperBounds.length && seconds > upperBounds[bucket]) {
+            bucket++;
+        }
+        counts[bucket].increment();
+        count.increment();
+        sum.add(seconds);
+    }
+
+    public void observeNanos(long nanos) {
+        observe(nanos / 1e9);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+
+    @Override
+    public String getType() {
+        return "histogram";
+    }
+
+    @Override
+    void writeSamples(StringBuilder out) {
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i].sum();
+            String le = (i < upperBounds.length) ? format(upperBounds[i]) : "+Inf";
+            out.append(getName()).append("_bucket").append(withLabel(getLabels(), "le", le))
+                    .append(' ').append(cumulative).append('\n');
+        }
+        out.append(getName()).append("_sum").append(getLabels()).append(' ').append(format(getSum())).append('\n');
+        out.append(getName()).append("_count").append(getLabels()).append(' ').append(cumulative).append('\n');
+    }
+
+    @Override
+    void collectValues(Map<String, Double> values) {
+        long samples = getCount();
+        values.put(getName() + "_count" + getLabels(), (double) samples);
+        values.put(getName() + "_sum" + getLabels(), getSum());
+        values.put(getName() + "_mean" + getLabels(), (samples == 0) ? 0 : getSum() / samples);
+    }
+}
@@ -0,0 +1,44 @@
+package com.parkit.parkingsystem.monitoring;
+
+/**
+ * Counter that also knows its rate over the last few whole seconds, for dashboards without a
+ * Prometheus server to compute rate() from the total.
+ */
+public class Meter extends Counter {
+
+    private final long[] perSecond;
+    private final long[] seconds;
+
+    Meter(String name, String help, String labels, int windowSeconds) {
+        super(name, help, labels);
+        // one slot more than the window for the second still being counted
+        this.perSecond = new long[windowSeconds + 1];
+        this.seconds = new long[windowSeconds + 1];
+    }
+
+    public void mark() {
+        increment();
+        long second = System.currentTimeMillis() / 1000;
+        int slot = (int) (second % perSecond.length);
+        synchronized (this) {
+            if (seconds[slot] != second) {
+                seconds[slot] = second;
+                perSecond[slot] = 0;
+            }
+            perSecond[slot]++;
+        }
+    }
+
+    public synchronized double getRatePerSecond() {
+        long current = System.currentTimeMillis() / 1000;
+        int window = perSecond.length - 1;
+        long total = 0;
+        for (int i = 0; i < perSecond.length; i++) {
+            long age = current - seconds[i];
+            if (age >= 1 && age <= window) {
+                total += perSecond[i];
+            }
+        }
+        return (double) total / window;
+    }
+}
@@ -0,0 +1,52 @@
+package com.parkit.parkingsystem.monitoring;
+
+import java.util.Map;
+
+/**
+ * A named series of the registry. Labels are rendered once, in Prometheus syntax, when it is created.
+ */
+public abstract class Metric {
+
+    private final String name;
+    private final String help;
+    private final String labels;
+
+    protected Metric(String name, String help, String labels) {
+        this.name = name;
+        this.help = help;
+        this.labels = labels;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+
+    public String getLabels() {
+        return labels;
+    }
+
+    public abstract String getType();
+
+    abstract void writeSamples(StringBuilder out);
+
+    abstract void collectValues(Map<String, Double> values);
+
+    static String withLabel(String labels, String name, String value) {
+        String label = name + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return (value > 0) ? "+Inf" : "-Inf";
+        }
+        return (value == Math.rint(value) && Math.abs(value) < 1e15) ? Long.toString((long) value) : Double.toString(value);
+    }
+}
@@ -0,0 +1,88 @@
+package com.parkit.parkingsystem.monitoring;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+/**
+ * Publishes a registry through JMX, a Prometheus endpoint on the loopback interface, or a text file
+ * for the node_exporter textfile collector.
+ */
+public class MetricsExporter implements MetricsMXBean {
+
+    private static final Logger logger = LogManager.getLogger("MetricsExporter");
+
+    public static final String OBJECT_NAME = "com.parkit.parkingsystem:type=Metrics";
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricsRegistry registry;
+    private HttpServer server;
+
+    public MetricsExporter(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Map<String, Double> getValues() {
+        return registry.getValues();
+    }
+
+    @Override
+    public String getPrometheusText() {
+        return registry.toPrometheusText();
+    }
+
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            logger.error("Unable to register metrics MBean", e);
+        }
+    }
+
+    public synchronized void startHttpServer(int port) throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = registry.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        logger.info("Serving metrics on http://localhost:" + server.getAddress().getPort() + "/metrics");
+    }
+
+    public synchronized int getHttpPort() {
+        return (server == null) ? -1 : server.getAddress().getPort();
+    }
+
+    public synchronized void stopHttpServer() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    public void writeTextFile(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, registry.toPrometheusText().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
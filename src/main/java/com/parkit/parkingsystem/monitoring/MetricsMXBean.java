@@ -0,0 +1,10 @@
+package com.parkit.parkingsystem.monitoring;
+
+import java.util.Map;
+
+public interface MetricsMXBean {
+
+    Map<String, Double> getValues();
+
+    String getPrometheusText();
+}
@@ -0,0 +1,94 @@
+package com.parkit.parkingsystem.monitoring;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Process-wide set of metrics. Registering the same name and labels twice returns the existing
+ * metric, so shards and services can ask for theirs without coordinating.
+ */
+public class MetricsRegistry {
+
+    // sorted so the series of one family are written next to each other
+    private final ConcurrentSkipListMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    public Counter counter(String name, String help, String... labels) {
+        return register(name, labels, Counter.class, rendered -> new Counter(name, help, rendered));
+    }
+
+    public Meter meter(String name, String help, int windowSeconds, String... labels) {
+        Meter meter = register(name, labels, Meter.class, rendered -> new Meter(name, help, rendered, windowSeconds));
+        gauge(name.replaceFirst("_total$", "") + "_per_second", help + ", per second over the last " + windowSeconds + " s",
+                meter::getRatePerSecond, labels);
+        return meter;
+    }
+
+    public Gauge gauge(String name, String help, DoubleSupplier value, String... labels) {
+        return register(name, labels, Gauge.class, rendered -> new Gauge(name, help, rendered, value, "gauge"));
+    }
+
+    // a counter maintained elsewhere, read when the registry is scraped
+    public Gauge functionCounter(String name, String help, DoubleSupplier value, String... labels) {
+        return register(name, labels, Gauge.class, rendered -> new Gauge(name, help, rendered, value, "counter"));
+    }
+
+    public Histogram histogram(String name, String help, double[] upperBounds, String... labels) {
+        return register(name, labels, Histogram.class, rendered -> new Histogram(name, help, rendered, upperBounds));
+    }
+
+    private <T extends Metric> T register(String name, String[] labels, Class<T> type, Function<String, T> factory) {
+        String rendered = renderLabels(labels);
+        Metric metric = metrics.computeIfAbsent(name + rendered, key -> factory.apply(rendered));
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + metric.getType());
+        }
+        return type.cast(metric);
+    }
+
+    static String renderLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder rendered = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                rendered.append(',');
+            }
+            rendered.append(labels[i]).append("=\"")
+                    .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return rendered.append('}').toString();
+    }
+
+    /**
+     * Prometheus text exposition format, version 0.0.4.
+     */
+    public String toPrometheusText() {
+        StringBuilder out = new StringBuilder();
+        String family = null;
+        for (Metric metric : metrics.values()) {
+            if (!metric.getName().equals(family)) {
+                family = metric.getName();
+                out.append("# HELP ").append(family).append(' ').append(metric.getHelp().replace("\n", " ")).append('\n');
+                out.append("# TYPE ").append(family).append(' ').append(metric.getType()).append('\n');
+            }
+            metric.writeSamples(out);
+        }
+        return out.toString();
+    }
+
+    public Map<String, Double> getValues() {
+        Map<String, Double> values = new TreeMap<>();
+        for (Metric metric : metrics.values()) {
+            metric.collectValues(values);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,127 @@
+package com.parkit.parkingsystem.monitoring;
+
+import com.parkit.parkingsystem.config.PooledDataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.EntryJournal;
+import com.parkit.parkingsystem.dao.OffHeapOpenTicketStore;
+import com.parkit.parkingsystem.service.DynamicPricing;
+import com.parkit.parkingsystem.service.PlateEventIngestor;
+import com.parkit.parkingsystem.util.CircuitBreaker;
+
+/**
+ * The metrics of one parking lot, labelled with its id.
+ */
+public class ParkingMetrics {
+
+    private static final int RATE_WINDOW_SECONDS = 10;
+
+    private final MetricsRegistry registry;
+    private final String lot;
+    private final Meter entries;
+    private final Meter exits;
+    private final Counter lotFull;
+    private final Counter exitFailures;
+    private final Histogram entryLatency;
+    private final Histogram exitLatency;
+    private final Counter openTicketHits;
+    private final Counter openTicketMisses;
+
+    public ParkingMetrics(MetricsRegistry registry, int lotId) {
+        this.registry = registry;
+        this.lot = Integer.toString(lotId);
+        this.entries = registry.meter("parking_entries_total", "Vehicles parked", RATE_WINDOW_SECONDS, "lot", lot);
+        this.exits = registry.meter("parking_exits_total", "Vehicles that left and paid", RATE_WINDOW_SECONDS, "lot", lot);
+        this.lotFull = registry.counter("parking_lot_full_total", "Entries refused because no spot was free", "lot", lot);
+        this.exitFailures = registry.counter("parking_exit_failures_total", "Exits whose ticket could not be closed", "lot", lot);
+        this.entryLatency = registry.histogram("parking_entry_seconds", "Time to record an entry once its spot is chosen",
+                Histogram.LATENCY_BUCKETS_SECONDS, "lot", lot);
+        this.exitLatency = registry.histogram("parking_exit_seconds", "Time to process an exit",
+                Histogram.LATENCY_BUCKETS_SECONDS, "lot", lot);
+        this.openTicketHits = registry.counter("parking_open_ticket_store_hits_total", "Exits served from the open-ticket store", "lot", lot);
+        this.openTicketMisses = registry.counter("parking_open_ticket_store_misses_total", "Exits that had to read the ticket from DB", "lot", lot);
+        registry.gauge("parking_open_ticket_store_hit_ratio", "Share of exits served from the open-ticket store",
+                this::getOpenTicketHitRatio, "lot", lot);
+    }
+
+    public void recordEntry(long nanos) {
+        entries.mark();
+        entryLatency.observeNanos(nanos);
+    }
+
+    public void recordLotFull() {
+        lotFull.increment();
+    }
+
+    public void recordExit(long nanos, boolean closed) {
+        if (closed) {
+            exits.mark();
+        } else {
+            exitFailures.increment();
+        }
+        exitLatency.observeNanos(nanos);
+    }
+
+    public void recordOpenTicketLookup(boolean hit) {
+        (hit ? openTicketHits : openTicketMisses).increment();
+    }
+
+    private double getOpenTicketHitRatio() {
+        long hits = openTicketHits.get();
+        long lookups = hits + openTicketMisses.get();
+        return (lookups == 0) ? Double.NaN : (double) hits / lookups;
+    }
+
+    public void registerPool(PooledDataBaseConfig pool) {
+        registry.gauge("db_pool_connections_in_use", "Connections handed out by the pool", pool::getInUseCount, "lot", lot);
+        registry.gauge("db_pool_connections_idle", "Open connections waiting in the pool", pool::getIdleCount, "lot", lot);
+        registry.gauge("db_pool_threads_waiting", "Threads waiting for a connection", pool::getWaitingCount, "lot", lot);
+        registry.gauge("db_pool_connections_max", "Pool size", pool::getMaxSize, "lot", lot);
+    }
+
+    public void registerCircuitBreaker(CircuitBreaker circuitBreaker) {
+        registry.gauge("db_circuit_state", "DB circuit breaker: 0 closed, 1 half-open, 2 open",
+                () -> stateValue(circuitBreaker.getState()), "lot", lot);
+        registry.functionCounter("db_circuit_opened_total", "Times the DB circuit breaker opened",
+                circuitBreaker::getOpenedCount, "lot", lot);
+        registry.functionCounter("db_circuit_rejected_total", "DB calls failed fast by the open circuit",
+                circuitBreaker::getRejectedCount, "lot", lot);
+    }
+
+    private static int stateValue(CircuitBreaker.State state) {
+        switch (state) {
+            case HALF_OPEN:
+                return 1;
+            case OPEN:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    public void registerEntryJournal(EntryJournal entryJournal) {
+        registry.gauge("parking_entry_journal_pending", "Entries journaled locally and not yet written to DB",
+                entryJournal::size, "lot", lot);
+    }
+
+    public void registerOpenTicketStore(OffHeapOpenTicketStore openTicketStore) {
+        registry.gauge("parking_open_ticket_store_size", "Open tickets held off-heap", openTicketStore::size, "lot", lot);
+        registry.gauge("parking_open_ticket_store_capacity", "Slots of the off-heap open-ticket store", openTicketStore::capacity, "lot", lot);
+    }
+
+    public void registerDynamicPricing(DynamicPricing dynamicPricing) {
+        for (ParkingType parkingType : ParkingType.values()) {
+            String type = parkingType.name();
+            registry.gauge("parking_occupancy_percent", "Occupancy the current rates were chosen from",
+                    () -> dynamicPricing.getOccupancyPercent(parkingType), "lot", lot, "type", type);
+            registry.gauge("parking_rate_per_hour", "Hourly rate charged at exit", () -> dynamicPricing.getRatePerHour(parkingType),
+                    "lot", lot, "type", type);
+        }
+    }
+
+    public void registerIngestor(PlateEventIngestor ingestor) {
+        registry.gauge("plate_events_queue_depth", "Plate events waiting to be dispatched", ingestor::getQueueDepth, "lot", lot);
+        registry.functionCounter("plate_events_received_total", "Plate events read from cameras", ingestor::getReceivedCount, "lot", lot);
+        registry.functionCounter("plate_events_duplicates_total", "Repeated plate reads dropped", ingestor::getDuplicateCount, "lot", lot);
+        registry.functionCounter("plate_events_rejected_total", "Invalid plate events or events dropped on a full queue", ingestor::getRejectedCount, "lot", lot);
+    }
+}
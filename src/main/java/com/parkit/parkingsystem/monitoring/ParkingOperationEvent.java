@@ -0,0 +1,141 @@
+package com.parkit.parkingsystem.monitoring;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.util.PlateHashing;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A vehicle entering or leaving, with the time spent in each stage so a slow exit in a recording
+ * points at the step that was slow. Stages an operation does not go through stay at 0.
+ */
+@Name("com.parkit.ParkingOperation")
+@Label("Parking Operation")
+@Category({"Parking System", "Service"})
+@StackTrace(false)
+public class ParkingOperationEvent extends Event {
+
+    public static final String ENTRY = "ENTRY";
+    public static final String EXIT = "EXIT";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Plate Hash")
+    @Description("FNV-1a hash of the plate")
+    long plateHash;
+
+    @Label("Parking Type")
+    String parkingType;
+
+    @Label("Spot")
+    int parkingNumber;
+
+    @Label("Lot")
+    int lotId;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    @Label("Spot Lookup")
+    @Timespan(Timespan.NANOSECONDS)
+    long spotLookup;
+
+    @Label("Ticket Lookup")
+    @Timespan(Timespan.NANOSECONDS)
+    long ticketLookup;
+
+    @Label("Recurrence Check")
+    @Timespan(Timespan.NANOSECONDS)
+    long recurrenceCheck;
+
+    @Label("Fare Calculation")
+    @Timespan(Timespan.NANOSECONDS)
+    long fareCalculation;
+
+    @Label("Ticket Write")
+    @Timespan(Timespan.NANOSECONDS)
+    long ticketWrite;
+
+    @Label("Spot Write")
+    @Timespan(Timespan.NANOSECONDS)
+    long spotWrite;
+
+    private transient boolean started;
+    private transient long lapStart;
+
+    public ParkingOperationEvent(String operation) {
+        this.operation = operation;
+    }
+
+    public void start() {
+        if (!started && isEnabled()) {
+            started = true;
+            begin();
+            lapStart = System.nanoTime();
+        }
+    }
+
+    private long lap() {
+        long now = System.nanoTime();
+        long elapsed = now - lapStart;
+        lapStart = now;
+        return elapsed;
+    }
+
+    public void spotLookupDone() {
+        if (started) {
+            spotLookup = lap();
+        }
+    }
+
+    public void ticketLookupDone() {
+        if (started) {
+            ticketLookup = lap();
+        }
+    }
+
+    public void recurrenceCheckDone() {
+        if (started) {
+            recurrenceCheck = lap();
+        }
+    }
+
+    public void fareCalculationDone() {
+        if (started) {
+            fareCalculation = lap();
+        }
+    }
+
+    public void ticketWriteDone() {
+        if (started) {
+            ticketWrite = lap();
+        }
+    }
+
+    public void spotWriteDone() {
+        if (started) {
+            spotWrite = lap();
+        }
+    }
+
+    public void finish(String vehicleRegNumber, ParkingType type, int parkingNumber, int lotId, boolean succeeded) {
+        if (!started) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            this.plateHash = (vehicleRegNumber == null) ? 0 : PlateHashing.fingerprint(vehicleRegNumber);
+            this.parkingType = (type == null) ? null : type.name();
+            this.parkingNumber = parkingNumber;
+            this.lotId = lotId;
+            this.succeeded = succeeded;
+            commit();
+        }
+    }
+}
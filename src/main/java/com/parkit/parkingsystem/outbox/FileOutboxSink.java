@@ -0,0 +1,38 @@
+package com.parkit.parkingsystem.outbox;
+
+import com.parkit.parkingsystem.model.OutboxEntry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends each row as a line of JSON to a local file, synced to disk before the batch counts as
+ * delivered.
+ */
+public class FileOutboxSink implements OutboxSink {
+
+    private final FileChannel channel;
+
+    public FileOutboxSink(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized void deliver(List<OutboxEntry> batch) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(OutboxLines.toLines(batch).getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,31 @@
+package com.parkit.parkingsystem.outbox;
+
+import com.parkit.parkingsystem.model.OutboxEntry;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Hands each batch to in-process listeners, on the relay thread. A listener that throws makes the
+ * whole batch be delivered again, to every listener.
+ */
+public class ListenerOutboxSink implements OutboxSink {
+
+    private final List<Consumer<List<OutboxEntry>>> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(Consumer<List<OutboxEntry>> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<List<OutboxEntry>> listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void deliver(List<OutboxEntry> batch) {
+        for (Consumer<List<OutboxEntry>> listener : listeners) {
+            listener.accept(batch);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.parkit.parkingsystem.outbox;
+
+import com.parkit.parkingsystem.model.OutboxEntry;
+
+import java.util.List;
+
+final class OutboxLines {
+
+    private OutboxLines() {
+    }
+
+    static String toLines(List<OutboxEntry> batch) {
+        StringBuilder lines = new StringBuilder(batch.size() * 200);
+        for (OutboxEntry entry : batch) {
+            lines.append(entry.toJson()).append('\n');
+        }
+        return lines.toString();
+    }
+}
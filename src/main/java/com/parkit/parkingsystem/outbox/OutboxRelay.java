@@ -0,0 +1,295 @@
+package com.parkit.parkingsystem.outbox;
+
+import com.parkit.parkingsystem.dao.OutboxDAO;
+import com.parkit.parkingsystem.model.OutboxEntry;
+import com.parkit.parkingsystem.util.JitteredBackoff;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Delivers outbox rows to one sink, in ID order, at least once. The consumer's checkpoint is saved
+ * after each delivered batch, so a restart resends at most the batch in flight.
+ *
+ * IDs are given at insert but rows only become visible at commit, so a missing ID may be a
+ * transaction still running. The relay stops before such a gap and waits up to gapWaitMillis for it
+ * to fill before moving past it. Skipped IDs are looked up again every gapWaitMillis for
+ * skippedRecheckMillis, and a row committed late is delivered then, after rows with greater IDs;
+ * only then is it taken for a rolled-back insert. Delivered rows are not purged before twice that
+ * long, so a late row is still there to be found. Skipped IDs are saved with the checkpoint that
+ * moves past them, so a restart keeps looking them up.
+ */
+public class OutboxRelay {
+
+    private static final Logger logger = LogManager.getLogger("OutboxRelay");
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_POLL_MILLIS = 200;
+    public static final long DEFAULT_GAP_WAIT_MILLIS = 10_000;
+    public static final long DEFAULT_SKIPPED_RECHECK_MILLIS = 10 * 60_000;
+    private static final int MAX_SKIPPED = 10_000;
+    private static final int PURGE_EVERY_BATCHES = 100;
+    private static final int PURGE_LIMIT = 10_000;
+
+    private final String consumer;
+    private final OutboxDAO outboxDAO;
+    private final OutboxSink sink;
+    private final int batchSize;
+    private final long pollMillis;
+    private final long gapWaitMillis;
+    private final long skippedRecheckMillis;
+    // skipped ID -> when it was skipped
+    private final TreeMap<Long, Long> skipped = new TreeMap<>();
+    // skipped since the last saved checkpoint
+    private final TreeMap<Long, Long> unsavedSkipped = new TreeMap<>();
+    private long skippedCheckedAt;
+    private final JitteredBackoff backoff = new JitteredBackoff(100, 10_000);
+    private volatile long checkpoint = -1;
+    private volatile long deliveredCount;
+    private long gapId = -1;
+    private long gapSeenAt;
+    private boolean purgeDelivered;
+    private int batchesSincePurge;
+    private final Object pause = new Object();
+    private volatile boolean running;
+    private Thread thread;
+
+    public OutboxRelay(String consumer, OutboxDAO outboxDAO, OutboxSink sink) {
+        this(consumer, outboxDAO, sink, DEFAULT_BATCH_SIZE, DEFAULT_POLL_MILLIS, DEFAULT_GAP_WAIT_MILLIS);
+    }
+
+    public OutboxRelay(String consumer, OutboxDAO outboxDAO, OutboxSink sink, int batchSize, long pollMillis,
+                       long gapWaitMillis) {
+        this(consumer, outboxDAO, sink, batchSize, pollMillis, gapWaitMillis, DEFAULT_SKIPPED_RECHECK_MILLIS);
+    }
+
+    public OutboxRelay(String consumer, OutboxDAO outboxDAO, OutboxSink sink, int batchSize, long pollMillis,
+                       long gapWaitMillis, long skippedRecheckMillis) {
+        if (batchSize <= 0 || pollMillis <= 0 || gapWaitMillis < 0 || skippedRecheckMillis < 0) {
+            throw new IllegalArgumentException("Invalid relay settings for " + consumer);
+        }
+        this.consumer = consumer;
+        this.outboxDAO = outboxDAO;
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.pollMillis = pollMillis;
+        this.gapWaitMillis = gapWaitMillis;
+        this.skippedRecheckMillis = skippedRecheckMillis;
+    }
+
+    // deletes rows every consumer got; only for the relay of the last consumer to register
+    public void setPurgeDelivered(boolean purgeDelivered) {
+        this.purgeDelivered = purgeDelivered;
+    }
+
+    /**
+     * Reads and delivers one batch. Returns the rows delivered, or -1 if the outbox could not be read
+     * or the sink failed.
+     */
+    public synchronized int relayOnce() {
+        if (checkpoint < 0) {
+            long saved = outboxDAO.getCheckpoint(consumer);
+            if (saved < 0) {
+                return -1;
+            }
+            Map<Long, Long> savedSkipped = outboxDAO.getSkippedIds(consumer);
+            if (savedSkipped == null) {
+                return -1;
+            }
+            skipped.putAll(savedSkipped);
+            checkpoint = saved;
+        }
+        long now = System.currentTimeMillis();
+        int late = relaySkipped(now);
+        if (late < 0) {
+            return -1;
+        }
+        List<OutboxEntry> batch = outboxDAO.getEntriesAfter(checkpoint, batchSize);
+        if (batch == null) {
+            return -1;
+        }
+        List<OutboxEntry> ready = batch.subList(0, contiguousCount(batch, now));
+        if (ready.isEmpty()) {
+            return late;
+        }
+        try {
+            sink.deliver(ready);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Unable to deliver " + ready.size() + " outbox rows to " + consumer + ", retrying", e);
+            return -1;
+        }
+        long lastId = ready.get(ready.size() - 1).getId();
+        checkpoint = lastId;
+        deliveredCount += ready.size();
+        if (outboxDAO.saveCheckpoint(consumer, lastId, unsavedSkipped)) {
+            unsavedSkipped.clear();
+        } else {
+            logger.error("Checkpoint " + lastId + " of " + consumer + " not saved, a restart will deliver again");
+        }
+        if (purgeDelivered && ++batchesSincePurge >= PURGE_EVERY_BATCHES) {
+            batchesSincePurge = 0;
+            outboxDAO.purgeDelivered(new Date(now - 2 * skippedRecheckMillis), PURGE_LIMIT);
+        }
+        return late + ready.size();
+    }
+
+    // delivers the skipped rows committed since, the checkpoint has already moved past them
+    private int relaySkipped(long now) {
+        if (skipped.isEmpty() || now - skippedCheckedAt < gapWaitMillis) {
+            return 0;
+        }
+        skippedCheckedAt = now;
+        List<Long> givenUp = new ArrayList<>();
+        for (Map.Entry<Long, Long> skippedId : skipped.entrySet()) {
+            if (now - skippedId.getValue() > skippedRecheckMillis) {
+                givenUp.add(skippedId.getKey());
+            }
+        }
+        if (!givenUp.isEmpty()) {
+            logger.warn(givenUp.size() + " skipped outbox IDs never committed, giving up on them for " + consumer);
+            forgetSkipped(givenUp);
+        }
+        List<Long> ids = new ArrayList<>(skipped.keySet());
+        List<OutboxEntry> late = outboxDAO.getEntries(ids.subList(0, Math.min(ids.size(), batchSize)));
+        if (late == null) {
+            return -1;
+        }
+        if (late.isEmpty()) {
+            return 0;
+        }
+        try {
+            sink.deliver(late);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Unable to deliver " + late.size() + " late outbox rows to " + consumer + ", retrying", e);
+            return -1;
+        }
+        List<Long> lateIds = new ArrayList<>(late.size());
+        for (OutboxEntry entry : late) {
+            lateIds.add(entry.getId());
+        }
+        forgetSkipped(lateIds);
+        deliveredCount += late.size();
+        logger.warn("Delivered " + late.size() + " outbox rows committed after their gap was skipped to " + consumer);
+        return late.size();
+    }
+
+    // a row left in the table is looked up again after a restart, and delivered again if it committed since
+    private void forgetSkipped(List<Long> ids) {
+        for (Long id : ids) {
+            skipped.remove(id);
+            unsavedSkipped.remove(id);
+        }
+        if (!outboxDAO.deleteSkippedIds(consumer, ids)) {
+            logger.error("Skipped outbox IDs of " + consumer + " not deleted, a restart will look them up again");
+        }
+    }
+
+    private int contiguousCount(List<OutboxEntry> batch, long now) {
+        long expected = checkpoint + 1;
+        for (int i = 0; i < batch.size(); i++) {
+            long id = batch.get(i).getId();
+            if (id != expected) {
+                if (gapId != expected) {
+                    gapId = expected;
+                    gapSeenAt = now;
+                }
+                if (now - gapSeenAt < gapWaitMillis) {
+                    return i;
+                }
+                logger.warn("Outbox IDs " + expected + " to " + (id - 1) + " not committed yet, skipping them for " + consumer);
+                for (long missing = expected; missing < id && skipped.size() < MAX_SKIPPED; missing++) {
+                    skipped.put(missing, now);
+                    unsavedSkipped.put(missing, now);
+                }
+                if (skipped.size() >= MAX_SKIPPED) {
+                    logger.error("Too many skipped outbox IDs, rows committed late after " + expected + " may not reach " + consumer);
+                }
+            }
+            gapId = -1;
+            expected = id + 1;
+        }
+        return batch.size();
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "outbox-relay-" + consumer);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        int failures = 0;
+        while (running) {
+            int delivered = relayOnce();
+            long pauseMillis = 0;
+            if (delivered < 0) {
+                pauseMillis = backoff.delayMillis(failures++);
+            } else {
+                failures = 0;
+                if (delivered < batchSize) {
+                    pauseMillis = pollMillis;
+                }
+            }
+            if (pauseMillis > 0) {
+                synchronized (pause) {
+                    try {
+                        if (running) {
+                            pause.wait(pauseMillis);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    // not interrupting the relay thread, an interrupted FileChannel write closes the file
+    public void stop() {
+        Thread stopping;
+        synchronized (this) {
+            running = false;
+            stopping = thread;
+            thread = null;
+        }
+        synchronized (pause) {
+            pause.notifyAll();
+        }
+        if (stopping != null) {
+            try {
+                stopping.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public String getConsumer() {
+        return consumer;
+    }
+
+    // last ID delivered, -1 before the first pass
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    public long getDeliveredCount() {
+        return deliveredCount;
+    }
+
+    // IDs moved past while not visible, still looked up again
+    public synchronized int getSkippedCount() {
+        return skipped.size();
+    }
+}
@@ -0,0 +1,19 @@
+package com.parkit.parkingsystem.outbox;
+
+import com.parkit.parkingsystem.model.OutboxEntry;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where the relay delivers outbox rows. A batch is delivered whole or deliver throws, in which case
+ * the relay sends it again later: sinks see every row at least once, in ID order, and must tolerate
+ * repeats of a batch.
+ */
+public interface OutboxSink {
+
+    void deliver(List<OutboxEntry> batch) throws IOException;
+
+    default void close() throws IOException {
+    }
+}
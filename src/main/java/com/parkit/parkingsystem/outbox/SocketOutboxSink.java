@@ -0,0 +1,50 @@
+package com.parkit.parkingsystem.outbox;
+
+import com.parkit.parkingsystem.model.OutboxEntry;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes each row as a line of JSON to a local consumer, over TCP or a Unix domain socket depending
+ * on the address. The connection is opened on first delivery and dropped on any error, the retried
+ * batch reconnects.
+ */
+public class SocketOutboxSink implements OutboxSink {
+
+    private final SocketAddress address;
+    private SocketChannel channel;
+
+    public SocketOutboxSink(SocketAddress address) {
+        this.address = address;
+    }
+
+    @Override
+    public synchronized void deliver(List<OutboxEntry> batch) throws IOException {
+        if (channel == null) {
+            channel = SocketChannel.open(address);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(OutboxLines.toLines(batch).getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            SocketChannel closing = channel;
+            channel = null;
+            closing.close();
+        }
+    }
+}
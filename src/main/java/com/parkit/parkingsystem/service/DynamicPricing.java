@@ -0,0 +1,144 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Hourly rates raised with the occupancy of the lot. The rate of every occupancy percent is computed
+ * once per parking type; a refresh reads the in-memory spot counters and publishes the current rates,
+ * so pricing an exit is an array read and never asks the DB how full the lot is.
+ */
+public final class DynamicPricing {
+
+    private static final Logger logger = LogManager.getLogger("DynamicPricing");
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    // surge once the lot is more than 90% full, more above 95%
+    public static final int[] DEFAULT_BAND_START_PERCENTS = {0, 90, 95};
+    public static final double[] DEFAULT_SURGE_MULTIPLIERS = {1.0, 1.25, 1.5};
+    public static final long DEFAULT_REFRESH_PERIOD_MILLIS = 5_000;
+
+    private final ToIntFunction<ParkingType> capacity;
+    private final ToIntFunction<ParkingType> freeSpots;
+    // [parking type ordinal][occupancy percent, 0 to 100]
+    private final double[][] ratePerHourByOccupancy;
+    private volatile double[] currentRatePerHour;
+    private volatile int[] currentOccupancyPercent;
+    private ScheduledExecutorService refreshScheduler;
+
+    public DynamicPricing(ToIntFunction<ParkingType> capacity, ToIntFunction<ParkingType> freeSpots) {
+        this(capacity, freeSpots, DEFAULT_BAND_START_PERCENTS, defaultMultipliers());
+    }
+
+    /**
+     * Bands apply above the given occupancy percents, the first one from 0. Each parking type needs one
+     * multiplier of its base rate per band.
+     */
+    public DynamicPricing(ToIntFunction<ParkingType> capacity, ToIntFunction<ParkingType> freeSpots,
+                          int[] bandStartPercents, Map<ParkingType, double[]> multipliers) {
+        if (bandStartPercents.length == 0 || bandStartPercents[0] != 0) {
+            throw new IllegalArgumentException("The first occupancy band must start at 0%");
+        }
+        for (int band = 1; band < bandStartPercents.length; band++) {
+            if (bandStartPercents[band] <= bandStartPercents[band - 1] || bandStartPercents[band] > 100) {
+                throw new IllegalArgumentException("Occupancy bands must start at increasing percents up to 100");
+            }
+        }
+        this.capacity = capacity;
+        this.freeSpots = freeSpots;
+        this.ratePerHourByOccupancy = new double[PARKING_TYPES.length][101];
+        for (ParkingType parkingType : PARKING_TYPES) {
+            double[] typeMultipliers = multipliers.get(parkingType);
+            if (typeMultipliers == null || typeMultipliers.length != bandStartPercents.length) {
+                throw new IllegalArgumentException("Expected " + bandStartPercents.length + " multipliers for " + parkingType);
+            }
+            for (double multiplier : typeMultipliers) {
+                if (multiplier <= 0) {
+                    throw new IllegalArgumentException("Multipliers must be positive");
+                }
+            }
+            double baseRatePerHour = FareCalculatorService.getBaseRatePerHour(parkingType);
+            double[] rates = ratePerHourByOccupancy[parkingType.ordinal()];
+            int band = 0;
+            for (int percent = 0; percent <= 100; percent++) {
+                while (band + 1 < bandStartPercents.length && percent > bandStartPercents[band + 1]) {
+                    band++;
+                }
+                rates[percent] = baseRatePerHour * typeMultipliers[band];
+            }
+        }
+        refresh();
+    }
+
+    private static Map<ParkingType, double[]> defaultMultipliers() {
+        Map<ParkingType, double[]> multipliers = new EnumMap<>(ParkingType.class);
+        for (ParkingType parkingType : PARKING_TYPES) {
+            multipliers.put(parkingType, DEFAULT_SURGE_MULTIPLIERS);
+        }
+        return multipliers;
+    }
+
+    /**
+     * Reads the occupancy of each parking type and publishes the matching rates. Occupancy is rounded
+     * up to whole percents, so a band starting at 90 only applies past 90%. A type without spots keeps
+     * its base rate.
+     */
+    public void refresh() {
+        double[] rates = new double[PARKING_TYPES.length];
+        int[] occupancy = new int[PARKING_TYPES.length];
+        for (ParkingType parkingType : PARKING_TYPES) {
+            int total = capacity.applyAsInt(parkingType);
+            int percent = 0;
+            if (total > 0) {
+                int occupied = total - freeSpots.applyAsInt(parkingType);
+                percent = (int) Math.max(0, Math.min(100, ((long) occupied * 100 + total - 1) / total));
+            }
+            occupancy[parkingType.ordinal()] = percent;
+            rates[parkingType.ordinal()] = ratePerHourByOccupancy[parkingType.ordinal()][percent];
+        }
+        currentOccupancyPercent = occupancy;
+        currentRatePerHour = rates;
+    }
+
+    public double getRatePerHour(ParkingType parkingType) {
+        return currentRatePerHour[parkingType.ordinal()];
+    }
+
+    public int getOccupancyPercent(ParkingType parkingType) {
+        return currentOccupancyPercent[parkingType.ordinal()];
+    }
+
+    public synchronized void startRefresh(long periodMillis) {
+        if (refreshScheduler != null) {
+            return;
+        }
+        refreshScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dynamic-pricing-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refreshScheduler.scheduleAtFixedRate(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                logger.error("Unable to refresh dynamic prices", e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopRefresh() {
+        if (refreshScheduler != null) {
+            refreshScheduler.shutdown();
+            refreshScheduler = null;
+        }
+    }
+}
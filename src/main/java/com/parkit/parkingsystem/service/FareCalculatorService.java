@@ -1,15 +1,49 @@
 package com.parkit.parkingsystem.service;
 
 import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.monitoring.FareCalculationEvent;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Date;
 
 public class FareCalculatorService {
 
+    private DynamicPricing dynamicPricing;
+    private Clock clock = Clock.systemDefaultZone();
+
+    // rates follow the occupancy of the lot when set, otherwise the flat Fare rates apply
+    public void setDynamicPricing(DynamicPricing dynamicPricing) {
+        this.dynamicPricing = dynamicPricing;
+    }
+
+    // the time open tickets are priced at; a VirtualClock in simulations
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public static double getBaseRatePerHour(ParkingType parkingType) {
+        switch (parkingType) {
+            case CAR:
+                return Fare.CAR_RATE_PER_HOUR;
+            case BIKE:
+                return Fare.BIKE_RATE_PER_HOUR;
+            default:
+                throw new IllegalArgumentException("Unknown Parking Type");
+        }
+    }
+
     public void calculateFare(Ticket ticket, boolean discount) {
+        FareCalculationEvent event = new FareCalculationEvent();
+        event.begin();
 
         if ((ticket.getOutTime() == null)
                 || (ticket.getOutTime().before(ticket.getInTime()))) {
@@ -25,30 +59,34 @@ public class FareCalculatorService {
 
         Duration duration = Duration.between(inInstant, outInstant);
         long durationInMinutes = duration.toMinutes();
-        double durationInHours = durationInMinutes / 60.0;
-
-        if (durationInMinutes <= 30) {
-            ticket.setPrice(0.0);
-            return;
-        }
 
-        double price;
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        ticket.setPrice(computePrice((parkingSpot == null) ? null : parkingSpot.getParkingType(), durationInMinutes, discount));
+        finishEvent(event, ticket, durationInMinutes, discount);
+    }
 
-        switch (ticket.getParkingSpot().getParkingType()) {
-            case CAR:
-                price = durationInHours * Fare.CAR_RATE_PER_HOUR;
-                break;
-            case BIKE:
-                price = durationInHours * Fare.BIKE_RATE_PER_HOUR;
-                break;
-            default:
-                throw new IllegalArgumentException("Unknown Parking Type");
+    /**
+     * Price of a stay without touching any ticket, so it can be quoted before the car leaves.
+     */
+    public double computePrice(ParkingType parkingType, long durationInMinutes, boolean discount) {
+        if (durationInMinutes <= 30) {
+            return 0.0;
         }
+        double ratePerHour = (dynamicPricing != null)
+                ? dynamicPricing.getRatePerHour(parkingType) : getBaseRatePerHour(parkingType);
+        double price = (durationInMinutes / 60.0) * ratePerHour;
         if (discount) {
             price = price * 0.95;
         }
+        return price;
+    }
 
-        ticket.setPrice(price);
+    private static void finishEvent(FareCalculationEvent event, Ticket ticket, long durationInMinutes, boolean discount) {
+        if (event.isEnabled()) {
+            ParkingSpot parkingSpot = ticket.getParkingSpot();
+            event.finish(ticket.getVehicleRegNumber(), parkingSpot.getParkingType(), parkingSpot.getId(),
+                    durationInMinutes, discount, ticket.getPrice());
+        }
     }
 
     public void calculateFare(Ticket ticket) {
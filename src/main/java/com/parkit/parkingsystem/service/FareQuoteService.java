@@ -0,0 +1,173 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.OffHeapOpenTicketStore;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.FareQuote;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-only "what do I owe right now" for kiosks and apps. Tickets come from the open-ticket store,
+ * the ones it misses are read in one DB query for the whole request, and recurrence is counted only
+ * for plates the RecurrenceService cannot rule out. Quotes are cached until the stay reaches its next
+ * minute, so a kiosk polling a plate costs a map lookup; a quote may therefore outlive its ticket by
+ * up to a minute.
+ */
+public class FareQuoteService {
+
+    private static final Logger logger = LogManager.getLogger("FareQuoteService");
+
+    public static final int DEFAULT_MAX_CACHED_QUOTES = 10_000;
+
+    private final TicketDAO ticketDAO;
+    private final FareCalculatorService fareCalculatorService;
+    private final int maxCachedQuotes;
+    private final Map<String, FareQuote> quotes = new ConcurrentHashMap<>();
+    private OffHeapOpenTicketStore openTicketStore;
+    private RecurrenceService recurrenceService;
+    private PermitService permitService;
+
+    public FareQuoteService(TicketDAO ticketDAO, FareCalculatorService fareCalculatorService) {
+        this(ticketDAO, fareCalculatorService, DEFAULT_MAX_CACHED_QUOTES);
+    }
+
+    public FareQuoteService(TicketDAO ticketDAO, FareCalculatorService fareCalculatorService, int maxCachedQuotes) {
+        this.ticketDAO = ticketDAO;
+        this.fareCalculatorService = fareCalculatorService;
+        this.maxCachedQuotes = maxCachedQuotes;
+    }
+
+    public void setOpenTicketStore(OffHeapOpenTicketStore openTicketStore) {
+        this.openTicketStore = openTicketStore;
+    }
+
+    public void setRecurrenceService(RecurrenceService recurrenceService) {
+        this.recurrenceService = recurrenceService;
+    }
+
+    public void setPermitService(PermitService permitService) {
+        this.permitService = permitService;
+    }
+
+    public FareQuote quote(String vehicleRegNumber) {
+        return quote(Arrays.asList(vehicleRegNumber)).get(0);
+    }
+
+    /**
+     * One quote per plate, in the order asked. Tickets are never modified.
+     */
+    public List<FareQuote> quote(List<String> vehicleRegNumbers) {
+        long now = fareCalculatorService.getClock().millis();
+        FareQuote[] result = new FareQuote[vehicleRegNumbers.size()];
+        Map<String, Ticket> tickets = new HashMap<>();
+        Set<String> lookedUp = new HashSet<>();
+        List<String> notInStore = new ArrayList<>();
+        for (int i = 0; i < result.length; i++) {
+            String vehicleRegNumber = vehicleRegNumbers.get(i);
+            FareQuote cached = quotes.get(vehicleRegNumber);
+            if (cached != null && cached.isValidAt(now)) {
+                result[i] = cached;
+                continue;
+            }
+            if (!lookedUp.add(vehicleRegNumber)) {
+                continue;
+            }
+            Ticket ticket = (openTicketStore != null) ? openTicketStore.getTicket(vehicleRegNumber) : null;
+            if (ticket != null) {
+                tickets.put(vehicleRegNumber, ticket);
+            } else {
+                notInStore.add(vehicleRegNumber);
+            }
+        }
+
+        boolean ticketsRead = true;
+        if (!notInStore.isEmpty()) {
+            Map<String, Ticket> fromDataBase = ticketDAO.getOpenTickets(notInStore);
+            if (fromDataBase != null) {
+                tickets.putAll(fromDataBase);
+            } else {
+                ticketsRead = false;
+            }
+        }
+
+        // recurrence does not change during a stay, earlier quotes of the same stay already know it
+        Map<String, Boolean> recurrent = new HashMap<>();
+        List<String> toCount = new ArrayList<>();
+        for (Ticket ticket : tickets.values()) {
+            String vehicleRegNumber = ticket.getVehicleRegNumber();
+            FareQuote previous = quotes.get(vehicleRegNumber);
+            if (previous != null && previous.isSameStay(ticket)) {
+                recurrent.put(vehicleRegNumber, previous.isRecurrentUser());
+            } else if (recurrenceService == null || recurrenceService.mightBeRecurrent(vehicleRegNumber)) {
+                toCount.add(vehicleRegNumber);
+            } else {
+                recurrent.put(vehicleRegNumber, false);
+            }
+        }
+        boolean countsRead = true;
+        if (!toCount.isEmpty()) {
+            Map<String, Integer> nbTickets = ticketDAO.getNbTickets(toCount);
+            if (nbTickets != null) {
+                for (String vehicleRegNumber : toCount) {
+                    Integer count = nbTickets.get(vehicleRegNumber);
+                    recurrent.put(vehicleRegNumber, count != null && count > 1);
+                }
+            } else {
+                countsRead = false;
+            }
+        }
+        if (!ticketsRead || !countsRead) {
+            logger.error("Unable to read tickets for " + vehicleRegNumbers.size() + " fare quotes");
+        }
+
+        Map<String, FareQuote> fresh = new HashMap<>();
+        for (int i = 0; i < result.length; i++) {
+            if (result[i] != null) {
+                continue;
+            }
+            String vehicleRegNumber = vehicleRegNumbers.get(i);
+            FareQuote quote = fresh.get(vehicleRegNumber);
+            if (quote == null) {
+                quote = newQuote(vehicleRegNumber, tickets.get(vehicleRegNumber), recurrent.get(vehicleRegNumber),
+                        ticketsRead, now);
+                fresh.put(vehicleRegNumber, quote);
+                if (quote.getStatus() != FareQuote.Status.UNAVAILABLE) {
+                    quotes.put(vehicleRegNumber, quote);
+                }
+            }
+            result[i] = quote;
+        }
+        if (quotes.size() > maxCachedQuotes) {
+            quotes.values().removeIf(quote -> !quote.isValidAt(now));
+        }
+        return Arrays.asList(result);
+    }
+
+    private FareQuote newQuote(String vehicleRegNumber, Ticket ticket, Boolean recurrent, boolean ticketsRead, long now) {
+        if (ticket == null) {
+            return ticketsRead ? FareQuote.noOpenTicket(vehicleRegNumber, now) : FareQuote.unavailable(vehicleRegNumber, now);
+        }
+        if (recurrent == null) {
+            return FareQuote.unavailable(vehicleRegNumber, now);
+        }
+        long durationInMinutes = Math.max(0, (now - ticket.getInTime().getTime()) / 60_000);
+        double price = (permitService != null && permitService.isPermitHolder(vehicleRegNumber, now)) ? 0
+                : fareCalculatorService.computePrice(ticket.getParkingSpot().getParkingType(), durationInMinutes, recurrent);
+        return new FareQuote(vehicleRegNumber, ticket.getParkingSpot().getParkingType(), ticket.getParkingSpot().getId(),
+                ticket.getInTime().getTime(), now, durationInMinutes, recurrent, price);
+    }
+
+    public int getCachedQuoteCount() {
+        return quotes.size();
+    }
+}
@@ -0,0 +1,293 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.PlateMatch;
+import com.parkit.parkingsystem.util.PlateCodec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OCR-tolerant search over open tickets and the plates that left within the history window. Plates
+ * are indexed by the bigrams of their look-alike canonical form (O, Q and D read as 0, B as 8...),
+ * with start and end markers, so a misread look-alike shares all its grams with the real plate.
+ * A search counts shared grams through the posting lists, keeps the best candidates and ranks
+ * them by a weighted edit distance where look-alike substitutions are cheap.
+ *
+ * Plates are added and removed as tickets open and close; searches never touch the DB.
+ */
+public class FuzzyPlateIndex {
+
+    private static final Logger logger = LogManager.getLogger("FuzzyPlateIndex");
+
+    public static final long DEFAULT_HISTORY_MILLIS = 7L * 24 * 60 * 60 * 1000;
+    public static final double DEFAULT_MAX_DISTANCE = 2.0;
+    public static final double LOOKALIKE_COST = 0.25;
+    private static final int MAX_CANDIDATES = 256;
+
+    private static final int OPEN = 1;
+    private static final int CLOSED = 2;
+    private static final char START = '^';
+    private static final char END = '$';
+    private static final char[] CANONICAL = new char[128];
+
+    static {
+        for (char c = 0; c < CANONICAL.length; c++) {
+            CANONICAL[c] = c;
+        }
+        lookAlike("0ODQ");
+        lookAlike("1IL");
+        lookAlike("2Z");
+        lookAlike("5S");
+        lookAlike("6G");
+        lookAlike("8B");
+    }
+
+    private static void lookAlike(String group) {
+        for (int i = 0; i < group.length(); i++) {
+            CANONICAL[group.charAt(i)] = group.charAt(0);
+        }
+    }
+
+    private final long historyMillis;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final Map<Integer, Postings> postings = new HashMap<>();
+    private final ArrayDeque<Integer> freeIds = new ArrayDeque<>();
+    private final ArrayDeque<long[]> closedOrder = new ArrayDeque<>();
+    private String[] plates = new String[1024];
+    private int[] states = new int[1024];
+    private long[] lastSeen = new long[1024];
+    private int[] hits = new int[1024];
+    private int nextId;
+
+    public FuzzyPlateIndex() {
+        this(DEFAULT_HISTORY_MILLIS);
+    }
+
+    public FuzzyPlateIndex(long historyMillis) {
+        this.historyMillis = historyMillis;
+    }
+
+    /**
+     * Indexes the open tickets and the exits within the history window. Must run before the gates
+     * open, like any other seeding from the ticket table.
+     */
+    public long seed(TicketDAO ticketDAO) {
+        Date since = new Date(System.currentTimeMillis() - historyMillis);
+        long seeded = ticketDAO.forEachRecentTicket(since, ticket -> {
+            if (ticket.getOutTime() == null) {
+                open(ticket.getVehicleRegNumber(), ticket.getInTime().getTime());
+            } else {
+                close(ticket.getVehicleRegNumber(), ticket.getOutTime().getTime());
+            }
+        });
+        if (seeded < 0) {
+            logger.error("Unable to read recent tickets, indexed " + size() + " plates");
+            return -1;
+        }
+        logger.info("Indexed " + size() + " plates out of " + seeded + " tickets");
+        return seeded;
+    }
+
+    public synchronized void open(String vehicleRegNumber, long inTime) {
+        int id = idOf(vehicleRegNumber);
+        if (id >= 0) {
+            states[id] = OPEN;
+            lastSeen[id] = inTime;
+        }
+    }
+
+    // the plate stays searchable as a recent exit until the history window moves past outTime
+    public synchronized void close(String vehicleRegNumber, long outTime) {
+        int id = idOf(vehicleRegNumber);
+        if (id >= 0) {
+            states[id] = CLOSED;
+            lastSeen[id] = Math.max(lastSeen[id], outTime);
+            closedOrder.addLast(new long[]{id, outTime});
+        }
+        evictHistory(outTime - historyMillis);
+    }
+
+    private void evictHistory(long before) {
+        while (!closedOrder.isEmpty() && closedOrder.peekFirst()[1] < before) {
+            int id = (int) closedOrder.pollFirst()[0];
+            // reopened since, or closed again later and queued again
+            if (states[id] == CLOSED && lastSeen[id] < before) {
+                remove(id);
+            }
+        }
+    }
+
+    private int idOf(String vehicleRegNumber) {
+        String plate = PlateCodec.normalize(vehicleRegNumber);
+        if (plate == null) {
+            return -1;
+        }
+        Integer id = ids.get(plate);
+        if (id != null) {
+            return id;
+        }
+        int newId = freeIds.isEmpty() ? nextId++ : freeIds.pollFirst();
+        if (newId == plates.length) {
+            int capacity = plates.length * 2;
+            plates = Arrays.copyOf(plates, capacity);
+            states = Arrays.copyOf(states, capacity);
+            lastSeen = Arrays.copyOf(lastSeen, capacity);
+            hits = new int[capacity];
+        }
+        plates[newId] = plate;
+        lastSeen[newId] = Long.MIN_VALUE;
+        ids.put(plate, newId);
+        String canonical = canonical(plate);
+        for (int i = 0; i <= canonical.length(); i++) {
+            postings.computeIfAbsent(gram(canonical, i), gram -> new Postings()).add(newId);
+        }
+        return newId;
+    }
+
+    private void remove(int id) {
+        String plate = plates[id];
+        String canonical = canonical(plate);
+        for (int i = 0; i <= canonical.length(); i++) {
+            int gram = gram(canonical, i);
+            Postings list = postings.get(gram);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+        ids.remove(plate);
+        plates[id] = null;
+        states[id] = 0;
+        freeIds.addLast(id);
+    }
+
+    /**
+     * Up to k plates within maxDistance of the query, closest first, open tickets before exits at
+     * equal distance.
+     */
+    public synchronized List<PlateMatch> search(String query, int k, double maxDistance) {
+        String plate = PlateCodec.normalize(query);
+        List<PlateMatch> matches = new ArrayList<>();
+        if (plate == null || k <= 0) {
+            return matches;
+        }
+        String canonical = canonical(plate);
+        List<Integer> touched = new ArrayList<>();
+        int maxHits = 0;
+        for (int i = 0; i <= canonical.length(); i++) {
+            Postings list = postings.get(gram(canonical, i));
+            if (list == null) {
+                continue;
+            }
+            for (int j = 0; j < list.size; j++) {
+                int id = list.ids[j];
+                if (hits[id]++ == 0) {
+                    touched.add(id);
+                }
+                maxHits = Math.max(maxHits, hits[id]);
+            }
+        }
+        // each edit changes at most two grams, plates sharing fewer cannot be within maxDistance
+        int minHits = Math.max(1, canonical.length() + 1 - 2 * (int) Math.ceil(maxDistance));
+        List<Integer> candidates = new ArrayList<>();
+        for (int id : touched) {
+            if (hits[id] >= minHits) {
+                candidates.add(id);
+            }
+        }
+        if (candidates.size() > MAX_CANDIDATES) {
+            candidates.sort((a, b) -> Integer.compare(hits[b], hits[a]));
+            candidates = candidates.subList(0, MAX_CANDIDATES);
+        }
+        for (int id : candidates) {
+            double distance = distance(plate, plates[id]);
+            if (distance <= maxDistance) {
+                matches.add(new PlateMatch(plates[id], distance, states[id] == OPEN, lastSeen[id]));
+            }
+        }
+        for (int id : touched) {
+            hits[id] = 0;
+        }
+        matches.sort((a, b) -> (a.getDistance() != b.getDistance())
+                ? Double.compare(a.getDistance(), b.getDistance())
+                : Boolean.compare(b.isOpen(), a.isOpen()));
+        return (matches.size() > k) ? new ArrayList<>(matches.subList(0, k)) : matches;
+    }
+
+    public List<PlateMatch> search(String query, int k) {
+        return search(query, k, DEFAULT_MAX_DISTANCE);
+    }
+
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    private static String canonical(String plate) {
+        char[] chars = new char[plate.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = CANONICAL[plate.charAt(i)];
+        }
+        return new String(chars);
+    }
+
+    // gram i of "^" + canonical + "$", as two chars in an int
+    private static int gram(String canonical, int i) {
+        char first = (i == 0) ? START : canonical.charAt(i - 1);
+        char second = (i == canonical.length()) ? END : canonical.charAt(i);
+        return (first << 16) | second;
+    }
+
+    /**
+     * Levenshtein distance of two normalized plates, with look-alike substitutions at LOOKALIKE_COST.
+     */
+    static double distance(String a, String b) {
+        double[] previous = new double[b.length() + 1];
+        double[] current = new double[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                char cb = b.charAt(j - 1);
+                double substitution = (ca == cb) ? 0 : (CANONICAL[ca] == CANONICAL[cb]) ? LOOKALIKE_COST : 1;
+                current[j] = Math.min(previous[j - 1] + substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            double[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static final class Postings {
+
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        boolean remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -1,24 +1,132 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.ResilientDataBaseConfig;
+import com.parkit.parkingsystem.dao.AnalyticsDAO;
+import com.parkit.parkingsystem.dao.EntryJournal;
+import com.parkit.parkingsystem.dao.OffHeapOpenTicketStore;
+import com.parkit.parkingsystem.dao.OutboxDAO;
+import com.parkit.parkingsystem.dao.PermitDAO;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotRegistry;
+import com.parkit.parkingsystem.dao.ReservationDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.monitoring.MetricsExporter;
+import com.parkit.parkingsystem.monitoring.MetricsRegistry;
+import com.parkit.parkingsystem.monitoring.ParkingMetrics;
+import com.parkit.parkingsystem.outbox.FileOutboxSink;
+import com.parkit.parkingsystem.outbox.OutboxRelay;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.TicketIdGenerator;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Date;
+
 public class InteractiveShell {
 
     private static final Logger logger = LogManager.getLogger("InteractiveShell");
 
+    private static final int OPEN_TICKET_STORE_SIZE = 1024;
+    private static final Path RECURRENCE_SNAPSHOT = Paths.get("recurrence.snapshot");
+    private static final long RECURRENCE_SNAPSHOT_PERIOD_MILLIS = 5 * 60 * 1000L;
+    private static final int METRICS_PORT = 9404;
+    private static final Path ENTRY_JOURNAL = Paths.get("entries.journal");
+    private static final long ENTRY_JOURNAL_REPLAY_PERIOD_MILLIS = 10_000;
+    private static final Path TICKET_EVENTS = Paths.get("ticket-events.jsonl");
+
     public static void loadInterface(){
         logger.info("App initialized!!!");
         System.out.println("Welcome to Parking System!");
 
         boolean continueApp = true;
         InputReaderUtil inputReaderUtil = new InputReaderUtil();
-        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
-        TicketDAO ticketDAO = new TicketDAO();
+        ResilientDataBaseConfig dataBaseConfig = new ResilientDataBaseConfig(new DataBaseConfig());
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO(ParkingSpot.DEFAULT_LOT_ID, dataBaseConfig);
+        TicketDAO ticketDAO = new TicketDAO(ParkingSpot.DEFAULT_LOT_ID, dataBaseConfig);
+        OutboxDAO outboxDAO = new OutboxDAO(dataBaseConfig);
+        ticketDAO.setOutboxDAO(outboxDAO);
         ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        ParkingSpotRegistry parkingSpotRegistry = ParkingSpotRegistry.load(parkingSpotDAO);
+        ticketDAO.setParkingSpotRegistry(parkingSpotRegistry);
+        parkingService.setParkingSpotRegistry(parkingSpotRegistry);
+        OffHeapOpenTicketStore openTicketStore = new OffHeapOpenTicketStore(OPEN_TICKET_STORE_SIZE);
+        openTicketStore.setParkingSpotRegistry(parkingSpotRegistry);
+        openTicketStore.load(ticketDAO);
+        parkingService.setOpenTicketStore(openTicketStore);
+        RecurrenceService recurrenceService = new RecurrenceService();
+        recurrenceService.load(ticketDAO, RECURRENCE_SNAPSHOT);
+        recurrenceService.startSnapshots(RECURRENCE_SNAPSHOT, RECURRENCE_SNAPSHOT_PERIOD_MILLIS);
+        parkingService.setRecurrenceService(recurrenceService);
+        // spots are picked in memory, lowest number first like the DB query, so entries do not need the DB
+        SpotAllocator spotAllocator = new SpotAllocator(LowestNumberSpotStrategy::new);
+        spotAllocator.load(parkingSpotDAO);
+        parkingService.setSpotAllocator(spotAllocator);
+        PermitService permitService = new PermitService(new PermitDAO(dataBaseConfig));
+        permitService.reload();
+        permitService.startReload(PermitService.DEFAULT_RELOAD_PERIOD_MILLIS);
+        parkingService.setPermitService(permitService);
+        ReservationService reservationService = new ReservationService(
+                new ReservationDAO(ParkingSpot.DEFAULT_LOT_ID, dataBaseConfig), parkingSpotDAO);
+        reservationService.load(new Date());
+        reservationService.startEviction(ReservationService.DEFAULT_EVICTION_PERIOD_MILLIS);
+        parkingService.setReservationService(reservationService);
+        // ticket IDs are unique per node, a second shell on the same DB needs another -Dparkit.nodeId
+        parkingService.setTicketIdGenerator(TicketIdGenerator.getDefault());
+        FuzzyPlateIndex fuzzyPlateIndex = new FuzzyPlateIndex();
+        fuzzyPlateIndex.seed(ticketDAO);
+        parkingService.setFuzzyPlateIndex(fuzzyPlateIndex);
+        AnalyticsDAO analyticsDAO = new AnalyticsDAO(ParkingSpot.DEFAULT_LOT_ID, dataBaseConfig);
+        ParkingAnalytics analytics = new ParkingAnalytics();
+        // yesterday too, exits of cars parked before midnight still update its plates
+        if (!analytics.load(analyticsDAO, LocalDate.now().minusDays(1), LocalDate.now())) {
+            logger.error("Analytics will not be saved until the saved days load, retrying every flush");
+        }
+        analytics.startFlush(analyticsDAO, ParkingAnalytics.DEFAULT_FLUSH_PERIOD_MILLIS);
+        parkingService.setAnalytics(analytics);
+        DynamicPricing dynamicPricing = new DynamicPricing(spotAllocator::getCapacity, spotAllocator::countFreeSpots);
+        dynamicPricing.startRefresh(DynamicPricing.DEFAULT_REFRESH_PERIOD_MILLIS);
+        parkingService.setDynamicPricing(dynamicPricing);
+        EntryJournal entryJournal = null;
+        try {
+            entryJournal = new EntryJournal(ENTRY_JOURNAL);
+            entryJournal.startReplay(parkingSpotDAO, ticketDAO, ENTRY_JOURNAL_REPLAY_PERIOD_MILLIS);
+            parkingService.setEntryJournal(entryJournal);
+        } catch (IOException e) {
+            logger.error("Unable to open entry journal " + ENTRY_JOURNAL, e);
+        }
+        // billing and analytics read ticket changes from this file instead of polling the ticket table
+        FileOutboxSink outboxSink = null;
+        OutboxRelay outboxRelay = null;
+        try {
+            outboxSink = new FileOutboxSink(TICKET_EVENTS);
+            outboxRelay = new OutboxRelay("ticket-events-file", outboxDAO, outboxSink);
+            outboxRelay.setPurgeDelivered(true);
+            outboxRelay.start();
+        } catch (IOException e) {
+            logger.error("Unable to open " + TICKET_EVENTS + ", ticket changes stay in the outbox", e);
+        }
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        ParkingMetrics metrics = new ParkingMetrics(metricsRegistry, parkingSpotDAO.getLotId());
+        metrics.registerOpenTicketStore(openTicketStore);
+        metrics.registerCircuitBreaker(dataBaseConfig.getCircuitBreaker());
+        metrics.registerDynamicPricing(dynamicPricing);
+        if (entryJournal != null) {
+            metrics.registerEntryJournal(entryJournal);
+        }
+        parkingService.setMetrics(metrics);
+        MetricsExporter metricsExporter = new MetricsExporter(metricsRegistry);
+        metricsExporter.registerMBean();
+        try {
+            metricsExporter.startHttpServer(METRICS_PORT);
+        } catch (IOException e) {
+            logger.error("Unable to serve metrics on port " + METRICS_PORT, e);
+        }
 
         while(continueApp){
             loadMenu();
@@ -34,6 +142,28 @@ public class InteractiveShell {
                 }
                 case 3: {
                     System.out.println("Exiting from the system!");
+                    recurrenceService.stopSnapshots();
+                    dynamicPricing.stopRefresh();
+                    permitService.stopReload();
+                    reservationService.stopEviction();
+                    analytics.stopFlush(analyticsDAO);
+                    if (outboxRelay != null) {
+                        outboxRelay.stop();
+                        try {
+                            outboxSink.close();
+                        } catch (IOException e) {
+                            logger.error("Unable to close " + TICKET_EVENTS, e);
+                        }
+                    }
+                    metricsExporter.stopHttpServer();
+                    if (entryJournal != null) {
+                        try {
+                            entryJournal.close();
+                        } catch (IOException e) {
+                            logger.error("Unable to close entry journal", e);
+                        }
+                    }
+                    dataBaseConfig.shutdown();
                     continueApp = false;
                     break;
                 }
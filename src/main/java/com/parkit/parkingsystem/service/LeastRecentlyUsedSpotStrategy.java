@@ -0,0 +1,13 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.LinkedHashSet;
+
+/**
+ * Free spots in the order they were freed: the spot that has been empty the longest goes first.
+ */
+public class LeastRecentlyUsedSpotStrategy extends OrderedSpotStrategy {
+
+    public LeastRecentlyUsedSpotStrategy() {
+        super(new LinkedHashSet<>());
+    }
+}
@@ -0,0 +1,13 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.TreeSet;
+
+/**
+ * The historical behaviour of GET_NEXT_PARKING_SPOT: min(PARKING_NUMBER) among the free spots.
+ */
+public class LowestNumberSpotStrategy extends OrderedSpotStrategy {
+
+    public LowestNumberSpotStrategy() {
+        super(new TreeSet<>());
+    }
+}
@@ -0,0 +1,21 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Free spots ordered by walking distance to the entrance, ties broken by number. Spots without a
+ * known distance come after all the others.
+ */
+public class NearestToEntranceSpotStrategy extends OrderedSpotStrategy {
+
+    public NearestToEntranceSpotStrategy(Map<Integer, Integer> distances) {
+        super(new TreeSet<>(byDistance(Map.copyOf(distances))));
+    }
+
+    private static Comparator<Integer> byDistance(Map<Integer, Integer> distances) {
+        return Comparator.<Integer>comparingInt(parkingNumber -> distances.getOrDefault(parkingNumber, Integer.MAX_VALUE))
+                .thenComparingInt(parkingNumber -> parkingNumber);
+    }
+}
@@ -0,0 +1,47 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.IntPredicate;
+
+/**
+ * Strategies whose free spots are a collection iterated in pick order. A pick takes the first spot
+ * the filter accepts: when it accepts the head, as it does without bookings, that is one removal,
+ * otherwise the walk only passes the spots it rejects.
+ */
+public abstract class OrderedSpotStrategy implements SpotSelectionStrategy {
+
+    private final Collection<Integer> freeSpots;
+
+    protected OrderedSpotStrategy(Collection<Integer> freeSpots) {
+        this.freeSpots = freeSpots;
+    }
+
+    @Override
+    public void addFreeSpot(int parkingNumber) {
+        freeSpots.add(parkingNumber);
+    }
+
+    @Override
+    public void removeFreeSpot(int parkingNumber) {
+        freeSpots.remove(parkingNumber);
+    }
+
+    @Override
+    public int takeFreeSpot(IntPredicate eligible) {
+        Iterator<Integer> it = freeSpots.iterator();
+        while (it.hasNext()) {
+            int parkingNumber = it.next();
+            if (eligible.test(parkingNumber)) {
+                it.remove();
+                return parkingNumber;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return freeSpots.size();
+    }
+}
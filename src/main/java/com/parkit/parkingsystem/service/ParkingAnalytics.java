@@ -0,0 +1,230 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.AnalyticsDAO;
+import com.parkit.parkingsystem.model.DailyParkingSketches;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unique visitors, dwell times and fares per day and parking type, from sketches updated on every
+ * entry and exit instead of COUNT(DISTINCT) and percentile queries over the ticket table. Entries
+ * count on the day they came in, exits on the day they left. Ranges of days and other lots are
+ * merged sketch by sketch, so a plate seen on several days or lots counts once.
+ *
+ * What was recorded since the last flush is merged into the saved rows by flush(), so several nodes
+ * of a lot can share them. Nothing is flushed until load() has succeeded, the rows loaded would
+ * otherwise be missing from this node's figures for good.
+ */
+public class ParkingAnalytics {
+
+    private static final Logger logger = LogManager.getLogger("ParkingAnalytics");
+
+    public static final long DEFAULT_FLUSH_PERIOD_MILLIS = 60_000;
+
+    private static final ParkingType[] TYPES = ParkingType.values();
+
+    private final ZoneId zone;
+    private final Map<Long, DailyParkingSketches> sketches = new ConcurrentHashMap<>();
+    // recorded here since the last successful flush
+    private final Map<Long, DailyParkingSketches> unsaved = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private LocalDate loadFrom;
+    private LocalDate loadTo;
+    private ScheduledExecutorService flushScheduler;
+
+    public ParkingAnalytics() {
+        this(ZoneId.systemDefault());
+    }
+
+    public ParkingAnalytics(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    public void recordEntry(Ticket ticket) {
+        LocalDate day = toDay(ticket.getInTime());
+        ParkingType parkingType = ticket.getParkingSpot().getParkingType();
+        getOrCreate(day, parkingType).recordEntry(ticket.getVehicleRegNumber());
+        unsaved.compute(key(day, parkingType), (key, delta) -> {
+            delta = (delta == null) ? new DailyParkingSketches(day, parkingType) : delta;
+            delta.recordEntry(ticket.getVehicleRegNumber());
+            return delta;
+        });
+    }
+
+    public void recordExit(Ticket ticket) {
+        LocalDate day = toDay(ticket.getOutTime());
+        ParkingType parkingType = ticket.getParkingSpot().getParkingType();
+        float dwellMinutes = (ticket.getOutTime().getTime() - ticket.getInTime().getTime()) / 60_000f;
+        getOrCreate(day, parkingType).recordExit(dwellMinutes, (float) ticket.getPrice());
+        unsaved.compute(key(day, parkingType), (key, delta) -> {
+            delta = (delta == null) ? new DailyParkingSketches(day, parkingType) : delta;
+            delta.recordExit(dwellMinutes, (float) ticket.getPrice());
+            return delta;
+        });
+    }
+
+    // distinct plates that entered from the first to the last day included; all types when null
+    public long getUniquePlates(LocalDate from, LocalDate to, ParkingType parkingType) {
+        return merge(from, to, parkingType).getUniquePlates();
+    }
+
+    public long getExits(LocalDate from, LocalDate to, ParkingType parkingType) {
+        return merge(from, to, parkingType).getExits();
+    }
+
+    // NaN when no ticket closed in the range
+    public float getDwellMinutesQuantile(LocalDate from, LocalDate to, ParkingType parkingType, double q) {
+        return merge(from, to, parkingType).getDwellMinutesQuantile(q);
+    }
+
+    public float getFareQuantile(LocalDate from, LocalDate to, ParkingType parkingType, double q) {
+        return merge(from, to, parkingType).getFareQuantile(q);
+    }
+
+    private DailyParkingSketches merge(LocalDate from, LocalDate to, ParkingType parkingType) {
+        DailyParkingSketches merged = new DailyParkingSketches(from, parkingType);
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            for (ParkingType type : TYPES) {
+                DailyParkingSketches daily = (parkingType == null || parkingType == type)
+                        ? sketches.get(key(day, type)) : null;
+                if (daily != null) {
+                    merged.merge(daily);
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Adds saved or other lots' sketches into these. Only what tickets record here is saved by flush(),
+     * merged sketches never are.
+     */
+    public void merge(DailyParkingSketches other) {
+        getOrCreate(other.getDay(), other.getParkingType()).merge(other);
+    }
+
+    /**
+     * This lot's saved days, false if they could not be read. The periodic flush tries again with the
+     * same days until a load succeeds; later calls are ignored once one has.
+     */
+    public synchronized boolean load(AnalyticsDAO analyticsDAO, LocalDate from, LocalDate to) {
+        if (loaded) {
+            return true;
+        }
+        loadFrom = from;
+        loadTo = to;
+        List<DailyParkingSketches> saved = analyticsDAO.getSketches(from, to);
+        if (saved == null) {
+            logger.error("Unable to load analytics of lot " + analyticsDAO.getLotId() + " from " + from + " to " + to);
+            return false;
+        }
+        for (DailyParkingSketches daily : saved) {
+            merge(daily);
+        }
+        loaded = true;
+        logger.info("Loaded " + saved.size() + " analytics sketches of lot " + analyticsDAO.getLotId());
+        return true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // saves what was recorded since the last flush; until load() succeeded, or when the save fails,
+    // it is kept for the next flush and false is returned
+    public boolean flush(AnalyticsDAO analyticsDAO) {
+        if (unsaved.isEmpty()) {
+            return true;
+        }
+        if (!loaded) {
+            return false;
+        }
+        List<Long> keys = new ArrayList<>(unsaved.keySet());
+        List<DailyParkingSketches> deltas = new ArrayList<>(keys.size());
+        for (Long key : keys) {
+            deltas.add(unsaved.remove(key));
+        }
+        if (!analyticsDAO.saveSketches(deltas)) {
+            for (int i = 0; i < keys.size(); i++) {
+                unsaved.merge(keys.get(i), deltas.get(i), (recorded, delta) -> {
+                    recorded.merge(delta);
+                    return recorded;
+                });
+            }
+            return false;
+        }
+        return true;
+    }
+
+    public DailyParkingSketches getSketches(LocalDate day, ParkingType parkingType) {
+        return sketches.get(key(day, parkingType));
+    }
+
+    private DailyParkingSketches getOrCreate(LocalDate day, ParkingType parkingType) {
+        return sketches.computeIfAbsent(key(day, parkingType), key -> new DailyParkingSketches(day, parkingType));
+    }
+
+    private LocalDate toDay(Date time) {
+        return time.toInstant().atZone(zone).toLocalDate();
+    }
+
+    private static long key(LocalDate day, ParkingType parkingType) {
+        return day.toEpochDay() * TYPES.length + parkingType.ordinal();
+    }
+
+    public synchronized void startFlush(AnalyticsDAO analyticsDAO, long periodMillis) {
+        if (flushScheduler != null) {
+            return;
+        }
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analytics-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleAtFixedRate(() -> {
+            try {
+                retryLoad(analyticsDAO);
+                if (!flush(analyticsDAO)) {
+                    logger.error("Unable to save analytics of lot " + analyticsDAO.getLotId() + ", retrying next flush");
+                }
+            } catch (RuntimeException e) {
+                logger.error("Unable to save analytics", e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void retryLoad(AnalyticsDAO analyticsDAO) {
+        if (!loaded && loadFrom != null) {
+            load(analyticsDAO, loadFrom, loadTo);
+        }
+    }
+
+    // stops the periodic flush and saves what is left
+    public synchronized void stopFlush(AnalyticsDAO analyticsDAO) {
+        if (flushScheduler != null) {
+            flushScheduler.shutdown();
+            try {
+                flushScheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flushScheduler = null;
+        }
+        if (!flush(analyticsDAO)) {
+            logger.error("Unable to save the last analytics of lot " + analyticsDAO.getLotId());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.monitoring.MetricsRegistry;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Routes gate requests to the shard of their lot. The shard map is built once and never mutated,
+ * so routing itself takes no lock.
+ */
+public class ParkingLotRouter {
+
+    private static final Logger logger = LogManager.getLogger("ParkingLotRouter");
+
+    public static final int DEFAULT_POOL_SIZE = 4;
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 2000;
+    public static final int DEFAULT_EXPECTED_OPEN_TICKETS = 1024;
+
+    private final Map<Integer, ParkingLotShard> shards;
+
+    public ParkingLotRouter(Collection<ParkingLotShard> shards) {
+        Map<Integer, ParkingLotShard> byLot = new LinkedHashMap<>();
+        for (ParkingLotShard shard : shards) {
+            if (byLot.put(shard.getLotId(), shard) != null) {
+                throw new IllegalArgumentException("Duplicate shard for lot " + shard.getLotId());
+            }
+        }
+        this.shards = Collections.unmodifiableMap(byLot);
+    }
+
+    public static ParkingLotRouter forLots(List<Integer> lotIds, InputReaderUtil inputReaderUtil, DataBaseConfig source) {
+        return forLots(lotIds, inputReaderUtil, source, null);
+    }
+
+    public static ParkingLotRouter forLots(List<Integer> lotIds, InputReaderUtil inputReaderUtil, DataBaseConfig source,
+                                           Supplier<SpotSelectionStrategy> spotSelection) {
+        List<ParkingLotShard> shards = new ArrayList<>();
+        for (int lotId : lotIds) {
+            shards.add(new ParkingLotShard(lotId, inputReaderUtil, source,
+                    DEFAULT_POOL_SIZE, DEFAULT_ACQUIRE_TIMEOUT_MILLIS, DEFAULT_EXPECTED_OPEN_TICKETS, spotSelection));
+        }
+        logger.info("Routing " + shards.size() + " parking lots");
+        return new ParkingLotRouter(shards);
+    }
+
+    public ParkingLotShard getShard(int lotId) {
+        ParkingLotShard shard = shards.get(lotId);
+        if (shard == null) {
+            throw new IllegalArgumentException("Unknown parking lot: " + lotId);
+        }
+        return shard;
+    }
+
+    public ParkingService getParkingService(int lotId) {
+        return getShard(lotId).getParkingService();
+    }
+
+    public void processIncomingVehicle(int lotId) {
+        getParkingService(lotId).processIncomingVehicle();
+    }
+
+    public void processExitingVehicle(int lotId) {
+        getParkingService(lotId).processExitingVehicle();
+    }
+
+    // one instance for all lots: the recurrence discount counts tickets across lots
+    public void setRecurrenceService(RecurrenceService recurrenceService) {
+        for (ParkingLotShard shard : shards.values()) {
+            shard.getParkingService().setRecurrenceService(recurrenceService);
+        }
+    }
+
+    public void registerMetrics(MetricsRegistry registry) {
+        for (ParkingLotShard shard : shards.values()) {
+            shard.registerMetrics(registry);
+        }
+    }
+
+    public Collection<ParkingLotShard> getShards() {
+        return shards.values();
+    }
+
+    public void shutdown() {
+        for (ParkingLotShard shard : shards.values()) {
+            shard.shutdown();
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.PooledDataBaseConfig;
+import com.parkit.parkingsystem.config.ResilientDataBaseConfig;
+import com.parkit.parkingsystem.dao.AnalyticsDAO;
+import com.parkit.parkingsystem.dao.EntryJournal;
+import com.parkit.parkingsystem.dao.OffHeapOpenTicketStore;
+import com.parkit.parkingsystem.dao.OutboxDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotRegistry;
+import com.parkit.parkingsystem.dao.ReconciliationDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.event.ParkingEvent;
+import com.parkit.parkingsystem.event.ParkingEventStream;
+import com.parkit.parkingsystem.event.ParkingReadModels;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.ReconciliationReport;
+import com.parkit.parkingsystem.monitoring.MetricsRegistry;
+import com.parkit.parkingsystem.monitoring.ParkingMetrics;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.TicketIdGenerator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+/**
+ * Everything one garage or level needs, so that lots never share a pool, a cache or a lock.
+ */
+public class ParkingLotShard {
+
+    private static final Logger logger = LogManager.getLogger("ParkingLotShard");
+
+    private final int lotId;
+    private final PooledDataBaseConfig dataBaseConfig;
+    private final ResilientDataBaseConfig resilientDataBaseConfig;
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final TicketDAO ticketDAO;
+    private final OffHeapOpenTicketStore openTicketStore;
+    private final ParkingSpotRegistry parkingSpotRegistry;
+    private final ParkingService parkingService;
+    private final SpotAllocator spotAllocator;
+    private EntryJournal entryJournal;
+    private DynamicPricing dynamicPricing;
+    private FareQuoteService fareQuoteService;
+    private ParkingReadModels readModels;
+    private OutboxDAO outboxDAO;
+    private FuzzyPlateIndex fuzzyPlateIndex;
+    private AnalyticsDAO analyticsDAO;
+    private ParkingAnalytics analytics;
+
+    public ParkingLotShard(int lotId, InputReaderUtil inputReaderUtil, DataBaseConfig source,
+                           int poolSize, long acquireTimeoutMillis, int expectedOpenTickets) {
+        this(lotId, inputReaderUtil, source, poolSize, acquireTimeoutMillis, expectedOpenTickets, null);
+    }
+
+    public ParkingLotShard(int lotId, InputReaderUtil inputReaderUtil, DataBaseConfig source,
+                           int poolSize, long acquireTimeoutMillis, int expectedOpenTickets,
+                           Supplier<SpotSelectionStrategy> spotSelection) {
+        this.lotId = lotId;
+        this.dataBaseConfig = new PooledDataBaseConfig(source, poolSize, acquireTimeoutMillis);
+        this.resilientDataBaseConfig = new ResilientDataBaseConfig(dataBaseConfig);
+        this.parkingSpotDAO = new ParkingSpotDAO(lotId, resilientDataBaseConfig);
+        this.ticketDAO = new TicketDAO(lotId, resilientDataBaseConfig);
+        this.openTicketStore = new OffHeapOpenTicketStore(expectedOpenTickets);
+        this.parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        this.parkingSpotRegistry = ParkingSpotRegistry.load(parkingSpotDAO);
+        this.ticketDAO.setParkingSpotRegistry(parkingSpotRegistry);
+        this.openTicketStore.setParkingSpotRegistry(parkingSpotRegistry);
+        this.openTicketStore.load(ticketDAO);
+        this.parkingService.setParkingSpotRegistry(parkingSpotRegistry);
+        this.parkingService.setOpenTicketStore(openTicketStore);
+        if (spotSelection != null) {
+            this.spotAllocator = new SpotAllocator(spotSelection);
+            this.spotAllocator.load(parkingSpotDAO);
+            this.parkingService.setSpotAllocator(spotAllocator);
+        } else {
+            this.spotAllocator = null;
+        }
+    }
+
+    public int getLotId() {
+        return lotId;
+    }
+
+    public PooledDataBaseConfig getDataBaseConfig() {
+        return dataBaseConfig;
+    }
+
+    public ResilientDataBaseConfig getResilientDataBaseConfig() {
+        return resilientDataBaseConfig;
+    }
+
+    /**
+     * Lets cars in while the DB is down, their DB writes are replayed from the journal file. Only
+     * useful with a spot selection strategy, otherwise choosing a spot already needs the DB.
+     */
+    public EntryJournal enableEntryJournal(Path journalFile, long replayPeriodMillis) throws IOException {
+        if (entryJournal == null) {
+            entryJournal = new EntryJournal(journalFile);
+            entryJournal.startReplay(parkingSpotDAO, ticketDAO, replayPeriodMillis);
+            parkingService.setEntryJournal(entryJournal);
+        }
+        return entryJournal;
+    }
+
+    /**
+     * Raises the rates with the occupancy of the lot, read from the free-spot index. Needs a spot
+     * selection strategy, without one the occupancy is only known to the DB.
+     */
+    public DynamicPricing enableDynamicPricing(long refreshPeriodMillis) {
+        if (spotAllocator == null) {
+            throw new IllegalStateException("Dynamic pricing of lot " + lotId + " needs a spot selection strategy");
+        }
+        if (dynamicPricing == null) {
+            dynamicPricing = new DynamicPricing(spotAllocator::getCapacity, spotAllocator::countFreeSpots);
+            dynamicPricing.startRefresh(refreshPeriodMillis);
+            parkingService.setDynamicPricing(dynamicPricing);
+        }
+        return dynamicPricing;
+    }
+
+    /**
+     * Starts the event stream of this lot and its read models, seeded from the DB. Call it before
+     * the gates open, entries made while seeding would be missed. Null if the tickets could not be
+     * read, it can be called again.
+     */
+    public synchronized ParkingReadModels enableReadModels() {
+        if (readModels == null) {
+            ParkingReadModels seeded = new ParkingReadModels(new ParkingEventStream());
+            if (seeded.seed(parkingSpotDAO, ticketDAO) < 0) {
+                seeded.close();
+                return null;
+            }
+            readModels = seeded;
+            parkingService.setEventStream(readModels.getStream());
+        }
+        return readModels;
+    }
+
+    /**
+     * Makes every ticket change of this lot also write an outbox row in its transaction. Rows are
+     * delivered by an OutboxRelay, one per consumer for the whole database rather than per lot.
+     */
+    public synchronized OutboxDAO enableOutbox() {
+        if (outboxDAO == null) {
+            outboxDAO = new OutboxDAO(resilientDataBaseConfig);
+            ticketDAO.setOutboxDAO(outboxDAO);
+        }
+        return outboxDAO;
+    }
+
+    // seeded from the DB like the read models, call it before the gates open
+    public synchronized FuzzyPlateIndex enableFuzzyPlateSearch() {
+        if (fuzzyPlateIndex == null) {
+            fuzzyPlateIndex = new FuzzyPlateIndex();
+            fuzzyPlateIndex.seed(ticketDAO);
+            parkingService.setFuzzyPlateIndex(fuzzyPlateIndex);
+        }
+        return fuzzyPlateIndex;
+    }
+
+    /**
+     * Keeps the analytics sketches of this lot, loaded from the DB for the given days and saved every
+     * flushPeriodMillis and on shutdown. Call it before the gates open.
+     */
+    public synchronized ParkingAnalytics enableAnalytics(LocalDate loadFrom, LocalDate loadTo, long flushPeriodMillis) {
+        if (analytics == null) {
+            analyticsDAO = new AnalyticsDAO(lotId, resilientDataBaseConfig);
+            analytics = new ParkingAnalytics();
+            if (!analytics.load(analyticsDAO, loadFrom, loadTo)) {
+                logger.error("Analytics of lot " + lotId + " will not be saved until the saved days load, retrying every flush");
+            }
+            analytics.startFlush(analyticsDAO, flushPeriodMillis);
+            parkingService.setAnalytics(analytics);
+        }
+        return analytics;
+    }
+
+    public ParkingAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    public FuzzyPlateIndex getFuzzyPlateIndex() {
+        return fuzzyPlateIndex;
+    }
+
+    // one generator per process, shared by its shards, with a node id no other process uses
+    public void setTicketIdGenerator(TicketIdGenerator ticketIdGenerator) {
+        parkingService.setTicketIdGenerator(ticketIdGenerator);
+    }
+
+    // permits are not per lot, every shard of the router shares the same PermitService
+    public void setPermitService(PermitService permitService) {
+        parkingService.setPermitService(permitService);
+    }
+
+    public ParkingReadModels getReadModels() {
+        return readModels;
+    }
+
+    public synchronized FareQuoteService getFareQuoteService() {
+        if (fareQuoteService == null) {
+            fareQuoteService = parkingService.newFareQuoteService();
+        }
+        return fareQuoteService;
+    }
+
+    public ParkingSpotDAO getParkingSpotDAO() {
+        return parkingSpotDAO;
+    }
+
+    public TicketDAO getTicketDAO() {
+        return ticketDAO;
+    }
+
+    public ParkingSpotRegistry getParkingSpotRegistry() {
+        return parkingSpotRegistry;
+    }
+
+    public OffHeapOpenTicketStore getOpenTicketStore() {
+        return openTicketStore;
+    }
+
+    public SpotAllocator getSpotAllocator() {
+        return spotAllocator;
+    }
+
+    public ParkingService getParkingService() {
+        return parkingService;
+    }
+
+    /**
+     * Checks the parking and ticket tables of this lot against each other and fixes them if asked,
+     * keeping the in-memory free-spot index in line with the spots that changed. Spots of entries in
+     * progress are left alone, and nothing is checked while journaled entries wait for the DB: returns
+     * null then, as when the lot could not be read.
+     */
+    public ReconciliationReport reconcile(boolean applyFixes) {
+        if (entryJournal != null && entryJournal.hasPending()) {
+            logger.info("Entries of lot " + lotId + " are still journaled, reconciliation deferred");
+            return null;
+        }
+        ReconciliationService reconciliationService = new ReconciliationService(
+                new ReconciliationDAO(lotId, resilientDataBaseConfig), ReconciliationService.DEFAULT_RANGE_SIZE,
+                Math.min(ReconciliationService.DEFAULT_PARALLELISM, dataBaseConfig.getMaxSize()),
+                ReconciliationService.DEFAULT_BATCH_SIZE);
+        reconciliationService.setSpotsInUse(this::isSpotInUse);
+        ReconciliationReport report = reconciliationService.reconcile(applyFixes);
+        if (report != null && spotAllocator != null) {
+            for (ParkingSpot parkingSpot : report.getSpotsFreed()) {
+                // an entry may have taken the spot since it was freed in DB
+                if (!isSpotInUse(parkingSpot.getId())) {
+                    spotAllocator.release(parkingSpot);
+                }
+            }
+            for (ParkingSpot parkingSpot : report.getSpotsOccupied()) {
+                spotAllocator.markOccupied(parkingSpot);
+            }
+        }
+        if (report != null && readModels != null) {
+            long now = System.currentTimeMillis();
+            for (ParkingSpot parkingSpot : report.getSpotsFreed()) {
+                readModels.getStream().append(ParkingEvent.spotStateChanged(
+                        new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), true, lotId), now));
+            }
+            for (ParkingSpot parkingSpot : report.getSpotsOccupied()) {
+                readModels.getStream().append(ParkingEvent.spotStateChanged(
+                        new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), false, lotId), now));
+            }
+        }
+        return report;
+    }
+
+    private boolean isSpotInUse(int parkingNumber) {
+        return (spotAllocator != null && spotAllocator.isHeld(parkingNumber))
+                || (entryJournal != null && entryJournal.hasPendingTicket(parkingNumber));
+    }
+
+    public ParkingMetrics registerMetrics(MetricsRegistry registry) {
+        ParkingMetrics metrics = new ParkingMetrics(registry, lotId);
+        metrics.registerPool(dataBaseConfig);
+        metrics.registerCircuitBreaker(resilientDataBaseConfig.getCircuitBreaker());
+        if (entryJournal != null) {
+            metrics.registerEntryJournal(entryJournal);
+        }
+        metrics.registerOpenTicketStore(openTicketStore);
+        if (dynamicPricing != null) {
+            metrics.registerDynamicPricing(dynamicPricing);
+        }
+        parkingService.setMetrics(metrics);
+        return metrics;
+    }
+
+    public void shutdown() {
+        if (readModels != null) {
+            readModels.close();
+        }
+        if (dynamicPricing != null) {
+            dynamicPricing.stopRefresh();
+        }
+        if (analytics != null) {
+            analytics.stopFlush(analyticsDAO);
+        }
+        if (entryJournal != null) {
+            try {
+                entryJournal.close();
+            } catch (IOException e) {
+                logger.error("Unable to close entry journal of lot " + lotId, e);
+            }
+        }
+        resilientDataBaseConfig.shutdown();
+        dataBaseConfig.shutdown();
+    }
+}
@@ -1,25 +1,56 @@
 package com.parkit.parkingsystem.service;
 
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.EntryJournal;
+import com.parkit.parkingsystem.dao.OffHeapOpenTicketStore;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotRegistry;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.event.ParkingEvent;
+import com.parkit.parkingsystem.event.ParkingEventStream;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.PlateMatch;
+import com.parkit.parkingsystem.model.Reservation;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.monitoring.ParkingMetrics;
+import com.parkit.parkingsystem.monitoring.ParkingOperationEvent;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.TicketIdGenerator;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Clock;
 import java.util.Date;
+import java.util.List;
 
 public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
 
-    private static FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private static final int PLATE_SUGGESTIONS = 5;
+
+    private final FareCalculatorService fareCalculatorService = new FareCalculatorService();
 
     private InputReaderUtil inputReaderUtil;
     private ParkingSpotDAO parkingSpotDAO;
     private  TicketDAO ticketDAO;
+    private OffHeapOpenTicketStore openTicketStore;
+    private ReservationService reservationService;
+    private RecurrenceService recurrenceService;
+    private SpotAllocator spotAllocator;
+    private ParkingSpotRegistry parkingSpotRegistry;
+    private ParkingMetrics metrics;
+    private EntryJournal entryJournal;
+    private ParkingEventStream eventStream;
+    private PermitService permitService;
+    private FuzzyPlateIndex fuzzyPlateIndex;
+    // the ticket table has no AUTO_INCREMENT, every ticket is numbered here
+    private TicketIdGenerator ticketIdGenerator = TicketIdGenerator.getDefault();
+    private PrintStream console = System.out;
+    private ParkingAnalytics analytics;
+    private Clock clock = Clock.systemDefaultZone();
 
     public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
         this.inputReaderUtil = inputReaderUtil;
@@ -33,61 +64,274 @@ public class ParkingService {
     public ParkingService(InputReaderUtil inputReaderUtil) {
     }
 
+    public void setOpenTicketStore(OffHeapOpenTicketStore openTicketStore) {
+        this.openTicketStore = openTicketStore;
+    }
+
+    public void setReservationService(ReservationService reservationService) {
+        this.reservationService = reservationService;
+    }
+
+    public void setRecurrenceService(RecurrenceService recurrenceService) {
+        this.recurrenceService = recurrenceService;
+    }
+
+    public void setSpotAllocator(SpotAllocator spotAllocator) {
+        this.spotAllocator = spotAllocator;
+    }
+
+    public void setParkingSpotRegistry(ParkingSpotRegistry parkingSpotRegistry) {
+        this.parkingSpotRegistry = parkingSpotRegistry;
+    }
+
+    public void setMetrics(ParkingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // entries whose DB writes fail are journaled and the car is let in anyway
+    public void setEntryJournal(EntryJournal entryJournal) {
+        this.entryJournal = entryJournal;
+    }
+
+    // entries and exits are also appended to the stream that feeds the read models
+    public void setEventStream(ParkingEventStream eventStream) {
+        this.eventStream = eventStream;
+    }
+
+    // permit holders are checked before any fare is computed and leave without paying
+    public void setPermitService(PermitService permitService) {
+        this.permitService = permitService;
+    }
+
+    // plates are indexed as they enter and leave; an exit with no ticket suggests look-alike plates
+    public void setFuzzyPlateIndex(FuzzyPlateIndex fuzzyPlateIndex) {
+        this.fuzzyPlateIndex = fuzzyPlateIndex;
+    }
+
+    // tickets get their ID here, before they are saved, cached or streamed; by default the generator of the configured node
+    public void setTicketIdGenerator(TicketIdGenerator ticketIdGenerator) {
+        this.ticketIdGenerator = ticketIdGenerator;
+    }
+
+    // prompts and receipts; a load test passes a null stream so it measures the service, not the terminal
+    public void setConsole(PrintStream console) {
+        this.console = console;
+    }
+
+    public void setAnalytics(ParkingAnalytics analytics) {
+        this.analytics = analytics;
+    }
+
+    // stamps tickets and prices exits; a VirtualClock lets a simulation run weeks in seconds
+    public void setClock(Clock clock) {
+        this.clock = clock;
+        fareCalculatorService.setClock(clock);
+    }
+
+    public void setDynamicPricing(DynamicPricing dynamicPricing) {
+        fareCalculatorService.setDynamicPricing(dynamicPricing);
+    }
+
+    // quotes priced like the exits of this service, with the same open tickets and recurrence
+    public FareQuoteService newFareQuoteService() {
+        FareQuoteService fareQuoteService = new FareQuoteService(ticketDAO, fareCalculatorService);
+        fareQuoteService.setOpenTicketStore(openTicketStore);
+        fareQuoteService.setRecurrenceService(recurrenceService);
+        fareQuoteService.setPermitService(permitService);
+        return fareQuoteService;
+    }
+
     public void processIncomingVehicle() {
         try{
+            if(reservationService != null){
+                // a booked plate is given its spot even when the lot is full for walk-ins
+                ParkingType parkingType = getVehichleType();
+                processIncomingVehicle(getVehichleRegNumber(), parkingType);
+                return;
+            }
             ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
             if(parkingSpot !=null && parkingSpot.getId() > 0){
-                String vehicleRegNumber = getVehichleRegNumber();
-                parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);//allot this parking space and mark it's availability as false
-
-                Date inTime = new Date();
-                Ticket ticket = new Ticket();
-                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-                //ticket.setId(ticketID);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(0);
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                ticketDAO.saveTicket(ticket);
-                System.out.println("Generated Ticket and saved in DB");
-                System.out.println("Please park your vehicle in spot number:"+parkingSpot.getId());
-                System.out.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+inTime);
+                String vehicleRegNumber;
+                try{
+                    vehicleRegNumber = getVehichleRegNumber();
+                }catch(Exception e){
+                    if(spotAllocator != null){
+                        spotAllocator.release(parkingSpot);
+                    }
+                    throw e;
+                }
+                // the spot lookup waited on the keyboard, so the event only covers the writes
+                ParkingOperationEvent event = new ParkingOperationEvent(ParkingOperationEvent.ENTRY);
+                event.start();
+                parkVehicle(parkingSpot, vehicleRegNumber, event);
+            }
+        }catch(Exception e){
+            logger.error("Unable to process incoming vehicle",e);
+        }
+    }
+
+    public Ticket processIncomingVehicle(String vehicleRegNumber, ParkingType parkingType) {
+        ParkingOperationEvent event = new ParkingOperationEvent(ParkingOperationEvent.ENTRY);
+        event.start();
+        try{
+            Reservation reservation = (reservationService == null)
+                    ? null : reservationService.findClaimable(vehicleRegNumber, parkingType, clock.millis());
+            ParkingSpot parkingSpot = (reservation == null) ? null : claimReservedSpot(reservation, parkingType);
+            if(parkingSpot == null){
+                reservation = null;
+                parkingSpot = getNextParkingNumberIfAvailable(parkingType);
+            }
+            event.spotLookupDone();
+            if(parkingSpot !=null && parkingSpot.getId() > 0){
+                Ticket ticket = parkVehicle(parkingSpot, vehicleRegNumber, event);
+                if(reservation != null){
+                    reservationService.claim(reservation);
+                }
+                return ticket;
             }
         }catch(Exception e){
             logger.error("Unable to process incoming vehicle",e);
         }
+        finishFailed(event, vehicleRegNumber, parkingType);
+        return null;
+    }
+
+    private Ticket parkVehicle(ParkingSpot parkingSpot, String vehicleRegNumber, ParkingOperationEvent event) {
+        long start = System.nanoTime();
+        boolean spotSaved = parkingSpotDAO.updateParking(parkingSpot, false);//allot this parking space and mark it's availability as false
+        event.spotWriteDone();
+
+        Date inTime = new Date(clock.millis());
+        Ticket ticket = new Ticket();
+        //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+        ticket.setId(ticketIdGenerator.nextId());
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setLotId(parkingSpot.getLotId());
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(0);
+        ticket.setInTime(inTime);
+        ticket.setOutTime(null);
+        boolean ticketSaved = ticketDAO.saveTicket(ticket);
+        if(entryJournal != null && !(spotSaved && ticketSaved)){
+            journalEntry(ticket, !spotSaved, !ticketSaved);
+        }
+        if(spotAllocator != null){
+            spotAllocator.confirm(parkingSpot);
+        }
+        if(openTicketStore != null){
+            openTicketStore.put(ticket);
+        }
+        event.ticketWriteDone();
+        if(fuzzyPlateIndex != null){
+            fuzzyPlateIndex.open(vehicleRegNumber, inTime.getTime());
+        }
+        if(eventStream != null){
+            eventStream.append(ParkingEvent.vehicleEntered(ticket));
+        }
+        if(recurrenceService != null){
+            recurrenceService.recordTicket(vehicleRegNumber);
+        }
+        if(analytics != null){
+            analytics.recordEntry(ticket);
+        }
+        if(metrics != null){
+            metrics.recordEntry(System.nanoTime() - start);
+        }
+        event.finish(vehicleRegNumber, parkingSpot.getParkingType(), parkingSpot.getId(), parkingSpot.getLotId(), true);
+        console.println("Generated Ticket and saved in DB");
+        console.println("Please park your vehicle in spot number:"+parkingSpot.getId());
+        console.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+inTime);
+        return ticket;
+    }
+
+    private void journalEntry(Ticket ticket, boolean spotPending, boolean ticketPending) {
+        try {
+            entryJournal.append(ticket, spotPending, ticketPending);
+            logger.error("DB write failed, entry of " + ticket.getVehicleRegNumber() + " journaled");
+        } catch (IOException e) {
+            logger.error("Unable to journal entry of " + ticket.getVehicleRegNumber(), e);
+        }
     }
 
     private String getVehichleRegNumber() throws Exception {
-        System.out.println("Please type the vehicle registration number and press enter key");
+        console.println("Please type the vehicle registration number and press enter key");
         return inputReaderUtil.readVehicleRegistrationNumber();
     }
 
     public ParkingSpot getNextParkingNumberIfAvailable(){
+        try{
+            return getNextParkingNumberIfAvailable(getVehichleType());
+        }catch(IllegalArgumentException ie){
+            logger.error("Error parsing user input for type of vehicle", ie);
+        }
+        return null;
+    }
+
+    public ParkingSpot getNextParkingNumberIfAvailable(ParkingType parkingType){
         int parkingNumber=0;
         ParkingSpot parkingSpot = null;
         try{
-            ParkingType parkingType = getVehichleType();
-            parkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
+            if(spotAllocator != null){
+                parkingNumber = allocateSlot(parkingType);
+            }else{
+                parkingNumber = (reservationService == null)
+                        ? parkingSpotDAO.getNextAvailableSlot(parkingType)
+                        : getNextUnreservedSlot(parkingType);
+            }
             if(parkingNumber > 0){
-                parkingSpot = new ParkingSpot(parkingNumber,parkingType, true);
+                parkingSpot = (parkingSpotRegistry != null) ? parkingSpotRegistry.get(parkingNumber) : null;
+                if(parkingSpot == null){
+                    parkingSpot = new ParkingSpot(parkingNumber,parkingType, true, parkingSpotDAO.getLotId());
+                }
             }else{
+                if(metrics != null){
+                    metrics.recordLotFull();
+                }
                 throw new Exception("Error fetching parking number from DB. Parking slots might be full");
             }
-        }catch(IllegalArgumentException ie){
-            logger.error("Error parsing user input for type of vehicle", ie);
         }catch(Exception e){
             logger.error("Error fetching next available parking slot", e);
         }
         return parkingSpot;
     }
 
+    // the spot of a booking claimable now if it is free
+    private ParkingSpot claimReservedSpot(Reservation reservation, ParkingType parkingType){
+        String vehicleRegNumber = reservation.getVehicleRegNumber();
+        int parkingNumber = reservation.getParkingNumber();
+        boolean free = (spotAllocator != null)
+                ? spotAllocator.take(parkingType, parkingNumber)
+                : parkingSpotDAO.getAvailableSlots(parkingType).contains(parkingNumber);
+        if(!free){
+            logger.error("Spot " + parkingNumber + " booked by " + vehicleRegNumber + " is still occupied, allocating another one");
+            return null;
+        }
+        ParkingSpot parkingSpot = (parkingSpotRegistry != null) ? parkingSpotRegistry.get(parkingNumber) : null;
+        return (parkingSpot != null) ? parkingSpot : new ParkingSpot(parkingNumber, parkingType, true, parkingSpotDAO.getLotId());
+    }
+
+    private int allocateSlot(ParkingType parkingType){
+        if(reservationService == null){
+            return spotAllocator.allocate(parkingType, parkingNumber -> true);
+        }
+        long now = clock.millis();
+        return spotAllocator.allocate(parkingType, parkingNumber -> !reservationService.isHeldForReservation(parkingNumber, now));
+    }
+
+    private int getNextUnreservedSlot(ParkingType parkingType){
+        long now = clock.millis();
+        for (int parkingNumber : parkingSpotDAO.getAvailableSlots(parkingType)) {
+            if (!reservationService.isHeldForReservation(parkingNumber, now)) {
+                return parkingNumber;
+            }
+        }
+        return 0;
+    }
+
     public ParkingType getVehichleType(){
-        System.out.println("Please select vehicle type from menu");
-        System.out.println("1 CAR");
-        System.out.println("2 BIKE");
+        console.println("Please select vehicle type from menu");
+        console.println("1 CAR");
+        console.println("2 BIKE");
         int input = inputReaderUtil.readSelection();
         switch(input){
             case 1: {
@@ -97,7 +341,7 @@ public class ParkingService {
                 return ParkingType.BIKE;
             }
             default: {
-                System.out.println("Incorrect input provided");
+                console.println("Incorrect input provided");
                 throw new IllegalArgumentException("Entered input is invalid");
             }
         }
@@ -106,34 +350,122 @@ public class ParkingService {
     public void processExitingVehicle() {
         try {
             String vehicleRegNumber = getVehichleRegNumber();
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
-            Date outTime = new Date();
-            ticket.setOutTime(outTime);
+            processExitingVehicle(vehicleRegNumber);
+        } catch (Exception e) {
+            logger.error("Unable to process exiting vehicle", e);
+        }
+    }
+
+    public Ticket processExitingVehicle(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        ParkingOperationEvent event = new ParkingOperationEvent(ParkingOperationEvent.EXIT);
+        event.start();
+        Ticket ticket = exitVehicle(vehicleRegNumber, event);
+        if (metrics != null) {
+            metrics.recordExit(System.nanoTime() - start, ticket != null);
+        }
+        if (ticket != null) {
+            ParkingSpot parkingSpot = ticket.getParkingSpot();
+            event.finish(vehicleRegNumber, parkingSpot.getParkingType(), parkingSpot.getId(), ticket.getLotId(), true);
+        } else {
+            finishFailed(event, vehicleRegNumber, null);
+        }
+        return ticket;
+    }
+
+    private void finishFailed(ParkingOperationEvent event, String vehicleRegNumber, ParkingType parkingType) {
+        if (event.isEnabled()) {
+            event.finish(vehicleRegNumber, parkingType, 0, parkingSpotDAO.getLotId(), false);
+        }
+    }
 
-            // Check if vehicle is recurrent
-            int nbTickets = ticketDAO.getNbTicket(vehicleRegNumber);
-            boolean isRecurrent = nbTickets > 1; // more than 1 visit = recurrent
+    private void suggestPlates(String vehicleRegNumber) {
+        List<PlateMatch> matches = fuzzyPlateIndex.search(vehicleRegNumber, PLATE_SUGGESTIONS);
+        console.println("No open ticket for vehicle number: " + vehicleRegNumber);
+        for (PlateMatch match : matches) {
+            if (match.isOpen()) {
+                console.println("Did you mean: " + match.getVehicleRegNumber());
+            }
+        }
+        logger.error("No open ticket for " + vehicleRegNumber + ", look-alike plates: " + matches);
+    }
 
-            if (isRecurrent) {
-                System.out.println("Applying a 5% discount...");
+    private Ticket exitVehicle(String vehicleRegNumber, ParkingOperationEvent event) {
+        try {
+            // the leaving car may be one of them, its ticket has to be in DB before it is closed
+            if (entryJournal != null && entryJournal.hasPending()) {
+                entryJournal.replay(parkingSpotDAO, ticketDAO);
+            }
+            Ticket ticket = (openTicketStore != null) ? openTicketStore.getTicket(vehicleRegNumber) : null;
+            if (openTicketStore != null && metrics != null) {
+                metrics.recordOpenTicketLookup(ticket != null);
+            }
+            if (ticket == null) {
+                ticket = ticketDAO.getTicket(vehicleRegNumber);
+            }
+            event.ticketLookupDone();
+            if (ticket == null && fuzzyPlateIndex != null) {
+                suggestPlates(vehicleRegNumber);
+                return null;
             }
+            Date outTime = new Date(clock.millis());
+            ticket.setOutTime(outTime);
+
+            if (permitService != null && permitService.isPermitHolder(vehicleRegNumber, outTime.getTime())) {
+                console.println("Permit holder, no fare to pay");
+                ticket.setPrice(0);
+                event.recurrenceCheckDone();
+                event.fareCalculationDone();
+            } else {
+                // Check if vehicle is recurrent, first-time visitors are ruled out without a count query
+                boolean isRecurrent = false;
+                if (recurrenceService == null || recurrenceService.mightBeRecurrent(vehicleRegNumber)) {
+                    int nbTickets = ticketDAO.getNbTicket(vehicleRegNumber);
+                    isRecurrent = nbTickets > 1; // more than 1 visit = recurrent
+                }
+                event.recurrenceCheckDone();
+
+                if (isRecurrent) {
+                    console.println("Applying a 5% discount...");
+                }
 
-            // Calculate fare with discount if recurrent
-            fareCalculatorService.calculateFare(ticket, isRecurrent);
+                // Calculate fare with discount if recurrent
+                fareCalculatorService.calculateFare(ticket, isRecurrent);
+                ticket.setRecurrentUser(isRecurrent);
+                event.fareCalculationDone();
+            }
 
             if (ticketDAO.updateTicket(ticket)) {
+                if (openTicketStore != null) {
+                    openTicketStore.remove(vehicleRegNumber);
+                }
+                event.ticketWriteDone();
                 ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true);
-                parkingSpotDAO.updateParking(parkingSpot);
-                System.out.println("Please pay the parking fare: " + ticket.getPrice());
-                System.out.println("Recorded out-time for vehicle number: " + ticket.getVehicleRegNumber() + " is: " + outTime);
+                parkingSpotDAO.updateParking(parkingSpot, true);
+                if (spotAllocator != null) {
+                    spotAllocator.release(parkingSpot);
+                }
+                event.spotWriteDone();
+                if (fuzzyPlateIndex != null) {
+                    fuzzyPlateIndex.close(vehicleRegNumber, outTime.getTime());
+                }
+                if (eventStream != null) {
+                    eventStream.append(ParkingEvent.vehicleExited(ticket));
+                }
+                if (analytics != null) {
+                    analytics.recordExit(ticket);
+                }
+                console.println("Please pay the parking fare: " + ticket.getPrice());
+                console.println("Recorded out-time for vehicle number: " + ticket.getVehicleRegNumber() + " is: " + outTime);
+                return ticket;
             } else {
-                System.out.println("Unable to update ticket information. Error occurred");
+                console.println("Unable to update ticket information. Error occurred");
             }
 
         } catch (Exception e) {
             logger.error("Unable to process exiting vehicle", e);
         }
+        return null;
     }
 
 
@@ -0,0 +1,83 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.util.PlateCodec;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable set of permit plates with their expiry, compiled once per reload. Plates are kept as
+ * sorted PlateCodec codes, so a lookup encodes the plate in place and binary searches a long[]: no
+ * String compare and no allocation, whatever the number of permits.
+ */
+public final class PermitIndex {
+
+    public static final PermitIndex EMPTY = new Builder().build();
+
+    private final long[] plates;
+    private final long[] validUntil;
+
+    private PermitIndex(long[] plates, long[] validUntil) {
+        this.plates = plates;
+        this.validUntil = validUntil;
+    }
+
+    public boolean isPermitHolder(CharSequence vehicleRegNumber, long at) {
+        int i = find(vehicleRegNumber);
+        return i >= 0 && at < validUntil[i];
+    }
+
+    // end of the plate's permit in epoch millis, 0 if it has none
+    public long getValidUntil(CharSequence vehicleRegNumber) {
+        int i = find(vehicleRegNumber);
+        return (i < 0) ? 0 : validUntil[i];
+    }
+
+    private int find(CharSequence vehicleRegNumber) {
+        long plate = PlateCodec.encode(vehicleRegNumber);
+        return (plate == PlateCodec.INVALID) ? -1 : Arrays.binarySearch(plates, plate);
+    }
+
+    public int size() {
+        return plates.length;
+    }
+
+    /**
+     * Collects permits before the index is compiled. A plate added twice, e.g. a renewal, keeps its
+     * latest expiry; plates PlateCodec rejects are skipped and counted. Not thread-safe.
+     */
+    public static final class Builder {
+
+        private final Map<Long, Long> permits = new HashMap<>();
+        private int skipped;
+
+        public Builder add(String vehicleRegNumber, long validUntil) {
+            long plate = PlateCodec.encode(vehicleRegNumber);
+            if (plate == PlateCodec.INVALID) {
+                skipped++;
+            } else {
+                permits.merge(plate, validUntil, Math::max);
+            }
+            return this;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public PermitIndex build() {
+            long[] plates = new long[permits.size()];
+            int i = 0;
+            for (long plate : permits.keySet()) {
+                plates[i++] = plate;
+            }
+            Arrays.sort(plates);
+            long[] validUntil = new long[plates.length];
+            for (i = 0; i < plates.length; i++) {
+                validUntil[i] = permits.get(plates[i]);
+            }
+            return new PermitIndex(plates, validUntil);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.PermitDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Season-pass and permit holders, who leave without paying. Exits check the current PermitIndex; a
+ * reload compiles a new one from the permit table and swaps it in, so a check never waits on a reload
+ * nor sees half of one. A failed reload keeps the previous index.
+ */
+public class PermitService {
+
+    private static final Logger logger = LogManager.getLogger("PermitService");
+
+    public static final long DEFAULT_RELOAD_PERIOD_MILLIS = 15 * 60 * 1000;
+
+    private final PermitDAO permitDAO;
+    private volatile PermitIndex index = PermitIndex.EMPTY;
+    private ScheduledExecutorService reloadScheduler;
+
+    public PermitService(PermitDAO permitDAO) {
+        this.permitDAO = permitDAO;
+    }
+
+    public boolean reload() {
+        PermitIndex.Builder builder = new PermitIndex.Builder();
+        long count = permitDAO.forEachActivePermit(new Date(), builder::add);
+        if (count < 0) {
+            logger.error("Unable to reload permits, keeping the " + index.size() + " loaded");
+            return false;
+        }
+        if (builder.getSkipped() > 0) {
+            logger.error("Skipped " + builder.getSkipped() + " permits with an invalid plate");
+        }
+        load(builder.build());
+        return true;
+    }
+
+    public void load(PermitIndex permitIndex) {
+        index = permitIndex;
+        logger.info("Loaded " + permitIndex.size() + " permits");
+    }
+
+    public boolean isPermitHolder(CharSequence vehicleRegNumber, long at) {
+        return index.isPermitHolder(vehicleRegNumber, at);
+    }
+
+    public PermitIndex getIndex() {
+        return index;
+    }
+
+    public synchronized void startReload(long periodMillis) {
+        if (reloadScheduler != null) {
+            return;
+        }
+        reloadScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "permit-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reloadScheduler.scheduleAtFixedRate(() -> {
+            try {
+                reload();
+            } catch (RuntimeException e) {
+                logger.error("Unable to reload permits", e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopReload() {
+        if (reloadScheduler != null) {
+            reloadScheduler.shutdown();
+            reloadScheduler = null;
+        }
+    }
+}
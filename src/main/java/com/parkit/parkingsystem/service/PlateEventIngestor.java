@@ -0,0 +1,208 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.PlateEvent;
+import com.parkit.parkingsystem.util.PlateCodec;
+import com.parkit.parkingsystem.util.SlidingWindowDeduplicator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Front stage for camera (ANPR) reads: normalizes plates, drops repeated reads of the same car within
+ * a time window and feeds the remaining events to ParkingService in batches from a single thread.
+ */
+public class PlateEventIngestor {
+
+    private static final Logger logger = LogManager.getLogger("PlateEventIngestor");
+
+    public static final long DEFAULT_DEDUP_WINDOW_MILLIS = 30_000;
+    public static final int DEFAULT_DEDUP_BUCKETS = 6;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final int DEFAULT_QUEUE_CAPACITY = 16_384;
+
+    private final ParkingService parkingService;
+    private final SlidingWindowDeduplicator deduplicator;
+    private final BlockingQueue<PlateEvent> queue;
+    private final int batchSize;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong dispatched = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public PlateEventIngestor(ParkingService parkingService) {
+        this(parkingService, DEFAULT_DEDUP_WINDOW_MILLIS, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public PlateEventIngestor(ParkingService parkingService, long dedupWindowMillis, int batchSize, int queueCapacity) {
+        this.parkingService = parkingService;
+        this.deduplicator = new SlidingWindowDeduplicator(dedupWindowMillis, DEFAULT_DEDUP_BUCKETS);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+    }
+
+    public static String normalizePlate(String plate) {
+        return PlateCodec.normalize(plate);
+    }
+
+    /**
+     * Queues a read without blocking the camera feed; returns false if the event is invalid,
+     * a repeat of a read within the dedup window, or the queue is full.
+     */
+    public boolean offer(PlateEvent event) {
+        received.incrementAndGet();
+        long plate = PlateCodec.encode(event.getVehicleRegNumber());
+        if (plate == PlateCodec.INVALID || event.getDirection() == null
+                || (event.getDirection() == PlateEvent.Direction.ENTRY && event.getParkingType() == null)) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        // plate codes use 53 bits, the direction fits below them; repeats are dropped before any String is built
+        long key = (plate << 1) | event.getDirection().ordinal();
+        if (deduplicator.isDuplicate(key, event.getTimestamp())) {
+            duplicates.incrementAndGet();
+            return false;
+        }
+        PlateEvent normalized = new PlateEvent(PlateCodec.decode(plate), event.getParkingType(), event.getDirection(),
+                event.getTimestamp());
+        if (!queue.offer(normalized)) {
+            rejected.incrementAndGet();
+            logger.error("Plate event queue full, dropping " + normalized);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads a local feed of "timestamp;plate;ENTRY|EXIT;CAR|BIKE" lines.
+     */
+    public long ingest(BufferedReader feed) throws IOException {
+        long accepted = 0;
+        String line;
+        while ((line = feed.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            PlateEvent event = parse(line);
+            if (event == null) {
+                received.incrementAndGet();
+                rejected.incrementAndGet();
+            } else if (offer(event)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    // one feed line, null if it cannot be read; also used to replay feeds in simulations
+    public static PlateEvent parse(String line) {
+        String[] fields = line.split(";");
+        if (fields.length < 3) {
+            return null;
+        }
+        try {
+            long timestamp = Long.parseLong(fields[0].trim());
+            PlateEvent.Direction direction = PlateEvent.Direction.valueOf(fields[2].trim().toUpperCase());
+            ParkingType parkingType = (fields.length > 3) ? ParkingType.valueOf(fields[3].trim().toUpperCase()) : null;
+            return new PlateEvent(fields[1], parkingType, direction, timestamp);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid plate event: " + line, e);
+            return null;
+        }
+    }
+
+    /**
+     * Dispatches up to one batch of queued events and returns how many were handed to ParkingService.
+     */
+    public int drainBatch() {
+        List<PlateEvent> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+        queue.drainTo(batch, batchSize);
+        return dispatch(batch);
+    }
+
+    private int dispatch(List<PlateEvent> batch) {
+        int count = 0;
+        for (PlateEvent event : batch) {
+            if (event.getDirection() == PlateEvent.Direction.ENTRY) {
+                parkingService.processIncomingVehicle(event.getVehicleRegNumber(), event.getParkingType());
+            } else {
+                parkingService.processExitingVehicle(event.getVehicleRegNumber());
+            }
+            count++;
+        }
+        dispatched.addAndGet(count);
+        return count;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "plate-event-ingestor");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                PlateEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    List<PlateEvent> batch = new ArrayList<>();
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    dispatch(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException e) {
+                logger.error("Error dispatching plate events", e);
+            }
+        }
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.join();
+            worker = null;
+        }
+        while (!queue.isEmpty()) {
+            drainBatch();
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    public long getDispatchedCount() {
+        return dispatched.get();
+    }
+}
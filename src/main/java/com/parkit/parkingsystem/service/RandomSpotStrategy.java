@@ -0,0 +1,76 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * Uniformly random free spot. Free spots live in a dense array with an index of their positions, so
+ * adding and removing are a swap with the last element.
+ */
+public class RandomSpotStrategy implements SpotSelectionStrategy {
+
+    private final Random random;
+    private final Map<Integer, Integer> positions = new HashMap<>();
+    private int[] freeSpots = new int[16];
+    private int size;
+
+    public RandomSpotStrategy() {
+        this(new Random());
+    }
+
+    public RandomSpotStrategy(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    public void addFreeSpot(int parkingNumber) {
+        if (positions.containsKey(parkingNumber)) {
+            return;
+        }
+        if (size == freeSpots.length) {
+            freeSpots = Arrays.copyOf(freeSpots, size * 2);
+        }
+        freeSpots[size] = parkingNumber;
+        positions.put(parkingNumber, size);
+        size++;
+    }
+
+    @Override
+    public void removeFreeSpot(int parkingNumber) {
+        Integer position = positions.remove(parkingNumber);
+        if (position == null) {
+            return;
+        }
+        size--;
+        if (position != size) {
+            int last = freeSpots[size];
+            freeSpots[position] = last;
+            positions.put(last, position);
+        }
+    }
+
+    @Override
+    public int takeFreeSpot(IntPredicate eligible) {
+        if (size == 0) {
+            return -1;
+        }
+        // uniform when every spot is eligible, and a scan from the random offset when some are held
+        int start = random.nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int parkingNumber = freeSpots[(start + i) % size];
+            if (eligible.test(parkingNumber)) {
+                removeFreeSpot(parkingNumber);
+                return parkingNumber;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,204 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.ReconciliationDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.ReconciliationReport;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * Finds where the parking and ticket tables of a lot disagree: occupied spots without an open ticket
+ * (an entry that failed after updating its spot, or an exit that failed after closing its ticket), free
+ * spots with an open ticket, and plates with several open tickets. The lot is read in ranges of parking
+ * numbers split fork-join style across a few connections, checked in memory, then fixed in batches.
+ */
+public class ReconciliationService {
+
+    private static final Logger logger = LogManager.getLogger("ReconciliationService");
+
+    public static final int DEFAULT_RANGE_SIZE = 2_000;
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final ReconciliationDAO reconciliationDAO;
+    private final int rangeSize;
+    private final int parallelism;
+    private final int batchSize;
+    private IntPredicate spotsInUse = parkingNumber -> false;
+
+    public ReconciliationService(ReconciliationDAO reconciliationDAO) {
+        this(reconciliationDAO, DEFAULT_RANGE_SIZE, DEFAULT_PARALLELISM, DEFAULT_BATCH_SIZE);
+    }
+
+    // parallelism should not exceed the connections the DAO's DataBaseConfig can hand out
+    public ReconciliationService(ReconciliationDAO reconciliationDAO, int rangeSize, int parallelism, int batchSize) {
+        if (rangeSize <= 0 || parallelism <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Range size, parallelism and batch size must be positive");
+        }
+        this.reconciliationDAO = reconciliationDAO;
+        this.rangeSize = rangeSize;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Occupied spots accepted by the predicate are not reported nor freed although they have no open
+     * ticket in DB, e.g. spots given to an entry that has not saved its ticket yet, or whose ticket is
+     * only journaled.
+     */
+    public void setSpotsInUse(IntPredicate spotsInUse) {
+        this.spotsInUse = spotsInUse;
+    }
+
+    private final class ScanTask extends RecursiveTask<ReconciliationDAO.RangeScan> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        ScanTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ReconciliationDAO.RangeScan compute() {
+            if ((long) to - from < rangeSize) {
+                return reconciliationDAO.scanRange(from, to);
+            }
+            int mid = (int) (((long) from + to) / 2);
+            ScanTask lower = new ScanTask(from, mid);
+            lower.fork();
+            ReconciliationDAO.RangeScan upper = new ScanTask(mid + 1, to).compute();
+            return lower.join().merge(upper);
+        }
+    }
+
+    /**
+     * Checks the whole lot and, if applyFixes is set, closes duplicate tickets (the newest one of a
+     * plate stays open), frees occupied spots without an open ticket and occupies free spots that have
+     * one. Returns null if the lot could not be read.
+     */
+    public ReconciliationReport reconcile(boolean applyFixes) {
+        long start = System.nanoTime();
+        int lotId = reconciliationDAO.getLotId();
+        int[] range = reconciliationDAO.getParkingNumberRange();
+        if (range == null) {
+            logger.error("Unable to read the parking numbers of lot " + lotId + ", nothing reconciled");
+            return null;
+        }
+        ReconciliationDAO.RangeScan scan;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            scan = pool.invoke(new ScanTask(range[0], range[1]));
+        } catch (RuntimeException e) {
+            logger.error("Unable to scan lot " + lotId + ", nothing reconciled", e);
+            return null;
+        } finally {
+            pool.shutdown();
+        }
+
+        Map<String, Ticket> newestByPlate = new HashMap<>();
+        List<Ticket> duplicateOpenTickets = new ArrayList<>();
+        for (Ticket ticket : scan.openTickets) {
+            Ticket newest = newestByPlate.get(ticket.getVehicleRegNumber());
+            if (newest == null) {
+                newestByPlate.put(ticket.getVehicleRegNumber(), ticket);
+            } else if (isNewer(ticket, newest)) {
+                duplicateOpenTickets.add(newest);
+                newestByPlate.put(ticket.getVehicleRegNumber(), ticket);
+            } else {
+                duplicateOpenTickets.add(ticket);
+            }
+        }
+        for (Ticket duplicate : duplicateOpenTickets) {
+            duplicate.setOutTime(newestByPlate.get(duplicate.getVehicleRegNumber()).getInTime());
+            duplicate.setPrice(0);
+        }
+
+        Map<Integer, String> plateBySpot = new HashMap<>();
+        Set<Integer> spotsWithSeveralPlates = new HashSet<>();
+        for (Ticket ticket : newestByPlate.values()) {
+            String previous = plateBySpot.putIfAbsent(ticket.getParkingSpot().getId(), ticket.getVehicleRegNumber());
+            if (previous != null) {
+                spotsWithSeveralPlates.add(ticket.getParkingSpot().getId());
+            }
+        }
+
+        List<ParkingSpot> occupiedWithoutTicket = new ArrayList<>();
+        List<ParkingSpot> freeWithOpenTicket = new ArrayList<>();
+        Set<Integer> spotNumbers = new HashSet<>(scan.parkingSpots.size() * 2);
+        for (ParkingSpot parkingSpot : scan.parkingSpots) {
+            spotNumbers.add(parkingSpot.getId());
+            boolean hasOpenTicket = plateBySpot.containsKey(parkingSpot.getId());
+            if (!parkingSpot.isAvailable() && !hasOpenTicket && !spotsInUse.test(parkingSpot.getId())) {
+                occupiedWithoutTicket.add(parkingSpot);
+            } else if (parkingSpot.isAvailable() && hasOpenTicket) {
+                freeWithOpenTicket.add(parkingSpot);
+            }
+        }
+        int ticketsWithoutSpot = 0;
+        for (Integer parkingNumber : plateBySpot.keySet()) {
+            if (!spotNumbers.contains(parkingNumber)) {
+                ticketsWithoutSpot++;
+            }
+        }
+
+        int ticketsClosed = 0;
+        List<ParkingSpot> spotsFreed = Collections.emptyList();
+        List<ParkingSpot> spotsOccupied = Collections.emptyList();
+        if (applyFixes) {
+            // duplicates first, a spot is only freed once none of its tickets is open
+            ticketsClosed = reconciliationDAO.closeTickets(duplicateOpenTickets, batchSize).size();
+            spotsFreed = changedSpots(occupiedWithoutTicket,
+                    reconciliationDAO.freeSpots(parkingNumbers(occupiedWithoutTicket), batchSize));
+            spotsOccupied = changedSpots(freeWithOpenTicket,
+                    reconciliationDAO.occupySpots(parkingNumbers(freeWithOpenTicket), batchSize));
+        }
+
+        ReconciliationReport report = new ReconciliationReport(lotId, scan.parkingSpots.size(), scan.openTickets.size(),
+                Collections.unmodifiableList(occupiedWithoutTicket), Collections.unmodifiableList(freeWithOpenTicket),
+                Collections.unmodifiableList(duplicateOpenTickets), spotsWithSeveralPlates.size(), ticketsWithoutSpot,
+                ticketsClosed, spotsFreed, spotsOccupied, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        logger.info(report);
+        return report;
+    }
+
+    private static boolean isNewer(Ticket ticket, Ticket other) {
+        int byInTime = ticket.getInTime().compareTo(other.getInTime());
+        return (byInTime != 0) ? byInTime > 0 : ticket.getId() > other.getId();
+    }
+
+    private static List<ParkingSpot> changedSpots(List<ParkingSpot> candidates, List<Integer> changedNumbers) {
+        Set<Integer> changed = new HashSet<>(changedNumbers);
+        List<ParkingSpot> parkingSpots = new ArrayList<>(changed.size());
+        for (ParkingSpot parkingSpot : candidates) {
+            if (changed.contains(parkingSpot.getId())) {
+                parkingSpots.add(parkingSpot);
+            }
+        }
+        return parkingSpots;
+    }
+
+    private static List<Integer> parkingNumbers(List<ParkingSpot> parkingSpots) {
+        List<Integer> parkingNumbers = new ArrayList<>(parkingSpots.size());
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            parkingNumbers.add(parkingSpot.getId());
+        }
+        return parkingNumbers;
+    }
+}
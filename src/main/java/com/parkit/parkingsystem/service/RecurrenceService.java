@@ -0,0 +1,211 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.util.ScalableBloomFilter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers "has this plate parked here more than once?" without a count query for plates that
+ * definitely have not. A plate goes into the seen filter on its first ticket and into the recurrent
+ * filter on the next one; a negative from the recurrent filter is exact, a positive still has to be
+ * confirmed with TicketDAO.getNbTicket.
+ *
+ * Until the filters have been built from the ticket table or a snapshot, every plate might be
+ * recurrent, so exits fall back to the count query rather than lose a discount. Tickets recorded
+ * while a rebuild streams the table are replayed into the new filters before they are swapped in.
+ */
+public class RecurrenceService {
+
+    private static final Logger logger = LogManager.getLogger("RecurrenceService");
+
+    public static final long DEFAULT_EXPECTED_PLATES = 100_000;
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+    // covers clock drift between the app and the DB when replaying tickets newer than a snapshot
+    public static final long SNAPSHOT_REPLAY_MARGIN_MILLIS = 60_000;
+
+    private final long expectedPlates;
+    private final double falsePositiveRate;
+
+    private volatile ScalableBloomFilter seen;
+    private volatile ScalableBloomFilter recurrent;
+    private volatile boolean built;
+    // plates recorded during a rebuild, null when none is running
+    private List<String> recordedDuringRebuild;
+    private volatile TicketDAO ticketDAO;
+    private ScheduledExecutorService snapshotScheduler;
+
+    public RecurrenceService() {
+        this(DEFAULT_EXPECTED_PLATES, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    public RecurrenceService(long expectedPlates, double falsePositiveRate) {
+        this.expectedPlates = expectedPlates;
+        this.falsePositiveRate = falsePositiveRate;
+        this.seen = new ScalableBloomFilter(expectedPlates, falsePositiveRate);
+        this.recurrent = new ScalableBloomFilter(expectedPlates, falsePositiveRate);
+    }
+
+    public synchronized void recordTicket(String vehicleRegNumber) {
+        record(seen, recurrent, vehicleRegNumber);
+        if (recordedDuringRebuild != null) {
+            recordedDuringRebuild.add(vehicleRegNumber);
+        }
+    }
+
+    private static void record(ScalableBloomFilter seen, ScalableBloomFilter recurrent, String vehicleRegNumber) {
+        if (seen.mightContain(vehicleRegNumber)) {
+            recurrent.add(vehicleRegNumber);
+        } else {
+            seen.add(vehicleRegNumber);
+        }
+    }
+
+    public boolean mightBeRecurrent(String vehicleRegNumber) {
+        return !built || recurrent.mightContain(vehicleRegNumber);
+    }
+
+    // false until a rebuild or a snapshot load succeeded
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Builds the filters from a snapshot if there is one, replaying the tickets saved since it was
+     * taken, otherwise from the ticket counts of the whole table.
+     */
+    public boolean load(TicketDAO ticketDAO, Path snapshot) {
+        this.ticketDAO = ticketDAO;
+        long snapshotTime = (snapshot != null && Files.exists(snapshot)) ? loadSnapshot(snapshot) : -1;
+        if (snapshotTime < 0) {
+            return rebuild(ticketDAO);
+        }
+        long replayed = ticketDAO.forEachPlateSince(new Date(snapshotTime - SNAPSHOT_REPLAY_MARGIN_MILLIS), this::recordTicket);
+        if (replayed < 0) {
+            // the snapshot misses the newest tickets, its negatives cannot be trusted
+            built = false;
+            logger.error("Unable to replay tickets newer than the recurrence snapshot, rebuilding");
+            return rebuild(ticketDAO);
+        }
+        logger.info("Loaded recurrence snapshot and replayed " + replayed + " newer tickets");
+        return true;
+    }
+
+    /**
+     * Builds new filters from the ticket counts of the whole table. On failure the current filters
+     * stay, and so does the fallback to count queries if none was ever built.
+     */
+    public boolean rebuild(TicketDAO ticketDAO) {
+        this.ticketDAO = ticketDAO;
+        ScalableBloomFilter newSeen = new ScalableBloomFilter(expectedPlates, falsePositiveRate);
+        ScalableBloomFilter newRecurrent = new ScalableBloomFilter(expectedPlates, falsePositiveRate);
+        synchronized (this) {
+            recordedDuringRebuild = new ArrayList<>();
+        }
+        long plates = ticketDAO.forEachPlateCount((vehicleRegNumber, nbTickets) -> {
+            newSeen.add(vehicleRegNumber);
+            if (nbTickets > 1) {
+                newRecurrent.add(vehicleRegNumber);
+            }
+        });
+        synchronized (this) {
+            List<String> recorded = recordedDuringRebuild;
+            recordedDuringRebuild = null;
+            if (plates < 0) {
+                logger.error("Unable to build recurrence filters" + (built ? ", keeping the current ones" : ", counting tickets on every exit"));
+                return false;
+            }
+            // a ticket saved before the scan reached its plate is counted twice, a positive the count query corrects
+            for (String vehicleRegNumber : recorded) {
+                record(newSeen, newRecurrent, vehicleRegNumber);
+            }
+            seen = newSeen;
+            recurrent = newRecurrent;
+            built = true;
+        }
+        logger.info("Built recurrence filters from " + plates + " plates");
+        return true;
+    }
+
+    // writes nothing and returns false while the filters are not built, an empty filter would be taken as exact
+    public synchronized boolean saveSnapshot(Path snapshot) throws IOException {
+        if (!built) {
+            return false;
+        }
+        long snapshotTime = System.currentTimeMillis();
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeLong(snapshotTime);
+            seen.writeTo(out);
+            recurrent.writeTo(out);
+        }
+        Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    // returns the time the snapshot was taken, or -1 if it could not be read
+    public synchronized long loadSnapshot(Path snapshot) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            long snapshotTime = in.readLong();
+            ScalableBloomFilter loadedSeen = ScalableBloomFilter.readFrom(in);
+            ScalableBloomFilter loadedRecurrent = ScalableBloomFilter.readFrom(in);
+            seen = loadedSeen;
+            recurrent = loadedRecurrent;
+            built = true;
+            return snapshotTime;
+        } catch (IOException e) {
+            logger.error("Unable to read recurrence snapshot " + snapshot, e);
+            return -1;
+        }
+    }
+
+    public synchronized void startSnapshots(Path snapshot, long periodMillis) {
+        if (snapshotScheduler != null) {
+            return;
+        }
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recurrence-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotScheduler.scheduleAtFixedRate(() -> {
+            try {
+                TicketDAO dao = ticketDAO;
+                if (!built && dao != null) {
+                    rebuild(dao);
+                }
+                if (!saveSnapshot(snapshot)) {
+                    logger.error("Recurrence filters not built, no snapshot written to " + snapshot);
+                }
+            } catch (IOException e) {
+                logger.error("Unable to write recurrence snapshot " + snapshot, e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopSnapshots() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdown();
+            snapshotScheduler = null;
+        }
+    }
+
+    public long getSizeInBytes() {
+        return seen.getSizeInBytes() + recurrent.getSizeInBytes();
+    }
+}
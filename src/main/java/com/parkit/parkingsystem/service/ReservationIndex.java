@@ -0,0 +1,218 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Per-spot booked intervals [start, end) in epoch millis. Bookings of one spot never overlap, so the
+ * booking with the greatest start before the end of a query is the only one that can collide with it:
+ * a free/busy check is a single TreeMap floor lookup.
+ *
+ * Bookings are also kept per parking type ordered by start. No booking lasts longer than the longest
+ * one, so those overlapping a query all start within that length before it: type-level queries cost
+ * O(log n + k) for k overlapping bookings, whatever the number of spots.
+ */
+public class ReservationIndex {
+
+    private static final Comparator<Booking> BY_START = Comparator.<Booking>comparingLong(booking -> booking.start)
+            .thenComparingInt(booking -> booking.parkingNumber);
+
+    private final Map<Integer, TreeMap<Long, Long>> bookingsBySpot = new HashMap<>();
+    private final Map<Integer, ParkingType> typeBySpot = new HashMap<>();
+    private final Map<ParkingType, NavigableSet<Integer>> spotsByType = new EnumMap<>(ParkingType.class);
+    private final Map<ParkingType, TreeSet<Booking>> bookingsByType = new EnumMap<>(ParkingType.class);
+    private final Map<ParkingType, Long> longestByType = new EnumMap<>(ParkingType.class);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void registerSpot(int parkingNumber, ParkingType parkingType) {
+        lock.writeLock().lock();
+        try {
+            if (bookingsBySpot.putIfAbsent(parkingNumber, new TreeMap<>()) == null) {
+                typeBySpot.put(parkingNumber, parkingType);
+                spotsByType.computeIfAbsent(parkingType, type -> new TreeSet<>()).add(parkingNumber);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isFree(int parkingNumber, long from, long to) {
+        lock.readLock().lock();
+        try {
+            TreeMap<Long, Long> bookings = bookingsBySpot.get(parkingNumber);
+            return bookings != null && isFree(bookings, from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean hasBookingBetween(int parkingNumber, long from, long to) {
+        lock.readLock().lock();
+        try {
+            TreeMap<Long, Long> bookings = bookingsBySpot.get(parkingNumber);
+            return bookings != null && !isFree(bookings, from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean isFree(TreeMap<Long, Long> bookings, long from, long to) {
+        Map.Entry<Long, Long> before = bookings.lowerEntry(to);
+        return before == null || before.getValue() <= from;
+    }
+
+    public boolean reserve(int parkingNumber, long from, long to) {
+        if (to <= from) {
+            throw new IllegalArgumentException("Reservation must end after it starts");
+        }
+        lock.writeLock().lock();
+        try {
+            TreeMap<Long, Long> bookings = bookingsBySpot.get(parkingNumber);
+            if (bookings == null || !isFree(bookings, from, to)) {
+                return false;
+            }
+            bookings.put(from, to);
+            ParkingType parkingType = typeBySpot.get(parkingNumber);
+            bookingsByType.computeIfAbsent(parkingType, type -> new TreeSet<>(BY_START))
+                    .add(new Booking(from, parkingNumber, to));
+            longestByType.merge(parkingType, to - from, Math::max);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean release(int parkingNumber, long from) {
+        lock.writeLock().lock();
+        try {
+            TreeMap<Long, Long> bookings = bookingsBySpot.get(parkingNumber);
+            Long to = (bookings == null) ? null : bookings.remove(from);
+            if (to == null) {
+                return false;
+            }
+            bookingsByType.get(typeBySpot.get(parkingNumber)).remove(new Booking(from, parkingNumber, to));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // spots of the type with a booking overlapping [from, to); only allocated when there is one
+    private Set<Integer> getBusySpots(ParkingType parkingType, long from, long to) {
+        Set<Integer> busy = Collections.emptySet();
+        TreeSet<Booking> bookings = bookingsByType.get(parkingType);
+        if (bookings == null) {
+            return busy;
+        }
+        long longest = longestByType.getOrDefault(parkingType, 0L);
+        Booking lowest = new Booking(from - longest, Integer.MAX_VALUE, 0);
+        Booking highest = new Booking(to, Integer.MIN_VALUE, 0);
+        for (Booking booking : bookings.subSet(lowest, false, highest, false)) {
+            if (booking.end > from) {
+                if (busy.isEmpty()) {
+                    busy = new HashSet<>();
+                }
+                busy.add(booking.parkingNumber);
+            }
+        }
+        return busy;
+    }
+
+    private NavigableSet<Integer> getSpots(ParkingType parkingType) {
+        return spotsByType.getOrDefault(parkingType, Collections.emptyNavigableSet());
+    }
+
+    public int findFreeSpot(ParkingType parkingType, long from, long to) {
+        return findFreeSpot(parkingType, from, to, parkingNumber -> true);
+    }
+
+    /**
+     * Lowest numbered spot of the type free over [from, to) and accepted by the filter, or -1. Only
+     * spots rejected along the way are walked, not the whole type, each with one floor lookup.
+     */
+    public int findFreeSpot(ParkingType parkingType, long from, long to, IntPredicate eligible) {
+        lock.readLock().lock();
+        try {
+            for (int parkingNumber : getSpots(parkingType)) {
+                if (isFree(bookingsBySpot.get(parkingNumber), from, to) && eligible.test(parkingNumber)) {
+                    return parkingNumber;
+                }
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> getFreeSpots(ParkingType parkingType, long from, long to) {
+        lock.readLock().lock();
+        try {
+            Set<Integer> busy = getBusySpots(parkingType, from, to);
+            List<Integer> free = new ArrayList<>();
+            for (int parkingNumber : getSpots(parkingType)) {
+                if (!busy.contains(parkingNumber)) {
+                    free.add(parkingNumber);
+                }
+            }
+            return free;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countFreeSpots(ParkingType parkingType, long from, long to) {
+        lock.readLock().lock();
+        try {
+            return getSpots(parkingType).size() - getBusySpots(parkingType, from, to).size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // drops bookings that ended before the given time so the trees only hold the future
+    public void evictEndedBefore(long time) {
+        lock.writeLock().lock();
+        try {
+            for (TreeMap<Long, Long> bookings : bookingsBySpot.values()) {
+                bookings.values().removeIf(end -> end <= time);
+            }
+            longestByType.clear();
+            for (Map.Entry<ParkingType, TreeSet<Booking>> entry : bookingsByType.entrySet()) {
+                entry.getValue().removeIf(booking -> booking.end <= time);
+                for (Booking booking : entry.getValue()) {
+                    longestByType.merge(entry.getKey(), booking.end - booking.start, Math::max);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final class Booking {
+
+        private final long start;
+        private final int parkingNumber;
+        private final long end;
+
+        Booking(long start, int parkingNumber, long end) {
+            this.start = start;
+            this.parkingNumber = parkingNumber;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.util.PlateCodec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+public class ReservationService {
+
+    private static final Logger logger = LogManager.getLogger("ReservationService");
+
+    public static final long DEFAULT_WALK_IN_HOLD_MILLIS = 2 * 60 * 60 * 1000L;
+    public static final long DEFAULT_EVICTION_PERIOD_MILLIS = 15 * 60 * 1000L;
+
+    private final ReservationDAO reservationDAO;
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final ReservationIndex index = new ReservationIndex();
+    private final Map<String, List<Reservation>> reservationsByPlate = new HashMap<>();
+    private final long walkInHoldMillis;
+    private Clock clock = Clock.systemDefaultZone();
+    private ScheduledExecutorService evictionScheduler;
+
+    public ReservationService(ReservationDAO reservationDAO, ParkingSpotDAO parkingSpotDAO) {
+        this(reservationDAO, parkingSpotDAO, DEFAULT_WALK_IN_HOLD_MILLIS);
+    }
+
+    public ReservationService(ReservationDAO reservationDAO, ParkingSpotDAO parkingSpotDAO, long walkInHoldMillis) {
+        this.reservationDAO = reservationDAO;
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.walkInHoldMillis = walkInHoldMillis;
+    }
+
+    // tells how soon a booking starts, for the occupancy check of book(), and what has ended for eviction
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public synchronized void load(Date now) {
+        for (ParkingSpot parkingSpot : parkingSpotDAO.getParkingSpots()) {
+            index.registerSpot(parkingSpot.getId(), parkingSpot.getParkingType());
+        }
+        List<Reservation> reservations = reservationDAO.getReservationsEndingAfter(now);
+        for (Reservation reservation : reservations) {
+            if (index.reserve(reservation.getParkingNumber(), reservation.getStartTime().getTime(),
+                    reservation.getEndTime().getTime()) && !reservation.isClaimed()) {
+                addByPlate(reservation);
+            }
+        }
+        logger.info("Loaded " + reservations.size() + " upcoming reservations");
+    }
+
+    /**
+     * Books a spot of the type over [startTime, endTime). A booking starting within the walk-in hold
+     * only gets a spot free right now, a walk-in parked before the hold could still be there.
+     */
+    public synchronized Reservation book(String vehicleRegNumber, ParkingType parkingType, Date startTime, Date endTime) {
+        long from = startTime.getTime();
+        long to = endTime.getTime();
+        IntPredicate eligible = parkingNumber -> true;
+        if (from < clock.millis() + walkInHoldMillis) {
+            Set<Integer> available = new HashSet<>(parkingSpotDAO.getAvailableSlots(parkingType));
+            eligible = available::contains;
+        }
+        int parkingNumber = index.findFreeSpot(parkingType, from, to, eligible);
+        if (parkingNumber < 0 || !index.reserve(parkingNumber, from, to)) {
+            return null;
+        }
+        Reservation reservation = new Reservation();
+        reservation.setParkingNumber(parkingNumber);
+        reservation.setParkingType(parkingType);
+        reservation.setVehicleRegNumber(vehicleRegNumber);
+        reservation.setStartTime(startTime);
+        reservation.setEndTime(endTime);
+        if (reservationDAO.saveReservation(reservation) < 0) {
+            index.release(parkingNumber, from);
+            return null;
+        }
+        addByPlate(reservation);
+        return reservation;
+    }
+
+    public synchronized boolean cancel(Reservation reservation) {
+        if (!reservationDAO.deleteReservation(reservation.getId())) {
+            return false;
+        }
+        index.release(reservation.getParkingNumber(), reservation.getStartTime().getTime());
+        List<Reservation> reservations = reservationsByPlate.get(plateKey(reservation.getVehicleRegNumber()));
+        if (reservations != null) {
+            reservations.removeIf(booked -> booked.getId() == reservation.getId());
+        }
+        return true;
+    }
+
+    /**
+     * The booking of this plate and type a car arriving now can park on: from the walk-in hold
+     * before its start, during which the spot is kept from walk-ins, until its end. Null if none.
+     */
+    public synchronized Reservation findClaimable(String vehicleRegNumber, ParkingType parkingType, long now) {
+        for (Reservation reservation : reservationsByPlate.getOrDefault(plateKey(vehicleRegNumber), List.of())) {
+            if (reservation.getParkingType() == parkingType
+                    && reservation.getStartTime().getTime() - walkInHoldMillis <= now
+                    && now < reservation.getEndTime().getTime()) {
+                return reservation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Consumes the booking its car just parked on, so the plate cannot claim it again. The spot stays
+     * booked until the end, leaving the car its time. False if the claim could not be saved, a restart
+     * would then let the plate claim it again.
+     */
+    public synchronized boolean claim(Reservation reservation) {
+        List<Reservation> reservations = reservationsByPlate.get(plateKey(reservation.getVehicleRegNumber()));
+        if (reservations != null) {
+            reservations.removeIf(booked -> booked.getId() == reservation.getId());
+            if (reservations.isEmpty()) {
+                reservationsByPlate.remove(plateKey(reservation.getVehicleRegNumber()));
+            }
+        }
+        reservation.setClaimed(true);
+        if (!reservationDAO.claimReservation(reservation.getId())) {
+            logger.error("Claim of reservation " + reservation.getId() + " not saved");
+            return false;
+        }
+        return true;
+    }
+
+    private void addByPlate(Reservation reservation) {
+        reservationsByPlate.computeIfAbsent(plateKey(reservation.getVehicleRegNumber()), plate -> new ArrayList<>())
+                .add(reservation);
+    }
+
+    // bookings made before plates were normalized are still found
+    private static String plateKey(String vehicleRegNumber) {
+        String plate = PlateCodec.normalize(vehicleRegNumber);
+        return (plate == null) ? vehicleRegNumber : plate;
+    }
+
+    // a walk-in could stay for a while, so spots booked soon are kept for their owners
+    public boolean isHeldForReservation(int parkingNumber, long now) {
+        return index.hasBookingBetween(parkingNumber, now, now + walkInHoldMillis);
+    }
+
+    public boolean isFree(int parkingNumber, Date from, Date to) {
+        return index.isFree(parkingNumber, from.getTime(), to.getTime());
+    }
+
+    public List<Integer> getFreeSpots(ParkingType parkingType, Date from, Date to) {
+        return index.getFreeSpots(parkingType, from.getTime(), to.getTime());
+    }
+
+    public Map<ParkingType, Integer> countFreeSpots(Date from, Date to) {
+        Map<ParkingType, Integer> counts = new EnumMap<>(ParkingType.class);
+        for (ParkingType parkingType : ParkingType.values()) {
+            counts.put(parkingType, index.countFreeSpots(parkingType, from.getTime(), to.getTime()));
+        }
+        return counts;
+    }
+
+    public synchronized void evictEndedBefore(Date time) {
+        index.evictEndedBefore(time.getTime());
+        reservationsByPlate.values().removeIf(reservations -> {
+            reservations.removeIf(reservation -> reservation.getEndTime().getTime() <= time.getTime());
+            return reservations.isEmpty();
+        });
+    }
+
+    public synchronized void startEviction(long periodMillis) {
+        if (evictionScheduler != null) {
+            return;
+        }
+        evictionScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictionScheduler.scheduleAtFixedRate(() -> {
+            try {
+                evictEndedBefore(new Date(clock.millis()));
+            } catch (RuntimeException e) {
+                logger.error("Unable to evict ended reservations", e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopEviction() {
+        if (evictionScheduler != null) {
+            evictionScheduler.shutdown();
+            evictionScheduler = null;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Hands out the first free spot after the last one handed out, wrapping around, so every spot of
+ * the lot gets used in turn.
+ */
+public class RoundRobinSpotStrategy implements SpotSelectionStrategy {
+
+    private final TreeSet<Integer> freeSpots = new TreeSet<>();
+    private int cursor = Integer.MIN_VALUE;
+
+    @Override
+    public void addFreeSpot(int parkingNumber) {
+        freeSpots.add(parkingNumber);
+    }
+
+    @Override
+    public void removeFreeSpot(int parkingNumber) {
+        freeSpots.remove(parkingNumber);
+    }
+
+    @Override
+    public int takeFreeSpot(IntPredicate eligible) {
+        int remaining = freeSpots.size();
+        Integer candidate = freeSpots.higher(cursor);
+        while (remaining-- > 0) {
+            if (candidate == null) {
+                candidate = freeSpots.first();
+            }
+            if (eligible.test(candidate)) {
+                freeSpots.remove(candidate);
+                cursor = candidate;
+                return candidate;
+            }
+            candidate = freeSpots.higher(candidate);
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return freeSpots.size();
+    }
+}
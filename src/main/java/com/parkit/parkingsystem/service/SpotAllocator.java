@@ -0,0 +1,117 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * In-memory index of the free spots of one lot, so picking a spot no longer goes through
+ * GET_NEXT_PARKING_SPOT and the same low-numbered rows. Like the open-ticket store, it assumes this
+ * process is the only one assigning spots in its lot.
+ */
+public class SpotAllocator {
+
+    private static final Logger logger = LogManager.getLogger("SpotAllocator");
+
+    private final Map<ParkingType, SpotSelectionStrategy> strategies = new EnumMap<>(ParkingType.class);
+    private final int[] capacities = new int[ParkingType.values().length];
+    // handed out to an entry that has not saved or journaled its ticket yet
+    private final Set<Integer> held = ConcurrentHashMap.newKeySet();
+
+    public SpotAllocator(Supplier<SpotSelectionStrategy> strategyFactory) {
+        for (ParkingType parkingType : ParkingType.values()) {
+            strategies.put(parkingType, strategyFactory.get());
+        }
+    }
+
+    public void load(ParkingSpotDAO parkingSpotDAO) {
+        int free = 0;
+        for (ParkingSpot parkingSpot : parkingSpotDAO.getParkingSpots()) {
+            capacities[parkingSpot.getParkingType().ordinal()]++;
+            if (parkingSpot.isAvailable()) {
+                release(parkingSpot);
+                free++;
+            }
+        }
+        logger.info("Loaded " + free + " free spots in lot " + parkingSpotDAO.getLotId());
+    }
+
+    /**
+     * Takes a free spot of the given type accepted by the filter, or returns 0 when there is none.
+     */
+    public int allocate(ParkingType parkingType, IntPredicate eligible) {
+        SpotSelectionStrategy strategy = strategies.get(parkingType);
+        synchronized (strategy) {
+            int parkingNumber = strategy.takeFreeSpot(eligible);
+            if (parkingNumber <= 0) {
+                return 0;
+            }
+            held.add(parkingNumber);
+            return parkingNumber;
+        }
+    }
+
+    // takes this very spot, e.g. a booked one; false if it is not free
+    public boolean take(ParkingType parkingType, int parkingNumber) {
+        SpotSelectionStrategy strategy = strategies.get(parkingType);
+        synchronized (strategy) {
+            int free = strategy.size();
+            strategy.removeFreeSpot(parkingNumber);
+            if (strategy.size() == free) {
+                return false;
+            }
+            held.add(parkingNumber);
+            return true;
+        }
+    }
+
+    public void release(ParkingSpot parkingSpot) {
+        SpotSelectionStrategy strategy = strategies.get(parkingSpot.getParkingType());
+        synchronized (strategy) {
+            strategy.addFreeSpot(parkingSpot.getId());
+            held.remove(parkingSpot.getId());
+        }
+    }
+
+    // the entry given this spot saved or journaled its ticket
+    public void confirm(ParkingSpot parkingSpot) {
+        held.remove(parkingSpot.getId());
+    }
+
+    /**
+     * Whether the spot was handed out to an entry still on its way to saving its ticket. The DB then
+     * shows it occupied without an open ticket, and it must not be freed.
+     */
+    public boolean isHeld(int parkingNumber) {
+        return held.contains(parkingNumber);
+    }
+
+    // for a spot found occupied in DB by someone else than this allocator, e.g. reconciliation
+    public void markOccupied(ParkingSpot parkingSpot) {
+        SpotSelectionStrategy strategy = strategies.get(parkingSpot.getParkingType());
+        synchronized (strategy) {
+            strategy.removeFreeSpot(parkingSpot.getId());
+        }
+    }
+
+    public int countFreeSpots(ParkingType parkingType) {
+        SpotSelectionStrategy strategy = strategies.get(parkingType);
+        synchronized (strategy) {
+            return strategy.size();
+        }
+    }
+
+    // spots of the type seen by load, free or not
+    public int getCapacity(ParkingType parkingType) {
+        return capacities[parkingType.ordinal()];
+    }
+}
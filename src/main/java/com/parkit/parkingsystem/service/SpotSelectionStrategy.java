@@ -0,0 +1,21 @@
+package com.parkit.parkingsystem.service;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Orders the free spots of one parking type. Implementations are not thread-safe, SpotAllocator
+ * serializes access per type.
+ */
+public interface SpotSelectionStrategy {
+
+    void addFreeSpot(int parkingNumber);
+
+    void removeFreeSpot(int parkingNumber);
+
+    /**
+     * Picks the next free spot accepted by the filter and removes it, or returns -1.
+     */
+    int takeFreeSpot(IntPredicate eligible);
+
+    int size();
+}
@@ -0,0 +1,36 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.TicketColumnarWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+public class TicketExportService {
+
+    private static final Logger logger = LogManager.getLogger("TicketExportService");
+
+    private TicketDAO ticketDAO;
+
+    public TicketExportService(TicketDAO ticketDAO) {
+        this.ticketDAO = ticketDAO;
+    }
+
+    public long exportTickets(Path file) throws IOException {
+        try (TicketColumnarWriter writer = new TicketColumnarWriter(file);
+             Stream<Ticket> tickets = ticketDAO.streamTickets()) {
+            Iterator<Ticket> it = tickets.iterator();
+            while (it.hasNext()) {
+                writer.append(it.next());
+            }
+            long rows = writer.getRowCount();
+            logger.info("Ticket history exported to " + file + " (" + rows + " rows)");
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.parkit.parkingsystem.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calling a dependency that keeps failing. After failureThreshold consecutive failures the
+ * breaker opens and rejects calls for openMillis, then lets a single trial call through: its success
+ * closes the breaker again, its failure reopens it for another period.
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LogManager.getLogger("CircuitBreaker");
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private volatile State state = State.CLOSED;
+    private volatile int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long rejectedCount;
+    private long openedCount;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this(name, failureThreshold, openMillis, System::nanoTime);
+    }
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis, LongSupplier nanoClock) {
+        if (failureThreshold <= 0 || openMillis <= 0) {
+            throw new IllegalArgumentException("Failure threshold and open period must be positive");
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.nanoClock = nanoClock;
+    }
+
+    public boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (nanoClock.getAsLong() - openedAt >= openNanos) {
+                        state = State.HALF_OPEN;
+                        trialInFlight = true;
+                        return true;
+                    }
+                    break;
+                case HALF_OPEN:
+                    if (!trialInFlight) {
+                        trialInFlight = true;
+                        return true;
+                    }
+                    break;
+            }
+            rejectedCount++;
+            return false;
+        }
+    }
+
+    public void recordSuccess() {
+        if (state == State.CLOSED && consecutiveFailures == 0) {
+            return;
+        }
+        synchronized (this) {
+            consecutiveFailures = 0;
+            trialInFlight = false;
+            if (state != State.CLOSED) {
+                state = State.CLOSED;
+                logger.info("Circuit " + name + " closed");
+            }
+        }
+    }
+
+    public synchronized void recordFailure() {
+        trialInFlight = false;
+        if (state == State.OPEN) {
+            return;
+        }
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+            openedCount++;
+            logger.error("Circuit " + name + " opened after " + consecutiveFailures + " consecutive failures");
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public synchronized long getOpenedCount() {
+        return openedCount;
+    }
+}
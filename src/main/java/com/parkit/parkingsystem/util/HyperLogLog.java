@@ -0,0 +1,143 @@
+package com.parkit.parkingsystem.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Distinct count of plates in 2^precision one-byte registers, with a standard error of
+ * 1.04 / sqrt(2^precision): 1.6% at the default precision, in 4 KiB. Two sketches of the same
+ * precision merge into the sketch of the union, so days and lots add up without counting a plate
+ * twice. Not thread-safe.
+ *
+ * Snapshots list only the registers set while fewer than a third are, which keeps the sketch of a
+ * quiet day to a few hundred bytes.
+ */
+public class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 12;
+
+    private static final int FORMAT_VERSION = 1;
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 16: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public void add(CharSequence plate) {
+        addHash(PlateHashing.mix(PlateHashing.fingerprint(plate)));
+    }
+
+    // the hash must already be well spread, e.g. by PlateHashing.mix
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), 64 - precision) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        // small cardinalities: linear counting of the empty registers is closer
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16: return 0.673;
+            case 32: return 0.697;
+            case 64: return 0.709;
+            default: return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog of precision " + other.precision + " into " + precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public HyperLogLog copy() {
+        HyperLogLog copy = new HyperLogLog(precision);
+        System.arraycopy(registers, 0, copy.registers, 0, registers.length);
+        return copy;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeByte(precision);
+        int set = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                set++;
+            }
+        }
+        if (set * 3 < registers.length) {
+            out.writeByte(SPARSE);
+            out.writeShort(set);
+            for (int i = 0; i < registers.length; i++) {
+                if (registers[i] != 0) {
+                    out.writeShort(i);
+                    out.writeByte(registers[i]);
+                }
+            }
+        } else {
+            out.writeByte(DENSE);
+            out.write(registers);
+        }
+    }
+
+    public static HyperLogLog readFrom(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported HyperLogLog version: " + version);
+        }
+        HyperLogLog sketch = new HyperLogLog(in.readByte());
+        byte layout = in.readByte();
+        if (layout == DENSE) {
+            in.readFully(sketch.registers);
+        } else if (layout == SPARSE) {
+            int set = in.readUnsignedShort();
+            for (int i = 0; i < set; i++) {
+                sketch.registers[in.readUnsignedShort()] = in.readByte();
+            }
+        } else {
+            throw new IOException("Unknown HyperLogLog layout: " + layout);
+        }
+        return sketch;
+    }
+}
@@ -27,7 +27,12 @@ public class InputReaderUtil {
             if(vehicleRegNumber == null || vehicleRegNumber.trim().length()==0) {
                 throw new IllegalArgumentException("Invalid input provided");
             }
-            return vehicleRegNumber;
+            //upper case without separators, the same plate whatever way it was typed
+            String normalized = PlateCodec.normalize(vehicleRegNumber);
+            if(normalized == null) {
+                throw new IllegalArgumentException("Invalid vehicle registration number: " + vehicleRegNumber);
+            }
+            return normalized;
         }catch(Exception e){
             logger.error("Error while reading user input from Shell", e);
             System.out.println("Error reading input. Please enter a valid string for vehicle registration number");
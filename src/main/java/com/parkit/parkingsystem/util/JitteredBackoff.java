@@ -0,0 +1,29 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter: the delay before retry n is drawn uniformly between 0 and
+ * min(maxMillis, baseMillis * 2^n), so callers that failed together do not retry together.
+ */
+public class JitteredBackoff {
+
+    private final long baseMillis;
+    private final long maxMillis;
+
+    public JitteredBackoff(long baseMillis, long maxMillis) {
+        if (baseMillis <= 0 || maxMillis < baseMillis) {
+            throw new IllegalArgumentException("Invalid backoff: base " + baseMillis + " ms, max " + maxMillis + " ms");
+        }
+        this.baseMillis = baseMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    public long delayMillis(int retry) {
+        long ceiling = baseMillis << Math.min(retry, 30);
+        if (ceiling <= 0 || ceiling > maxMillis) {
+            ceiling = maxMillis;
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
@@ -0,0 +1,262 @@
+package com.parkit.parkingsystem.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * KLL quantile sketch of float values (dwell minutes, fares). Values sit in levels where an item of
+ * level h stands for 2^h values; a full level is sorted and every other item moves up, so a few
+ * hundred items summarise any number of values with a rank error near 1.7 / k. Level capacities
+ * shrink by 2/3 going down from the top one. Sketches of the same k merge into the sketch of all
+ * their values. Not thread-safe.
+ *
+ * The coin that picks the odd or even items is a fixed-seed generator, so the same values in the
+ * same order always give the same sketch.
+ */
+public class KllSketch {
+
+    public static final int DEFAULT_K = 200;
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int MIN_CAPACITY = 8;
+
+    private final int k;
+    private float[][] levels = new float[1][MIN_CAPACITY];
+    private int[] sizes = new int[1];
+    private long count;
+    private float min = Float.NaN;
+    private float max = Float.NaN;
+    private long coin = 0x9E3779B97F4A7C15L;
+    // values in order with the total weight up to each of them, dropped on every change
+    private float[] sortedValues;
+    private long[] cumulativeWeights;
+
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    public KllSketch(int k) {
+        if (k < MIN_CAPACITY || k > 65535) {
+            throw new IllegalArgumentException("KLL k must be between " + MIN_CAPACITY + " and 65535: " + k);
+        }
+        this.k = k;
+    }
+
+    public void update(float value) {
+        if (Float.isNaN(value)) {
+            return;
+        }
+        append(0, value);
+        count++;
+        min = (count == 1) ? value : Math.min(min, value);
+        max = (count == 1) ? value : Math.max(max, value);
+        sortedValues = null;
+        compress();
+    }
+
+    public void merge(KllSketch other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge KLL sketch of k " + other.k + " into " + k);
+        }
+        if (other.count == 0) {
+            return;
+        }
+        for (int level = 0; level < other.levels.length; level++) {
+            for (int i = 0; i < other.sizes[level]; i++) {
+                append(level, other.levels[level][i]);
+            }
+        }
+        min = (count == 0) ? other.min : Math.min(min, other.min);
+        max = (count == 0) ? other.max : Math.max(max, other.max);
+        count += other.count;
+        sortedValues = null;
+        compress();
+    }
+
+    /**
+     * The value below which about q of the values fall; NaN when the sketch is empty.
+     */
+    public float quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+        }
+        if (count == 0) {
+            return Float.NaN;
+        }
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+        if (sortedValues == null) {
+            sort();
+        }
+        long target = (long) Math.ceil(q * cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = Arrays.binarySearch(cumulativeWeights, target);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return sortedValues[Math.min(index, sortedValues.length - 1)];
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public float getMin() {
+        return min;
+    }
+
+    public float getMax() {
+        return max;
+    }
+
+    public int getRetained() {
+        int retained = 0;
+        for (int size : sizes) {
+            retained += size;
+        }
+        return retained;
+    }
+
+    public KllSketch copy() {
+        KllSketch copy = new KllSketch(k);
+        copy.levels = new float[levels.length][];
+        for (int level = 0; level < levels.length; level++) {
+            copy.levels[level] = Arrays.copyOf(levels[level], Math.max(MIN_CAPACITY, sizes[level]));
+        }
+        copy.sizes = sizes.clone();
+        copy.count = count;
+        copy.min = min;
+        copy.max = max;
+        copy.coin = coin;
+        return copy;
+    }
+
+    private void append(int level, float value) {
+        if (level == levels.length) {
+            levels = Arrays.copyOf(levels, level + 1);
+            levels[level] = new float[MIN_CAPACITY];
+            sizes = Arrays.copyOf(sizes, level + 1);
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], sizes[level] * 2);
+        }
+        levels[level][sizes[level]++] = value;
+    }
+
+    private int capacity(int level) {
+        int depth = levels.length - 1 - level;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(2.0 / 3, depth)));
+    }
+
+    private void compress() {
+        while (true) {
+            int totalCapacity = 0;
+            for (int level = 0; level < levels.length; level++) {
+                totalCapacity += capacity(level);
+            }
+            if (getRetained() <= totalCapacity) {
+                return;
+            }
+            for (int level = 0; level < levels.length; level++) {
+                if (sizes[level] >= capacity(level)) {
+                    compact(level);
+                    break;
+                }
+            }
+        }
+    }
+
+    // sorts the level and moves every other item up; with an odd size the smallest stays
+    private void compact(int level) {
+        float[] values = levels[level];
+        int size = sizes[level];
+        Arrays.sort(values, 0, size);
+        int kept = size & 1;
+        int offset = nextCoin();
+        for (int i = kept + offset; i < size; i += 2) {
+            append(level + 1, values[i]);
+        }
+        sizes[level] = kept;
+    }
+
+    private int nextCoin() {
+        coin ^= coin << 13;
+        coin ^= coin >>> 7;
+        coin ^= coin << 17;
+        return (int) (coin & 1);
+    }
+
+    private void sort() {
+        // float bits made to sort as signed ints, the level in the low half
+        long[] keys = new long[getRetained()];
+        int n = 0;
+        for (int level = 0; level < levels.length; level++) {
+            for (int i = 0; i < sizes[level]; i++) {
+                int bits = Float.floatToIntBits(levels[level][i]);
+                bits ^= (bits >> 31) & 0x7fffffff;
+                keys[n++] = ((long) bits << 32) | level;
+            }
+        }
+        Arrays.sort(keys);
+        float[] values = new float[n];
+        long[] weights = new long[n];
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            int bits = (int) (keys[i] >> 32);
+            bits ^= (bits >> 31) & 0x7fffffff;
+            values[i] = Float.intBitsToFloat(bits);
+            total += 1L << (int) keys[i];
+            weights[i] = total;
+        }
+        cumulativeWeights = weights;
+        sortedValues = values;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeShort(k);
+        out.writeLong(count);
+        out.writeFloat(min);
+        out.writeFloat(max);
+        out.writeLong(coin);
+        out.writeByte(levels.length);
+        for (int level = 0; level < levels.length; level++) {
+            out.writeInt(sizes[level]);
+            for (int i = 0; i < sizes[level]; i++) {
+                out.writeFloat(levels[level][i]);
+            }
+        }
+    }
+
+    public static KllSketch readFrom(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported KLL sketch version: " + version);
+        }
+        KllSketch sketch = new KllSketch(in.readUnsignedShort());
+        sketch.count = in.readLong();
+        sketch.min = in.readFloat();
+        sketch.max = in.readFloat();
+        sketch.coin = in.readLong();
+        int levelCount = in.readUnsignedByte();
+        if (levelCount == 0) {
+            throw new IOException("KLL sketch snapshot has no levels");
+        }
+        sketch.levels = new float[levelCount][];
+        sketch.sizes = new int[levelCount];
+        for (int level = 0; level < levelCount; level++) {
+            int size = in.readInt();
+            sketch.levels[level] = new float[Math.max(MIN_CAPACITY, size)];
+            for (int i = 0; i < size; i++) {
+                sketch.levels[level][i] = in.readFloat();
+            }
+            sketch.sizes[level] = size;
+        }
+        return sketch;
+    }
+}
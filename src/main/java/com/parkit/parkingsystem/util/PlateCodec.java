@@ -0,0 +1,86 @@
+package com.parkit.parkingsystem.util;
+
+/**
+ * Packs a registration number into a long, one base-37 digit per character: 1-10 for '0'-'9' and
+ * 11-36 for 'A'-'Z'. Plates fit VEHICLE_REG_NUMBER VARCHAR(10), and 37^10 needs 53 bits. Digits
+ * never use 0, so plates of different lengths never share a code and 0 is left for "no plate".
+ *
+ * Case is ignored and separators (spaces, dashes, dots...) are skipped, so "ab-123 cd" and "AB123CD"
+ * share a code. Encoding reads the CharSequence in place and allocates nothing.
+ */
+public final class PlateCodec {
+
+    public static final int MAX_LENGTH = 10;
+    public static final long INVALID = 0L;
+
+    private static final int RADIX = 37;
+
+    private PlateCodec() {
+    }
+
+    // INVALID for null, empty, non-ASCII letters or digits, or more than MAX_LENGTH characters
+    public static long encode(CharSequence plate) {
+        if (plate == null) {
+            return INVALID;
+        }
+        long code = 0;
+        int length = 0;
+        for (int i = 0; i < plate.length(); i++) {
+            int digit = digit(plate.charAt(i));
+            if (digit < 0) {
+                return INVALID;
+            }
+            if (digit > 0) {
+                if (++length > MAX_LENGTH) {
+                    return INVALID;
+                }
+                code = code * RADIX + digit;
+            }
+        }
+        return code;
+    }
+
+    // 1-36 for a plate character, 0 for a separator, -1 for anything else
+    private static int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 1;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 11;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 11;
+        }
+        return Character.isLetterOrDigit(c) ? -1 : 0;
+    }
+
+    public static String decode(long code) {
+        if (code <= 0) {
+            throw new IllegalArgumentException("Not a plate code: " + code);
+        }
+        char[] chars = new char[MAX_LENGTH];
+        int start = MAX_LENGTH;
+        while (code > 0) {
+            if (start == 0) {
+                throw new IllegalArgumentException("Not a plate code: " + code);
+            }
+            int digit = (int) (code % RADIX);
+            if (digit == 0) {
+                throw new IllegalArgumentException("Not a plate code: " + code);
+            }
+            chars[--start] = (digit <= 10) ? (char) ('0' + digit - 1) : (char) ('A' + digit - 11);
+            code /= RADIX;
+        }
+        return new String(chars, start, MAX_LENGTH - start);
+    }
+
+    public static boolean isValid(CharSequence plate) {
+        return encode(plate) != INVALID;
+    }
+
+    // upper case without separators, null if the plate is not valid
+    public static String normalize(CharSequence plate) {
+        long code = encode(plate);
+        return (code == INVALID) ? null : decode(code);
+    }
+}
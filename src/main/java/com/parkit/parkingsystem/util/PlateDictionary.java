@@ -0,0 +1,46 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns registration numbers into dense int ids so that every ticket of a plate shares one String.
+ */
+public class PlateDictionary {
+
+    public static final int UNKNOWN_PLATE = -1;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> plates = new ArrayList<>();
+
+    public synchronized int intern(String plate) {
+        if (plate == null) {
+            throw new IllegalArgumentException("Plate must not be null");
+        }
+        Integer id = ids.get(plate);
+        if (id == null) {
+            id = plates.size();
+            plates.add(plate);
+            ids.put(plate, id);
+        }
+        return id;
+    }
+
+    public synchronized int find(String plate) {
+        Integer id = ids.get(plate);
+        return (id == null) ? UNKNOWN_PLATE : id;
+    }
+
+    public synchronized String lookup(int id) {
+        if (id < 0 || id >= plates.size()) {
+            throw new IllegalArgumentException("Unknown plate id: " + id);
+        }
+        return plates.get(id);
+    }
+
+    public synchronized int size() {
+        return plates.size();
+    }
+}
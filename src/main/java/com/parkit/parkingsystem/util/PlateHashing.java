@@ -0,0 +1,31 @@
+package com.parkit.parkingsystem.util;
+
+public class PlateHashing {
+
+    private PlateHashing() {
+    }
+
+    /**
+     * 64-bit FNV-1a of a plate, read in place without copying the String.
+     */
+    public static long fingerprint(CharSequence value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Murmur3 finalizer, spreads the bits of a fingerprint before it is reduced to a table index.
+     */
+    public static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,26 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts DB round trips, both in total and for the calling thread, so a caller can tell how many
+ * round trips one of its own operations took while other threads run theirs.
+ */
+public class RoundTripCounter {
+
+    private final LongAdder total = new LongAdder();
+    private final ThreadLocal<long[]> perThread = ThreadLocal.withInitial(() -> new long[1]);
+
+    public void record() {
+        total.increment();
+        perThread.get()[0]++;
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public long getCurrentThreadCount() {
+        return perThread.get()[0];
+    }
+}
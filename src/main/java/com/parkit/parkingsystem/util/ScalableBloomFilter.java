@@ -0,0 +1,155 @@
+package com.parkit.parkingsystem.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bloom filter of plates that grows by adding stages: each new stage doubles the capacity and halves
+ * the false-positive rate, so the compound rate stays below twice the initial one however many plates
+ * are added. Never returns a false negative.
+ */
+public class ScalableBloomFilter {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final class Stage {
+        final long[] bits;
+        final int hashes;
+        final long capacity;
+        long count;
+
+        Stage(long capacity, double falsePositiveRate) {
+            long bitCount = Math.max(64, (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+            this.bits = new long[(int) ((bitCount + 63) / 64)];
+            this.hashes = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+            this.capacity = capacity;
+        }
+
+        Stage(long[] bits, int hashes, long capacity, long count) {
+            this.bits = bits;
+            this.hashes = hashes;
+            this.capacity = capacity;
+            this.count = count;
+        }
+
+        long bitCount() {
+            return (long) bits.length * 64;
+        }
+
+        // Kirsch-Mitzenmacher double hashing: bit i = h1 + i * h2
+        boolean mightContain(long h1, long h2) {
+            long size = bitCount();
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long h1, long h2) {
+            long size = bitCount();
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, size);
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+            count++;
+        }
+    }
+
+    private final List<Stage> stages = new ArrayList<>();
+    private final double falsePositiveRate;
+
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid bloom filter sizing");
+        }
+        this.falsePositiveRate = falsePositiveRate;
+        stages.add(new Stage(initialCapacity, falsePositiveRate / 2));
+    }
+
+    private ScalableBloomFilter(double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public synchronized boolean mightContain(CharSequence plate) {
+        long h1 = PlateHashing.fingerprint(plate);
+        long h2 = PlateHashing.mix(h1) | 1;
+        for (Stage stage : stages) {
+            if (stage.mightContain(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void add(CharSequence plate) {
+        long h1 = PlateHashing.fingerprint(plate);
+        long h2 = PlateHashing.mix(h1) | 1;
+        Stage current = stages.get(stages.size() - 1);
+        if (current.count >= current.capacity) {
+            double stageRate = falsePositiveRate / Math.pow(2, stages.size() + 1);
+            current = new Stage(current.capacity * 2, stageRate);
+            stages.add(current);
+        }
+        current.add(h1, h2);
+    }
+
+    public synchronized long getApproximateCount() {
+        long count = 0;
+        for (Stage stage : stages) {
+            count += stage.count;
+        }
+        return count;
+    }
+
+    public synchronized long getSizeInBytes() {
+        long bytes = 0;
+        for (Stage stage : stages) {
+            bytes += stage.bits.length * 8L;
+        }
+        return bytes;
+    }
+
+    public synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeDouble(falsePositiveRate);
+        out.writeInt(stages.size());
+        for (Stage stage : stages) {
+            out.writeLong(stage.capacity);
+            out.writeLong(stage.count);
+            out.writeInt(stage.hashes);
+            out.writeInt(stage.bits.length);
+            for (long word : stage.bits) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    public static ScalableBloomFilter readFrom(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported bloom filter version: " + version);
+        }
+        ScalableBloomFilter filter = new ScalableBloomFilter(in.readDouble());
+        int stageCount = in.readInt();
+        for (int s = 0; s < stageCount; s++) {
+            long capacity = in.readLong();
+            long count = in.readLong();
+            int hashes = in.readInt();
+            long[] bits = new long[in.readInt()];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = in.readLong();
+            }
+            filter.stages.add(new Stage(bits, hashes, capacity, count));
+        }
+        if (filter.stages.isEmpty()) {
+            throw new IOException("Bloom filter snapshot has no stages");
+        }
+        return filter;
+    }
+}
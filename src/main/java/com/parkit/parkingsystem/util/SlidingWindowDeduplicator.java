@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.Arrays;
+
+/**
+ * Remembers 64-bit keys for a sliding time window split into a ring of buckets. Each bucket is an
+ * open-addressed long set, so a key costs 8 bytes and a bucket is recycled by clearing its array
+ * once the window has moved past it.
+ */
+public class SlidingWindowDeduplicator {
+
+    private static final long EMPTY = 0L;
+    private static final int INITIAL_BUCKET_CAPACITY = 64;
+
+    private final long bucketMillis;
+    private final long[][] keys;
+    private final int[] sizes;
+    private final long[] bucketEpochs;
+
+    public SlidingWindowDeduplicator(long windowMillis, int buckets) {
+        if (windowMillis <= 0 || buckets <= 0) {
+            throw new IllegalArgumentException("Window and bucket count must be positive");
+        }
+        this.bucketMillis = Math.max(1, windowMillis / buckets);
+        // one extra bucket so the oldest slice of the window is still covered while the newest fills
+        this.keys = new long[buckets + 1][INITIAL_BUCKET_CAPACITY];
+        this.sizes = new int[buckets + 1];
+        this.bucketEpochs = new long[buckets + 1];
+        Arrays.fill(bucketEpochs, Long.MIN_VALUE);
+    }
+
+    /**
+     * Returns true when the key was already seen within the window, otherwise records it.
+     */
+    public synchronized boolean isDuplicate(long key, long timestamp) {
+        if (key == EMPTY) {
+            key = 1;
+        }
+        long epoch = Math.floorDiv(timestamp, bucketMillis);
+        int buckets = keys.length;
+        for (int i = 0; i < buckets; i++) {
+            long bucketEpoch = bucketEpochs[i];
+            if (bucketEpoch != Long.MIN_VALUE && Math.abs(epoch - bucketEpoch) < buckets && contains(i, key)) {
+                return true;
+            }
+        }
+        int current = (int) Math.floorMod(epoch, (long) buckets);
+        if (bucketEpochs[current] < epoch) {
+            // late events keep the newer bucket, they only stay remembered a little longer
+            Arrays.fill(keys[current], EMPTY);
+            sizes[current] = 0;
+            bucketEpochs[current] = epoch;
+        }
+        add(current, key);
+        return false;
+    }
+
+    private boolean contains(int bucket, long key) {
+        long[] table = keys[bucket];
+        int mask = table.length - 1;
+        int slot = mix(key) & mask;
+        while (table[slot] != EMPTY) {
+            if (table[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private void add(int bucket, long key) {
+        if ((sizes[bucket] + 1) * 2 > keys[bucket].length) {
+            long[] old = keys[bucket];
+            keys[bucket] = new long[old.length * 2];
+            sizes[bucket] = 0;
+            for (long existing : old) {
+                if (existing != EMPTY) {
+                    insert(bucket, existing);
+                }
+            }
+        }
+        insert(bucket, key);
+    }
+
+    private void insert(int bucket, long key) {
+        long[] table = keys[bucket];
+        int mask = table.length - 1;
+        int slot = mix(key) & mask;
+        while (table[slot] != EMPTY) {
+            if (table[slot] == key) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = key;
+        sizes[bucket]++;
+    }
+
+    private static int mix(long key) {
+        return (int) PlateHashing.mix(key);
+    }
+}
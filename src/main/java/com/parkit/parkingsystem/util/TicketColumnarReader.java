@@ -0,0 +1,160 @@
+package com.parkit.parkingsystem.util;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.function.Consumer;
+
+/**
+ * Memory-maps a file produced by {@link TicketColumnarWriter} block by block and scans it.
+ */
+public class TicketColumnarReader implements Closeable {
+
+    public interface RowVisitor {
+        void visit(long id, int parkingNumber, ParkingType parkingType, int plateId,
+                   long priceCents, long inTime, long outTime);
+    }
+
+    public static final long OPEN_TICKET = Long.MIN_VALUE;
+
+    private static final ParkingType[] TYPES = ParkingType.values();
+
+    private final FileChannel channel;
+    private PlateDictionary plates = new PlateDictionary();
+
+    public TicketColumnarReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 6);
+        if (header.getInt() != TicketColumnarWriter.MAGIC) {
+            channel.close();
+            throw new IOException("Not a ticket export file: " + file);
+        }
+        short version = header.getShort();
+        if (version != TicketColumnarWriter.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported ticket export version: " + version);
+        }
+    }
+
+    /**
+     * Visits every row without creating objects; outTime is OPEN_TICKET for tickets still open.
+     * Plate ids can be resolved with getPlate once the row has been visited.
+     */
+    public long scan(RowVisitor visitor) throws IOException {
+        plates = new PlateDictionary();
+        long position = 6;
+        long size = channel.size();
+        long total = 0;
+        long[] ids = new long[0];
+        int[] parkingNumbers = new int[0];
+        byte[] types = new byte[0];
+        int[] plateIds = new int[0];
+        long[] priceCents = new long[0];
+        long[] inTimes = new long[0];
+
+        while (position < size) {
+            ByteBuffer blockHeader = channel.map(FileChannel.MapMode.READ_ONLY, position, 8);
+            int rows = blockHeader.getInt();
+            int length = blockHeader.getInt();
+            MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, position + 8, length);
+            position += 8 + length;
+
+            if (ids.length < rows) {
+                ids = new long[rows];
+                parkingNumbers = new int[rows];
+                types = new byte[rows];
+                plateIds = new int[rows];
+                priceCents = new long[rows];
+                inTimes = new long[rows];
+            }
+
+            int newPlates = (int) getVarLong(block);
+            for (int i = 0; i < newPlates; i++) {
+                byte[] bytes = new byte[(int) getVarLong(block)];
+                block.get(bytes);
+                plates.intern(new String(bytes, StandardCharsets.UTF_8));
+            }
+
+            long previous = 0;
+            for (int i = 0; i < rows; i++) {
+                previous += unZigZag(getVarLong(block));
+                ids[i] = previous;
+            }
+            for (int i = 0; i < rows; i++) {
+                parkingNumbers[i] = (int) getVarLong(block);
+            }
+            block.get(types, 0, rows);
+            for (int i = 0; i < rows; i++) {
+                plateIds[i] = (int) getVarLong(block);
+            }
+            for (int i = 0; i < rows; i++) {
+                priceCents[i] = unZigZag(getVarLong(block));
+            }
+            previous = 0;
+            for (int i = 0; i < rows; i++) {
+                previous += unZigZag(getVarLong(block));
+                inTimes[i] = previous;
+            }
+            for (int i = 0; i < rows; i++) {
+                long encoded = getVarLong(block);
+                long outTime = (encoded == 0) ? OPEN_TICKET : inTimes[i] + unZigZag(encoded - 1);
+                visitor.visit(ids[i], parkingNumbers[i], TYPES[types[i]], plateIds[i],
+                        priceCents[i], inTimes[i], outTime);
+            }
+            total += rows;
+        }
+        return total;
+    }
+
+    public long forEach(Consumer<Ticket> consumer) throws IOException {
+        return scan((id, parkingNumber, parkingType, plateId, priceCents, inTime, outTime) -> {
+            Ticket ticket = new Ticket();
+            ticket.setId(id);
+            ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false));
+            ticket.setVehicleRegNumber(plates.lookup(plateId));
+            ticket.setPrice(priceCents / 100.0);
+            ticket.setInTime(new Date(inTime));
+            ticket.setOutTime(outTime == OPEN_TICKET ? null : new Date(outTime));
+            consumer.accept(ticket);
+        });
+    }
+
+    public String getPlate(int plateId) {
+        return plates.lookup(plateId);
+    }
+
+    public PlateDictionary getPlateDictionary() {
+        return plates;
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
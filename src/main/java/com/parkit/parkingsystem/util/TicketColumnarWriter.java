@@ -0,0 +1,183 @@
+package com.parkit.parkingsystem.util;
+
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes tickets to a compact columnar file, one block of rows at a time.
+ *
+ * File layout: MAGIC, VERSION, then blocks of
+ * [rowCount:int][byteLength:int][new plates][ids][spot numbers][types][plate ids][price cents][in times][out times].
+ * Numbers are varints, ids and in-times are delta encoded, out-times are stored relative to in-time
+ * and plates are dictionary encoded across the whole file.
+ */
+public class TicketColumnarWriter implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger("TicketColumnarWriter");
+
+    public static final int MAGIC = 0x504B5458; // "PKTX"
+    public static final short VERSION = 1;
+    public static final int DEFAULT_BLOCK_SIZE = 65536;
+
+    private final FileChannel channel;
+    private final int blockSize;
+
+    private final PlateDictionary plateDictionary = new PlateDictionary();
+    private int plateDictionaryFlushed = 0;
+
+    private final long[] ids;
+    private final int[] parkingNumbers;
+    private final byte[] types;
+    private final int[] plateIds;
+    private final long[] priceCents;
+    private final long[] inTimes;
+    private final long[] outTimes;
+    private int rows = 0;
+    private long totalRows = 0;
+
+    private ByteBuffer buffer;
+
+    public TicketColumnarWriter(Path file) throws IOException {
+        this(file, DEFAULT_BLOCK_SIZE);
+    }
+
+    public TicketColumnarWriter(Path file, int blockSize) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.ids = new long[blockSize];
+        this.parkingNumbers = new int[blockSize];
+        this.types = new byte[blockSize];
+        this.plateIds = new int[blockSize];
+        this.priceCents = new long[blockSize];
+        this.inTimes = new long[blockSize];
+        this.outTimes = new long[blockSize];
+        // worst case per row: 5 varints of 10 bytes, one of 5 and a type byte
+        this.buffer = ByteBuffer.allocateDirect(blockSize * 56 + 64);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(6);
+        header.putInt(MAGIC).putShort(VERSION).flip();
+        writeFully(header);
+    }
+
+    public void append(Ticket ticket) throws IOException {
+        ids[rows] = ticket.getId();
+        parkingNumbers[rows] = ticket.getParkingSpot().getId();
+        types[rows] = (byte) ticket.getParkingSpot().getParkingType().ordinal();
+        plateIds[rows] = plateDictionary.intern(ticket.getVehicleRegNumber());
+        priceCents[rows] = Math.round(ticket.getPrice() * 100);
+        inTimes[rows] = ticket.getInTime().getTime();
+        outTimes[rows] = (ticket.getOutTime() == null) ? Long.MIN_VALUE : ticket.getOutTime().getTime();
+        rows++;
+        if (rows == blockSize) {
+            flushBlock();
+        }
+    }
+
+    public long getRowCount() {
+        return totalRows + rows;
+    }
+
+    private void flushBlock() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        int dictionarySize = plateDictionary.size();
+        int platesBytes = 5;
+        for (int id = plateDictionaryFlushed; id < dictionarySize; id++) {
+            platesBytes += 5 + plateDictionary.lookup(id).length() * 3;
+        }
+        ensureCapacity(8 + platesBytes + rows * 56);
+
+        buffer.clear();
+        buffer.putInt(rows);
+        buffer.putInt(0); // byte length, patched below
+
+        putVarLong(dictionarySize - plateDictionaryFlushed);
+        for (int id = plateDictionaryFlushed; id < dictionarySize; id++) {
+            byte[] bytes = plateDictionary.lookup(id).getBytes(StandardCharsets.UTF_8);
+            putVarLong(bytes.length);
+            buffer.put(bytes);
+        }
+        plateDictionaryFlushed = dictionarySize;
+
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            putVarLong(zigZag(ids[i] - previous));
+            previous = ids[i];
+        }
+        for (int i = 0; i < rows; i++) {
+            putVarLong(parkingNumbers[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            buffer.put(types[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            putVarLong(plateIds[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            putVarLong(zigZag(priceCents[i]));
+        }
+        previous = 0;
+        for (int i = 0; i < rows; i++) {
+            putVarLong(zigZag(inTimes[i] - previous));
+            previous = inTimes[i];
+        }
+        for (int i = 0; i < rows; i++) {
+            // 0 marks a ticket that is still open
+            putVarLong(outTimes[i] == Long.MIN_VALUE ? 0 : zigZag(outTimes[i] - inTimes[i]) + 1);
+        }
+
+        buffer.putInt(4, buffer.position() - 8);
+        buffer.flip();
+        writeFully(buffer);
+        totalRows += rows;
+        rows = 0;
+    }
+
+    private void ensureCapacity(int required) {
+        if (buffer.capacity() < required) {
+            buffer = ByteBuffer.allocateDirect(required);
+        }
+    }
+
+    private void putVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBlock();
+            logger.info("Exported " + totalRows + " tickets");
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ticket IDs made by the application instead of AUTO_INCREMENT, so a ticket is known by its ID before
+ * it is written and inserts can be batched. An ID is [41 bits: millis since 2024-01-01][12 bits:
+ * sequence][10 bits: node]: IDs of one node always increase, and IDs of all nodes sort by time, which
+ * keeps new rows at the end of the ticket table's primary key.
+ *
+ * More than 4096 IDs in a millisecond, or a clock going back, borrow the next milliseconds instead of
+ * waiting: IDs stay unique and increasing and catch up with the clock once it moves on.
+ */
+public class TicketIdGenerator {
+
+    public static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    public static final int MAX_NODE_ID = 1023;
+    public static final String NODE_ID_PROPERTY = "parkit.nodeId";
+    public static final String NODE_ID_ENV = "PARKIT_NODE_ID";
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    private final long nodeId;
+    // time and sequence of the last ID, ID >>> NODE_BITS
+    private final AtomicLong last = new AtomicLong();
+
+    private static volatile TicketIdGenerator defaultGenerator;
+
+    public TicketIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    public long nextId() {
+        long now = (currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long previous;
+        long next;
+        do {
+            previous = last.get();
+            next = Math.max(previous + 1, now);
+        } while (!last.compareAndSet(previous, next));
+        return (next << NODE_BITS) | nodeId;
+    }
+
+    /**
+     * Node ID of this process: the parkit.nodeId system property, else the PARKIT_NODE_ID environment
+     * variable, else 0. Every process writing to the same ticket table needs its own.
+     */
+    public static int configuredNodeId() {
+        String value = System.getProperty(NODE_ID_PROPERTY);
+        if (value == null) {
+            value = System.getenv(NODE_ID_ENV);
+        }
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Node id must be a number: " + value, e);
+        }
+    }
+
+    // one per process for the configured node, two generators of one node could give the same ID
+    public static TicketIdGenerator getDefault() {
+        TicketIdGenerator generator = defaultGenerator;
+        if (generator == null) {
+            synchronized (TicketIdGenerator.class) {
+                generator = defaultGenerator;
+                if (generator == null) {
+                    generator = new TicketIdGenerator(configuredNodeId());
+                    defaultGenerator = generator;
+                }
+            }
+        }
+        return generator;
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public static long getTimeMillis(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    public static int getNodeId(long id) {
+        return (int) (id & MAX_NODE_ID);
+    }
+}
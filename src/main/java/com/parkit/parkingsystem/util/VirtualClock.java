@@ -0,0 +1,79 @@
+package com.parkit.parkingsystem.util;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * A clock that only moves when told to, for simulations and tests. It never goes back, so tickets
+ * stamped from it keep their out time after their in time.
+ */
+public class VirtualClock extends Clock {
+
+    private final ZoneId zone;
+    private volatile long millis;
+
+    public VirtualClock(long startMillis) {
+        this(startMillis, ZoneId.systemDefault());
+    }
+
+    public VirtualClock(long startMillis, ZoneId zone) {
+        this.millis = startMillis;
+        this.zone = zone;
+    }
+
+    // moves to the given time, or stays put if it is already later
+    public synchronized void advanceTo(long targetMillis) {
+        if (targetMillis > millis) {
+            millis = targetMillis;
+        }
+    }
+
+    public synchronized void advance(Duration duration) {
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("A virtual clock cannot go back: " + duration);
+        }
+        millis += duration.toMillis();
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    // shares the time with this clock, only the zone differs
+    @Override
+    public Clock withZone(ZoneId zone) {
+        if (zone.equals(this.zone)) {
+            return this;
+        }
+        VirtualClock parent = this;
+        return new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return zone;
+            }
+
+            @Override
+            public Clock withZone(ZoneId other) {
+                return parent.withZone(other);
+            }
+
+            @Override
+            public Instant instant() {
+                return parent.instant();
+            }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.CompactTicket;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.PlateDictionary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactTicketTest {
+
+    private PlateDictionary plates;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        plates = new PlateDictionary();
+    }
+
+    @Test
+    public void samePlateIsInternedOnce() {
+        int first = plates.intern("ABCDEF");
+        int second = plates.intern(new String("ABCDEF"));
+
+        assertEquals(first, second);
+        assertEquals(1, plates.size());
+        assertSame(plates.lookup(first), plates.lookup(second));
+        assertEquals(PlateDictionary.UNKNOWN_PLATE, plates.find("GHIJKL"));
+    }
+
+    @Test
+    public void openTicketRoundTrip() {
+        // GIVEN
+        Ticket ticket = new Ticket();
+        ticket.setId(7);
+        ticket.setParkingSpot(new ParkingSpot(3, ParkingType.BIKE, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setPrice(0);
+        ticket.setInTime(new Date(1_700_000_000_000L));
+
+        // WHEN
+        CompactTicket compact = CompactTicket.from(ticket, plates);
+        Ticket restored = compact.toTicket(plates);
+
+        // THEN
+        assertTrue(compact.isOpen());
+        assertEquals(7, restored.getId());
+        assertEquals(3, restored.getParkingSpot().getId());
+        assertEquals(ParkingType.BIKE, restored.getParkingSpot().getParkingType());
+        assertFalse(restored.getParkingSpot().isAvailable());
+        assertEquals("ABCDEF", restored.getVehicleRegNumber());
+        assertEquals(ticket.getInTime(), restored.getInTime());
+        assertNull(restored.getOutTime());
+    }
+
+    @Test
+    public void closedTicketKeepsPriceInCents() {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date(1_700_000_000_000L));
+
+        CompactTicket closed = CompactTicket.from(ticket, plates).close(1_700_003_600_000L, 150);
+        Ticket restored = closed.toTicket(plates);
+
+        assertFalse(closed.isOpen());
+        assertEquals(1.5, restored.getPrice(), 0.001);
+        assertEquals(new Date(1_700_003_600_000L), restored.getOutTime());
+        assertTrue(restored.getParkingSpot().isAvailable());
+    }
+}
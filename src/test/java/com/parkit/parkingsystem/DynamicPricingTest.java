@@ -0,0 +1,84 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.DynamicPricing;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DynamicPricingTest {
+
+    @Test
+    public void ratesFollowOccupancyBandsAfterRefresh() {
+        // GIVEN 100 car spots and 10 bike spots
+        AtomicInteger freeCars = new AtomicInteger(100);
+        DynamicPricing dynamicPricing = new DynamicPricing(
+                parkingType -> (parkingType == ParkingType.CAR) ? 100 : 10,
+                parkingType -> (parkingType == ParkingType.CAR) ? freeCars.get() : 0);
+
+        // THEN empty car park at base rate, full bike park at the highest band
+        assertEquals(Fare.CAR_RATE_PER_HOUR, dynamicPricing.getRatePerHour(ParkingType.CAR));
+        assertEquals(Fare.BIKE_RATE_PER_HOUR * 1.5, dynamicPricing.getRatePerHour(ParkingType.BIKE));
+
+        // WHEN 90 cars are parked, no surge until the lot is more than 90% full
+        freeCars.set(10);
+        dynamicPricing.refresh();
+        assertEquals(90, dynamicPricing.getOccupancyPercent(ParkingType.CAR));
+        assertEquals(Fare.CAR_RATE_PER_HOUR, dynamicPricing.getRatePerHour(ParkingType.CAR));
+
+        // rates only move on refresh
+        freeCars.set(9);
+        assertEquals(Fare.CAR_RATE_PER_HOUR, dynamicPricing.getRatePerHour(ParkingType.CAR));
+        dynamicPricing.refresh();
+        assertEquals(91, dynamicPricing.getOccupancyPercent(ParkingType.CAR));
+        assertEquals(Fare.CAR_RATE_PER_HOUR * 1.25, dynamicPricing.getRatePerHour(ParkingType.CAR));
+
+        freeCars.set(5);
+        dynamicPricing.refresh();
+        assertEquals(Fare.CAR_RATE_PER_HOUR * 1.25, dynamicPricing.getRatePerHour(ParkingType.CAR));
+        freeCars.set(4);
+        dynamicPricing.refresh();
+        assertEquals(Fare.CAR_RATE_PER_HOUR * 1.5, dynamicPricing.getRatePerHour(ParkingType.CAR));
+    }
+
+    @Test
+    public void multipliersAreKeyedByParkingType() {
+        Map<ParkingType, double[]> multipliers = new EnumMap<>(ParkingType.class);
+        multipliers.put(ParkingType.CAR, new double[]{1.0, 2.0});
+        multipliers.put(ParkingType.BIKE, new double[]{1.0, 1.0});
+        DynamicPricing dynamicPricing = new DynamicPricing(parkingType -> 10, parkingType -> 1,
+                new int[]{0, 80}, multipliers);
+
+        assertEquals(Fare.CAR_RATE_PER_HOUR * 2.0, dynamicPricing.getRatePerHour(ParkingType.CAR));
+        assertEquals(Fare.BIKE_RATE_PER_HOUR, dynamicPricing.getRatePerHour(ParkingType.BIKE));
+        assertThrows(IllegalArgumentException.class, () -> new DynamicPricing(parkingType -> 10, parkingType -> 1,
+                new int[]{0, 80, 90}, multipliers));
+    }
+
+    @Test
+    public void fareUsesTheSurgeRate() {
+        // GIVEN a full car park
+        DynamicPricing dynamicPricing = new DynamicPricing(parkingType -> 10, parkingType -> 0);
+        FareCalculatorService fareCalculatorService = new FareCalculatorService();
+        fareCalculatorService.setDynamicPricing(dynamicPricing);
+        Ticket ticket = new Ticket();
+        ticket.setInTime(new Date(System.currentTimeMillis() - 60 * 60 * 1000));
+        ticket.setOutTime(new Date());
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+
+        // WHEN
+        fareCalculatorService.calculateFare(ticket);
+
+        // THEN
+        assertEquals(Fare.CAR_RATE_PER_HOUR * 1.5, ticket.getPrice());
+    }
+}
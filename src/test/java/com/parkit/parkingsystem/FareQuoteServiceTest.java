@@ -0,0 +1,76 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.model.FareQuote;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.FareQuoteService;
+import com.parkit.parkingsystem.util.RoundTripCounter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FareQuoteServiceTest {
+
+    private static Ticket ticket(String vehicleRegNumber, int parkingNumber, long minutesAgo, boolean closed) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(System.currentTimeMillis() - minutesAgo * 60 * 1000));
+        if (closed) {
+            ticket.setOutTime(new Date());
+        }
+        return ticket;
+    }
+
+    @Test
+    public void quotesSeveralPlatesInOneCallWithoutTouchingTickets() {
+        // GIVEN ABCDEF parked for 2 hours and came before, GHIJKL parked for 90 minutes
+        RoundTripCounter counter = new RoundTripCounter();
+        InMemoryTicketDAO ticketDAO = new InMemoryTicketDAO(1, counter, 0);
+        ticketDAO.saveTicket(ticket("ABCDEF", 1, 600, true));
+        ticketDAO.saveTicket(ticket("ABCDEF", 2, 120, false));
+        ticketDAO.saveTicket(ticket("GHIJKL", 3, 90, false));
+        FareQuoteService fareQuoteService = new FareQuoteService(ticketDAO, new FareCalculatorService());
+        long roundTripsBefore = counter.getTotal();
+
+        // WHEN
+        List<FareQuote> quotes = fareQuoteService.quote(Arrays.asList("ABCDEF", "GHIJKL", "MNOPQR", "ABCDEF"));
+
+        // THEN one query for the tickets, one for the counts
+        assertEquals(2, counter.getTotal() - roundTripsBefore);
+        assertEquals(4, quotes.size());
+        assertTrue(quotes.get(0).isRecurrentUser());
+        assertEquals(2 * Fare.CAR_RATE_PER_HOUR * 0.95, quotes.get(0).getPrice(), 0.0001);
+        assertFalse(quotes.get(1).isRecurrentUser());
+        assertEquals(1.5 * Fare.CAR_RATE_PER_HOUR, quotes.get(1).getPrice(), 0.0001);
+        assertEquals(FareQuote.Status.NO_OPEN_TICKET, quotes.get(2).getStatus());
+        assertSame(quotes.get(0), quotes.get(3));
+        Ticket stored = ticketDAO.getTicket("ABCDEF");
+        assertNull(stored.getOutTime());
+        assertEquals(0, stored.getPrice());
+    }
+
+    @Test
+    public void repeatedPollsWithinTheMinuteAreServedFromCache() {
+        RoundTripCounter counter = new RoundTripCounter();
+        InMemoryTicketDAO ticketDAO = new InMemoryTicketDAO(1, counter, 0);
+        ticketDAO.saveTicket(ticket("ABCDEF", 1, 45, false));
+        FareQuoteService fareQuoteService = new FareQuoteService(ticketDAO, new FareCalculatorService());
+        FareQuote first = fareQuoteService.quote("ABCDEF");
+        long roundTrips = counter.getTotal();
+
+        FareQuote second = fareQuoteService.quote("ABCDEF");
+
+        assertEquals(roundTrips, counter.getTotal());
+        assertSame(first, second);
+        assertTrue(second.isValidAt(System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,57 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.PlateHashing;
+import com.parkit.parkingsystem.util.RoundTripCounter;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlightRecorderEventsTest {
+
+    @Test
+    public void entryAndExitAreRecordedWithPlateHashOnly(@TempDir Path dir) throws Exception {
+        // GIVEN
+        RoundTripCounter counter = new RoundTripCounter();
+        InMemoryParkingSpotDAO parkingSpotDAO = new InMemoryParkingSpotDAO(1, counter, 0);
+        parkingSpotDAO.addParkingSpots(ParkingType.CAR, 1, 2);
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, new InMemoryTicketDAO(1, counter, 0));
+        Path dump = dir.resolve("parking.jfr");
+
+        // WHEN
+        try (Recording recording = new Recording()) {
+            recording.enable("com.parkit.ParkingOperation");
+            recording.enable("com.parkit.FareCalculation");
+            recording.start();
+            parkingService.processIncomingVehicle("ABCDEF", ParkingType.CAR);
+            parkingService.processExitingVehicle("ABCDEF");
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        // THEN
+        List<RecordedEvent> operations = RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> event.getEventType().getName().equals("com.parkit.ParkingOperation"))
+                .collect(Collectors.toList());
+        assertEquals(2, operations.size());
+        for (RecordedEvent operation : operations) {
+            assertEquals(PlateHashing.fingerprint("ABCDEF"), operation.getLong("plateHash"));
+            assertEquals(1, operation.getInt("parkingNumber"));
+            assertTrue(operation.getBoolean("succeeded"));
+            assertFalse(operation.getEventType().getFields().stream().anyMatch(field -> field.getName().equals("plate")));
+        }
+        assertTrue(RecordingFile.readAllEvents(dump).stream()
+                .anyMatch(event -> event.getEventType().getName().equals("com.parkit.FareCalculation")));
+    }
+}
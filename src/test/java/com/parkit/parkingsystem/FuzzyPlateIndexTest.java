@@ -0,0 +1,59 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.model.PlateMatch;
+import com.parkit.parkingsystem.service.FuzzyPlateIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FuzzyPlateIndexTest {
+
+    @Test
+    public void findsPlateReadWithLookAlikeCharacters() {
+        // GIVEN
+        FuzzyPlateIndex index = new FuzzyPlateIndex();
+        index.open("AB123CD", 1_000);
+        index.open("XY987ZT", 1_000);
+
+        // WHEN the camera read B as 8 and 1 as I
+        List<PlateMatch> matches = index.search("a8-i23cd", 3);
+
+        // THEN
+        assertEquals(1, matches.size());
+        assertEquals("AB123CD", matches.get(0).getVehicleRegNumber());
+        assertEquals(2 * FuzzyPlateIndex.LOOKALIKE_COST, matches.get(0).getDistance(), 0.0001);
+        assertTrue(matches.get(0).isOpen());
+    }
+
+    @Test
+    public void ranksCloserPlatesFirstAndParkedBeforeLeft() {
+        FuzzyPlateIndex index = new FuzzyPlateIndex();
+        index.open("AB123CD", 1_000);
+        index.open("AB123CE", 1_000);
+        index.close("AB123CF", 2_000);
+
+        List<PlateMatch> matches = index.search("AB123CD", 3);
+
+        assertEquals(3, matches.size());
+        assertEquals("AB123CD", matches.get(0).getVehicleRegNumber());
+        assertEquals("AB123CE", matches.get(1).getVehicleRegNumber());
+        assertEquals("AB123CF", matches.get(2).getVehicleRegNumber());
+        assertFalse(matches.get(2).isOpen());
+    }
+
+    @Test
+    public void exitsLeaveTheIndexAfterTheHistoryWindow() {
+        // GIVEN a one hour history
+        FuzzyPlateIndex index = new FuzzyPlateIndex(60 * 60 * 1000);
+        index.close("AB123CD", 0);
+
+        // WHEN another car leaves two hours later
+        index.close("XY987ZT", 2 * 60 * 60 * 1000);
+
+        // THEN
+        assertEquals(1, index.size());
+        assertTrue(index.search("AB123CD", 1).isEmpty());
+    }
+}
@@ -0,0 +1,34 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.loadtest.LatencyHistogram;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesStayWithinBucketPrecision() {
+        // GIVEN
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int micros = 1; micros <= 10_000; micros++) {
+            (micros % 2 == 0 ? first : second).recordNanos(micros * 1000L);
+        }
+
+        // WHEN
+        first.merge(second);
+
+        // THEN
+        assertEquals(10_000, first.getCount());
+        assertEquals(10_000, first.getMaxMicros());
+        assertEquals(5_000, first.getPercentileMicros(50), 5_000 * 0.04);
+        assertEquals(9_900, first.getPercentileMicros(99), 9_900 * 0.04);
+        assertEquals(10_000, first.getPercentileMicros(100));
+    }
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        assertEquals(0, new LatencyHistogram().getPercentileMicros(99));
+    }
+}
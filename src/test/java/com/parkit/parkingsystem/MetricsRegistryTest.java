@@ -0,0 +1,62 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.monitoring.Counter;
+import com.parkit.parkingsystem.monitoring.Histogram;
+import com.parkit.parkingsystem.monitoring.MetricsRegistry;
+import com.parkit.parkingsystem.monitoring.ParkingMetrics;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void sameNameAndLabelsReturnSameMetric() {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        Counter first = registry.counter("parking_test_total", "Test", "lot", "1");
+        Counter second = registry.counter("parking_test_total", "Test", "lot", "1");
+        Counter otherLot = registry.counter("parking_test_total", "Test", "lot", "2");
+
+        assertSame(first, second);
+        assertNotSame(first, otherLot);
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("parking_test_total", "Test", () -> 1, "lot", "1"));
+    }
+
+    @Test
+    public void prometheusTextGroupsSeriesByFamily() {
+        // GIVEN
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("parking_test_total", "Test", "lot", "1").add(3);
+        registry.counter("parking_test_total", "Test", "lot", "2").increment();
+        Histogram histogram = registry.histogram("parking_test_seconds", "Latency", new double[]{0.01, 0.1}, "lot", "1");
+        histogram.observe(0.005);
+        histogram.observe(0.05);
+        histogram.observe(1);
+
+        // WHEN
+        String text = registry.toPrometheusText();
+
+        // THEN
+        assertEquals(1, text.split("# TYPE parking_test_total counter", -1).length - 1);
+        assertTrue(text.contains("parking_test_total{lot=\"1\"} 3\n"));
+        assertTrue(text.contains("parking_test_total{lot=\"2\"} 1\n"));
+        assertTrue(text.contains("parking_test_seconds_bucket{lot=\"1\",le=\"0.01\"} 1\n"));
+        assertTrue(text.contains("parking_test_seconds_bucket{lot=\"1\",le=\"0.1\"} 2\n"));
+        assertTrue(text.contains("parking_test_seconds_bucket{lot=\"1\",le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("parking_test_seconds_count{lot=\"1\"} 3\n"));
+    }
+
+    @Test
+    public void openTicketStoreHitRatio() {
+        MetricsRegistry registry = new MetricsRegistry();
+        ParkingMetrics metrics = new ParkingMetrics(registry, 1);
+
+        metrics.recordOpenTicketLookup(true);
+        metrics.recordOpenTicketLookup(true);
+        metrics.recordOpenTicketLookup(true);
+        metrics.recordOpenTicketLookup(false);
+
+        assertEquals(0.75, registry.getValues().get("parking_open_ticket_store_hit_ratio{lot=\"1\"}"));
+    }
+}
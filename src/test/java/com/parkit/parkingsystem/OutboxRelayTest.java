@@ -0,0 +1,190 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.OutboxDAO;
+import com.parkit.parkingsystem.model.OutboxEntry;
+import com.parkit.parkingsystem.outbox.ListenerOutboxSink;
+import com.parkit.parkingsystem.outbox.OutboxRelay;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class OutboxRelayTest {
+
+    private static OutboxEntry entry(long id) {
+        return new OutboxEntry(id, 1, OutboxEntry.TICKET_SAVED, 0, "ABC" + id, 1, 0, new Date(), null, new Date());
+    }
+
+    private static List<Long> ids(List<OutboxEntry> entries) {
+        List<Long> ids = new ArrayList<>();
+        for (OutboxEntry entry : entries) {
+            ids.add(entry.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void deliversInOrderAndSavesCheckpoint() {
+        // GIVEN rows 1 to 3 and no checkpoint yet
+        OutboxDAO outboxDAO = mock(OutboxDAO.class);
+        when(outboxDAO.getCheckpoint("billing")).thenReturn(0L);
+        when(outboxDAO.getEntriesAfter(0L, 10)).thenReturn(Arrays.asList(entry(1), entry(2), entry(3)));
+        when(outboxDAO.saveCheckpoint(anyString(), anyLong(), anyMap())).thenReturn(true);
+        ListenerOutboxSink sink = new ListenerOutboxSink();
+        List<Long> delivered = new ArrayList<>();
+        sink.addListener(batch -> delivered.addAll(ids(batch)));
+        OutboxRelay relay = new OutboxRelay("billing", outboxDAO, sink, 10, 50, 1_000);
+
+        // WHEN
+        int count = relay.relayOnce();
+
+        // THEN
+        assertEquals(3, count);
+        assertEquals(Arrays.asList(1L, 2L, 3L), delivered);
+        assertEquals(3, relay.getCheckpoint());
+        verify(outboxDAO).saveCheckpoint("billing", 3, Collections.emptyMap());
+    }
+
+    @Test
+    public void failedBatchIsDeliveredAgain() {
+        // GIVEN a listener failing once
+        OutboxDAO outboxDAO = mock(OutboxDAO.class);
+        when(outboxDAO.getCheckpoint("billing")).thenReturn(4L);
+        when(outboxDAO.getEntriesAfter(4L, 10)).thenReturn(Arrays.asList(entry(5), entry(6)));
+        ListenerOutboxSink sink = new ListenerOutboxSink();
+        List<List<Long>> batches = new ArrayList<>();
+        sink.addListener(batch -> {
+            batches.add(ids(batch));
+            if (batches.size() == 1) {
+                throw new IllegalStateException("consumer down");
+            }
+        });
+        OutboxRelay relay = new OutboxRelay("billing", outboxDAO, sink, 10, 50, 1_000);
+
+        // WHEN
+        int first = relay.relayOnce();
+        int second = relay.relayOnce();
+
+        // THEN the checkpoint only moved after the second delivery
+        assertEquals(-1, first);
+        assertEquals(2, second);
+        assertEquals(Arrays.asList(Arrays.asList(5L, 6L), Arrays.asList(5L, 6L)), batches);
+        verify(outboxDAO, times(1)).saveCheckpoint(eq("billing"), eq(6L), anyMap());
+    }
+
+    @Test
+    public void waitsAtGapThenSkipsItAfterGapWait() throws Exception {
+        // GIVEN row 2 not visible, maybe still in its transaction
+        OutboxDAO outboxDAO = mock(OutboxDAO.class);
+        when(outboxDAO.getCheckpoint("billing")).thenReturn(0L);
+        when(outboxDAO.getEntriesAfter(0L, 10)).thenReturn(Arrays.asList(entry(1), entry(3)));
+        when(outboxDAO.getEntriesAfter(1L, 10)).thenReturn(Collections.singletonList(entry(3)));
+        ListenerOutboxSink sink = new ListenerOutboxSink();
+        List<Long> delivered = new ArrayList<>();
+        sink.addListener(batch -> delivered.addAll(ids(batch)));
+        OutboxRelay relay = new OutboxRelay("billing", outboxDAO, sink, 10, 50, 100);
+
+        // WHEN
+        int beforeGap = relay.relayOnce();
+        int atGap = relay.relayOnce();
+        Thread.sleep(150);
+        int afterGapWait = relay.relayOnce();
+
+        // THEN
+        assertEquals(1, beforeGap);
+        assertEquals(0, atGap);
+        assertEquals(1, afterGapWait);
+        assertEquals(Arrays.asList(1L, 3L), delivered);
+        assertEquals(3, relay.getCheckpoint());
+    }
+
+    @Test
+    public void rowCommittedAfterItsGapWasSkippedIsStillDelivered() {
+        // GIVEN row 2 not visible yet, no gap wait
+        OutboxDAO outboxDAO = mock(OutboxDAO.class);
+        when(outboxDAO.getCheckpoint("billing")).thenReturn(0L);
+        when(outboxDAO.getEntriesAfter(0L, 10)).thenReturn(Arrays.asList(entry(1), entry(3)));
+        when(outboxDAO.getEntriesAfter(3L, 10)).thenReturn(Collections.emptyList());
+        when(outboxDAO.getEntries(Collections.singletonList(2L))).thenReturn(Collections.singletonList(entry(2)));
+        ListenerOutboxSink sink = new ListenerOutboxSink();
+        List<Long> delivered = new ArrayList<>();
+        sink.addListener(batch -> delivered.addAll(ids(batch)));
+        OutboxRelay relay = new OutboxRelay("billing", outboxDAO, sink, 10, 50, 0);
+
+        // WHEN row 2 commits after the relay moved past it
+        int skipping = relay.relayOnce();
+        int skippedCount = relay.getSkippedCount();
+        int late = relay.relayOnce();
+
+        // THEN
+        assertEquals(2, skipping);
+        assertEquals(1, skippedCount);
+        assertEquals(1, late);
+        assertEquals(Arrays.asList(1L, 3L, 2L), delivered);
+        assertEquals(0, relay.getSkippedCount());
+        assertEquals(3, relay.getCheckpoint());
+    }
+
+    @Test
+    public void skippedIdIsSavedWithTheCheckpoint() {
+        // GIVEN row 2 not visible yet, no gap wait
+        OutboxDAO outboxDAO = mock(OutboxDAO.class);
+        when(outboxDAO.getCheckpoint("billing")).thenReturn(0L);
+        when(outboxDAO.getEntriesAfter(0L, 10)).thenReturn(Arrays.asList(entry(1), entry(3)));
+        List<Map<Long, Long>> savedSkipped = new ArrayList<>();
+        when(outboxDAO.saveCheckpoint(eq("billing"), eq(3L), anyMap())).thenAnswer(invocation -> {
+            savedSkipped.add(new HashMap<>(invocation.getArgument(2)));
+            return true;
+        });
+        OutboxRelay relay = new OutboxRelay("billing", outboxDAO, new ListenerOutboxSink(), 10, 50, 0);
+
+        // WHEN
+        relay.relayOnce();
+
+        // THEN
+        assertEquals(1, savedSkipped.size());
+        assertEquals(Collections.singleton(2L), savedSkipped.get(0).keySet());
+    }
+
+    @Test
+    public void skippedIdsSurviveARestart() {
+        // GIVEN a relay restarted after moving past row 2, which committed since
+        OutboxDAO outboxDAO = mock(OutboxDAO.class);
+        when(outboxDAO.getCheckpoint("billing")).thenReturn(3L);
+        when(outboxDAO.getSkippedIds("billing")).thenReturn(Collections.singletonMap(2L, System.currentTimeMillis()));
+        when(outboxDAO.getEntries(Collections.singletonList(2L))).thenReturn(Collections.singletonList(entry(2)));
+        when(outboxDAO.getEntriesAfter(3L, 10)).thenReturn(Collections.emptyList());
+        when(outboxDAO.deleteSkippedIds(anyString(), anyList())).thenReturn(true);
+        ListenerOutboxSink sink = new ListenerOutboxSink();
+        List<Long> delivered = new ArrayList<>();
+        sink.addListener(batch -> delivered.addAll(ids(batch)));
+        OutboxRelay relay = new OutboxRelay("billing", outboxDAO, sink, 10, 50, 0);
+
+        // WHEN
+        int count = relay.relayOnce();
+
+        // THEN
+        assertEquals(1, count);
+        assertEquals(Collections.singletonList(2L), delivered);
+        assertEquals(0, relay.getSkippedCount());
+        verify(outboxDAO).deleteSkippedIds("billing", Collections.singletonList(2L));
+    }
+
+    @Test
+    public void unreadableCheckpointDeliversNothing() {
+        OutboxDAO outboxDAO = mock(OutboxDAO.class);
+        when(outboxDAO.getCheckpoint("billing")).thenReturn(-1L);
+        OutboxRelay relay = new OutboxRelay("billing", outboxDAO, new ListenerOutboxSink());
+
+        assertEquals(-1, relay.relayOnce());
+        verify(outboxDAO, never()).getEntriesAfter(anyLong(), anyInt());
+    }
+}
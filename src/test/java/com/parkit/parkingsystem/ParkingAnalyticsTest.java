@@ -0,0 +1,191 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.AnalyticsDAO;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.model.DailyParkingSketches;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingAnalytics;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.HyperLogLog;
+import com.parkit.parkingsystem.util.KllSketch;
+import com.parkit.parkingsystem.util.RoundTripCounter;
+import com.parkit.parkingsystem.util.VirtualClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class ParkingAnalyticsTest {
+
+    private static final long START = 1_704_067_200_000L; // 2024-01-01T00:00Z
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    @Test
+    public void hyperLogLogCountsDistinctPlatesOfAUnion() {
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        for (int i = 0; i < 30_000; i++) {
+            monday.add("AB" + i);
+            monday.add("AB" + i);
+            tuesday.add("AB" + (i + 15_000));
+        }
+
+        monday.merge(tuesday);
+
+        assertEquals(45_000, monday.estimate(), 45_000 * 0.05);
+        assertEquals(0, new HyperLogLog().estimate());
+    }
+
+    @Test
+    public void kllQuantilesStayCloseInRankAfterMerging() {
+        // GIVEN two lots' dwell times, 0 to 99 999 and 100 000 to 199 999 minutes, shuffled
+        Random random = new Random(42);
+        KllSketch first = new KllSketch();
+        KllSketch second = new KllSketch();
+        for (int i = 0; i < 100_000; i++) {
+            first.update(random.nextInt(100_000));
+            second.update(100_000 + random.nextInt(100_000));
+        }
+
+        // WHEN
+        first.merge(second);
+
+        // THEN
+        assertEquals(200_000, first.getCount());
+        assertEquals(100_000, first.quantile(0.5), 200_000 * 0.01);
+        assertEquals(180_000, first.quantile(0.9), 200_000 * 0.01);
+        assertTrue(first.getRetained() < 1_000);
+        assertTrue(Float.isNaN(new KllSketch().quantile(0.5)));
+    }
+
+    @Test
+    public void sketchesSurviveTheirBytes() throws Exception {
+        DailyParkingSketches daily = new DailyParkingSketches(FIRST_DAY, ParkingType.CAR);
+        for (int i = 0; i < 500; i++) {
+            daily.recordEntry("XY" + i);
+            daily.recordExit(i, i / 10f);
+        }
+
+        DailyParkingSketches read = DailyParkingSketches.fromBytes(FIRST_DAY, ParkingType.CAR,
+                daily.getPlatesBytes(), daily.getDwellMinutesBytes(), daily.getFaresBytes());
+
+        assertEquals(daily.getUniquePlates(), read.getUniquePlates());
+        assertEquals(500, read.getExits());
+        assertEquals(daily.getDwellMinutesQuantile(0.5), read.getDwellMinutesQuantile(0.5));
+        assertEquals(daily.getFareQuantile(0.99), read.getFareQuantile(0.99));
+        // few plates: only the registers set are written
+        assertTrue(daily.getPlatesBytes().length < 2_000);
+    }
+
+    @Test
+    public void parkingServiceUpdatesTheDayOfEachEntryAndExit() {
+        // GIVEN
+        RoundTripCounter counter = new RoundTripCounter();
+        InMemoryParkingSpotDAO parkingSpotDAO = new InMemoryParkingSpotDAO(1, counter, 0);
+        parkingSpotDAO.addParkingSpots(ParkingType.CAR, 1, 3);
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, new InMemoryTicketDAO(1, counter, 0));
+        VirtualClock clock = new VirtualClock(START, ZoneOffset.UTC);
+        parkingService.setClock(clock);
+        ParkingAnalytics analytics = new ParkingAnalytics(ZoneOffset.UTC);
+        parkingService.setAnalytics(analytics);
+        List<String> plates = Arrays.asList("AB123", "CD456", "EF789");
+
+        // WHEN the same three cars stay two hours on two days
+        for (int day = 0; day < 2; day++) {
+            for (String plate : plates) {
+                parkingService.processIncomingVehicle(plate, ParkingType.CAR);
+            }
+            clock.advance(Duration.ofHours(2));
+            for (String plate : plates) {
+                parkingService.processExitingVehicle(plate);
+            }
+            clock.advance(Duration.ofHours(22));
+        }
+
+        // THEN
+        LocalDate secondDay = FIRST_DAY.plusDays(1);
+        assertEquals(3, analytics.getUniquePlates(FIRST_DAY, FIRST_DAY, ParkingType.CAR));
+        assertEquals(3, analytics.getUniquePlates(FIRST_DAY, secondDay, null));
+        assertEquals(0, analytics.getUniquePlates(FIRST_DAY, secondDay, ParkingType.BIKE));
+        assertEquals(6, analytics.getExits(FIRST_DAY, secondDay, ParkingType.CAR));
+        assertEquals(120, analytics.getDwellMinutesQuantile(FIRST_DAY, secondDay, ParkingType.CAR, 0.5), 0.001);
+        assertEquals(2 * Fare.CAR_RATE_PER_HOUR, analytics.getFareQuantile(FIRST_DAY, FIRST_DAY, ParkingType.CAR, 1), 0.001);
+    }
+
+    @Test
+    public void flushSavesChangedDaysAgainUntilASaveWorks() {
+        // GIVEN a day loaded from the DB and one merged from another lot
+        AnalyticsDAO analyticsDAO = mock(AnalyticsDAO.class);
+        when(analyticsDAO.saveSketches(any())).thenReturn(false, true);
+        when(analyticsDAO.getSketches(FIRST_DAY, FIRST_DAY)).thenReturn(Collections.singletonList(
+                new DailyParkingSketches(FIRST_DAY, ParkingType.BIKE)));
+        ParkingAnalytics analytics = new ParkingAnalytics(ZoneOffset.UTC);
+        assertTrue(analytics.load(analyticsDAO, FIRST_DAY, FIRST_DAY));
+        DailyParkingSketches otherLot = new DailyParkingSketches(FIRST_DAY, ParkingType.CAR);
+        otherLot.recordEntry("GH012");
+        analytics.merge(otherLot);
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("AB123");
+        ticket.setInTime(new Date(START));
+
+        // WHEN nothing changed, then an entry is recorded and the first save fails
+        boolean unchanged = analytics.flush(analyticsDAO);
+        analytics.recordEntry(ticket);
+        boolean failed = analytics.flush(analyticsDAO);
+        boolean retried = analytics.flush(analyticsDAO);
+        boolean nothingLeft = analytics.flush(analyticsDAO);
+
+        // THEN
+        assertTrue(unchanged);
+        assertFalse(failed);
+        assertTrue(retried);
+        assertTrue(nothingLeft);
+        // only the entry recorded here, the saved row holds the rest
+        verify(analyticsDAO, times(2)).saveSketches(argThat(saved -> saved.size() == 1
+                && saved.get(0).getParkingType() == ParkingType.CAR && saved.get(0).getUniquePlates() == 1));
+        assertEquals(2, analytics.getUniquePlates(FIRST_DAY, FIRST_DAY, null));
+    }
+
+    @Test
+    public void nothingIsFlushedUntilALoadSucceeds() {
+        // GIVEN the saved days cannot be read at start
+        AnalyticsDAO analyticsDAO = mock(AnalyticsDAO.class);
+        when(analyticsDAO.getSketches(FIRST_DAY, FIRST_DAY)).thenReturn(null, Collections.emptyList());
+        when(analyticsDAO.saveSketches(any())).thenReturn(true);
+        ParkingAnalytics analytics = new ParkingAnalytics(ZoneOffset.UTC);
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("AB123");
+        ticket.setInTime(new Date(START));
+        boolean firstLoad = analytics.load(analyticsDAO, FIRST_DAY, FIRST_DAY);
+        analytics.recordEntry(ticket);
+
+        // WHEN
+        boolean refused = analytics.flush(analyticsDAO);
+        boolean secondLoad = analytics.load(analyticsDAO, FIRST_DAY, FIRST_DAY);
+        boolean flushed = analytics.flush(analyticsDAO);
+
+        // THEN
+        assertFalse(firstLoad);
+        assertFalse(refused);
+        assertTrue(secondLoad);
+        assertTrue(flushed);
+        verify(analyticsDAO, times(1)).saveSketches(argThat(saved -> saved.size() == 1 && saved.get(0).getUniquePlates() == 1));
+    }
+}
@@ -0,0 +1,108 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.event.ParkingEvent;
+import com.parkit.parkingsystem.event.ParkingEventStream;
+import com.parkit.parkingsystem.event.ParkingReadModels;
+import com.parkit.parkingsystem.event.ProjectionRunner;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.RoundTripCounter;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingReadModelsTest {
+
+    @Test
+    public void projectionsFollowEntriesAndExits() throws Exception {
+        // GIVEN a lot with 3 car spots and one car that already left
+        RoundTripCounter counter = new RoundTripCounter();
+        InMemoryParkingSpotDAO parkingSpotDAO = new InMemoryParkingSpotDAO(1, counter, 0);
+        parkingSpotDAO.addParkingSpots(ParkingType.CAR, 1, 3);
+        InMemoryTicketDAO ticketDAO = new InMemoryTicketDAO(1, counter, 0);
+        Ticket past = new Ticket();
+        past.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        past.setVehicleRegNumber("ABCDEF");
+        past.setInTime(new Date(System.currentTimeMillis() - 3 * 60 * 60 * 1000));
+        past.setOutTime(new Date(System.currentTimeMillis() - 2 * 60 * 60 * 1000));
+        past.setPrice(1.5);
+        ticketDAO.saveTicket(past);
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+        ParkingReadModels readModels = new ParkingReadModels(new ParkingEventStream());
+        readModels.seed(parkingSpotDAO, ticketDAO);
+        parkingService.setEventStream(readModels.getStream());
+
+        // WHEN ABCDEF comes back and GHIJKL comes and goes
+        parkingService.processIncomingVehicle("ABCDEF", ParkingType.CAR);
+        parkingService.processIncomingVehicle("GHIJKL", ParkingType.CAR);
+        parkingService.processExitingVehicle("GHIJKL");
+        long last = readModels.getStream().getPublishedCount() - 1;
+
+        // THEN
+        assertTrue(readModels.awaitApplied(last, 5_000));
+        assertEquals(1, readModels.getOpenTickets().size());
+        assertNotNull(readModels.getOpenTickets().getEntry("ABCDEF"));
+        assertEquals(2, readModels.getSpotAvailability().getFreeSpots(ParkingType.CAR));
+        assertEquals(Boolean.FALSE, readModels.getSpotAvailability().isAvailable(1));
+        assertEquals(2, readModels.getPlateHistory().getVisitCount("ABCDEF"));
+        assertEquals(ParkingEvent.Type.VEHICLE_EXITED, readModels.getPlateHistory().getHistory("GHIJKL").get(1).getType());
+        // ABCDEF's first exit may fall on yesterday, GHIJKL's is today
+        assertTrue(readModels.getRevenue().getExits(LocalDate.now(), ParkingType.CAR) >= 1);
+        assertEquals(1.5, readModels.getRevenue().getTotalRevenue(), 0.0001);
+        readModels.close();
+    }
+
+    @Test
+    public void seedFailsWhenTheTicketsCannotBeRead() {
+        // GIVEN a ticket read failing
+        RoundTripCounter counter = new RoundTripCounter();
+        InMemoryParkingSpotDAO parkingSpotDAO = new InMemoryParkingSpotDAO(1, counter, 0);
+        parkingSpotDAO.addParkingSpots(ParkingType.CAR, 1, 3);
+        InMemoryTicketDAO ticketDAO = new InMemoryTicketDAO(1, counter, 0) {
+            @Override
+            public long forEachTicket(Consumer<Ticket> consumer) {
+                return -1;
+            }
+        };
+        ParkingReadModels readModels = new ParkingReadModels(new ParkingEventStream());
+
+        // WHEN
+        long seeded = readModels.seed(parkingSpotDAO, ticketDAO);
+
+        // THEN the spots are not seeded over missing tickets
+        assertEquals(-1, seeded);
+        assertEquals(0, readModels.getStream().getPublishedCount());
+        readModels.close();
+    }
+
+    @Test
+    public void eachProjectionSeesEveryEventInOrderAndConsumedSegmentsAreReleased() throws Exception {
+        ParkingEventStream stream = new ParkingEventStream();
+        List<Long> seen = Collections.synchronizedList(new ArrayList<>());
+        ProjectionRunner runner = stream.subscribe("sequence", event -> seen.add(event.getSequence()));
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, true);
+
+        for (int i = 0; i < 5_000; i++) {
+            stream.append(ParkingEvent.spotStateChanged(parkingSpot, i));
+        }
+
+        assertTrue(runner.awaitApplied(4_999, 5_000));
+        assertEquals(5_000, seen.size());
+        for (int i = 0; i < seen.size(); i++) {
+            assertEquals(i, seen.get(i).longValue());
+        }
+        assertTrue(stream.getFirstRetainedSequence() > 0);
+        stream.close();
+    }
+}
@@ -4,8 +4,14 @@ import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FuzzyPlateIndex;
 import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.PermitIndex;
+import com.parkit.parkingsystem.service.PermitService;
+import com.parkit.parkingsystem.service.RecurrenceService;
+import com.parkit.parkingsystem.service.ReservationService;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,10 +23,13 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Date;
+import java.util.List;
 
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -52,7 +61,7 @@ public class ParkingServiceTest {
             ticket.setVehicleRegNumber("ABCDEF");
             lenient().when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
             lenient().when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
-            lenient().when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+            lenient().when(parkingSpotDAO.updateParking(any(ParkingSpot.class), anyBoolean())).thenReturn(true);
             lenient().when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
             parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
         } catch (Exception e) {
@@ -68,13 +77,13 @@ public class ParkingServiceTest {
             when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
             when(inputReaderUtil.readSelection()).thenReturn(1); // 1 pour CAR
             when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
-            when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+            when(parkingSpotDAO.updateParking(any(ParkingSpot.class), eq(false))).thenReturn(true);
 
             // WHEN
             parkingService.processIncomingVehicle();
 
             // THEN
-            verify(parkingSpotDAO, times(1)).updateParking(any(ParkingSpot.class));
+            verify(parkingSpotDAO, times(1)).updateParking(any(ParkingSpot.class), eq(false));
             verify(ticketDAO, times(1)).saveTicket(any(Ticket.class));
         } catch (Exception e) {
             throw new RuntimeException("Test failed during execution", e);
@@ -95,7 +104,7 @@ public class ParkingServiceTest {
             when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn(regNumber);
             when(ticketDAO.getTicket(regNumber)).thenReturn(ticket);
             when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
-            when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+            when(parkingSpotDAO.updateParking(any(ParkingSpot.class), eq(true))).thenReturn(true);
 
             // WHEN
             parkingService.processExitingVehicle();
@@ -104,7 +113,7 @@ public class ParkingServiceTest {
             // On vérifie que le ticket est mis à jour (prix et heure de sortie)
             verify(ticketDAO, times(1)).updateTicket(any(Ticket.class));
             // On vérifie que la place de parking est libérée
-            verify(parkingSpotDAO, times(1)).updateParking(any(ParkingSpot.class));
+            verify(parkingSpotDAO, times(1)).updateParking(any(ParkingSpot.class), eq(true));
         } catch (Exception e) {
             throw new RuntimeException("Test failed during execution", e);
         }
@@ -135,7 +144,7 @@ public class ParkingServiceTest {
 
             // Verify that even if updateTicket fails, we can check the behavior.
             // For ParkIt, if updateTicket returns false, updateParking should NOT be called.
-            verify(parkingSpotDAO, times(0)).updateParking(any(ParkingSpot.class));
+            verify(parkingSpotDAO, times(0)).updateParking(any(ParkingSpot.class), anyBoolean());
 
         } catch (Exception e) {
             fail("Test failed due to unexpected exception: " + e.getMessage());
@@ -192,6 +201,50 @@ public class ParkingServiceTest {
         verify(parkingSpotDAO, times(1)).getNextAvailableSlot(ParkingType.CAR);
     }
 
+    @Test
+    public void getNextParkingNumberIfAvailable_skipsSpotHeldForReservation() {
+        // GIVEN
+        ReservationService reservationService = mock(ReservationService.class);
+        parkingService.setReservationService(reservationService);
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(parkingSpotDAO.getAvailableSlots(ParkingType.CAR)).thenReturn(List.of(1, 2));
+        when(reservationService.isHeldForReservation(eq(1), anyLong())).thenReturn(true);
+        when(reservationService.isHeldForReservation(eq(2), anyLong())).thenReturn(false);
+
+        // WHEN
+        ParkingSpot result = parkingService.getNextParkingNumberIfAvailable();
+
+        // THEN
+        assertNotNull(result);
+        assertEquals(2, result.getId(), "A walk-in must not get a spot booked soon");
+        verify(parkingSpotDAO, never()).getNextAvailableSlot(any(ParkingType.class));
+    }
+
+    @Test
+    public void processIncomingVehicle_bookedPlateGetsItsHeldSpot() {
+        // GIVEN spot 1 is held for ABCDEF's booking, the only other spot is taken
+        ReservationService reservationService = mock(ReservationService.class);
+        parkingService.setReservationService(reservationService);
+        Reservation reservation = new Reservation();
+        reservation.setParkingNumber(1);
+        reservation.setParkingType(ParkingType.CAR);
+        reservation.setVehicleRegNumber("ABCDEF");
+        when(reservationService.findClaimable(eq("ABCDEF"), eq(ParkingType.CAR), anyLong())).thenReturn(reservation);
+        when(parkingSpotDAO.getAvailableSlots(ParkingType.CAR)).thenReturn(List.of(1));
+        lenient().when(reservationService.isHeldForReservation(eq(1), anyLong())).thenReturn(true);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+
+        // WHEN
+        Ticket booked = parkingService.processIncomingVehicle("ABCDEF", ParkingType.CAR);
+        Ticket walkIn = parkingService.processIncomingVehicle("GHIJKL", ParkingType.CAR);
+
+        // THEN
+        assertNotNull(booked);
+        assertEquals(1, booked.getParkingSpot().getId());
+        assertNull(walkIn, "A walk-in must not get the held spot");
+        verify(reservationService).claim(reservation);
+    }
+
     @Test
     public void testGetVehichleType_carSelected() {
         // GIVEN
@@ -256,14 +309,63 @@ public class ParkingServiceTest {
         when(ticketDAO.getNbTicket(regNumber)).thenReturn(2);
 
         when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
-        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+        when(parkingSpotDAO.updateParking(any(ParkingSpot.class), eq(true))).thenReturn(true);
 
         parkingService.processExitingVehicle();
 
         verify(ticketDAO, times(1)).updateTicket(any(Ticket.class));
-        verify(parkingSpotDAO, times(1)).updateParking(any(ParkingSpot.class));
+        verify(parkingSpotDAO, times(1)).updateParking(any(ParkingSpot.class), eq(true));
     }
 
+    @Test
+    public void processExitingVehicle_firstTimeVisitor_skipsTicketCount() {
+        // GIVEN
+        RecurrenceService recurrenceService = new RecurrenceService(1000, 0.001);
+        recurrenceService.rebuild(ticketDAO);
+        recurrenceService.recordTicket("ABCDEF");
+        parkingService.setRecurrenceService(recurrenceService);
 
-}
+        // WHEN
+        Ticket ticket = parkingService.processExitingVehicle("ABCDEF");
 
+        // THEN
+        assertNotNull(ticket);
+        verify(ticketDAO, never()).getNbTicket(anyString());
+        verify(ticketDAO, times(1)).updateTicket(any(Ticket.class));
+    }
+
+    @Test
+    public void processExitingVehicle_unknownPlate_returnsNullWithoutUpdate() {
+        // GIVEN
+        FuzzyPlateIndex fuzzyPlateIndex = new FuzzyPlateIndex();
+        fuzzyPlateIndex.open("ABCDEF", System.currentTimeMillis());
+        parkingService.setFuzzyPlateIndex(fuzzyPlateIndex);
+        when(ticketDAO.getTicket("A8CDEF")).thenReturn(null);
+
+        // WHEN
+        Ticket ticket = parkingService.processExitingVehicle("A8CDEF");
+
+        // THEN
+        assertNull(ticket);
+        verify(ticketDAO, never()).updateTicket(any(Ticket.class));
+    }
+
+    @Test
+    public void processExitingVehicle_permitHolder_paysNothing() {
+        // GIVEN
+        PermitService permitService = new PermitService(null);
+        permitService.load(new PermitIndex.Builder().add("ABCDEF", System.currentTimeMillis() + 60_000).build());
+        parkingService.setPermitService(permitService);
+
+        // WHEN
+        Ticket ticket = parkingService.processExitingVehicle("ABCDEF");
+
+        // THEN
+        assertNotNull(ticket);
+        assertEquals(0, ticket.getPrice());
+        verify(ticketDAO, never()).getNbTicket(anyString());
+        verify(ticketDAO, times(1)).updateTicket(any(Ticket.class));
+    }
+
+
+}
@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.loadtest.ParkingSimulation;
+import com.parkit.parkingsystem.loadtest.SimulationProfile;
+import com.parkit.parkingsystem.loadtest.SimulationResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.RoundTripCounter;
+import com.parkit.parkingsystem.util.VirtualClock;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingSimulationTest {
+
+    private static final long START = 1_704_067_200_000L; // 2024-01-01T00:00Z
+
+    @Test
+    public void ticketsAreStampedAndPricedByTheInjectedClock() {
+        // GIVEN a service on a virtual clock
+        RoundTripCounter counter = new RoundTripCounter();
+        InMemoryParkingSpotDAO parkingSpotDAO = new InMemoryParkingSpotDAO(1, counter, 0);
+        parkingSpotDAO.addParkingSpots(ParkingType.CAR, 1, 1);
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, new InMemoryTicketDAO(1, counter, 0));
+        VirtualClock clock = new VirtualClock(START);
+        parkingService.setClock(clock);
+
+        // WHEN the car stays two virtual hours
+        Ticket entered = parkingService.processIncomingVehicle("ABCDEF", ParkingType.CAR);
+        clock.advance(Duration.ofHours(2));
+        Ticket exited = parkingService.processExitingVehicle("ABCDEF");
+
+        // THEN
+        assertEquals(START, entered.getInTime().getTime());
+        assertEquals(START + 2 * 3_600_000, exited.getOutTime().getTime());
+        assertEquals(2 * Fare.CAR_RATE_PER_HOUR, exited.getPrice(), 0.0001);
+    }
+
+    @Test
+    public void sameSeedGivesTheSameWeeks() throws IOException {
+        String[] args = {"days=14", "arrivalsPerHour=30", "carSpots=40", "bikeSpots=10", "seed=7"};
+
+        SimulationResult first = new ParkingSimulation(SimulationProfile.parse(args)).run();
+        SimulationResult second = new ParkingSimulation(SimulationProfile.parse(args)).run();
+
+        assertTrue(first.getEntries() > 0);
+        assertEquals(first.getEntries(), second.getEntries());
+        assertEquals(first.getLotFull(), second.getLotFull());
+        assertEquals(first.getTotalRevenue(), second.getTotalRevenue(), 0.0);
+        assertEquals(first.getRevenueByDay(), second.getRevenueByDay());
+        assertEquals(first.getEntries(), first.getExits());
+        assertTrue(first.getSimulatedMillis() >= Duration.ofDays(14).toMillis());
+        assertTrue(first.getRevenueByDay().containsKey(LocalDate.of(2024, 1, 14)));
+        assertTrue(first.getPeakOccupancy(ParkingType.CAR) <= 40);
+    }
+
+    @Test
+    public void replaysAPlateFeed() throws IOException {
+        // GIVEN a car staying 3 hours and a bike staying 20 minutes
+        Path feed = Files.createTempFile("plates", ".txt");
+        Files.write(feed, Arrays.asList(
+                START + ";ABCDEF;ENTRY;CAR",
+                (START + 60_000) + ";XYZ12;ENTRY;BIKE",
+                (START + 21 * 60_000) + ";XYZ12;EXIT",
+                (START + 3 * 3_600_000) + ";ABCDEF;EXIT"), StandardCharsets.UTF_8);
+
+        // WHEN
+        SimulationResult result = new ParkingSimulation(SimulationProfile.parse(new String[]{"replay=" + feed})).run();
+        Files.delete(feed);
+
+        // THEN
+        assertEquals(2, result.getExits());
+        assertEquals(3 * Fare.CAR_RATE_PER_HOUR, result.getRevenue(ParkingType.CAR), 0.0001);
+        assertEquals(0, result.getRevenue(ParkingType.BIKE), 0.0001);
+        assertEquals(3 * 3_600_000, result.getSimulatedMillis());
+    }
+}
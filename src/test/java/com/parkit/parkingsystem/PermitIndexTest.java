@@ -0,0 +1,80 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.PermitDAO;
+import com.parkit.parkingsystem.service.PermitIndex;
+import com.parkit.parkingsystem.service.PermitService;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.function.ObjLongConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class PermitIndexTest {
+
+    @Test
+    public void findsEveryPermitAndOnlyThem() {
+        // GIVEN 100 000 permits
+        long validUntil = System.currentTimeMillis() + 60_000;
+        PermitIndex.Builder builder = new PermitIndex.Builder();
+        for (int i = 0; i < 100_000; i++) {
+            builder.add("P" + i, validUntil);
+        }
+
+        // WHEN
+        PermitIndex index = builder.build();
+
+        // THEN
+        assertEquals(100_000, index.size());
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(index.isPermitHolder("P" + i, now));
+            assertFalse(index.isPermitHolder("Q" + i, now));
+        }
+        assertFalse(index.isPermitHolder("P1", validUntil));
+    }
+
+    @Test
+    public void matchesPlatesWhateverTheirCaseAndSeparators() {
+        PermitIndex.Builder builder = new PermitIndex.Builder().add("ab-123 cd", Long.MAX_VALUE).add("TOO-LONG-PLATE", Long.MAX_VALUE);
+        PermitIndex index = builder.build();
+
+        assertEquals(1, index.size());
+        assertEquals(1, builder.getSkipped());
+        assertTrue(index.isPermitHolder("AB123CD", System.currentTimeMillis()));
+        assertFalse(index.isPermitHolder("TOOLONGPLATE", System.currentTimeMillis()));
+    }
+
+    @Test
+    public void renewalKeepsLatestExpiry() {
+        PermitIndex index = new PermitIndex.Builder().add("ABCDEF", 2_000).add("ABCDEF", 5_000).add("ABCDEF", 1_000).build();
+
+        assertEquals(1, index.size());
+        assertEquals(5_000, index.getValidUntil("ABCDEF"));
+        assertEquals(0, index.getValidUntil("GHIJKL"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void failedReloadKeepsPreviousIndex() {
+        // GIVEN a first reload reading one permit, then a DB failure
+        PermitDAO permitDAO = mock(PermitDAO.class);
+        when(permitDAO.forEachActivePermit(any(Date.class), any(ObjLongConsumer.class))).thenAnswer(invocation -> {
+            ObjLongConsumer<String> consumer = invocation.getArgument(1);
+            consumer.accept("ABCDEF", Long.MAX_VALUE);
+            return 1L;
+        }).thenReturn(-1L);
+        PermitService permitService = new PermitService(permitDAO);
+
+        // WHEN
+        boolean first = permitService.reload();
+        boolean second = permitService.reload();
+
+        // THEN
+        assertTrue(first);
+        assertFalse(second);
+        assertTrue(permitService.isPermitHolder("ABCDEF", System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,48 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.util.PlateCodec;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlateCodecTest {
+
+    @Test
+    public void encodeIgnoresCaseAndSeparators() {
+        long code = PlateCodec.encode("AB123CD");
+
+        assertEquals(code, PlateCodec.encode("ab-123 cd"));
+        assertEquals(code, PlateCodec.encode(new StringBuilder("Ab.123.Cd")));
+        assertEquals("AB123CD", PlateCodec.decode(code));
+        assertEquals("AB123CD", PlateCodec.normalize(" ab-123-cd "));
+    }
+
+    @Test
+    public void rejectsInvalidPlates() {
+        assertEquals(PlateCodec.INVALID, PlateCodec.encode(null));
+        assertEquals(PlateCodec.INVALID, PlateCodec.encode(""));
+        assertEquals(PlateCodec.INVALID, PlateCodec.encode(" - "));
+        assertEquals(PlateCodec.INVALID, PlateCodec.encode("ABCDEFGHIJK"));
+        assertEquals(PlateCodec.INVALID, PlateCodec.encode("\u00C9COLE1"));
+        assertNull(PlateCodec.normalize("ABCDEFGHIJK"));
+        assertThrows(IllegalArgumentException.class, () -> PlateCodec.decode(PlateCodec.INVALID));
+    }
+
+    @Test
+    public void roundTripsAndKeepsPlatesOfEveryLengthApart() {
+        // GIVEN plates that only differ by leading zeros, and the longest plates
+        String[] plates = {"0", "00", "000", "A", "0A", "Z", "ZZZZZZZZZZ", "9999999999", "0000000000", "AB123CD"};
+        Set<Long> codes = new HashSet<>();
+
+        for (String plate : plates) {
+            long code = PlateCodec.encode(plate);
+
+            assertTrue(code > 0);
+            assertTrue(codes.add(code), plate);
+            assertEquals(plate, PlateCodec.decode(code));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.PlateEvent;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.PlateEventIngestor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PlateEventIngestorTest {
+
+    @Mock
+    private ParkingService parkingService;
+
+    private PlateEventIngestor ingestor;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        ingestor = new PlateEventIngestor(parkingService, 10_000, 100, 1000);
+    }
+
+    @Test
+    public void repeatedReadsWithinWindowAreDispatchedOnce() {
+        // GIVEN
+        ingestor.offer(new PlateEvent("ab-123 cd", ParkingType.CAR, PlateEvent.Direction.ENTRY, 1_000));
+        ingestor.offer(new PlateEvent("AB123CD", ParkingType.CAR, PlateEvent.Direction.ENTRY, 1_500));
+        ingestor.offer(new PlateEvent("ab123cd", ParkingType.CAR, PlateEvent.Direction.ENTRY, 4_000));
+
+        // WHEN
+        int dispatched = ingestor.drainBatch();
+
+        // THEN
+        assertEquals(1, dispatched);
+        assertEquals(2, ingestor.getDuplicateCount());
+        verify(parkingService, times(1)).processIncomingVehicle("AB123CD", ParkingType.CAR);
+    }
+
+    @Test
+    public void readAfterWindowIsANewEvent() {
+        ingestor.offer(new PlateEvent("AB123CD", null, PlateEvent.Direction.EXIT, 1_000));
+        ingestor.offer(new PlateEvent("AB123CD", null, PlateEvent.Direction.EXIT, 30_000));
+
+        assertEquals(2, ingestor.drainBatch());
+        verify(parkingService, times(2)).processExitingVehicle("AB123CD");
+    }
+
+    @Test
+    public void feedLinesAreParsedAndInvalidOnesRejected() throws Exception {
+        String feed = "# camera 1\n"
+                + "1000;AB123CD;ENTRY;CAR\n"
+                + "1200;AB123CD;ENTRY;CAR\n"
+                + "2000;XY987;EXIT\n"
+                + "garbage\n"
+                + "3000;ZZ111;ENTRY\n";
+
+        long accepted = ingestor.ingest(new BufferedReader(new StringReader(feed)));
+        ingestor.drainBatch();
+
+        assertEquals(2, accepted);
+        assertEquals(2, ingestor.getRejectedCount());
+        verify(parkingService).processIncomingVehicle("AB123CD", ParkingType.CAR);
+        verify(parkingService).processExitingVehicle("XY987");
+    }
+}
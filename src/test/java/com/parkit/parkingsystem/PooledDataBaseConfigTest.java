@@ -0,0 +1,94 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.PooledDataBaseConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PooledDataBaseConfigTest {
+
+    @Mock
+    private DataBaseConfig source;
+    @Mock
+    private Connection connection;
+
+    private PooledDataBaseConfig pool;
+
+    @BeforeEach
+    public void setUp() {
+        pool = new PooledDataBaseConfig(source, 1, 50);
+    }
+
+    @Test
+    public void returnedConnectionIsReused() throws Exception {
+        // GIVEN
+        when(source.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+
+        // WHEN
+        Connection first = pool.getConnection();
+        pool.closeConnection(first);
+        Connection second = pool.getConnection();
+
+        // THEN just returned, so not validated
+        assertSame(first, second);
+        assertEquals(1, pool.getInUseCount());
+        verify(source, times(1)).getConnection();
+        verify(source, never()).closeConnection(connection);
+        verify(connection, never()).isValid(anyInt());
+    }
+
+    @Test
+    public void connectionIdleTooLongIsValidatedAndReplacedWhenDead() throws Exception {
+        // GIVEN every idle connection is validated
+        PooledDataBaseConfig validatingPool = new PooledDataBaseConfig(source, 1, 50, 0);
+        Connection fresh = mock(Connection.class);
+        when(source.getConnection()).thenReturn(connection, fresh);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.isValid(anyInt())).thenReturn(false);
+
+        // WHEN
+        validatingPool.closeConnection(validatingPool.getConnection());
+        Connection second = validatingPool.getConnection();
+
+        // THEN
+        assertSame(fresh, second);
+        verify(source, times(1)).closeConnection(connection);
+    }
+
+    @Test
+    public void exhaustedPoolTimesOut() throws Exception {
+        // GIVEN
+        when(source.getConnection()).thenReturn(connection);
+        pool.getConnection();
+
+        // WHEN / THEN
+        assertThrows(SQLException.class, () -> pool.getConnection());
+        assertEquals(0, pool.getWaitingCount());
+    }
+
+    @Test
+    public void connectionLeftInTransactionIsNotPooled() throws Exception {
+        // GIVEN
+        when(source.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(false);
+
+        // WHEN
+        pool.closeConnection(pool.getConnection());
+
+        // THEN
+        verify(source, times(1)).closeConnection(connection);
+        assertEquals(0, pool.getIdleCount());
+    }
+}
@@ -0,0 +1,141 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.EntryJournal;
+import com.parkit.parkingsystem.dao.ReconciliationDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.ReconciliationReport;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.LowestNumberSpotStrategy;
+import com.parkit.parkingsystem.service.ReconciliationService;
+import com.parkit.parkingsystem.service.SpotAllocator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ReconciliationServiceTest {
+
+    private static Ticket openTicket(int id, int parkingNumber, String vehicleRegNumber, long inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, null, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(inTime));
+        return ticket;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void findsAndFixesDriftAcrossRanges() {
+        // GIVEN spots 1-10 scanned in ranges of 3
+        ReconciliationDAO reconciliationDAO = mock(ReconciliationDAO.class);
+        when(reconciliationDAO.getParkingNumberRange()).thenReturn(new int[]{1, 10});
+        // spot 2 occupied without ticket, spot 5 free with a ticket, ABCDEF has tickets on 7 and 9
+        List<Ticket> openTickets = Arrays.asList(
+                openTicket(1, 1, "GHIJKL", 1_000),
+                openTicket(2, 5, "MNOPQR", 2_000),
+                openTicket(3, 7, "ABCDEF", 3_000),
+                openTicket(4, 9, "ABCDEF", 4_000));
+        when(reconciliationDAO.scanRange(anyInt(), anyInt())).thenAnswer(invocation -> {
+            int from = invocation.getArgument(0);
+            int to = invocation.getArgument(1);
+            List<ParkingSpot> parkingSpots = new ArrayList<>();
+            List<Ticket> tickets = new ArrayList<>();
+            for (int parkingNumber = from; parkingNumber <= to; parkingNumber++) {
+                boolean available = !(parkingNumber == 1 || parkingNumber == 2 || parkingNumber == 7 || parkingNumber == 9);
+                parkingSpots.add(new ParkingSpot(parkingNumber, ParkingType.CAR, available));
+            }
+            for (Ticket ticket : openTickets) {
+                int parkingNumber = ticket.getParkingSpot().getId();
+                if (parkingNumber >= from && parkingNumber <= to) {
+                    tickets.add(ticket);
+                }
+            }
+            return new ReconciliationDAO.RangeScan(parkingSpots, tickets);
+        });
+        when(reconciliationDAO.closeTickets(anyList(), anyInt())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(reconciliationDAO.freeSpots(anyList(), anyInt())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(reconciliationDAO.occupySpots(anyList(), anyInt())).thenReturn(Collections.emptyList());
+        ReconciliationService reconciliationService = new ReconciliationService(reconciliationDAO, 3, 2, 100);
+
+        // WHEN
+        ReconciliationReport report = reconciliationService.reconcile(true);
+
+        // THEN
+        assertEquals(10, report.getSpotsScanned());
+        assertEquals(4, report.getOpenTicketsScanned());
+        verify(reconciliationDAO, times(4)).scanRange(anyInt(), anyInt());
+        assertEquals(1, report.getDuplicateOpenTickets().size());
+        Ticket closed = report.getDuplicateOpenTickets().get(0);
+        assertEquals(3, closed.getId());
+        assertEquals(new Date(4_000), closed.getOutTime());
+        // spot 7 lost its only open ticket with the duplicate
+        List<Integer> freed = new ArrayList<>();
+        report.getOccupiedWithoutTicket().forEach(parkingSpot -> freed.add(parkingSpot.getId()));
+        assertEquals(Arrays.asList(2, 7), freed);
+        assertEquals(1, report.getFreeWithOpenTicket().size());
+        assertEquals(5, report.getFreeWithOpenTicket().get(0).getId());
+        assertEquals(1, report.getTicketsClosed());
+        assertEquals(2, report.getSpotsFreed().size());
+        assertTrue(report.getSpotsOccupied().isEmpty(), "spot 5 changed since the scan and was left alone");
+        verify(reconciliationDAO).freeSpots(eq(Arrays.asList(2, 7)), eq(100));
+    }
+
+    @Test
+    public void spotsOfJournaledAndOngoingEntriesAreNotFreed(@TempDir Path dir) throws Exception {
+        // GIVEN spots 1-3 occupied without an open ticket in DB
+        ReconciliationDAO reconciliationDAO = mock(ReconciliationDAO.class);
+        when(reconciliationDAO.getParkingNumberRange()).thenReturn(new int[]{1, 3});
+        when(reconciliationDAO.scanRange(1, 3)).thenReturn(new ReconciliationDAO.RangeScan(Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, false),
+                new ParkingSpot(2, ParkingType.CAR, false),
+                new ParkingSpot(3, ParkingType.CAR, false)), Collections.emptyList()));
+        when(reconciliationDAO.closeTickets(anyList(), anyInt())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(reconciliationDAO.freeSpots(anyList(), anyInt())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(reconciliationDAO.occupySpots(anyList(), anyInt())).thenReturn(Collections.emptyList());
+        // the ticket on spot 1 only reached the journal, spot 2 was just handed out to an entry
+        EntryJournal journal = new EntryJournal(dir.resolve("entries.journal"));
+        Ticket journaled = openTicket(0, 1, "ABCDEF", 1_000);
+        journaled.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        journal.append(journaled, false, true);
+        SpotAllocator spotAllocator = new SpotAllocator(LowestNumberSpotStrategy::new);
+        spotAllocator.release(new ParkingSpot(2, ParkingType.CAR, true));
+        assertEquals(2, spotAllocator.allocate(ParkingType.CAR, parkingNumber -> true));
+        ReconciliationService reconciliationService = new ReconciliationService(reconciliationDAO, 3, 1, 100);
+        reconciliationService.setSpotsInUse(parkingNumber ->
+                journal.hasPendingTicket(parkingNumber) || spotAllocator.isHeld(parkingNumber));
+
+        // WHEN
+        ReconciliationReport report = reconciliationService.reconcile(true);
+
+        // THEN only spot 3 is freed
+        assertEquals(1, report.getOccupiedWithoutTicket().size());
+        assertEquals(3, report.getOccupiedWithoutTicket().get(0).getId());
+        verify(reconciliationDAO).freeSpots(eq(Collections.singletonList(3)), eq(100));
+        journal.close();
+    }
+
+    @Test
+    public void failedRangeAbortsWithoutFixes() {
+        ReconciliationDAO reconciliationDAO = mock(ReconciliationDAO.class);
+        when(reconciliationDAO.getParkingNumberRange()).thenReturn(new int[]{1, 10});
+        when(reconciliationDAO.scanRange(anyInt(), anyInt())).thenThrow(new IllegalStateException("Database error"));
+        ReconciliationService reconciliationService = new ReconciliationService(reconciliationDAO, 3, 2, 100);
+
+        assertNull(reconciliationService.reconcile(true));
+        verify(reconciliationDAO, never()).freeSpots(anyList(), anyInt());
+        verify(reconciliationDAO, never()).closeTickets(anyList(), anyInt());
+    }
+}
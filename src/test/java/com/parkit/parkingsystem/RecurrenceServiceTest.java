@@ -0,0 +1,151 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.service.RecurrenceService;
+import com.parkit.parkingsystem.util.ScalableBloomFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class RecurrenceServiceTest {
+
+    @Test
+    public void bloomFilterHasNoFalseNegativesPastItsInitialCapacity() {
+        // GIVEN
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+
+        // WHEN
+        for (int i = 0; i < 5000; i++) {
+            filter.add("PLATE" + i);
+        }
+
+        // THEN
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(filter.mightContain("PLATE" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 5000; i++) {
+            if (filter.mightContain("OTHER" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 100, "false positives: " + falsePositives);
+    }
+
+    @Test
+    public void plateBecomesRecurrentOnItsSecondTicket() {
+        RecurrenceService recurrenceService = new RecurrenceService(1000, 0.001);
+        recurrenceService.rebuild(mock(TicketDAO.class));
+
+        recurrenceService.recordTicket("ABCDEF");
+        assertFalse(recurrenceService.mightBeRecurrent("ABCDEF"));
+
+        recurrenceService.recordTicket("ABCDEF");
+        assertTrue(recurrenceService.mightBeRecurrent("ABCDEF"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void rebuildFromTicketCounts() {
+        // GIVEN
+        TicketDAO ticketDAO = mock(TicketDAO.class);
+        when(ticketDAO.forEachPlateCount(any(ObjIntConsumer.class))).thenAnswer(invocation -> {
+            ObjIntConsumer<String> consumer = invocation.getArgument(0);
+            consumer.accept("ONCE", 1);
+            consumer.accept("TWICE", 2);
+            return 2L;
+        });
+        RecurrenceService recurrenceService = new RecurrenceService(1000, 0.001);
+
+        // WHEN
+        recurrenceService.load(ticketDAO, null);
+
+        // THEN
+        assertTrue(recurrenceService.mightBeRecurrent("TWICE"));
+        assertFalse(recurrenceService.mightBeRecurrent("ONCE"));
+        recurrenceService.recordTicket("ONCE");
+        assertTrue(recurrenceService.mightBeRecurrent("ONCE"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void snapshotIsReloadedAndNewerTicketsReplayed(@TempDir Path dir) throws Exception {
+        // GIVEN
+        Path snapshot = dir.resolve("recurrence.snapshot");
+        RecurrenceService original = new RecurrenceService(1000, 0.001);
+        original.rebuild(mock(TicketDAO.class));
+        original.recordTicket("ABCDEF");
+        original.recordTicket("ABCDEF");
+        original.recordTicket("GHIJKL");
+        assertTrue(original.saveSnapshot(snapshot));
+        TicketDAO ticketDAO = mock(TicketDAO.class);
+        when(ticketDAO.forEachPlateSince(any(Date.class), any(Consumer.class))).thenAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(1);
+            consumer.accept("GHIJKL");
+            return 1L;
+        });
+
+        // WHEN
+        RecurrenceService restored = new RecurrenceService(1000, 0.001);
+        restored.load(ticketDAO, snapshot);
+
+        // THEN
+        assertTrue(restored.mightBeRecurrent("ABCDEF"));
+        assertTrue(restored.mightBeRecurrent("GHIJKL"));
+        verify(ticketDAO, never()).forEachPlateCount(any(ObjIntConsumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void failedRebuildCountsEveryExitAndWritesNoSnapshot(@TempDir Path dir) throws Exception {
+        // GIVEN a DB that fails half way through the scan
+        TicketDAO ticketDAO = mock(TicketDAO.class);
+        when(ticketDAO.forEachPlateCount(any(ObjIntConsumer.class))).thenAnswer(invocation -> {
+            ObjIntConsumer<String> consumer = invocation.getArgument(0);
+            consumer.accept("ONCE", 1);
+            return -1L;
+        });
+        RecurrenceService recurrenceService = new RecurrenceService(1000, 0.001);
+        Path snapshot = dir.resolve("recurrence.snapshot");
+
+        // WHEN
+        boolean loaded = recurrenceService.load(ticketDAO, null);
+
+        // THEN
+        assertFalse(loaded);
+        assertFalse(recurrenceService.isBuilt());
+        assertTrue(recurrenceService.mightBeRecurrent("TWICE"));
+        assertFalse(recurrenceService.saveSnapshot(snapshot));
+        assertFalse(snapshot.toFile().exists());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void ticketsRecordedDuringARebuildAreKept() {
+        // GIVEN a car that comes back while the table is scanned
+        RecurrenceService recurrenceService = new RecurrenceService(1000, 0.001);
+        TicketDAO ticketDAO = mock(TicketDAO.class);
+        when(ticketDAO.forEachPlateCount(any(ObjIntConsumer.class))).thenAnswer(invocation -> {
+            ObjIntConsumer<String> consumer = invocation.getArgument(0);
+            consumer.accept("ONCE", 1);
+            recurrenceService.recordTicket("LIVE");
+            recurrenceService.recordTicket("LIVE");
+            return 1L;
+        });
+
+        // WHEN
+        assertTrue(recurrenceService.rebuild(ticketDAO));
+
+        // THEN
+        assertTrue(recurrenceService.mightBeRecurrent("LIVE"));
+        assertFalse(recurrenceService.mightBeRecurrent("ONCE"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.ReservationIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReservationIndexTest {
+
+    private ReservationIndex index;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        index = new ReservationIndex();
+        index.registerSpot(2, ParkingType.CAR);
+        index.registerSpot(1, ParkingType.CAR);
+        index.registerSpot(4, ParkingType.BIKE);
+    }
+
+    @Test
+    public void overlappingBookingIsRejected() {
+        assertTrue(index.reserve(1, 100, 200));
+
+        assertFalse(index.reserve(1, 150, 250));
+        assertFalse(index.reserve(1, 50, 101));
+        assertFalse(index.reserve(1, 120, 130));
+        assertTrue(index.reserve(1, 200, 300), "Back-to-back bookings do not overlap");
+        assertTrue(index.reserve(1, 0, 100));
+    }
+
+    @Test
+    public void freeSpotsOfTypeSkipBookedOnes() {
+        index.reserve(1, 100, 200);
+
+        assertEquals(2, index.findFreeSpot(ParkingType.CAR, 150, 160));
+        assertEquals(1, index.findFreeSpot(ParkingType.CAR, 200, 260));
+        assertEquals(List.of(2), index.getFreeSpots(ParkingType.CAR, 0, 1000));
+        assertEquals(1, index.countFreeSpots(ParkingType.BIKE, 0, 1000));
+    }
+
+    @Test
+    public void releaseAndEvictFreeTheSpot() {
+        index.reserve(1, 100, 200);
+        index.reserve(2, 100, 200);
+
+        assertTrue(index.release(1, 100));
+        index.evictEndedBefore(250);
+
+        assertTrue(index.isFree(1, 100, 200));
+        assertTrue(index.isFree(2, 100, 200));
+        assertFalse(index.hasBookingBetween(2, 0, 1000));
+        assertFalse(index.isFree(99, 0, 1), "Unknown spots are never bookable");
+    }
+
+    @Test
+    public void typeQueriesSeeLongBookingsStartedBeforeTheQuery() {
+        index.reserve(1, 0, 10_000);
+        index.reserve(2, 100, 200);
+
+        assertEquals(-1, index.findFreeSpot(ParkingType.CAR, 5_000, 6_000, parkingNumber -> parkingNumber != 2));
+        assertEquals(2, index.findFreeSpot(ParkingType.CAR, 5_000, 6_000));
+        assertEquals(1, index.countFreeSpots(ParkingType.CAR, 200, 10_000));
+        assertEquals(0, index.countFreeSpots(ParkingType.CAR, 150, 160));
+
+        assertTrue(index.release(1, 0));
+        assertEquals(List.of(1, 2), index.getFreeSpots(ParkingType.CAR, 5_000, 6_000));
+    }
+}
@@ -0,0 +1,71 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.service.ReservationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ReservationServiceTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private ReservationDAO reservationDAO;
+    private ReservationService reservationService;
+    private Reservation reservation;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        reservationDAO = mock(ReservationDAO.class);
+        ParkingSpotDAO parkingSpotDAO = mock(ParkingSpotDAO.class);
+        when(parkingSpotDAO.getParkingSpots()).thenReturn(List.of(new ParkingSpot(1, ParkingType.CAR, true)));
+        reservation = new Reservation();
+        reservation.setId(7);
+        reservation.setParkingNumber(1);
+        reservation.setParkingType(ParkingType.CAR);
+        reservation.setVehicleRegNumber("ABCDEF");
+        reservation.setStartTime(new Date(10 * HOUR));
+        reservation.setEndTime(new Date(12 * HOUR));
+        when(reservationDAO.getReservationsEndingAfter(any(Date.class))).thenReturn(Collections.singletonList(reservation));
+        reservationService = new ReservationService(reservationDAO, parkingSpotDAO);
+    }
+
+    @Test
+    public void claimedBookingIsNotClaimableAgain() {
+        // GIVEN the booked car parked on its spot
+        reservationService.load(new Date(0));
+        when(reservationDAO.claimReservation(7)).thenReturn(true);
+        assertSame(reservation, reservationService.findClaimable("ABCDEF", ParkingType.CAR, 10 * HOUR));
+
+        // WHEN
+        boolean claimed = reservationService.claim(reservation);
+
+        // THEN the spot stays booked but the plate cannot claim it a second time
+        assertTrue(claimed);
+        assertNull(reservationService.findClaimable("ABCDEF", ParkingType.CAR, 11 * HOUR));
+        assertTrue(reservationService.isHeldForReservation(1, 11 * HOUR));
+        verify(reservationDAO).claimReservation(7);
+    }
+
+    @Test
+    public void bookingClaimedBeforeARestartIsNotClaimable() {
+        // GIVEN the booking was claimed before the reload
+        reservation.setClaimed(true);
+
+        // WHEN
+        reservationService.load(new Date(0));
+
+        // THEN
+        assertNull(reservationService.findClaimable("ABCDEF", ParkingType.CAR, 10 * HOUR));
+    }
+}
@@ -0,0 +1,140 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.ResilientDataBaseConfig;
+import com.parkit.parkingsystem.util.CircuitBreaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ResilientDataBaseConfigTest {
+
+    @Mock
+    private DataBaseConfig source;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    private ResilientDataBaseConfig dataBaseConfig;
+
+    @AfterEach
+    public void tearDown() {
+        if (dataBaseConfig != null) {
+            dataBaseConfig.shutdown();
+        }
+    }
+
+    @Test
+    public void stalledConnectTimesOutAndOpensCircuit() throws Exception {
+        // GIVEN
+        when(source.getConnection()).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return connection;
+        });
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 2, 60_000);
+        dataBaseConfig = new ResilientDataBaseConfig(source, circuitBreaker, 100, 3, 1);
+
+        // WHEN
+        long start = System.nanoTime();
+        assertThrows(SQLTimeoutException.class, () -> dataBaseConfig.getConnection());
+        assertThrows(SQLTimeoutException.class, () -> dataBaseConfig.getConnection());
+        assertThrows(SQLTransientConnectionException.class, () -> dataBaseConfig.getConnection());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // THEN
+        assertTrue(elapsedMillis < 2_000, "took " + elapsedMillis + " ms");
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(1, circuitBreaker.getRejectedCount());
+    }
+
+    @Test
+    public void refusedConnectIsRetried() throws Exception {
+        // GIVEN
+        when(source.getConnection())
+                .thenThrow(new SQLNonTransientConnectionException("refused"))
+                .thenReturn(connection);
+        dataBaseConfig = new ResilientDataBaseConfig(source, new CircuitBreaker("test", 5, 60_000), 2_000, 3, 1);
+
+        // WHEN
+        Connection con = dataBaseConfig.getConnection();
+        dataBaseConfig.closeConnection(con);
+
+        // THEN
+        verify(source, times(2)).getConnection();
+        verify(source).closeConnection(connection);
+    }
+
+    @Test
+    public void statementsGetQueryTimeoutAndFeedTheCircuit() throws Exception {
+        // GIVEN
+        when(source.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeUpdate()).thenThrow(new SQLTimeoutException("query timed out"));
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 1, 60_000);
+        dataBaseConfig = new ResilientDataBaseConfig(source, circuitBreaker, 2_000, 1, 3);
+
+        // WHEN
+        Connection con = dataBaseConfig.getConnection();
+        PreparedStatement ps = con.prepareStatement("update parking set available = ? where PARKING_NUMBER = ?");
+        assertThrows(SQLException.class, ps::executeUpdate);
+
+        // THEN
+        verify(preparedStatement).setQueryTimeout(3);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void streamingAndBulkReadsGetTheLongTimeout() throws Exception {
+        // GIVEN
+        when(source.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(preparedStatement);
+        PreparedStatement bulkStatement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(bulkStatement);
+        dataBaseConfig = new ResilientDataBaseConfig(source, new CircuitBreaker("test", 5, 60_000), 2_000, 1, 3, 600);
+
+        // WHEN
+        Connection con = dataBaseConfig.getConnection();
+        dataBaseConfig.prepareStreamingStatement(con, "select VEHICLE_REG_NUMBER, count(*) from ticket group by VEHICLE_REG_NUMBER");
+        dataBaseConfig.prepareBulkStatement(con, "select PARKING_NUMBER, TYPE, AVAILABLE from parking where LOT_ID = ?");
+
+        // THEN the short timeout set on prepare is replaced
+        verify(preparedStatement).setQueryTimeout(3);
+        verify(preparedStatement).setQueryTimeout(600);
+        verify(bulkStatement).setQueryTimeout(3);
+        verify(bulkStatement).setQueryTimeout(600);
+    }
+
+    @Test
+    public void halfOpenTrialClosesCircuit() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 1, 1_000, now::get);
+
+        circuitBreaker.recordFailure();
+        assertFalse(circuitBreaker.allowRequest());
+
+        now.addAndGet(1_000_000_000L);
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest(), "only one trial call while half-open");
+
+        circuitBreaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+}
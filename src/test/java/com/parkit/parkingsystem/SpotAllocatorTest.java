@@ -0,0 +1,112 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.LeastRecentlyUsedSpotStrategy;
+import com.parkit.parkingsystem.service.LowestNumberSpotStrategy;
+import com.parkit.parkingsystem.service.NearestToEntranceSpotStrategy;
+import com.parkit.parkingsystem.service.RandomSpotStrategy;
+import com.parkit.parkingsystem.service.RoundRobinSpotStrategy;
+import com.parkit.parkingsystem.service.SpotAllocator;
+import com.parkit.parkingsystem.service.SpotSelectionStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SpotAllocatorTest {
+
+    private static SpotSelectionStrategy withSpots(SpotSelectionStrategy strategy, int... parkingNumbers) {
+        for (int parkingNumber : parkingNumbers) {
+            strategy.addFreeSpot(parkingNumber);
+        }
+        return strategy;
+    }
+
+    @Test
+    public void lowestNumberFirst() {
+        SpotSelectionStrategy strategy = withSpots(new LowestNumberSpotStrategy(), 3, 1, 2);
+
+        assertEquals(1, strategy.takeFreeSpot(n -> true));
+        assertEquals(3, strategy.takeFreeSpot(n -> n != 2));
+        assertEquals(1, strategy.size());
+    }
+
+    @Test
+    public void nearestToEntranceFirst() {
+        SpotSelectionStrategy strategy = withSpots(new NearestToEntranceSpotStrategy(Map.of(1, 30, 2, 10, 3, 20)), 1, 2, 3, 4);
+
+        assertEquals(2, strategy.takeFreeSpot(n -> true));
+        assertEquals(3, strategy.takeFreeSpot(n -> true));
+        assertEquals(1, strategy.takeFreeSpot(n -> true));
+        assertEquals(4, strategy.takeFreeSpot(n -> true));
+        assertEquals(-1, strategy.takeFreeSpot(n -> true));
+    }
+
+    @Test
+    public void roundRobinContinuesAfterTheLastSpotAndWraps() {
+        SpotSelectionStrategy strategy = withSpots(new RoundRobinSpotStrategy(), 1, 2, 3);
+
+        assertEquals(1, strategy.takeFreeSpot(n -> true));
+        strategy.addFreeSpot(1);
+        assertEquals(2, strategy.takeFreeSpot(n -> true));
+        strategy.addFreeSpot(2);
+        assertEquals(3, strategy.takeFreeSpot(n -> true));
+        assertEquals(1, strategy.takeFreeSpot(n -> true));
+        assertEquals(-1, strategy.takeFreeSpot(n -> n == 3));
+    }
+
+    @Test
+    public void leastRecentlyUsedFirst() {
+        SpotSelectionStrategy strategy = withSpots(new LeastRecentlyUsedSpotStrategy(), 1, 2, 3);
+
+        assertEquals(1, strategy.takeFreeSpot(n -> true));
+        strategy.addFreeSpot(1);
+        assertEquals(2, strategy.takeFreeSpot(n -> true));
+        assertEquals(3, strategy.takeFreeSpot(n -> true));
+        assertEquals(1, strategy.takeFreeSpot(n -> true));
+    }
+
+    @Test
+    public void randomHandsOutEveryEligibleSpotOnce() {
+        SpotSelectionStrategy strategy = withSpots(new RandomSpotStrategy(new Random(42)), 1, 2, 3, 4, 5);
+        strategy.removeFreeSpot(4);
+
+        Set<Integer> taken = new HashSet<>();
+        int parkingNumber;
+        while ((parkingNumber = strategy.takeFreeSpot(n -> n != 5)) > 0) {
+            assertTrue(taken.add(parkingNumber));
+        }
+
+        assertEquals(Set.of(1, 2, 3), taken);
+        assertEquals(1, strategy.size());
+    }
+
+    @Test
+    public void allocatorLoadsFreeSpotsPerType() {
+        // GIVEN
+        ParkingSpotDAO parkingSpotDAO = mock(ParkingSpotDAO.class);
+        when(parkingSpotDAO.getParkingSpots()).thenReturn(List.of(
+                new ParkingSpot(1, ParkingType.CAR, false),
+                new ParkingSpot(2, ParkingType.CAR, true),
+                new ParkingSpot(4, ParkingType.BIKE, true)));
+        SpotAllocator allocator = new SpotAllocator(LowestNumberSpotStrategy::new);
+
+        // WHEN
+        allocator.load(parkingSpotDAO);
+
+        // THEN
+        assertEquals(2, allocator.allocate(ParkingType.CAR, n -> true));
+        assertEquals(0, allocator.allocate(ParkingType.CAR, n -> true));
+        allocator.release(new ParkingSpot(1, ParkingType.CAR, true));
+        assertEquals(1, allocator.countFreeSpots(ParkingType.CAR));
+        assertEquals(4, allocator.allocate(ParkingType.BIKE, n -> true));
+    }
+}
@@ -0,0 +1,80 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.TicketColumnarReader;
+import com.parkit.parkingsystem.util.TicketColumnarWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketColumnarExportTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Ticket ticket(int id, int spot, ParkingType type, String plate, double price, long in, Long out) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setParkingSpot(new ParkingSpot(spot, type, false));
+        ticket.setVehicleRegNumber(plate);
+        ticket.setPrice(price);
+        ticket.setInTime(new Date(in));
+        ticket.setOutTime(out == null ? null : new Date(out));
+        return ticket;
+    }
+
+    @Test
+    public void writeThenReadAcrossBlocks() throws Exception {
+        // GIVEN
+        Path file = tempDir.resolve("tickets.pktx");
+        List<Ticket> written = new ArrayList<>();
+        long base = 1_700_000_000_000L;
+        for (int i = 1; i <= 10; i++) {
+            Long out = (i % 3 == 0) ? null : base + i * 60_000L;
+            written.add(ticket(i, i % 5 + 1, (i % 2 == 0) ? ParkingType.CAR : ParkingType.BIKE,
+                    "PLATE" + (i % 4), i * 1.25, base + i * 1000L, out));
+        }
+
+        // WHEN
+        try (TicketColumnarWriter writer = new TicketColumnarWriter(file, 3)) {
+            for (Ticket ticket : written) {
+                writer.append(ticket);
+            }
+        }
+        List<Ticket> read = new ArrayList<>();
+        try (TicketColumnarReader reader = new TicketColumnarReader(file)) {
+            assertEquals(10, reader.forEach(read::add));
+        }
+
+        // THEN
+        assertEquals(written.size(), read.size());
+        for (int i = 0; i < written.size(); i++) {
+            Ticket expected = written.get(i);
+            Ticket actual = read.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getParkingSpot().getId(), actual.getParkingSpot().getId());
+            assertEquals(expected.getParkingSpot().getParkingType(), actual.getParkingSpot().getParkingType());
+            assertEquals(expected.getVehicleRegNumber(), actual.getVehicleRegNumber());
+            assertEquals(expected.getPrice(), actual.getPrice(), 0.001);
+            assertEquals(expected.getInTime(), actual.getInTime());
+            assertEquals(expected.getOutTime(), actual.getOutTime());
+        }
+    }
+
+    @Test
+    public void readerRejectsForeignFile() throws Exception {
+        Path file = tempDir.resolve("other.bin");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        assertThrows(java.io.IOException.class, () -> new TicketColumnarReader(file));
+    }
+}
@@ -0,0 +1,76 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.util.TicketIdGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketIdGeneratorTest {
+
+    @Test
+    public void idsIncreaseAndCarryTimeAndNode() {
+        // GIVEN
+        TicketIdGenerator generator = new TicketIdGenerator(42);
+        long before = System.currentTimeMillis();
+
+        // WHEN
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        // THEN
+        assertTrue(first > 0);
+        assertTrue(second > first);
+        assertEquals(42, TicketIdGenerator.getNodeId(first));
+        assertTrue(TicketIdGenerator.getTimeMillis(first) >= before);
+        assertTrue(TicketIdGenerator.getTimeMillis(first) <= System.currentTimeMillis());
+    }
+
+    @Test
+    public void clockGoingBackNeverRepeatsAnId() {
+        // GIVEN a clock stepping back one second after the first ID
+        long[] clock = {TicketIdGenerator.EPOCH_MILLIS + 10_000};
+        TicketIdGenerator generator = new TicketIdGenerator(1) {
+            @Override
+            protected long currentTimeMillis() {
+                return clock[0];
+            }
+        };
+
+        // WHEN
+        long first = generator.nextId();
+        clock[0] -= 1_000;
+        long second = generator.nextId();
+
+        // THEN
+        assertTrue(second > first);
+    }
+
+    @Test
+    public void idsAreUniqueAcrossThreads() throws Exception {
+        TicketIdGenerator generator = new TicketIdGenerator(0);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    ids.add(generator.nextId());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(200_000, ids.size());
+    }
+
+    @Test
+    public void rejectsNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new TicketIdGenerator(TicketIdGenerator.MAX_NODE_ID + 1));
+    }
+}
@@ -0,0 +1,82 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.RoundTripCounter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class EntryJournalTest {
+
+    private static Ticket ticket(String vehicleRegNumber, int parkingNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setLotId(ParkingSpot.DEFAULT_LOT_ID);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+
+    @Test
+    public void journaledEntriesSurviveRestartAndAreReplayedInOrder(@TempDir Path dir) throws Exception {
+        // GIVEN
+        Path file = dir.resolve("entries.journal");
+        EntryJournal journal = new EntryJournal(file);
+        journal.append(ticket("ABCDEF", 1), true, true);
+        journal.append(ticket("GHIJKL", 2), false, true);
+        journal.close();
+        RoundTripCounter counter = new RoundTripCounter();
+        InMemoryParkingSpotDAO parkingSpotDAO = new InMemoryParkingSpotDAO(1, counter, 0);
+        parkingSpotDAO.addParkingSpots(ParkingType.CAR, 1, 2);
+        InMemoryTicketDAO ticketDAO = new InMemoryTicketDAO(1, counter, 0);
+
+        // WHEN
+        EntryJournal reopened = new EntryJournal(file);
+        int replayed = reopened.replay(parkingSpotDAO, ticketDAO);
+
+        // THEN
+        assertEquals(2, replayed);
+        assertFalse(reopened.hasPending());
+        assertEquals(2, ticketDAO.getOpenTicketCount());
+        assertEquals(1, ticketDAO.countOpenTickets("ABCDEF"));
+        reopened.close();
+        EntryJournal afterReplay = new EntryJournal(file);
+        assertFalse(afterReplay.hasPending());
+        afterReplay.close();
+    }
+
+    @Test
+    public void replayStopsAtFirstFailureAndSkipsTicketsAlreadyInserted(@TempDir Path dir) throws Exception {
+        // GIVEN
+        EntryJournal journal = new EntryJournal(dir.resolve("entries.journal"));
+        journal.append(ticket("ABCDEF", 1), false, true);
+        journal.append(ticket("GHIJKL", 2), false, true);
+        ParkingSpotDAO parkingSpotDAO = mock(ParkingSpotDAO.class);
+        TicketDAO ticketDAO = mock(TicketDAO.class);
+        when(ticketDAO.countOpenTickets("ABCDEF")).thenReturn(1);
+        when(ticketDAO.countOpenTickets("GHIJKL")).thenReturn(-1, 0);
+        when(ticketDAO.saveTickets(anyList())).thenReturn(true);
+
+        // WHEN
+        int firstReplay = journal.replay(parkingSpotDAO, ticketDAO);
+        int secondReplay = journal.replay(parkingSpotDAO, ticketDAO);
+
+        // THEN
+        assertEquals(1, firstReplay);
+        assertEquals(1, secondReplay);
+        assertEquals(0, journal.size());
+        verify(ticketDAO, times(1)).saveTickets(anyList());
+        verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+        verify(ticketDAO, times(3)).countOpenTickets(anyString());
+        journal.close();
+    }
+}
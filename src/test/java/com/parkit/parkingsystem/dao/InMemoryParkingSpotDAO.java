@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.util.RoundTripCounter;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ParkingSpotDAO over in-memory tables with the same query semantics, for load tests and simulations.
+ * Each call counts as one round trip and can be slowed down to model the latency of a real DB.
+ */
+public class InMemoryParkingSpotDAO extends ParkingSpotDAO {
+
+    private final Map<Integer, ParkingSpot> spots = new ConcurrentHashMap<>();
+    private final Map<ParkingType, ConcurrentSkipListSet<Integer>> freeSpots = new EnumMap<>(ParkingType.class);
+    private final RoundTripCounter counter;
+    private final long roundTripNanos;
+
+    public InMemoryParkingSpotDAO(int lotId, RoundTripCounter counter, long roundTripMicros) {
+        super(lotId, null);
+        this.counter = counter;
+        this.roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+        for (ParkingType parkingType : ParkingType.values()) {
+            freeSpots.put(parkingType, new ConcurrentSkipListSet<>());
+        }
+    }
+
+    public void addParkingSpots(ParkingType parkingType, int firstNumber, int count) {
+        for (int parkingNumber = firstNumber; parkingNumber < firstNumber + count; parkingNumber++) {
+            spots.put(parkingNumber, new ParkingSpot(parkingNumber, parkingType, true, getLotId()));
+            freeSpots.get(parkingType).add(parkingNumber);
+        }
+    }
+
+    private void roundTrip() {
+        counter.record();
+        if (roundTripNanos > 0) {
+            LockSupport.parkNanos(roundTripNanos);
+        }
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        roundTrip();
+        Integer parkingNumber = freeSpots.get(parkingType).ceiling(Integer.MIN_VALUE);
+        return (parkingNumber == null) ? 0 : parkingNumber;
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot, boolean available) {
+        roundTrip();
+        ParkingSpot stored = spots.get(parkingSpot.getId());
+        if (stored == null) {
+            return false;
+        }
+        synchronized (stored) {
+            if (available) {
+                freeSpots.get(stored.getParkingType()).add(stored.getId());
+            } else {
+                freeSpots.get(stored.getParkingType()).remove(stored.getId());
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public List<Integer> getLotIds() {
+        roundTrip();
+        return List.of(getLotId());
+    }
+
+    @Override
+    public List<Integer> getAvailableSlots(ParkingType parkingType) {
+        roundTrip();
+        return new ArrayList<>(freeSpots.get(parkingType));
+    }
+
+    @Override
+    public List<ParkingSpot> getParkingSpots() {
+        roundTrip();
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (ParkingSpot stored : spots.values()) {
+            synchronized (stored) {
+                boolean available = freeSpots.get(stored.getParkingType()).contains(stored.getId());
+                parkingSpots.add(new ParkingSpot(stored.getId(), stored.getParkingType(), available, getLotId()));
+            }
+        }
+        parkingSpots.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        return parkingSpots;
+    }
+
+    public int countFreeSpots(ParkingType parkingType) {
+        return freeSpots.get(parkingType).size();
+    }
+}
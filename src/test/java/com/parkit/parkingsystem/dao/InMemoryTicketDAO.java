@@ -0,0 +1,218 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.RoundTripCounter;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * TicketDAO over an in-memory ticket table, see InMemoryParkingSpotDAO. Tickets are copied in and out
+ * so callers cannot change a stored row without calling updateTicket.
+ */
+public class InMemoryTicketDAO extends TicketDAO {
+
+    private final Map<Long, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Map<String, Ticket> openTickets = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> ticketCounts = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final RoundTripCounter counter;
+    private final long roundTripNanos;
+
+    public InMemoryTicketDAO(int lotId, RoundTripCounter counter, long roundTripMicros) {
+        super(lotId, null);
+        this.counter = counter;
+        this.roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+    }
+
+    private void roundTrip() {
+        counter.record();
+        if (roundTripNanos > 0) {
+            LockSupport.parkNanos(roundTripNanos);
+        }
+    }
+
+    private static Ticket copy(Ticket ticket) {
+        Ticket copy = new Ticket();
+        copy.setId(ticket.getId());
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        copy.setParkingSpot(new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable(), parkingSpot.getLotId()));
+        copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        copy.setPrice(ticket.getPrice());
+        copy.setInTime(ticket.getInTime());
+        copy.setOutTime(ticket.getOutTime());
+        copy.setRecurrentUser(ticket.isRecurrentUser());
+        copy.setLotId(ticket.getLotId());
+        return copy;
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        roundTrip();
+        store(ticket);
+        return true;
+    }
+
+    // one round trip for the whole batch, like the JDBC batch insert
+    @Override
+    public boolean saveTickets(List<Ticket> tickets) {
+        for (Ticket ticket : tickets) {
+            if (ticket.getId() <= 0) {
+                return false;
+            }
+        }
+        roundTrip();
+        for (Ticket ticket : tickets) {
+            store(ticket);
+        }
+        return true;
+    }
+
+    private void store(Ticket ticket) {
+        Ticket stored = copy(ticket);
+        if (stored.getId() == 0) {
+            stored.setId(nextId.incrementAndGet());
+        }
+        stored.setLotId(getLotId());
+        tickets.put(stored.getId(), stored);
+        if (stored.getOutTime() == null) {
+            openTickets.put(stored.getVehicleRegNumber(), stored);
+        }
+        ticketCounts.computeIfAbsent(stored.getVehicleRegNumber(), plate -> new AtomicInteger()).incrementAndGet();
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        roundTrip();
+        Ticket stored = openTickets.get(vehicleRegNumber);
+        return (stored == null) ? null : copy(stored);
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        roundTrip();
+        Ticket stored = (ticket.getId() == 0) ? openTickets.get(ticket.getVehicleRegNumber()) : tickets.get(ticket.getId());
+        if (stored == null) {
+            return false;
+        }
+        Ticket updated = copy(stored);
+        updated.setPrice(ticket.getPrice());
+        updated.setOutTime(ticket.getOutTime());
+        tickets.put(updated.getId(), updated);
+        openTickets.remove(updated.getVehicleRegNumber(), stored);
+        return true;
+    }
+
+    @Override
+    public int getNbTicket(String vehicleRegNumber) {
+        roundTrip();
+        AtomicInteger count = ticketCounts.get(vehicleRegNumber);
+        return (count == null) ? 0 : count.get();
+    }
+
+    @Override
+    public int countOpenTickets(String vehicleRegNumber) {
+        roundTrip();
+        return openTickets.containsKey(vehicleRegNumber) ? 1 : 0;
+    }
+
+    @Override
+    public Map<String, Ticket> getOpenTickets(List<String> vehicleRegNumbers) {
+        roundTrip();
+        Map<String, Ticket> found = new HashMap<>();
+        for (String vehicleRegNumber : vehicleRegNumbers) {
+            Ticket stored = openTickets.get(vehicleRegNumber);
+            if (stored != null) {
+                found.put(vehicleRegNumber, copy(stored));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Map<String, Integer> getNbTickets(List<String> vehicleRegNumbers) {
+        roundTrip();
+        Map<String, Integer> counts = new HashMap<>();
+        for (String vehicleRegNumber : vehicleRegNumbers) {
+            AtomicInteger count = ticketCounts.get(vehicleRegNumber);
+            if (count != null) {
+                counts.put(vehicleRegNumber, count.get());
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public long forEachTicket(Consumer<Ticket> consumer) {
+        long[] count = new long[1];
+        try (Stream<Ticket> stream = streamLotTickets()) {
+            stream.forEach(ticket -> {
+                consumer.accept(ticket);
+                count[0]++;
+            });
+        } catch (RuntimeException e) {
+            return -1;
+        }
+        return count[0];
+    }
+
+    // every ticket kept here is of this lot
+    @Override
+    public Stream<Ticket> streamLotTickets() {
+        return streamTickets();
+    }
+
+    @Override
+    public Stream<Ticket> streamOpenTickets() {
+        return streamTickets().filter(ticket -> ticket.getOutTime() == null);
+    }
+
+    @Override
+    public Stream<Ticket> streamRecentTickets(Date since) {
+        return streamTickets().filter(ticket -> ticket.getOutTime() == null || !ticket.getOutTime().before(since));
+    }
+
+    @Override
+    public Stream<Ticket> streamTickets() {
+        roundTrip();
+        List<Long> ids = new ArrayList<>(tickets.keySet());
+        ids.sort(Long::compare);
+        return ids.stream().map(id -> copy(tickets.get(id)));
+    }
+
+    @Override
+    public long forEachPlateCount(ObjIntConsumer<String> consumer) {
+        roundTrip();
+        ticketCounts.forEach((plate, count) -> consumer.accept(plate, count.get()));
+        return ticketCounts.size();
+    }
+
+    @Override
+    public long forEachPlateSince(Date since, Consumer<String> consumer) {
+        roundTrip();
+        long count = 0;
+        for (Ticket ticket : tickets.values()) {
+            if (!ticket.getInTime().before(since)) {
+                consumer.accept(ticket.getVehicleRegNumber());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getOpenTicketCount() {
+        return openTickets.size();
+    }
+}
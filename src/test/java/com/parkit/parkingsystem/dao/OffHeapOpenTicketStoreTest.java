@@ -0,0 +1,124 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.RoundTripCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapOpenTicketStoreTest {
+
+    private OffHeapOpenTicketStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new OffHeapOpenTicketStore(4);
+    }
+
+    private Ticket ticket(String plate, int spot, long inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setId(spot * 10);
+        ticket.setParkingSpot(new ParkingSpot(spot, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(plate);
+        ticket.setInTime(new Date(inTime));
+        return ticket;
+    }
+
+    @Test
+    public void putThenGetTicket() {
+        // GIVEN
+        store.put(ticket("ABC123", 3, 1_000L));
+
+        // WHEN
+        Ticket ticket = store.getTicket("ABC123");
+
+        // THEN
+        assertNotNull(ticket);
+        assertEquals(30, ticket.getId());
+        assertEquals(3, ticket.getParkingSpot().getId());
+        assertEquals(ParkingType.CAR, ticket.getParkingSpot().getParkingType());
+        assertEquals(new Date(1_000L), ticket.getInTime());
+        assertNull(ticket.getOutTime());
+        assertNull(store.getTicket("XYZ789"));
+    }
+
+    @Test
+    public void loadPutsOnlyTheOpenTicketsOfTheLot() {
+        // GIVEN a lot where ABC123 left and DEF456 is still parked
+        InMemoryTicketDAO ticketDAO = new InMemoryTicketDAO(ParkingSpot.DEFAULT_LOT_ID, new RoundTripCounter(), 0);
+        ticketDAO.saveTicket(ticket("ABC123", 1, 1_000L));
+        ticketDAO.saveTicket(ticket("DEF456", 2, 2_000L));
+        Ticket left = ticket("ABC123", 1, 1_000L);
+        left.setOutTime(new Date(3_000L));
+        ticketDAO.updateTicket(left);
+
+        // WHEN
+        long loaded = store.load(ticketDAO);
+
+        // THEN
+        assertEquals(1, loaded);
+        assertFalse(store.contains("ABC123"));
+        Ticket parked = store.getTicket("DEF456");
+        assertEquals(20, parked.getId());
+        assertEquals(2, parked.getParkingSpot().getId());
+        assertEquals(new Date(2_000L), parked.getInTime());
+    }
+
+    @Test
+    public void ticketAndSpotKeepTheirLotThroughAResize() {
+        // GIVEN a ticket of lot 3
+        Ticket lotTicket = ticket("ABC123", 2, 1_000L);
+        lotTicket.setLotId(3);
+        lotTicket.setParkingSpot(new ParkingSpot(2, ParkingType.BIKE, false, 3));
+        store.put(lotTicket);
+
+        // WHEN the store grows
+        for (int i = 0; i < 20; i++) {
+            store.put(ticket("XY" + i, i + 10, 2_000L));
+        }
+        Ticket ticket = store.getTicket("ABC123");
+
+        // THEN
+        assertEquals(3, ticket.getLotId());
+        assertEquals(3, ticket.getParkingSpot().getLotId());
+        assertEquals(ParkingType.BIKE, ticket.getParkingSpot().getParkingType());
+        assertEquals(ParkingSpot.DEFAULT_LOT_ID, store.getTicket("XY0").getLotId());
+    }
+
+    @Test
+    public void removeFreesTheSlot() {
+        store.put(ticket("ABC123", 1, 1_000L));
+
+        assertTrue(store.remove("ABC123"));
+        assertFalse(store.contains("ABC123"));
+        assertFalse(store.remove("ABC123"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void growsBeyondInitialCapacity() {
+        for (int i = 0; i < 500; i++) {
+            store.put(ticket("PLATE" + i, i + 1, i));
+        }
+
+        assertEquals(500, store.size());
+        assertTrue(store.capacity() >= 500);
+        for (int i = 0; i < 500; i++) {
+            int slot = store.find("PLATE" + i);
+            assertTrue(slot >= 0);
+            assertEquals(i + 1, store.getParkingNumber(slot));
+            assertEquals(i, store.getInTime(slot));
+        }
+    }
+
+    @Test
+    public void rejectsPlatesThatDoNotFitASlot() {
+        assertFalse(store.put(ticket("TOOLONGPLATE1", 1, 0L)));
+        assertEquals(-1, store.find("TOOLONGPLATE1"));
+    }
+}
@@ -39,7 +39,7 @@ public class ParkingSpotDAOTest {
         parkingSpotDAO.dataBaseConfig = dataBaseConfig; // Manually inject the mock dataBaseConfig
     }
 
-    // --- Tests for updateParking(ParkingSpot) ---
+    // --- Tests for updateParking(ParkingSpot, boolean) ---
 
     @Test
     public void updateParkingTest_success() {
@@ -52,10 +52,11 @@ public class ParkingSpotDAOTest {
             when(preparedStatement.executeUpdate()).thenReturn(1); // Simulate success (1 row updated)
 
             // WHEN
-            boolean result = parkingSpotDAO.updateParking(parkingSpot);
+            boolean result = parkingSpotDAO.updateParking(parkingSpot, false);
 
             // THEN
             assertTrue(result, "updateParking should return true when one row is updated");
+            verify(preparedStatement).setBoolean(1, false);
             verify(preparedStatement, times(1)).executeUpdate(); // Verify executeUpdate() was called once
         } catch (Exception e) {
             throw new RuntimeException("Test failed during execution", e);
@@ -73,7 +74,7 @@ public class ParkingSpotDAOTest {
             when(preparedStatement.executeUpdate()).thenReturn(0); // Simulate failure (0 rows updated)
 
             // WHEN
-            boolean result = parkingSpotDAO.updateParking(parkingSpot);
+            boolean result = parkingSpotDAO.updateParking(parkingSpot, true);
 
             // THEN
             assertFalse(result, "updateParking should return false when no row is updated");
@@ -93,7 +94,7 @@ public class ParkingSpotDAOTest {
             when(connection.prepareStatement(DBConstants.UPDATE_PARKING_SPOT)).thenThrow(new SQLException("Database error"));
 
             // WHEN
-            boolean result = parkingSpotDAO.updateParking(parkingSpot);
+            boolean result = parkingSpotDAO.updateParking(parkingSpot, true);
 
             // THEN
             assertFalse(result, "updateParking should return false when an exception occurs");
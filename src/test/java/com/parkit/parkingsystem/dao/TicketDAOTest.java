@@ -3,6 +3,7 @@ package com.parkit.parkingsystem.dao;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.OutboxEntry;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,6 +15,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.stream.Stream;
 
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -56,7 +58,7 @@ public class TicketDAOTest {
 
             when(resultSet.next()).thenReturn(true);
             when(resultSet.getInt(1)).thenReturn(1); // parking number
-            when(resultSet.getInt(2)).thenReturn(10); // ticket ID
+            when(resultSet.getLong(2)).thenReturn(10L); // ticket ID
             when(resultSet.getDouble(3)).thenReturn(30.0);
             when(resultSet.getTimestamp(4)).thenReturn(Timestamp.valueOf("2023-01-01 10:00:00"));
             when(resultSet.getTimestamp(5)).thenReturn(null);
@@ -80,6 +82,67 @@ public class TicketDAOTest {
         }
     }
 
+    @Test
+    public void getTicketTest_withRegistry_sharesSpotWithoutJoin() {
+        try {
+            // GIVEN
+            ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+            ParkingSpotRegistry registry = new ParkingSpotRegistry(ParkingSpot.DEFAULT_LOT_ID);
+            registry.register(parkingSpot);
+            ticketDAO.setParkingSpotRegistry(registry);
+
+            when(dataBaseConfig.getConnection()).thenReturn(connection);
+            when(connection.prepareStatement(DBConstants.GET_TICKET_WITHOUT_SPOT)).thenReturn(preparedStatement);
+            when(preparedStatement.executeQuery()).thenReturn(resultSet);
+            when(resultSet.next()).thenReturn(true);
+            when(resultSet.getInt(1)).thenReturn(1);
+            when(resultSet.getLong(2)).thenReturn(10L);
+            when(resultSet.getTimestamp(4)).thenReturn(Timestamp.valueOf("2023-01-01 10:00:00"));
+
+            // WHEN
+            Ticket ticket = ticketDAO.getTicket("ABC123");
+
+            // THEN
+            assertNotNull(ticket);
+            assertSame(parkingSpot, ticket.getParkingSpot());
+            assertEquals(10, ticket.getId());
+            verify(connection, never()).prepareStatement(DBConstants.GET_TICKET);
+
+        } catch (Exception e) {
+            throw new RuntimeException("Test failed during execution", e);
+        }
+    }
+
+    @Test
+    public void getTicketTest_withRegistry_returningPlateClosesItsOpenTicket() throws Exception {
+        // GIVEN a plate whose ticket 10 is closed, back in the lot with open ticket 11
+        ParkingSpotRegistry registry = new ParkingSpotRegistry(ParkingSpot.DEFAULT_LOT_ID);
+        registry.register(new ParkingSpot(1, ParkingType.CAR, false));
+        ticketDAO.setParkingSpotRegistry(registry);
+        PreparedStatement update = mock(PreparedStatement.class);
+
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(DBConstants.GET_TICKET_WITHOUT_SPOT)).thenReturn(preparedStatement);
+        when(connection.prepareStatement(DBConstants.UPDATE_TICKET)).thenReturn(update);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(1);
+        when(resultSet.getLong(2)).thenReturn(11L);
+        when(resultSet.getTimestamp(4)).thenReturn(Timestamp.valueOf("2023-01-02 10:00:00"));
+        when(update.executeUpdate()).thenReturn(1);
+
+        // WHEN
+        Ticket ticket = ticketDAO.getTicket("ABC123");
+        ticket.setOutTime(Timestamp.valueOf("2023-01-02 11:00:00"));
+        ticketDAO.updateTicket(ticket);
+
+        // THEN only the open ticket, the latest one, is read and closed
+        assertTrue(DBConstants.GET_TICKET_WITHOUT_SPOT.contains("OUT_TIME is null"));
+        assertTrue(DBConstants.GET_TICKET_WITHOUT_SPOT.contains("order by IN_TIME desc"));
+        verify(update).setLong(3, 11L);
+        verify(update, never()).setLong(3, 10L);
+    }
+
     @Test
     public void getTicketTest_noTicketFound() {
         try {
@@ -130,9 +193,7 @@ public class TicketDAOTest {
             int expectedCount = 3;
 
             when(dataBaseConfig.getConnection()).thenReturn(connection);
-            when(connection.prepareStatement(
-                    "SELECT COUNT(*) FROM ticket WHERE VEHICLE_REG_NUMBER = ?"
-            )).thenReturn(preparedStatement);
+            when(connection.prepareStatement(DBConstants.COUNT_TICKETS)).thenReturn(preparedStatement);
             when(preparedStatement.executeQuery()).thenReturn(resultSet);
             when(resultSet.next()).thenReturn(true);
             when(resultSet.getInt(1)).thenReturn(expectedCount);
@@ -143,12 +204,49 @@ public class TicketDAOTest {
             // THEN
             assertEquals(expectedCount, result, "The number of tickets should match the database count");
             verify(preparedStatement, times(1)).executeQuery();
+            verify(preparedStatement).setInt(2, ticketDAO.getLotId());
 
         } catch (Exception e) {
             throw new RuntimeException("Test failed during execution", e);
         }
     }
 
+    @Test
+    public void forEachPlateCountTest_countsOnlyThisLot() throws Exception {
+        // GIVEN
+        TicketDAO lotTicketDAO = new TicketDAO(2, dataBaseConfig);
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(dataBaseConfig.prepareStreamingStatement(connection, DBConstants.GET_TICKET_COUNTS_BY_PLATE)).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(false);
+
+        // WHEN
+        long count = lotTicketDAO.forEachPlateCount((plate, tickets) -> fail("no row expected"));
+
+        // THEN
+        assertEquals(0, count);
+        assertTrue(DBConstants.GET_TICKET_COUNTS_BY_PLATE.contains("LOT_ID = ?"));
+        verify(preparedStatement).setInt(1, 2);
+    }
+
+    @Test
+    public void getNbTicketsTest_bindsTheLotBeforeThePlates() throws Exception {
+        // GIVEN
+        TicketDAO lotTicketDAO = new TicketDAO(2, dataBaseConfig);
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(false);
+
+        // WHEN
+        lotTicketDAO.getNbTickets(java.util.Arrays.asList("ABC123", "DEF456"));
+
+        // THEN
+        verify(preparedStatement).setInt(1, 2);
+        verify(preparedStatement).setString(2, "ABC123");
+        verify(preparedStatement).setString(3, "DEF456");
+    }
+
     @Test
     public void getNbTicketTest_noTicketFound() {
         try {
@@ -156,9 +254,7 @@ public class TicketDAOTest {
             String vehicleRegNumber = "UNKNOWN";
 
             when(dataBaseConfig.getConnection()).thenReturn(connection);
-            when(connection.prepareStatement(
-                    "SELECT COUNT(*) FROM ticket WHERE VEHICLE_REG_NUMBER = ?"
-            )).thenReturn(preparedStatement);
+            when(connection.prepareStatement(DBConstants.COUNT_TICKETS)).thenReturn(preparedStatement);
             when(preparedStatement.executeQuery()).thenReturn(resultSet);
             when(resultSet.next()).thenReturn(false);
 
@@ -204,19 +300,60 @@ public class TicketDAOTest {
 
             when(dataBaseConfig.getConnection()).thenReturn(connection);
             when(connection.prepareStatement(DBConstants.UPDATE_TICKET)).thenReturn(preparedStatement);
+            when(preparedStatement.executeUpdate()).thenReturn(1);
 
             // WHEN
             boolean result = ticketDAO.updateTicket(ticket);
 
             // THEN
             assertTrue(result, "updateTicket should return true when update succeeds");
-            verify(preparedStatement, times(1)).execute();
+            verify(preparedStatement, times(1)).executeUpdate();
+            verify(dataBaseConfig).closePreparedStatement(preparedStatement);
 
         } catch (Exception e) {
             throw new RuntimeException("Test failed during execution", e);
         }
     }
 
+    @Test
+    public void updateTicketTest_noRowUpdated_returnsFalse() throws Exception {
+        // GIVEN
+        Ticket ticket = new Ticket();
+        ticket.setId(10);
+        ticket.setOutTime(new java.util.Date());
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(DBConstants.UPDATE_TICKET)).thenReturn(preparedStatement);
+        when(preparedStatement.executeUpdate()).thenReturn(0);
+
+        // WHEN
+        boolean result = ticketDAO.updateTicket(ticket);
+
+        // THEN
+        assertFalse(result, "updateTicket should return false when no ticket has this ID");
+        verify(dataBaseConfig).closePreparedStatement(preparedStatement);
+    }
+
+    @Test
+    public void updateTicketTest_withOutbox_noRowUpdated_appendsNoOutboxRow() throws Exception {
+        // GIVEN
+        OutboxDAO outboxDAO = mock(OutboxDAO.class);
+        ticketDAO.setOutboxDAO(outboxDAO);
+        Ticket ticket = new Ticket();
+        ticket.setId(10);
+        ticket.setOutTime(new java.util.Date());
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(DBConstants.UPDATE_TICKET)).thenReturn(preparedStatement);
+        when(preparedStatement.executeUpdate()).thenReturn(0);
+
+        // WHEN
+        boolean result = ticketDAO.updateTicket(ticket);
+
+        // THEN
+        assertFalse(result);
+        verify(outboxDAO, never()).append(any(Connection.class), anyString(), any(Ticket.class), anyInt());
+        verify(connection, never()).commit();
+    }
+
     @Test
     public void updateTicketTest_failure_exception() {
         try {
@@ -241,13 +378,40 @@ public class TicketDAOTest {
         }
     }
 
+    @Test
+    public void updateTicketTest_withoutId_updatesOpenTicketByPlate() {
+        try {
+            // GIVEN
+            Ticket ticket = new Ticket();
+            ticket.setVehicleRegNumber("ABC123");
+            ticket.setPrice(15.0);
+            ticket.setOutTime(new java.util.Date());
+
+            when(dataBaseConfig.getConnection()).thenReturn(connection);
+            when(connection.prepareStatement(DBConstants.UPDATE_OPEN_TICKET_BY_PLATE)).thenReturn(preparedStatement);
+            when(preparedStatement.executeUpdate()).thenReturn(1);
+
+            // WHEN
+            boolean result = ticketDAO.updateTicket(ticket);
+
+            // THEN
+            assertTrue(result, "updateTicket should close the open ticket of the plate when the ID is unknown");
+            verify(preparedStatement, times(1)).setString(3, "ABC123");
+            verify(connection, never()).prepareStatement(DBConstants.UPDATE_TICKET);
+
+        } catch (Exception e) {
+            throw new RuntimeException("Test failed during execution", e);
+        }
+    }
+
     // --- Tests for saveTicket(Ticket) ---
 
     @Test
-    public void saveTicketTest_success_butReturnsFalse() {
+    public void saveTicketTest_success() {
         try {
             // GIVEN
             Ticket ticket = new Ticket();
+            ticket.setId(1L);
             ticket.setVehicleRegNumber("ABC123");
             ticket.setPrice(10.0);
             ticket.setInTime(new java.util.Date());
@@ -258,14 +422,13 @@ public class TicketDAOTest {
 
             when(dataBaseConfig.getConnection()).thenReturn(connection);
             when(connection.prepareStatement(DBConstants.SAVE_TICKET)).thenReturn(preparedStatement);
-            when(preparedStatement.execute()).thenReturn(true);
+            when(preparedStatement.execute()).thenReturn(false);
 
             // WHEN
             boolean result = ticketDAO.saveTicket(ticket);
 
             // THEN
-            assertFalse(result,
-                    "saveTicket should return false because the finally block overrides the return value");
+            assertTrue(result, "saveTicket should return true once the insert ran, execute() is false for an insert");
             verify(preparedStatement, times(1)).execute();
 
         } catch (Exception e) {
@@ -278,6 +441,7 @@ public class TicketDAOTest {
         try {
             // GIVEN
             Ticket ticket = new Ticket();
+            ticket.setId(1L);
             ticket.setVehicleRegNumber("ABC123");
             ticket.setPrice(10.0);
             ticket.setInTime(new java.util.Date());
@@ -300,7 +464,214 @@ public class TicketDAOTest {
         }
     }
 
+    @Test
+    public void saveTicketTest_withOutbox_commitsTicketAndOutboxRowTogether() throws Exception {
+        // GIVEN
+        OutboxDAO outboxDAO = mock(OutboxDAO.class);
+        ticketDAO.setOutboxDAO(outboxDAO);
+        Ticket ticket = new Ticket();
+        ticket.setId(1L);
+        ticket.setVehicleRegNumber("ABC123");
+        ticket.setInTime(new java.util.Date());
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(DBConstants.SAVE_TICKET)).thenReturn(preparedStatement);
+
+        // WHEN
+        boolean result = ticketDAO.saveTicket(ticket);
+
+        // THEN
+        assertTrue(result);
+        InOrder inOrder = inOrder(connection, preparedStatement, outboxDAO);
+        inOrder.verify(connection).setAutoCommit(false);
+        inOrder.verify(preparedStatement).execute();
+        inOrder.verify(outboxDAO).append(connection, OutboxEntry.TICKET_SAVED, ticket, ticketDAO.getLotId());
+        inOrder.verify(connection).commit();
+    }
+
+    @Test
+    public void saveTicketTest_withOutbox_rollsBackTicketWhenOutboxRowFails() throws Exception {
+        // GIVEN
+        OutboxDAO outboxDAO = mock(OutboxDAO.class);
+        ticketDAO.setOutboxDAO(outboxDAO);
+        Ticket ticket = new Ticket();
+        ticket.setId(1L);
+        ticket.setVehicleRegNumber("ABC123");
+        ticket.setInTime(new java.util.Date());
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(DBConstants.SAVE_TICKET)).thenReturn(preparedStatement);
+        doThrow(new SQLException("outbox full")).when(outboxDAO)
+                .append(any(Connection.class), anyString(), any(Ticket.class), anyInt());
+
+        // WHEN
+        boolean result = ticketDAO.saveTicket(ticket);
+
+        // THEN
+        assertFalse(result);
+        verify(connection, never()).commit();
+        verify(connection, atLeastOnce()).rollback();
+    }
+
+    @Test
+    public void saveTicketTest_withClientSideId_insertsTheId() throws Exception {
+        // GIVEN
+        Ticket ticket = new Ticket();
+        ticket.setId(1234567890123L);
+        ticket.setVehicleRegNumber("ABC123");
+        ticket.setInTime(new java.util.Date());
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(DBConstants.SAVE_TICKET)).thenReturn(preparedStatement);
+
+        // WHEN
+        boolean result = ticketDAO.saveTicket(ticket);
+
+        // THEN
+        assertTrue(result);
+        verify(preparedStatement).setLong(7, 1234567890123L);
+    }
+
+    @Test
+    public void saveTicketTest_ticketWithoutId_insertsNothing() throws Exception {
+        // GIVEN a ticket not numbered by a TicketIdGenerator, the table has no AUTO_INCREMENT
+        Ticket ticket = new Ticket();
+        ticket.setVehicleRegNumber("ABC123");
+        ticket.setInTime(new java.util.Date());
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+
+        // WHEN
+        boolean result = ticketDAO.saveTicket(ticket);
+
+        // THEN
+        assertFalse(result);
+        verify(dataBaseConfig, never()).getConnection();
+    }
+
+    @Test
+    public void saveTicketsTest_insertsOneBatchInOneTransaction() throws Exception {
+        // GIVEN
+        java.util.List<Ticket> tickets = new java.util.ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Ticket ticket = new Ticket();
+            ticket.setId(i);
+            ticket.setVehicleRegNumber("ABC12" + i);
+            ticket.setInTime(new java.util.Date());
+            ticket.setParkingSpot(new ParkingSpot(i, ParkingType.CAR, false));
+            tickets.add(ticket);
+        }
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(DBConstants.SAVE_TICKET)).thenReturn(preparedStatement);
+
+        // WHEN
+        boolean result = ticketDAO.saveTickets(tickets);
+
+        // THEN
+        assertTrue(result);
+        verify(preparedStatement, times(3)).addBatch();
+        verify(preparedStatement, times(1)).executeBatch();
+        verify(connection).setAutoCommit(false);
+        verify(connection).commit();
+    }
+
+    @Test
+    public void saveTicketsTest_ticketWithoutId_insertsNothing() throws Exception {
+        Ticket ticket = new Ticket();
+        ticket.setVehicleRegNumber("ABC123");
+
+        assertFalse(ticketDAO.saveTickets(java.util.Collections.singletonList(ticket)));
+        verify(dataBaseConfig, never()).getConnection();
+    }
+
+    @Test
+    public void streamTicketsTest_readsLazilyAndClosesResources() throws Exception {
+        // GIVEN
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(dataBaseConfig.prepareStreamingStatement(connection, DBConstants.GET_ALL_TICKETS)).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getLong(1)).thenReturn(1L, 2L);
+        when(resultSet.getInt(2)).thenReturn(3);
+        when(resultSet.getString(3)).thenReturn("ABC123");
+        when(resultSet.getString(7)).thenReturn(ParkingType.CAR.name());
+
+        // WHEN
+        long count;
+        try (Stream<Ticket> tickets = ticketDAO.streamTickets()) {
+            verify(resultSet, never()).next();
+            count = tickets.count();
+            verify(dataBaseConfig, never()).closeConnection(connection);
+        }
 
+        // THEN
+        assertEquals(2, count);
+        verify(dataBaseConfig).closeResultSet(resultSet);
+        verify(dataBaseConfig).closePreparedStatement(preparedStatement);
+        verify(dataBaseConfig).closeConnection(connection);
+    }
 
+    @Test
+    public void forEachTicketTest_readsOnlyThisLotWithItsLotId() throws Exception {
+        // GIVEN
+        TicketDAO lotTicketDAO = new TicketDAO(2, dataBaseConfig);
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(dataBaseConfig.prepareStreamingStatement(connection, DBConstants.GET_LOT_TICKETS)).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getLong(1)).thenReturn(1L);
+        when(resultSet.getInt(2)).thenReturn(3);
+        when(resultSet.getString(3)).thenReturn("ABC123");
+        when(resultSet.getString(7)).thenReturn(ParkingType.CAR.name());
+        when(resultSet.getInt(8)).thenReturn(2);
+        Ticket[] read = new Ticket[1];
+
+        // WHEN
+        long count = lotTicketDAO.forEachTicket(ticket -> read[0] = ticket);
+
+        // THEN
+        assertEquals(1, count);
+        verify(preparedStatement).setInt(1, 2);
+        assertEquals(2, read[0].getLotId());
+        assertEquals(2, read[0].getParkingSpot().getLotId());
+        verify(dataBaseConfig, never()).prepareStreamingStatement(connection, DBConstants.GET_ALL_TICKETS);
+    }
 
+    @Test
+    public void forEachTicketTest_failedReadReturnsMinusOne() throws Exception {
+        // GIVEN the cursor breaks after the first row
+        TicketDAO lotTicketDAO = new TicketDAO(2, dataBaseConfig);
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(dataBaseConfig.prepareStreamingStatement(connection, DBConstants.GET_LOT_TICKETS)).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true).thenThrow(new SQLException("Connection reset"));
+        when(resultSet.getString(7)).thenReturn(ParkingType.CAR.name());
+        int[] read = new int[1];
+
+        // WHEN
+        long count = lotTicketDAO.forEachTicket(ticket -> read[0]++);
+
+        // THEN a partial read is not taken for the whole lot
+        assertEquals(-1, count);
+        assertEquals(1, read[0]);
+        verify(dataBaseConfig).closeConnection(connection);
+    }
+
+    @Test
+    public void forEachRecentTicketTest_filtersOnLotAndExitTimeInTheQuery() throws Exception {
+        // GIVEN
+        TicketDAO lotTicketDAO = new TicketDAO(2, dataBaseConfig);
+        java.util.Date since = new java.util.Date(1_000_000);
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(dataBaseConfig.prepareStreamingStatement(connection, DBConstants.GET_RECENT_LOT_TICKETS)).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(false);
+
+        // WHEN
+        long count = lotTicketDAO.forEachRecentTicket(since, ticket -> fail("no row expected"));
+
+        // THEN
+        assertEquals(0, count);
+        verify(preparedStatement).setInt(1, 2);
+        verify(preparedStatement).setTimestamp(2, new Timestamp(since.getTime()));
+    }
 }
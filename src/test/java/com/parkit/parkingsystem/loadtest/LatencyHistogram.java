@@ -0,0 +1,79 @@
+package com.parkit.parkingsystem.loadtest;
+
+/**
+ * Log-linear histogram of latencies in microseconds: 32 linear sub-buckets per power of two, so any
+ * reported percentile is within about 3% of the recorded value. Not thread-safe, each gate records
+ * into its own and they are merged at the end of a stage.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long count;
+    private long max;
+    private long sum;
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts[indexOf(micros)]++;
+        count++;
+        sum += micros;
+        max = Math.max(max, micros);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> magnitude) - SUB_BUCKETS;
+        return (magnitude + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int magnitude = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << magnitude) - 1;
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxMicros() {
+        return max;
+    }
+
+    public double getMeanMicros() {
+        return (count == 0) ? 0 : (double) sum / count;
+    }
+
+    public long getPercentileMicros(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max);
+            }
+        }
+        return max;
+    }
+}
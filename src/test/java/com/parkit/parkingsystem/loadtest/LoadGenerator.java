@@ -0,0 +1,362 @@
+package com.parkit.parkingsystem.loadtest;
+
+import com.parkit.parkingsystem.config.CountingDataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.PooledDataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.dao.OffHeapOpenTicketStore;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotRegistry;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.LeastRecentlyUsedSpotStrategy;
+import com.parkit.parkingsystem.service.LowestNumberSpotStrategy;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.RandomSpotStrategy;
+import com.parkit.parkingsystem.service.RecurrenceService;
+import com.parkit.parkingsystem.service.RoundRobinSpotStrategy;
+import com.parkit.parkingsystem.service.SpotAllocator;
+import com.parkit.parkingsystem.service.SpotSelectionStrategy;
+import com.parkit.parkingsystem.util.RoundTripCounter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Drives ParkingService from N simulated gates with Poisson arrivals and log-normal dwell times, one
+ * stage per offered arrival rate. Latencies are measured from the time an event was due, not from
+ * when a gate got to it, so a backlog shows up as latency instead of silently lowering the load.
+ *
+ * Usage: LoadGenerator [gates=4] [rates=50,100,200] [backend=memory|mysql] [openTicketStore=true] ...
+ * (see LoadProfile for every setting).
+ */
+public class LoadGenerator {
+
+    private static final Logger logger = LogManager.getLogger("LoadGenerator");
+
+    private static final int LOT_ID = ParkingSpot.DEFAULT_LOT_ID;
+    private static final int POOL_ACQUIRE_TIMEOUT_MILLIS = 2000;
+
+    private final LoadProfile profile;
+    private final PrintStream receipts;
+
+    // receipts printed by ParkingService are dropped, they would measure the console
+    public LoadGenerator(LoadProfile profile) {
+        this(profile, new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    public LoadGenerator(LoadProfile profile, PrintStream receipts) {
+        this.profile = profile;
+        this.receipts = receipts;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadProfile profile = LoadProfile.parse(args);
+        String runId = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        PrintStream console = System.out;
+        console.println("Load test " + runId + ": " + profile.describe());
+        List<StageResult> results = new LoadGenerator(profile).run();
+        console.println(formatReport(results));
+        appendResults(Paths.get(profile.getResultsFile()), runId, profile, results);
+        console.println("Results appended to " + profile.getResultsFile());
+    }
+
+    public List<StageResult> run() throws InterruptedException {
+        List<StageResult> results = new ArrayList<>();
+        for (double rate : profile.getArrivalRates()) {
+            StageResult result = runStage(rate);
+            results.add(result);
+            logger.info("Stage at " + rate + " arrivals/s done, saturated=" + result.isSaturated());
+        }
+        return results;
+    }
+
+    private StageResult runStage(double arrivalRate) throws InterruptedException {
+        RoundTripCounter counter = new RoundTripCounter();
+        ParkingSpotDAO parkingSpotDAO;
+        TicketDAO ticketDAO;
+        PooledDataBaseConfig pool = null;
+        if ("mysql".equals(profile.getBackend())) {
+            // spots come from the configured schema, run against a disposable database
+            pool = new PooledDataBaseConfig(new DataBaseConfig(), profile.getGates(), POOL_ACQUIRE_TIMEOUT_MILLIS);
+            DataBaseConfig dataBaseConfig = new CountingDataBaseConfig(pool, counter);
+            parkingSpotDAO = new ParkingSpotDAO(LOT_ID, dataBaseConfig);
+            ticketDAO = new TicketDAO(LOT_ID, dataBaseConfig);
+        } else if ("memory".equals(profile.getBackend())) {
+            InMemoryParkingSpotDAO inMemorySpots = new InMemoryParkingSpotDAO(LOT_ID, counter, profile.getDbLatencyMicros());
+            inMemorySpots.addParkingSpots(ParkingType.CAR, 1, profile.getCarSpots());
+            inMemorySpots.addParkingSpots(ParkingType.BIKE, profile.getCarSpots() + 1, profile.getBikeSpots());
+            parkingSpotDAO = inMemorySpots;
+            ticketDAO = new InMemoryTicketDAO(LOT_ID, counter, profile.getDbLatencyMicros());
+        } else {
+            throw new IllegalArgumentException("Unknown backend: " + profile.getBackend());
+        }
+        ParkingService parkingService = newParkingService(parkingSpotDAO, ticketDAO);
+
+        Set<String> parked = ConcurrentHashMap.newKeySet();
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long end = start + TimeUnit.SECONDS.toNanos(profile.getStageSeconds());
+        List<Gate> gates = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < profile.getGates(); i++) {
+            Gate gate = new Gate(i, parkingService, counter, parked, arrivalRate / profile.getGates(),
+                    new Random(profile.getSeed() * 31 + i), start, end);
+            gates.add(gate);
+            Thread thread = new Thread(gate, "gate-" + i);
+            threads.add(thread);
+        }
+
+        try {
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+
+        LatencyHistogram entryLatency = new LatencyHistogram();
+        LatencyHistogram exitLatency = new LatencyHistogram();
+        long entries = 0, exits = 0, lotFull = 0, failures = 0, entryRoundTrips = 0, exitRoundTrips = 0;
+        long finishedAt = end;
+        for (Gate gate : gates) {
+            finishedAt = Math.max(finishedAt, gate.finishedAt);
+            entryLatency.merge(gate.entryLatency);
+            exitLatency.merge(gate.exitLatency);
+            entries += gate.entries;
+            exits += gate.exits;
+            lotFull += gate.lotFull;
+            failures += gate.failures;
+            entryRoundTrips += gate.entryRoundTrips;
+            exitRoundTrips += gate.exitRoundTrips;
+        }
+        double elapsedSeconds = (finishedAt - start) / 1e9;
+        return new StageResult(arrivalRate, profile.getStageSeconds(), elapsedSeconds, entries, exits, lotFull, failures,
+                entryLatency, exitLatency, entryRoundTrips, exitRoundTrips, profile.getSloMillis());
+    }
+
+    private ParkingService newParkingService(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+        parkingService.setConsole(receipts);
+        ParkingSpotRegistry parkingSpotRegistry = null;
+        if (profile.isSpotRegistry()) {
+            parkingSpotRegistry = ParkingSpotRegistry.load(parkingSpotDAO);
+            ticketDAO.setParkingSpotRegistry(parkingSpotRegistry);
+            parkingService.setParkingSpotRegistry(parkingSpotRegistry);
+        }
+        if (profile.isOpenTicketStore()) {
+            OffHeapOpenTicketStore openTicketStore = new OffHeapOpenTicketStore(profile.getCarSpots() + profile.getBikeSpots());
+            openTicketStore.setParkingSpotRegistry(parkingSpotRegistry);
+            parkingService.setOpenTicketStore(openTicketStore);
+        }
+        if (profile.isRecurrenceFilter()) {
+            RecurrenceService recurrenceService = new RecurrenceService();
+            recurrenceService.rebuild(ticketDAO);
+            parkingService.setRecurrenceService(recurrenceService);
+        }
+        Supplier<SpotSelectionStrategy> spotSelection = spotSelection(profile.getSpotSelection());
+        if (spotSelection != null) {
+            SpotAllocator spotAllocator = new SpotAllocator(spotSelection);
+            spotAllocator.load(parkingSpotDAO);
+            parkingService.setSpotAllocator(spotAllocator);
+        }
+        return parkingService;
+    }
+
+    private Supplier<SpotSelectionStrategy> spotSelection(String name) {
+        switch (name) {
+            case "none": return null;
+            case "lowest": return LowestNumberSpotStrategy::new;
+            case "roundrobin": return RoundRobinSpotStrategy::new;
+            case "lru": return LeastRecentlyUsedSpotStrategy::new;
+            case "random": return () -> new RandomSpotStrategy(new Random(profile.getSeed()));
+            default: throw new IllegalArgumentException("Unknown spot selection: " + name);
+        }
+    }
+
+    private final class Gate implements Runnable {
+
+        private final int index;
+        private final ParkingService parkingService;
+        private final RoundTripCounter counter;
+        private final Set<String> parked;
+        private final double arrivalsPerNano;
+        private final Random random;
+        private final long start;
+        private final long end;
+        private final PriorityQueue<long[]> departures = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        private final List<String> departingPlates = new ArrayList<>();
+        private long newPlates;
+
+        final LatencyHistogram entryLatency = new LatencyHistogram();
+        final LatencyHistogram exitLatency = new LatencyHistogram();
+        long entries;
+        long exits;
+        long lotFull;
+        long failures;
+        long entryRoundTrips;
+        long exitRoundTrips;
+        long finishedAt;
+
+        Gate(int index, ParkingService parkingService, RoundTripCounter counter, Set<String> parked,
+             double arrivalsPerSecond, Random random, long start, long end) {
+            this.index = index;
+            this.parkingService = parkingService;
+            this.counter = counter;
+            this.parked = parked;
+            this.arrivalsPerNano = arrivalsPerSecond / 1e9;
+            this.random = random;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            long nextArrival = start + interArrival();
+            while (true) {
+                long[] departure = departures.peek();
+                boolean exit = departure != null && departure[0] <= nextArrival;
+                long due = exit ? departure[0] : nextArrival;
+                if (due >= end) {
+                    break;
+                }
+                waitUntil(due);
+                if (exit) {
+                    departures.poll();
+                    exit(departingPlates.get((int) departure[1]), due);
+                } else {
+                    enter(due);
+                    nextArrival += interArrival();
+                }
+            }
+            finishedAt = System.nanoTime();
+            // vehicles still parked leave unmeasured, so a shared DB is left without open tickets
+            long[] departure;
+            while ((departure = departures.poll()) != null) {
+                String plate = departingPlates.get((int) departure[1]);
+                parkingService.processExitingVehicle(plate);
+                parked.remove(plate);
+            }
+        }
+
+        private void enter(long due) {
+            ParkingType parkingType = (random.nextDouble() < profile.getBikeShare()) ? ParkingType.BIKE : ParkingType.CAR;
+            String plate = pickPlate();
+            long roundTrips = counter.getCurrentThreadCount();
+            Ticket ticket = parkingService.processIncomingVehicle(plate, parkingType);
+            entryLatency.recordNanos(System.nanoTime() - due);
+            entryRoundTrips += counter.getCurrentThreadCount() - roundTrips;
+            if (ticket == null) {
+                parked.remove(plate);
+                lotFull++;
+                return;
+            }
+            entries++;
+            departingPlates.add(plate);
+            departures.add(new long[]{System.nanoTime() + dwell(), departingPlates.size() - 1});
+        }
+
+        private void exit(String plate, long due) {
+            long roundTrips = counter.getCurrentThreadCount();
+            Ticket ticket = parkingService.processExitingVehicle(plate);
+            exitLatency.recordNanos(System.nanoTime() - due);
+            exitRoundTrips += counter.getCurrentThreadCount() - roundTrips;
+            parked.remove(plate);
+            if (ticket == null) {
+                failures++;
+            } else {
+                exits++;
+            }
+        }
+
+        private String pickPlate() {
+            if (random.nextDouble() < profile.getRecurrentShare() && profile.getRecurrentPlates() > 0) {
+                String plate = "R" + Integer.toString(random.nextInt(profile.getRecurrentPlates()), 36).toUpperCase(Locale.ROOT);
+                if (parked.add(plate)) {
+                    return plate;
+                }
+            }
+            String plate = "N" + Integer.toString(index, 36).toUpperCase(Locale.ROOT) + "X"
+                    + Long.toString(newPlates++, 36).toUpperCase(Locale.ROOT);
+            parked.add(plate);
+            return plate;
+        }
+
+        private long interArrival() {
+            return (long) (-Math.log(1 - random.nextDouble()) / arrivalsPerNano);
+        }
+
+        private long dwell() {
+            double minutes = profile.getDwellMedianMinutes() * Math.exp(profile.getDwellSigma() * random.nextGaussian());
+            return (long) (minutes * 60e9 / profile.getTimeScale());
+        }
+
+        private void waitUntil(long due) {
+            long remaining;
+            while ((remaining = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+
+    public static String formatReport(List<StageResult> results) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%10s %10s %10s %8s %8s %6s %6s %10s %10s %10s %10s %8s %8s %s%n",
+                "offered/s", "achieved/s", "ops/s", "entries", "exits", "full", "failed",
+                "entry p50", "entry p99", "exit p50", "exit p99", "rt/entry", "rt/exit", "saturated"));
+        StageResult saturation = null;
+        for (StageResult result : results) {
+            report.append(String.format(Locale.ROOT, "%10.1f %10.1f %10.1f %8d %8d %6d %6d %8dus %8dus %8dus %8dus %8.2f %8.2f %s%n",
+                    result.getOfferedArrivalRate(), result.getAchievedArrivalRate(), result.getOperationRate(),
+                    result.getEntries(), result.getExits(), result.getLotFull(), result.getFailures(),
+                    result.getEntryLatency().getPercentileMicros(50), result.getEntryLatency().getPercentileMicros(99),
+                    result.getExitLatency().getPercentileMicros(50), result.getExitLatency().getPercentileMicros(99),
+                    result.getRoundTripsPerEntry(), result.getRoundTripsPerExit(), result.isSaturated()));
+            if (saturation == null && result.isSaturated()) {
+                saturation = result;
+            }
+        }
+        report.append((saturation == null)
+                ? "No saturation up to the highest offered rate"
+                : String.format(Locale.ROOT, "Saturated at %.1f arrivals/s", saturation.getOfferedArrivalRate()));
+        return report.toString();
+    }
+
+    private static void appendResults(Path file, String runId, LoadProfile profile, List<StageResult> results) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (!Files.exists(file)) {
+            lines.add(StageResult.CSV_HEADER);
+        }
+        for (StageResult result : results) {
+            lines.add(result.toCsv(runId, profile.describe()));
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,177 @@
+package com.parkit.parkingsystem.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Settings of a load test, read from key=value arguments. Times of the simulated day (dwell) are
+ * compressed by timeScale, so a stage of a few seconds covers hours of parking.
+ */
+public class LoadProfile {
+
+    private int gates = 4;
+    private List<Double> arrivalRates = List.of(50.0, 100.0, 200.0, 400.0);
+    private long stageSeconds = 10;
+    private double timeScale = 3600;
+    private double dwellMedianMinutes = 90;
+    private double dwellSigma = 0.8;
+    private double bikeShare = 0.2;
+    private double recurrentShare = 0.3;
+    private int recurrentPlates = 5000;
+    private int carSpots = 2000;
+    private int bikeSpots = 500;
+    private long dbLatencyMicros = 200;
+    private String backend = "memory";
+    private boolean openTicketStore;
+    private boolean recurrenceFilter;
+    private boolean spotRegistry;
+    private String spotSelection = "none";
+    private long sloMillis = 50;
+    private long seed = 42;
+    private String resultsFile = "loadtest-results.csv";
+
+    public static LoadProfile parse(String[] args) {
+        Map<String, String> values = new TreeMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            values.put(arg.substring(0, separator).trim(), arg.substring(separator + 1).trim());
+        }
+        LoadProfile profile = new LoadProfile();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String value = entry.getValue();
+            switch (entry.getKey()) {
+                case "gates": profile.gates = Integer.parseInt(value); break;
+                case "rates": profile.arrivalRates = parseRates(value); break;
+                case "stageSeconds": profile.stageSeconds = Long.parseLong(value); break;
+                case "timeScale": profile.timeScale = Double.parseDouble(value); break;
+                case "dwellMedianMinutes": profile.dwellMedianMinutes = Double.parseDouble(value); break;
+                case "dwellSigma": profile.dwellSigma = Double.parseDouble(value); break;
+                case "bikeShare": profile.bikeShare = Double.parseDouble(value); break;
+                case "recurrentShare": profile.recurrentShare = Double.parseDouble(value); break;
+                case "recurrentPlates": profile.recurrentPlates = Integer.parseInt(value); break;
+                case "carSpots": profile.carSpots = Integer.parseInt(value); break;
+                case "bikeSpots": profile.bikeSpots = Integer.parseInt(value); break;
+                case "dbLatencyMicros": profile.dbLatencyMicros = Long.parseLong(value); break;
+                case "backend": profile.backend = value; break;
+                case "openTicketStore": profile.openTicketStore = Boolean.parseBoolean(value); break;
+                case "recurrenceFilter": profile.recurrenceFilter = Boolean.parseBoolean(value); break;
+                case "spotRegistry": profile.spotRegistry = Boolean.parseBoolean(value); break;
+                case "spotSelection": profile.spotSelection = value; break;
+                case "sloMillis": profile.sloMillis = Long.parseLong(value); break;
+                case "seed": profile.seed = Long.parseLong(value); break;
+                case "resultsFile": profile.resultsFile = value; break;
+                default: throw new IllegalArgumentException("Unknown load test setting: " + entry.getKey());
+            }
+        }
+        if (profile.gates <= 0 || profile.arrivalRates.isEmpty() || profile.stageSeconds <= 0 || profile.timeScale <= 0) {
+            throw new IllegalArgumentException("gates, rates, stageSeconds and timeScale must be positive");
+        }
+        return profile;
+    }
+
+    private static List<Double> parseRates(String value) {
+        List<Double> rates = new ArrayList<>();
+        for (String rate : value.split(",")) {
+            double parsed = Double.parseDouble(rate.trim());
+            if (parsed <= 0) {
+                throw new IllegalArgumentException("Arrival rates must be positive: " + value);
+            }
+            rates.add(parsed);
+        }
+        return rates;
+    }
+
+    public int getGates() {
+        return gates;
+    }
+
+    public List<Double> getArrivalRates() {
+        return arrivalRates;
+    }
+
+    public long getStageSeconds() {
+        return stageSeconds;
+    }
+
+    public double getTimeScale() {
+        return timeScale;
+    }
+
+    public double getDwellMedianMinutes() {
+        return dwellMedianMinutes;
+    }
+
+    public double getDwellSigma() {
+        return dwellSigma;
+    }
+
+    public double getBikeShare() {
+        return bikeShare;
+    }
+
+    public double getRecurrentShare() {
+        return recurrentShare;
+    }
+
+    public int getRecurrentPlates() {
+        return recurrentPlates;
+    }
+
+    public int getCarSpots() {
+        return carSpots;
+    }
+
+    public int getBikeSpots() {
+        return bikeSpots;
+    }
+
+    public long getDbLatencyMicros() {
+        return dbLatencyMicros;
+    }
+
+    public String getBackend() {
+        return backend;
+    }
+
+    public boolean isOpenTicketStore() {
+        return openTicketStore;
+    }
+
+    public boolean isRecurrenceFilter() {
+        return recurrenceFilter;
+    }
+
+    public boolean isSpotRegistry() {
+        return spotRegistry;
+    }
+
+    public String getSpotSelection() {
+        return spotSelection;
+    }
+
+    public long getSloMillis() {
+        return sloMillis;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String getResultsFile() {
+        return resultsFile;
+    }
+
+    // the settings that change results, written next to every result row so runs can be compared
+    public String describe() {
+        return "gates=" + gates + " backend=" + backend + " dbLatencyMicros=" + dbLatencyMicros
+                + " openTicketStore=" + openTicketStore + " recurrenceFilter=" + recurrenceFilter
+                + " spotRegistry=" + spotRegistry + " spotSelection=" + spotSelection + " bikeShare=" + bikeShare
+                + " recurrentShare=" + recurrentShare + " dwellMedianMinutes=" + dwellMedianMinutes
+                + " timeScale=" + timeScale + " seed=" + seed;
+    }
+}
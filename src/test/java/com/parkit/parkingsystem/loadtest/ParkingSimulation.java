@@ -0,0 +1,280 @@
+package com.parkit.parkingsystem.loadtest;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.PlateEvent;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.DynamicPricing;
+import com.parkit.parkingsystem.service.LowestNumberSpotStrategy;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.PlateEventIngestor;
+import com.parkit.parkingsystem.service.SpotAllocator;
+import com.parkit.parkingsystem.util.RoundTripCounter;
+import com.parkit.parkingsystem.util.VirtualClock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Discrete-event simulation of a lot: arrivals and departures are taken from a queue in time order
+ * and the virtual clock jumps to each one before ParkingService handles it, so weeks of traffic run
+ * in seconds on the in-memory DAOs. Meant for capacity planning and for checking that a pricing
+ * change moves revenue the way it should.
+ *
+ * Traffic is either generated (Poisson arrivals shaped by hour of day and weekends, log-normal dwell
+ * times) or replayed from a plate feed in the PlateEventIngestor format. Days are counted in UTC.
+ *
+ * Usage: ParkingSimulation [days=28] [arrivalsPerHour=60] [carSpots=200] [replay=feed.txt] ...
+ * (see SimulationProfile for every setting).
+ */
+public class ParkingSimulation {
+
+    private static final Logger logger = LogManager.getLogger("ParkingSimulation");
+
+    private static final int LOT_ID = ParkingSpot.DEFAULT_LOT_ID;
+    private static final long HOUR_MILLIS = 3_600_000;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+    // share of a weekday's mean hourly arrivals, commuter peaks at 8h and 17h
+    private static final double[] HOURLY_WEIGHTS = {
+            0.1, 0.05, 0.05, 0.05, 0.1, 0.3, 0.8, 1.8, 2.6, 2.0, 1.4, 1.3,
+            1.6, 1.5, 1.3, 1.3, 1.7, 2.2, 1.6, 1.0, 0.6, 0.4, 0.2, 0.15};
+    private static final double MEAN_HOURLY_WEIGHT;
+    private static final double MAX_HOURLY_WEIGHT;
+
+    static {
+        double sum = 0, max = 0;
+        for (double weight : HOURLY_WEIGHTS) {
+            sum += weight;
+            max = Math.max(max, weight);
+        }
+        MEAN_HOURLY_WEIGHT = sum / HOURLY_WEIGHTS.length;
+        MAX_HOURLY_WEIGHT = max;
+    }
+
+    private final SimulationProfile profile;
+    private final PrintStream receipts;
+    private final PriorityQueue<ScheduledEvent> queue = new PriorityQueue<>();
+    private final Set<String> parked = new HashSet<>();
+    private final Random random;
+    private VirtualClock clock;
+    private ParkingService parkingService;
+    private DynamicPricing dynamicPricing;
+    private SimulationResult result;
+    private long sequence;
+    private long newPlates;
+
+    // receipts printed by ParkingService are dropped
+    public ParkingSimulation(SimulationProfile profile) {
+        this(profile, new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    public ParkingSimulation(SimulationProfile profile, PrintStream receipts) {
+        this.profile = profile;
+        this.receipts = receipts;
+        this.random = new Random(profile.getSeed());
+    }
+
+    public static void main(String[] args) throws Exception {
+        SimulationProfile profile = SimulationProfile.parse(args);
+        PrintStream console = System.out;
+        console.println("Simulation: " + profile.describe());
+        console.println(new ParkingSimulation(profile).run().format());
+    }
+
+    public SimulationResult run() throws IOException {
+        long startMillis = profile.getStartDate().atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        long endMillis;
+        if (profile.getReplayFile() != null) {
+            endMillis = loadReplay();
+            if (!queue.isEmpty()) {
+                startMillis = queue.peek().time;
+            }
+        } else {
+            endMillis = startMillis + profile.getDays() * DAY_MILLIS;
+            scheduleNextArrival(startMillis, endMillis);
+        }
+        clock = new VirtualClock(startMillis, ZoneOffset.UTC);
+        parkingService = newParkingService();
+        result = new SimulationResult();
+
+        long wallStart = System.nanoTime();
+        ScheduledEvent event;
+        while ((event = queue.poll()) != null) {
+            clock.advanceTo(event.time);
+            if (event.entry) {
+                enter(event, endMillis);
+            } else {
+                exit(event.plate);
+            }
+        }
+        result.finish(clock.millis() - startMillis, (System.nanoTime() - wallStart) / 1_000_000);
+        logger.info("Simulated " + result.getEntries() + " entries and " + result.getExits() + " exits in "
+                + result.getWallMillis() + " ms");
+        return result;
+    }
+
+    private ParkingService newParkingService() {
+        RoundTripCounter counter = new RoundTripCounter();
+        InMemoryParkingSpotDAO parkingSpotDAO = new InMemoryParkingSpotDAO(LOT_ID, counter, 0);
+        parkingSpotDAO.addParkingSpots(ParkingType.CAR, 1, profile.getCarSpots());
+        parkingSpotDAO.addParkingSpots(ParkingType.BIKE, profile.getCarSpots() + 1, profile.getBikeSpots());
+        InMemoryTicketDAO ticketDAO = new InMemoryTicketDAO(LOT_ID, counter, 0);
+        ParkingService service = new ParkingService(null, parkingSpotDAO, ticketDAO);
+        service.setConsole(receipts);
+        service.setClock(clock);
+        if (profile.isDynamicPricing()) {
+            SpotAllocator spotAllocator = new SpotAllocator(LowestNumberSpotStrategy::new);
+            spotAllocator.load(parkingSpotDAO);
+            service.setSpotAllocator(spotAllocator);
+            // refreshed before each exit instead of on a timer, which would follow the wall clock
+            dynamicPricing = new DynamicPricing(spotAllocator::getCapacity, spotAllocator::countFreeSpots);
+            service.setDynamicPricing(dynamicPricing);
+        }
+        return service;
+    }
+
+    private void enter(ScheduledEvent arrival, long endMillis) {
+        String plate = arrival.plate;
+        if (plate == null) {
+            plate = pickPlate();
+            scheduleNextArrival(arrival.time, endMillis);
+        }
+        Ticket ticket = parkingService.processIncomingVehicle(plate, arrival.parkingType);
+        if (ticket == null) {
+            parked.remove(plate);
+            result.recordLotFull();
+            return;
+        }
+        result.recordEntry(arrival.parkingType);
+        if (arrival.plate == null) {
+            queue.add(new ScheduledEvent(arrival.time + dwell(), sequence++, false, plate, arrival.parkingType));
+        }
+    }
+
+    private void exit(String plate) {
+        if (dynamicPricing != null) {
+            dynamicPricing.refresh();
+        }
+        Ticket ticket = parkingService.processExitingVehicle(plate);
+        parked.remove(plate);
+        if (ticket == null) {
+            result.recordFailure();
+            return;
+        }
+        LocalDate day = Instant.ofEpochMilli(ticket.getOutTime().getTime()).atZone(ZoneOffset.UTC).toLocalDate();
+        result.recordExit(day, ticket.getParkingSpot().getParkingType(), ticket.getPrice());
+    }
+
+    /**
+     * Non-homogeneous Poisson arrivals by thinning: candidates come at the peak rate and are kept with
+     * the ratio of the rate at their time to the peak.
+     */
+    private void scheduleNextArrival(long after, long endMillis) {
+        double peakPerMilli = profile.getArrivalsPerHour() * MAX_HOURLY_WEIGHT / MEAN_HOURLY_WEIGHT
+                * Math.max(1, profile.getWeekendFactor()) / HOUR_MILLIS;
+        long time = after;
+        while (true) {
+            time += (long) Math.ceil(-Math.log(1 - random.nextDouble()) / peakPerMilli);
+            if (time >= endMillis) {
+                return;
+            }
+            if (random.nextDouble() * peakPerMilli < arrivalsPerMilli(time)) {
+                break;
+            }
+        }
+        ParkingType parkingType = (random.nextDouble() < profile.getBikeShare()) ? ParkingType.BIKE : ParkingType.CAR;
+        queue.add(new ScheduledEvent(time, sequence++, true, null, parkingType));
+    }
+
+    private double arrivalsPerMilli(long time) {
+        Instant instant = Instant.ofEpochMilli(time);
+        int hour = (int) ((time % DAY_MILLIS) / HOUR_MILLIS);
+        DayOfWeek dayOfWeek = instant.atZone(ZoneOffset.UTC).getDayOfWeek();
+        double factor = (dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY) ? profile.getWeekendFactor() : 1;
+        return profile.getArrivalsPerHour() * HOURLY_WEIGHTS[hour] / MEAN_HOURLY_WEIGHT * factor / HOUR_MILLIS;
+    }
+
+    private String pickPlate() {
+        if (random.nextDouble() < profile.getRecurrentShare() && profile.getRecurrentPlates() > 0) {
+            String plate = "R" + Integer.toString(random.nextInt(profile.getRecurrentPlates()), 36).toUpperCase(Locale.ROOT);
+            if (parked.add(plate)) {
+                return plate;
+            }
+        }
+        String plate = "N" + Long.toString(newPlates++, 36).toUpperCase(Locale.ROOT);
+        parked.add(plate);
+        return plate;
+    }
+
+    private long dwell() {
+        double minutes = profile.getDwellMedianMinutes() * Math.exp(profile.getDwellSigma() * random.nextGaussian());
+        return Math.max(1, (long) (minutes * 60_000));
+    }
+
+    // queues the feed and returns the time of its last event
+    private long loadReplay() throws IOException {
+        long last = 0;
+        try (BufferedReader feed = Files.newBufferedReader(Paths.get(profile.getReplayFile()), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = feed.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                PlateEvent event = PlateEventIngestor.parse(line);
+                if (event == null) {
+                    continue;
+                }
+                boolean entry = event.getDirection() == PlateEvent.Direction.ENTRY;
+                ParkingType parkingType = (event.getParkingType() == null) ? ParkingType.CAR : event.getParkingType();
+                queue.add(new ScheduledEvent(event.getTimestamp(), sequence++, entry, event.getVehicleRegNumber(), parkingType));
+                last = Math.max(last, event.getTimestamp());
+            }
+        }
+        logger.info("Replaying " + queue.size() + " plate events from " + profile.getReplayFile());
+        return last;
+    }
+
+    // an entry or a departure; generated entries have no plate until they happen
+    private static final class ScheduledEvent implements Comparable<ScheduledEvent> {
+
+        final long time;
+        final long sequence;
+        final boolean entry;
+        final String plate;
+        final ParkingType parkingType;
+
+        ScheduledEvent(long time, long sequence, boolean entry, String plate, ParkingType parkingType) {
+            this.time = time;
+            this.sequence = sequence;
+            this.entry = entry;
+            this.plate = plate;
+            this.parkingType = parkingType;
+        }
+
+        // equal times keep the order they were queued in, so runs do not depend on heap internals
+        @Override
+        public int compareTo(ScheduledEvent other) {
+            int byTime = Long.compare(time, other.time);
+            return (byTime != 0) ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
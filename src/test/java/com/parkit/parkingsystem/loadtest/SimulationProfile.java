@@ -0,0 +1,129 @@
+package com.parkit.parkingsystem.loadtest;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Settings of a simulation, read from key=value arguments. Days run on a virtual clock, so a month of
+ * traffic takes seconds; the same seed always gives the same run.
+ */
+public class SimulationProfile {
+
+    private int days = 28;
+    private LocalDate startDate = LocalDate.of(2024, 1, 1);
+    private double arrivalsPerHour = 60;
+    private double weekendFactor = 0.6;
+    private double dwellMedianMinutes = 90;
+    private double dwellSigma = 0.8;
+    private double bikeShare = 0.2;
+    private double recurrentShare = 0.3;
+    private int recurrentPlates = 500;
+    private int carSpots = 200;
+    private int bikeSpots = 50;
+    private boolean dynamicPricing;
+    private String replayFile;
+    private long seed = 42;
+
+    public static SimulationProfile parse(String[] args) {
+        Map<String, String> values = new TreeMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            values.put(arg.substring(0, separator).trim(), arg.substring(separator + 1).trim());
+        }
+        SimulationProfile profile = new SimulationProfile();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String value = entry.getValue();
+            switch (entry.getKey()) {
+                case "days": profile.days = Integer.parseInt(value); break;
+                case "startDate": profile.startDate = LocalDate.parse(value); break;
+                case "arrivalsPerHour": profile.arrivalsPerHour = Double.parseDouble(value); break;
+                case "weekendFactor": profile.weekendFactor = Double.parseDouble(value); break;
+                case "dwellMedianMinutes": profile.dwellMedianMinutes = Double.parseDouble(value); break;
+                case "dwellSigma": profile.dwellSigma = Double.parseDouble(value); break;
+                case "bikeShare": profile.bikeShare = Double.parseDouble(value); break;
+                case "recurrentShare": profile.recurrentShare = Double.parseDouble(value); break;
+                case "recurrentPlates": profile.recurrentPlates = Integer.parseInt(value); break;
+                case "carSpots": profile.carSpots = Integer.parseInt(value); break;
+                case "bikeSpots": profile.bikeSpots = Integer.parseInt(value); break;
+                case "dynamicPricing": profile.dynamicPricing = Boolean.parseBoolean(value); break;
+                case "replay": profile.replayFile = value; break;
+                case "seed": profile.seed = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("Unknown simulation setting: " + entry.getKey());
+            }
+        }
+        if (profile.days <= 0 || profile.arrivalsPerHour <= 0 || profile.weekendFactor < 0) {
+            throw new IllegalArgumentException("days and arrivalsPerHour must be positive, weekendFactor not negative");
+        }
+        return profile;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    // mean over a weekday; the hour of the day and weekends shape it
+    public double getArrivalsPerHour() {
+        return arrivalsPerHour;
+    }
+
+    public double getWeekendFactor() {
+        return weekendFactor;
+    }
+
+    public double getDwellMedianMinutes() {
+        return dwellMedianMinutes;
+    }
+
+    public double getDwellSigma() {
+        return dwellSigma;
+    }
+
+    public double getBikeShare() {
+        return bikeShare;
+    }
+
+    public double getRecurrentShare() {
+        return recurrentShare;
+    }
+
+    public int getRecurrentPlates() {
+        return recurrentPlates;
+    }
+
+    public int getCarSpots() {
+        return carSpots;
+    }
+
+    public int getBikeSpots() {
+        return bikeSpots;
+    }
+
+    public boolean isDynamicPricing() {
+        return dynamicPricing;
+    }
+
+    // plate feed replayed instead of generated traffic, null when traffic is generated
+    public String getReplayFile() {
+        return replayFile;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String describe() {
+        return ((replayFile != null) ? "replay=" + replayFile : "days=" + days + " startDate=" + startDate
+                + " arrivalsPerHour=" + arrivalsPerHour + " weekendFactor=" + weekendFactor
+                + " dwellMedianMinutes=" + dwellMedianMinutes + " bikeShare=" + bikeShare
+                + " recurrentShare=" + recurrentShare + " seed=" + seed)
+                + " carSpots=" + carSpots + " bikeSpots=" + bikeSpots + " dynamicPricing=" + dynamicPricing;
+    }
+}
@@ -0,0 +1,119 @@
+package com.parkit.parkingsystem.loadtest;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What a simulation produced, in simulated time: traffic, revenue per day and type, and the peak
+ * occupancy reached. Two runs with the same profile and seed give equal results.
+ */
+public class SimulationResult {
+
+    private final Map<LocalDate, Map<ParkingType, Double>> revenueByDay = new TreeMap<>();
+    private final Map<ParkingType, Integer> peakOccupancy = new EnumMap<>(ParkingType.class);
+    private final Map<ParkingType, Integer> occupancy = new EnumMap<>(ParkingType.class);
+    private long entries;
+    private long exits;
+    private long lotFull;
+    private long failures;
+    private long simulatedMillis;
+    private long wallMillis;
+
+    void recordEntry(ParkingType parkingType) {
+        entries++;
+        int occupied = occupancy.merge(parkingType, 1, Integer::sum);
+        peakOccupancy.merge(parkingType, occupied, Math::max);
+    }
+
+    void recordExit(LocalDate day, ParkingType parkingType, double price) {
+        exits++;
+        occupancy.merge(parkingType, -1, Integer::sum);
+        revenueByDay.computeIfAbsent(day, d -> new EnumMap<>(ParkingType.class)).merge(parkingType, price, Double::sum);
+    }
+
+    void recordLotFull() {
+        lotFull++;
+    }
+
+    void recordFailure() {
+        failures++;
+    }
+
+    void finish(long simulatedMillis, long wallMillis) {
+        this.simulatedMillis = simulatedMillis;
+        this.wallMillis = wallMillis;
+    }
+
+    public long getEntries() {
+        return entries;
+    }
+
+    public long getExits() {
+        return exits;
+    }
+
+    public long getLotFull() {
+        return lotFull;
+    }
+
+    // exits that found no open ticket
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getStillParked() {
+        return entries - exits;
+    }
+
+    public int getPeakOccupancy(ParkingType parkingType) {
+        return peakOccupancy.getOrDefault(parkingType, 0);
+    }
+
+    public Map<LocalDate, Map<ParkingType, Double>> getRevenueByDay() {
+        return Collections.unmodifiableMap(revenueByDay);
+    }
+
+    public double getRevenue(ParkingType parkingType) {
+        double revenue = 0;
+        for (Map<ParkingType, Double> day : revenueByDay.values()) {
+            revenue += day.getOrDefault(parkingType, 0.0);
+        }
+        return revenue;
+    }
+
+    public double getTotalRevenue() {
+        return getRevenue(ParkingType.CAR) + getRevenue(ParkingType.BIKE);
+    }
+
+    public long getSimulatedMillis() {
+        return simulatedMillis;
+    }
+
+    public long getWallMillis() {
+        return wallMillis;
+    }
+
+    public String format() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%12s %10s %10s %10s%n", "day", "car", "bike", "total"));
+        for (Map.Entry<LocalDate, Map<ParkingType, Double>> day : revenueByDay.entrySet()) {
+            double car = day.getValue().getOrDefault(ParkingType.CAR, 0.0);
+            double bike = day.getValue().getOrDefault(ParkingType.BIKE, 0.0);
+            report.append(String.format(Locale.ROOT, "%12s %10.2f %10.2f %10.2f%n", day.getKey(), car, bike, car + bike));
+        }
+        report.append(String.format(Locale.ROOT, "%12s %10.2f %10.2f %10.2f%n", "total",
+                getRevenue(ParkingType.CAR), getRevenue(ParkingType.BIKE), getTotalRevenue()));
+        report.append(String.format(Locale.ROOT,
+                "entries=%d exits=%d lotFull=%d failures=%d stillParked=%d peakCar=%d peakBike=%d%n",
+                entries, exits, lotFull, failures, getStillParked(),
+                getPeakOccupancy(ParkingType.CAR), getPeakOccupancy(ParkingType.BIKE)));
+        report.append(String.format(Locale.ROOT, "%.1f simulated days in %d ms", simulatedMillis / 86_400_000.0, wallMillis));
+        return report.toString();
+    }
+}
@@ -0,0 +1,116 @@
+package com.parkit.parkingsystem.loadtest;
+
+import java.util.Locale;
+
+public class StageResult {
+
+    public static final String CSV_HEADER = "runId,offeredArrivalsPerSec,achievedArrivalsPerSec,operationsPerSec,entries,exits,lotFull,failures,"
+            + "entryP50Micros,entryP90Micros,entryP99Micros,exitP50Micros,exitP90Micros,exitP99Micros,p999Micros,maxMicros,"
+            + "roundTripsPerEntry,roundTripsPerExit,saturated,profile";
+
+    private final double offeredArrivalRate;
+    private final long stageSeconds;
+    private final double elapsedSeconds;
+    private final long entries;
+    private final long exits;
+    private final long lotFull;
+    private final long failures;
+    private final LatencyHistogram entryLatency;
+    private final LatencyHistogram exitLatency;
+    private final long entryRoundTrips;
+    private final long exitRoundTrips;
+    private final boolean saturated;
+
+    public StageResult(double offeredArrivalRate, long stageSeconds, double elapsedSeconds, long entries, long exits, long lotFull, long failures,
+                       LatencyHistogram entryLatency, LatencyHistogram exitLatency, long entryRoundTrips, long exitRoundTrips,
+                       long sloMillis) {
+        this.offeredArrivalRate = offeredArrivalRate;
+        this.stageSeconds = stageSeconds;
+        this.elapsedSeconds = elapsedSeconds;
+        this.entries = entries;
+        this.exits = exits;
+        this.lotFull = lotFull;
+        this.failures = failures;
+        this.entryLatency = entryLatency;
+        this.exitLatency = exitLatency;
+        this.entryRoundTrips = entryRoundTrips;
+        this.exitRoundTrips = exitRoundTrips;
+        // the gates were still working off a backlog after the stage ended, or the tail broke the SLO
+        this.saturated = elapsedSeconds > stageSeconds * 1.05
+                || merge(entryLatency, exitLatency).getPercentileMicros(99) > sloMillis * 1000;
+    }
+
+    public double getOfferedArrivalRate() {
+        return offeredArrivalRate;
+    }
+
+    public double getAchievedArrivalRate() {
+        return (entries + lotFull) / elapsedSeconds;
+    }
+
+    public double getOperationRate() {
+        return (entries + exits + lotFull + failures) / elapsedSeconds;
+    }
+
+    public long getEntries() {
+        return entries;
+    }
+
+    public long getExits() {
+        return exits;
+    }
+
+    public long getLotFull() {
+        return lotFull;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public LatencyHistogram getEntryLatency() {
+        return entryLatency;
+    }
+
+    public LatencyHistogram getExitLatency() {
+        return exitLatency;
+    }
+
+    public LatencyHistogram getAllLatency() {
+        return merge(entryLatency, exitLatency);
+    }
+
+    private static LatencyHistogram merge(LatencyHistogram entryLatency, LatencyHistogram exitLatency) {
+        LatencyHistogram all = new LatencyHistogram();
+        all.merge(entryLatency);
+        all.merge(exitLatency);
+        return all;
+    }
+
+    public double getRoundTripsPerEntry() {
+        return (entryLatency.getCount() == 0) ? 0 : (double) entryRoundTrips / entryLatency.getCount();
+    }
+
+    public double getRoundTripsPerExit() {
+        return (exitLatency.getCount() == 0) ? 0 : (double) exitRoundTrips / exitLatency.getCount();
+    }
+
+    public boolean isSaturated() {
+        return saturated;
+    }
+
+    public String toCsv(String runId, String profile) {
+        LatencyHistogram all = getAllLatency();
+        return String.join(",", runId,
+                String.format(Locale.ROOT, "%.1f", offeredArrivalRate), String.format(Locale.ROOT, "%.1f", getAchievedArrivalRate()),
+                String.format(Locale.ROOT, "%.1f", getOperationRate()),
+                Long.toString(entries), Long.toString(exits), Long.toString(lotFull), Long.toString(failures),
+                Long.toString(entryLatency.getPercentileMicros(50)), Long.toString(entryLatency.getPercentileMicros(90)),
+                Long.toString(entryLatency.getPercentileMicros(99)),
+                Long.toString(exitLatency.getPercentileMicros(50)), Long.toString(exitLatency.getPercentileMicros(90)),
+                Long.toString(exitLatency.getPercentileMicros(99)),
+                Long.toString(all.getPercentileMicros(99.9)), Long.toString(all.getMaxMicros()),
+                String.format(Locale.ROOT, "%.2f", getRoundTripsPerEntry()), String.format(Locale.ROOT, "%.2f", getRoundTripsPerExit()),
+                Boolean.toString(saturated), "\"" + profile + "\"");
+    }
+}